@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.adtui.model;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A {@link LongDataSeries} that caches the samples of another {@link DataSeries}, e.g. one backed by the profiler's data store.
+ * A query only fetches the samples that are newer than the cached ones from the source series, and is then answered from the
+ * cache. Samples that have scrolled out of the queried ranges are dropped once they make up most of the cache, so the cache
+ * holds about the samples of the visible range rather than of the whole session. A query that starts before the cached samples
+ * refetches its range.
+ * <p>
+ * Like the data store backed series, the data returned includes the samples just before and just after the range, so lines
+ * reach the edges of the range.
+ * <p>
+ * The source series has to return its samples in increasing x order, and samples older than the ones already returned must
+ * not show up later.
+ */
+public class CachingLongDataSeries extends LongDataSeries {
+  /**
+   * The minimum number of samples before the queried range for the cache to be trimmed, so that it is not copied for every
+   * query of a scrolling range.
+   */
+  @VisibleForTesting
+  static final int MIN_TRIMMED_SAMPLES = 1024;
+
+  @NotNull private final DataSeries<Long> mySource;
+  /**
+   * The start of the range covered by the cache. Queries starting at or after it are answered from the cache.
+   */
+  private double myCachedMin = Double.NaN;
+
+  public CachingLongDataSeries(@NotNull DataSeries<Long> source) {
+    mySource = source;
+  }
+
+  @Override
+  @NotNull
+  public synchronized LongSeriesDataList getDataForRange(@NotNull Range range) {
+    update(range);
+    return super.getDataForRange(withNextSample(range));
+  }
+
+  @Override
+  @NotNull
+  public synchronized LongSeriesDataList getDataForRange(@NotNull Range range, int maxBuckets) {
+    update(range);
+    return super.getDataForRange(withNextSample(range), maxBuckets);
+  }
+
+  /**
+   * Appends the samples of the source series up to the end of the given range that are not cached yet, and drops the samples
+   * that are well before it.
+   */
+  private void update(@NotNull Range range) {
+    if (range.isEmpty()) {
+      return;
+    }
+    if (size() == 0 || !(range.getMin() >= myCachedMin)) {
+      removeBefore(size());
+      myCachedMin = range.getMin();
+    }
+    boolean empty = size() == 0;
+    long lastX = empty ? Long.MIN_VALUE : getX(size() - 1);
+    double min = empty ? myCachedMin : lastX;
+    if (range.getMax() < min || (!empty && range.getMax() <= lastX)) {
+      trim(range);
+      return;
+    }
+    for (SeriesData<Long> data : mySource.getDataForRange(new Range(min, range.getMax()))) {
+      // The source may return samples around the requested range, including the last cached one.
+      if (data.x > lastX) {
+        add(data.x, data.value);
+        lastX = data.x;
+      }
+    }
+    trim(range);
+  }
+
+  /**
+   * Drops the samples before the given range, except for the one just before it, if they are the majority of the cache.
+   */
+  private void trim(@NotNull Range range) {
+    int first = getNearestXIndex((long)range.getMin());
+    if (first >= MIN_TRIMMED_SAMPLES && first >= size() / 2) {
+      removeBefore(first);
+      myCachedMin = getX(0);
+    }
+  }
+
+  /**
+   * Extends the range to the first cached sample after it.
+   */
+  @NotNull
+  private Range withNextSample(@NotNull Range range) {
+    if (range.isEmpty()) {
+      return range;
+    }
+    int next = getNearestXIndex((long)range.getMax()) + 1;
+    return next < size() && getX(next - 1) <= range.getMax() ? new Range(range.getMin(), getX(next)) : range;
+  }
+}
@@ -15,14 +15,10 @@
  */
 package com.android.tools.adtui.model;
 
-import com.intellij.util.containers.ContainerUtil;
 import java.util.ArrayList;
-import java.util.Collections;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 
 public class DefaultDataSeries<E> implements DataSeries<E> {
@@ -30,7 +26,7 @@ public class DefaultDataSeries<E> implements DataSeries<E> {
 
   @NotNull
   private List<SeriesData<E>> getDataSubList(final int fromIndex, final int toIndex) {
-    return IntStream.range(fromIndex, toIndex).mapToObj(index -> mSeriesList.get(index)).collect(Collectors.toList());
+    return new ArrayList<>(mSeriesList.subList(fromIndex, toIndex));
   }
 
   @Override
@@ -72,7 +68,7 @@ public class DefaultDataSeries<E> implements DataSeries<E> {
   }
 
   public int getNearestXIndex(long x) {
-    int index = Collections.binarySearch(ContainerUtil.map(mSeriesList, data -> data.x), x);
+    int index = binarySearchX(x);
 
     if (index < 0) {
       // No exact match, returns position to the left of the insertion point.
@@ -85,4 +81,26 @@ public class DefaultDataSeries<E> implements DataSeries<E> {
 
     return Math.max(0, Math.min(index, size() - 1));
   }
+
+  /**
+   * Same contract as {@link java.util.Collections#binarySearch(List, Object)} on the x values, without copying them into a list.
+   */
+  private int binarySearchX(long x) {
+    int low = 0;
+    int high = mSeriesList.size() - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      long midX = mSeriesList.get(mid).x;
+      if (midX < x) {
+        low = mid + 1;
+      }
+      else if (midX > x) {
+        high = mid - 1;
+      }
+      else {
+        return mid;
+      }
+    }
+    return -(low + 1);
+  }
 }
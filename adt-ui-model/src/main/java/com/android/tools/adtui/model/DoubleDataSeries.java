@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.adtui.model;
+
+import java.util.Arrays;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A {@link DataSeries} of double values stored in primitive arrays. Compared to {@link DefaultDataSeries}, it does not
+ * allocate an object per sample, looks up x values without allocating and returns views of its arrays from
+ * {@link #getDataForRange(Range)} instead of copying the data into new lists. It also maintains a {@link MinMaxPyramid} of
+ * its values, so that {@link #getDataForRange(Range, int)} can return a downsampled version of a wide range at a cost
+ * proportional to the requested resolution rather than to the number of samples in the range. The x values are
+ * longs, like in {@link LongDataSeries}.
+ * <p>
+ * Samples have to be added in increasing x order. The series is thread-safe: samples can be added while charts read it on
+ * the UI thread, and the views it returns are never modified afterwards.
+ */
+public class DoubleDataSeries implements DataSeries<Double> {
+  private static final int INITIAL_CAPACITY = 64;
+
+  @NotNull private long[] myX = new long[INITIAL_CAPACITY];
+  @NotNull private double[] myY = new double[INITIAL_CAPACITY];
+  private int mySize;
+  // Only accessed while holding the lock of the series, as the pyramid itself is not thread-safe.
+  @NotNull private MinMaxPyramid myPyramid = createPyramid();
+
+  public synchronized void add(long x, double y) {
+    if (mySize == myX.length) {
+      // Growing replaces the arrays, so the views returned earlier keep referencing the old arrays which are never modified again.
+      int capacity = myX.length * 2;
+      myX = Arrays.copyOf(myX, capacity);
+      myY = Arrays.copyOf(myY, capacity);
+    }
+    myX[mySize] = x;
+    myY[mySize] = y;
+    mySize++;
+    myPyramid.add();
+  }
+
+  /**
+   * Removes the samples before the given index. The remaining samples are copied to new arrays, so the views returned earlier
+   * are not affected.
+   */
+  public synchronized void removeBefore(int index) {
+    if (index <= 0) {
+      return;
+    }
+    int start = Math.min(index, mySize);
+    int size = mySize - start;
+    int capacity = Math.max(INITIAL_CAPACITY, Integer.highestOneBit(Math.max(size, 1)) * 2);
+    myX = Arrays.copyOfRange(myX, start, start + capacity);
+    myY = Arrays.copyOfRange(myY, start, start + capacity);
+    mySize = size;
+    myPyramid = createPyramid();
+    for (int i = 0; i < size; i++) {
+      myPyramid.add();
+    }
+  }
+
+  public synchronized int size() {
+    return mySize;
+  }
+
+  public synchronized long getX(int index) {
+    checkIndex(index);
+    return myX[index];
+  }
+
+  public synchronized double getY(int index) {
+    checkIndex(index);
+    return myY[index];
+  }
+
+  @Override
+  @NotNull
+  public synchronized DoubleSeriesDataList getDataForRange(@NotNull Range range) {
+    if (mySize == 0 || range.isEmpty()) {
+      return DoubleSeriesDataList.EMPTY;
+    }
+    int fromIndex = getNearestXIndex((long)range.getMin());
+    int toIndex = getNearestXIndex((long)range.getMax()) + 1;
+    return new DoubleSeriesDataList(myX, myY, fromIndex, toIndex);
+  }
+
+  /**
+   * Returns the samples in the given range like {@link #getDataForRange(Range)}, downsampled to about {@code maxBuckets}
+   * buckets if the range contains many more samples. For each bucket the first, last, smallest and largest samples are
+   * returned in x order, so a line drawn through them looks the same at the resolution of the buckets.
+   */
+  @NotNull
+  public synchronized DoubleSeriesDataList getDataForRange(@NotNull Range range, int maxBuckets) {
+    if (mySize == 0 || range.isEmpty()) {
+      return DoubleSeriesDataList.EMPTY;
+    }
+    int fromIndex = getNearestXIndex((long)range.getMin());
+    int toIndex = getNearestXIndex((long)range.getMax()) + 1;
+    int[] indices = myPyramid.downsample(fromIndex, toIndex, maxBuckets);
+    if (indices == null) {
+      return new DoubleSeriesDataList(myX, myY, fromIndex, toIndex);
+    }
+    long[] x = new long[indices.length];
+    double[] y = new double[indices.length];
+    for (int i = 0; i < indices.length; i++) {
+      x[i] = myX[indices[i]];
+      y[i] = myY[indices[i]];
+    }
+    return new DoubleSeriesDataList(x, y, 0, indices.length);
+  }
+
+  @NotNull
+  public synchronized DoubleSeriesDataList getAllData() {
+    return new DoubleSeriesDataList(myX, myY, 0, mySize);
+  }
+
+  /**
+   * Returns the index of the last sample whose x is not greater than the given one, or 0 if all samples are after it.
+   */
+  public synchronized int getNearestXIndex(long x) {
+    int index = Arrays.binarySearch(myX, 0, mySize, x);
+    if (index < 0) {
+      // No exact match, returns position to the left of the insertion point.
+      index = -index - 2;
+    }
+    return Math.max(0, Math.min(index, mySize - 1));
+  }
+
+  @NotNull
+  private MinMaxPyramid createPyramid() {
+    // The pyramid is only used while holding the lock, so it always sees the current array.
+    return new MinMaxPyramid((index1, index2) -> Double.compare(myY[index1], myY[index2]));
+  }
+
+  private void checkIndex(int index) {
+    if (index < 0 || index >= mySize) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + mySize);
+    }
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.adtui.model;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * An immutable view of a range of the samples of a {@link DoubleDataSeries}. Consumers aware of this class should use
+ * {@link #getX(int)} and {@link #getValue(int)} to read the samples without creating a {@link SeriesData} for each of them.
+ */
+public final class DoubleSeriesDataList extends AbstractList<SeriesData<Double>> implements RandomAccess {
+  static final DoubleSeriesDataList EMPTY = new DoubleSeriesDataList(new long[0], new double[0], 0, 0);
+
+  @NotNull private final long[] myX;
+  @NotNull private final double[] myY;
+  private final int myFromIndex;
+  private final int mySize;
+
+  DoubleSeriesDataList(@NotNull long[] x, @NotNull double[] y, int fromIndex, int toIndex) {
+    myX = x;
+    myY = y;
+    myFromIndex = fromIndex;
+    mySize = toIndex - fromIndex;
+  }
+
+  public long getX(int index) {
+    checkIndex(index);
+    return myX[myFromIndex + index];
+  }
+
+  public double getValue(int index) {
+    checkIndex(index);
+    return myY[myFromIndex + index];
+  }
+
+  @Override
+  @NotNull
+  public SeriesData<Double> get(int index) {
+    checkIndex(index);
+    return new SeriesData<>(myX[myFromIndex + index], myY[myFromIndex + index]);
+  }
+
+  @Override
+  public int size() {
+    return mySize;
+  }
+
+  private void checkIndex(int index) {
+    if (index < 0 || index >= mySize) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + mySize);
+    }
+  }
+}
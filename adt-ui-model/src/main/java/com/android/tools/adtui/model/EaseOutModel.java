@@ -60,6 +60,11 @@ public class EaseOutModel extends AspectModel<EaseOutModel.Aspect> implements Up
     }
   }
 
+  @Override
+  public boolean isDeferrable() {
+    return true;
+  }
+
   @Override
   public void update(long elapsedNs) {
     myTimeRemainingUntilEaseOut -= elapsedNs;
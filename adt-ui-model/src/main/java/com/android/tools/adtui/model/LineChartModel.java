@@ -38,6 +38,11 @@ public class LineChartModel extends AspectModel<LineChartModel.Aspect> implement
    */
   private boolean myFirstUpdate = true;
 
+  @Override
+  public boolean isDeferrable() {
+    return true;
+  }
+
   @Override
   public void update(long elapsedNs) {
     Map<Range, Double> maxPerRangeObject = new HashMap<>();
@@ -52,8 +57,9 @@ public class LineChartModel extends AspectModel<LineChartModel.Aspect> implement
         continue;
       }
 
-      for (SeriesData<Long> series : seriesList) {
-        double value = series.value;
+      // Read the values by index to avoid creating a SeriesData object for every sample of a LongDataSeries.
+      for (int i = 0; i < seriesList.size(); i++) {
+        double value = RangedContinuousSeries.getValue(seriesList, i);
         if (yMax < value) {
           yMax = value;
         }
@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.adtui.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Multi-resolution index of the minimum and maximum values of a series, used by {@link LongDataSeries} and
+ * {@link DoubleDataSeries} to downsample wide ranges. Level {@code l} splits the samples into buckets of {@code 4^(l+1)}
+ * consecutive samples and stores the indices of the smallest and largest value of each bucket. The pyramid is updated
+ * incrementally as samples are added, at a cost proportional to the number of levels. Values are compared through an
+ * {@link IndexComparator}, so the pyramid does not depend on how the series stores them.
+ * <p>
+ * The pyramid is not thread-safe: adding samples grows its arrays and list of levels in place, so the series only update
+ * and read it while holding their own lock.
+ */
+final class MinMaxPyramid {
+  /**
+   * Each level groups {@code 1 << FAN_OUT_BITS} buckets of the level below.
+   */
+  static final int FAN_OUT_BITS = 2;
+
+  /**
+   * Compares the values of the samples at two indices of the series.
+   */
+  interface IndexComparator {
+    int compare(int index1, int index2);
+  }
+
+  @NotNull private final IndexComparator myComparator;
+  @NotNull private final List<Level> myLevels = new ArrayList<>();
+  private int mySize;
+
+  MinMaxPyramid(@NotNull IndexComparator comparator) {
+    myComparator = comparator;
+  }
+
+  /**
+   * Returns the number of levels. Levels are added as samples are added so that the top level always has a single bucket.
+   */
+  int getLevelCount() {
+    return myLevels.size();
+  }
+
+  /**
+   * Returns the log2 of the number of samples in each bucket of the given level.
+   */
+  static int getBucketShift(int level) {
+    return (level + 1) * FAN_OUT_BITS;
+  }
+
+  int getMinIndex(int level, int bucket) {
+    return myLevels.get(level).myMinIndices[bucket];
+  }
+
+  int getMaxIndex(int level, int bucket) {
+    return myLevels.get(level).myMaxIndices[bucket];
+  }
+
+  /**
+   * Updates the pyramid after a sample has been appended to the series.
+   */
+  void add() {
+    int index = mySize++;
+    for (int level = 0; level < myLevels.size(); level++) {
+      myLevels.get(level).add(myComparator, index, index, index >> getBucketShift(level));
+    }
+    int topShift = myLevels.isEmpty() ? 0 : getBucketShift(myLevels.size() - 1);
+    if (index >> topShift > 0) {
+      // The top level, or the samples themselves if there are no levels yet, just got a second bucket.
+      myLevels.add(createLevel());
+    }
+  }
+
+  /**
+   * Returns the indices of the samples to draw for the samples from {@code fromIndex} inclusive to {@code toIndex} exclusive,
+   * downsampled to about {@code maxBuckets} buckets, or null if the range is narrow enough to be drawn as is. For each bucket
+   * the first, last, smallest and largest samples are returned in index order, so a line drawn through them looks the same at
+   * the resolution of the buckets.
+   */
+  @Nullable
+  int[] downsample(int fromIndex, int toIndex, int maxBuckets) {
+    int count = toIndex - fromIndex;
+    if (count <= maxBuckets * 4L || myLevels.isEmpty()) {
+      return null;
+    }
+    // Use the finest level with at most maxBuckets buckets in the range, or the coarsest one.
+    int level = 0;
+    while (level < myLevels.size() - 1 && count >> getBucketShift(level) > maxBuckets) {
+      level++;
+    }
+    int shift = getBucketShift(level);
+    int firstBucket = fromIndex >> shift;
+    int lastBucket = (toIndex - 1) >> shift;
+    int[] result = new int[(lastBucket - firstBucket + 1) * 4];
+    int size = 0;
+    for (int bucket = firstBucket; bucket <= lastBucket; bucket++) {
+      int first = Math.max(bucket << shift, fromIndex);
+      int last = Math.min((bucket + 1) << shift, toIndex) - 1;
+      int bucketStart = size;
+      result[size++] = first;
+      int min = getMinIndex(level, bucket);
+      int max = getMaxIndex(level, bucket);
+      // The extremes of the buckets at the edges of the range may be outside of it.
+      if (min > first && min < last) {
+        result[size++] = min;
+      }
+      if (max > first && max < last && max != min) {
+        result[size++] = max;
+      }
+      if (last != first) {
+        result[size++] = last;
+      }
+      Arrays.sort(result, bucketStart, size);
+    }
+    return Arrays.copyOf(result, size);
+  }
+
+  @NotNull
+  private Level createLevel() {
+    Level level = new Level();
+    if (myLevels.isEmpty()) {
+      for (int i = 0; i < mySize; i++) {
+        level.add(myComparator, i, i, i >> FAN_OUT_BITS);
+      }
+    }
+    else {
+      Level below = myLevels.get(myLevels.size() - 1);
+      for (int i = 0; i < below.myCount; i++) {
+        level.add(myComparator, below.myMinIndices[i], below.myMaxIndices[i], i >> FAN_OUT_BITS);
+      }
+    }
+    return level;
+  }
+
+  private static final class Level {
+    @NotNull private int[] myMinIndices = new int[4];
+    @NotNull private int[] myMaxIndices = new int[4];
+    private int myCount;
+
+    /**
+     * Merges the range of samples with the given extremes into a bucket, which is either the last bucket or a new one.
+     */
+    private void add(@NotNull IndexComparator comparator, int minIndex, int maxIndex, int bucket) {
+      if (bucket == myCount) {
+        if (myCount == myMinIndices.length) {
+          myMinIndices = Arrays.copyOf(myMinIndices, myCount * 2);
+          myMaxIndices = Arrays.copyOf(myMaxIndices, myCount * 2);
+        }
+        myMinIndices[bucket] = minIndex;
+        myMaxIndices[bucket] = maxIndex;
+        myCount++;
+        return;
+      }
+      if (comparator.compare(minIndex, myMinIndices[bucket]) < 0) {
+        myMinIndices[bucket] = minIndex;
+      }
+      if (comparator.compare(maxIndex, myMaxIndices[bucket]) > 0) {
+        myMaxIndices[bucket] = maxIndex;
+      }
+    }
+  }
+}
@@ -16,6 +16,7 @@
 
 package com.android.tools.adtui.model;
 
+import java.util.List;
 import org.jetbrains.annotations.NotNull;
 
 /**
@@ -47,6 +48,30 @@ public class RangedContinuousSeries extends RangedSeries<Long> {
     this(name, xRange, yRange, series, new Range(-Double.MAX_VALUE, Double.MAX_VALUE));
   }
 
+  /**
+   * Returns the data of the series like {@link #getSeries()}. If the series is a {@link LongDataSeries}, wide ranges are
+   * downsampled to about {@code maxBuckets} buckets, e.g. one per pixel, so the amount of data returned does not grow with
+   * the number of samples in the range.
+   */
+  @NotNull
+  public List<SeriesData<Long>> getSeries(int maxBuckets) {
+    if (mySeries instanceof LongDataSeries) {
+      return ((LongDataSeries)mySeries).getDataForRange(getIntersection(), maxBuckets);
+    }
+    return getSeries();
+  }
+
+  /**
+   * Returns the value of the sample at the given index of a list returned by {@link #getSeries()}, without creating a
+   * {@link SeriesData} if the list is a view of a {@link LongDataSeries}. See also {@link RangedSeries#getX(List, int)}.
+   */
+  public static long getValue(@NotNull List<SeriesData<Long>> series, int index) {
+    if (series instanceof LongSeriesDataList) {
+      return ((LongSeriesDataList)series).getValue(index);
+    }
+    return series.get(index).value;
+  }
+
   @NotNull
   public Range getYRange() {
     return myYRange;
@@ -97,6 +97,20 @@ public class RangedSeries<E> {
     return mySeries.getDataForRange(range);
   }
 
+  /**
+   * Returns the x of the sample at the given index of a list returned by {@link #getSeries()}. If the list is a view of a
+   * {@link LongDataSeries} or a {@link DoubleDataSeries}, the x is read from its arrays instead of creating a {@link SeriesData}.
+   */
+  public static long getX(@NotNull List<? extends SeriesData<?>> series, int index) {
+    if (series instanceof LongSeriesDataList) {
+      return ((LongSeriesDataList)series).getX(index);
+    }
+    if (series instanceof DoubleSeriesDataList) {
+      return ((DoubleSeriesDataList)series).getX(index);
+    }
+    return series.get(index).x;
+  }
+
   /**
    * @return A new range object that represents the intersection between the default and intersect ranges.
    */
@@ -107,10 +107,10 @@ public final class Filter {
   public boolean equals(Object obj) {
     if (obj instanceof Filter) {
       Filter filter = ((Filter)obj);
-      if (myPattern == null) {
-        return filter.myPattern == null;
+      if (myPattern == null || filter.myPattern == null) {
+        return myPattern == filter.myPattern;
       }
-      return myPattern.pattern().equals(filter.myPattern) && myPattern.flags() == filter.myPattern.flags();
+      return myPattern.pattern().equals(filter.myPattern.pattern()) && myPattern.flags() == filter.myPattern.flags();
     }
     return false;
   }
@@ -40,6 +40,15 @@ public interface Updatable {
   default void postUpdate() {
   }
 
+  /**
+   * Returns true if updating this {@link Updatable} may be postponed to the next frame when the other updatables have
+   * used up the frame budget of the {@link Updater}. A deferred {@link Updatable} receives the time elapsed over both
+   * frames in its next {@link #update(long)}, and its {@link #postUpdate()} is skipped along with the update.
+   */
+  default boolean isDeferrable() {
+    return false;
+  }
+
   /**
    * An auxiliary function to allow an {@link Updatable} to configure its interpolation speed when calling the
    * {@link Choreographer#lerp(float, float, float, float, float)} method.
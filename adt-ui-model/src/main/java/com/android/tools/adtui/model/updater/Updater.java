@@ -17,15 +17,24 @@
 package com.android.tools.adtui.model.updater;
 
 import com.android.tools.adtui.model.StopwatchTimer;
+import com.google.common.annotations.VisibleForTesting;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
 
 /**
  * An auxiliary object that synchronizes a group of {@link Updatable} via a simple update loop
  * running at a specific frame rate. This ensures all UI components and model classes are reading
  * and displaying consistent information at any given time.
+ * <p>
+ * The time spent updating each {@link Updatable} is recorded in the {@link UpdaterStats} returned by {@link #getStats()}.
+ * Once the updates of a frame have used up the frame budget, {@link Updatable#isDeferrable() deferrable} updatables are
+ * skipped for that frame and updated in the next one instead.
  */
 public class Updater implements StopwatchTimer.TickHandler {
 
@@ -40,7 +49,20 @@ public class Updater implements StopwatchTimer.TickHandler {
 
   private boolean mUpdating;
 
+  @NotNull private final LongSupplier mClock;
+  @NotNull private final UpdaterStats mStats = new UpdaterStats();
+  private long mFrameBudgetNs = Long.MAX_VALUE;
+  /** Time elapsed since the last update of each {@link Updatable} skipped in the previous frame. */
+  private final Map<Updatable, Long> mDeferredElapsedNs = new IdentityHashMap<>();
+  private final List<Updatable> mUpdated = new ArrayList<>();
+
   public Updater(@NotNull StopwatchTimer timer) {
+    this(timer, System::nanoTime);
+  }
+
+  @VisibleForTesting
+  Updater(@NotNull StopwatchTimer timer, @NotNull LongSupplier clock) {
+    mClock = clock;
     mComponents = new LinkedList<>();
     mToRegister = new LinkedList<>();
     mToUnregister = new LinkedList<>();
@@ -75,6 +97,7 @@ public class Updater implements StopwatchTimer.TickHandler {
     }
     else {
       mComponents.remove(updatable);
+      mDeferredElapsedNs.remove(updatable);
     }
   }
 
@@ -92,16 +115,52 @@ public class Updater implements StopwatchTimer.TickHandler {
     mReset = true;
   }
 
+  @NotNull
+  public UpdaterStats getStats() {
+    return mStats;
+  }
+
+  public long getFrameBudgetNs() {
+    return mFrameBudgetNs;
+  }
+
+  /**
+   * Sets the time the updates of a single frame may take before deferrable updatables are skipped. By default the
+   * budget is unlimited and no updatable is ever skipped.
+   */
+  public void setFrameBudgetNs(long frameBudgetNs) {
+    mFrameBudgetNs = frameBudgetNs;
+  }
+
   @Override
   public void onTick(long elapsedNs) {
     mUpdating = true;
     if (mReset) {
       mComponents.forEach(Updatable::reset);
+      mDeferredElapsedNs.clear();
       mReset = false;
     }
 
-    mComponents.forEach(component -> component.update(elapsedNs));
-    mComponents.forEach(Updatable::postUpdate);
+    long frameStartNs = mClock.getAsLong();
+    long nowNs = frameStartNs;
+    for (Updatable component : mComponents) {
+      Long deferredNs = mDeferredElapsedNs.remove(component);
+      // An updatable skipped in the previous frame is always updated, so it never falls more than a frame behind.
+      if (deferredNs == null && component.isDeferrable() && nowNs - frameStartNs > mFrameBudgetNs) {
+        mDeferredElapsedNs.put(component, elapsedNs);
+        mStats.recordDeferral(component);
+        continue;
+      }
+      long startNs = nowNs;
+      component.update(deferredNs == null ? elapsedNs : deferredNs + elapsedNs);
+      nowNs = mClock.getAsLong();
+      mStats.recordUpdate(component, nowNs - startNs);
+      mUpdated.add(component);
+    }
+    mUpdated.forEach(Updatable::postUpdate);
+    mUpdated.clear();
+    long frameTimeNs = mClock.getAsLong() - frameStartNs;
+    mStats.recordFrame(frameTimeNs, frameTimeNs > mFrameBudgetNs);
     mUpdating = false;
 
     mToUnregister.forEach(this::unregister);
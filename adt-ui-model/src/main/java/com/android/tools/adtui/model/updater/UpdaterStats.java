@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.adtui.model.updater;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Timing statistics collected by an {@link Updater}. The time spent in {@link Updatable#update(long)} is aggregated per
+ * {@link Updatable} class, so that the models slowing down the update loop can be identified. Like the {@link Updater}
+ * itself, this class is only meant to be accessed from the thread running the update loop.
+ */
+public final class UpdaterStats {
+  /**
+   * Number of buckets of the update time histograms. Bucket {@code i} counts the updates that took less than {@code 2^i}
+   * milliseconds, and the last bucket counts all slower updates.
+   */
+  public static final int HISTOGRAM_BUCKET_COUNT = 8;
+
+  private final Map<Class<?>, UpdatableStats> myUpdatableStats = new HashMap<>();
+  private long myFrameCount;
+  private long myOverBudgetFrameCount;
+  private long myMaxFrameTimeNs;
+
+  /**
+   * Returns the number of frames run by the {@link Updater}.
+   */
+  public long getFrameCount() {
+    return myFrameCount;
+  }
+
+  /**
+   * Returns the number of frames in which updating took longer than the frame budget of the {@link Updater}.
+   */
+  public long getOverBudgetFrameCount() {
+    return myOverBudgetFrameCount;
+  }
+
+  /**
+   * Returns the longest time spent updating in a single frame.
+   */
+  public long getMaxFrameTimeNs() {
+    return myMaxFrameTimeNs;
+  }
+
+  /**
+   * Returns the statistics of all {@link Updatable} classes, sorted by decreasing total update time.
+   */
+  @NotNull
+  public List<UpdatableStats> getUpdatableStats() {
+    List<UpdatableStats> stats = new ArrayList<>(myUpdatableStats.values());
+    stats.sort(Comparator.comparingLong(UpdatableStats::getTotalTimeNs).reversed());
+    return stats;
+  }
+
+  /**
+   * Clears all collected statistics.
+   */
+  public void clear() {
+    myUpdatableStats.clear();
+    myFrameCount = 0;
+    myOverBudgetFrameCount = 0;
+    myMaxFrameTimeNs = 0;
+  }
+
+  void recordUpdate(@NotNull Updatable updatable, long timeNs) {
+    getOrCreate(updatable).recordUpdate(timeNs);
+  }
+
+  void recordDeferral(@NotNull Updatable updatable) {
+    getOrCreate(updatable).myDeferredCount++;
+  }
+
+  void recordFrame(long timeNs, boolean overBudget) {
+    myFrameCount++;
+    myMaxFrameTimeNs = Math.max(myMaxFrameTimeNs, timeNs);
+    if (overBudget) {
+      myOverBudgetFrameCount++;
+    }
+  }
+
+  @NotNull
+  private UpdatableStats getOrCreate(@NotNull Updatable updatable) {
+    return myUpdatableStats.computeIfAbsent(updatable.getClass(), UpdatableStats::new);
+  }
+
+  /**
+   * Update time statistics of all instances of an {@link Updatable} class.
+   */
+  public static final class UpdatableStats {
+    private static final long MILLISECOND_NS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @NotNull private final Class<?> myUpdatableClass;
+    private final long[] myHistogram = new long[HISTOGRAM_BUCKET_COUNT];
+    private long myUpdateCount;
+    private long myTotalTimeNs;
+    private long myMaxTimeNs;
+    private long myDeferredCount;
+
+    private UpdatableStats(@NotNull Class<?> updatableClass) {
+      myUpdatableClass = updatableClass;
+    }
+
+    @NotNull
+    public Class<?> getUpdatableClass() {
+      return myUpdatableClass;
+    }
+
+    public long getUpdateCount() {
+      return myUpdateCount;
+    }
+
+    public long getTotalTimeNs() {
+      return myTotalTimeNs;
+    }
+
+    public long getMaxTimeNs() {
+      return myMaxTimeNs;
+    }
+
+    /**
+     * Returns the number of times an update was skipped because the frame budget was exhausted.
+     */
+    public long getDeferredCount() {
+      return myDeferredCount;
+    }
+
+    /**
+     * Returns a copy of the update time histogram. See {@link #HISTOGRAM_BUCKET_COUNT}.
+     */
+    @NotNull
+    public long[] getHistogram() {
+      return Arrays.copyOf(myHistogram, myHistogram.length);
+    }
+
+    private void recordUpdate(long timeNs) {
+      myUpdateCount++;
+      myTotalTimeNs += timeNs;
+      myMaxTimeNs = Math.max(myMaxTimeNs, timeNs);
+      myHistogram[getBucket(timeNs)]++;
+    }
+
+    private static int getBucket(long timeNs) {
+      long timeMs = timeNs / MILLISECOND_NS;
+      // The number of bits of the time in milliseconds is the smallest i with timeMs < 2^i.
+      int bucket = 64 - Long.numberOfLeadingZeros(timeMs);
+      return Math.min(bucket, HISTOGRAM_BUCKET_COUNT - 1);
+    }
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.adtui.model;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+public class CachingLongDataSeriesTest {
+  @Test
+  public void testOnlyNewSamplesAreFetched() {
+    DefaultDataSeries<Long> source = new DefaultDataSeries<>();
+    for (int i = 0; i < 10; i++) {
+      source.add(i * 10, (long)i);
+    }
+    List<Range> queries = new ArrayList<>();
+    DataSeries<Long> recordingSource = new DataSeries<Long>() {
+      @Override
+      public List<SeriesData<Long>> getDataForRange(@NotNull Range range) {
+        queries.add(range);
+        // Like the data store backed series, return the samples just after the range too.
+        return source.getDataForRange(new Range(range.getMin(), range.getMax() + 10));
+      }
+    };
+    CachingLongDataSeries series = new CachingLongDataSeries(recordingSource);
+
+    // The first query fetches its range, and includes the samples around the range.
+    assertThat(series.getDataForRange(new Range(45, 65)))
+      .containsExactly(new SeriesData<>(40, 4L), new SeriesData<>(50, 5L), new SeriesData<>(60, 6L), new SeriesData<>(70, 7L)).inOrder();
+    assertThat(queries).hasSize(1);
+    assertThat(queries.get(0).getMin()).isWithin(0).of(45);
+    assertThat(series.size()).isEqualTo(4);
+
+    // Ranges within the cached samples are answered from the cache.
+    assertThat(series.getDataForRange(new Range(50, 60))).hasSize(3);
+    assertThat(queries).hasSize(1);
+
+    // Older ranges are fetched again.
+    assertThat(series.getDataForRange(new Range(0, 15))).hasSize(3);
+    assertThat(queries).hasSize(2);
+    assertThat(queries.get(1).getMin()).isWithin(0).of(0);
+
+    // Newer samples are fetched from the last cached one.
+    source.add(100, 10L);
+    assertThat(series.getDataForRange(new Range(80, 100))).hasSize(3);
+    assertThat(queries).hasSize(3);
+    assertThat(queries.get(2).getMin()).isWithin(0).of(20);
+    assertThat(series.getAllData()).containsExactlyElementsIn(source.getAllData()).inOrder();
+  }
+
+  @Test
+  public void testSamplesBeforeTheRangeAreDropped() {
+    DefaultDataSeries<Long> source = new DefaultDataSeries<>();
+    for (int i = 0; i < 10_000; i++) {
+      source.add(i, (long)i);
+    }
+    CachingLongDataSeries series = new CachingLongDataSeries(source);
+    assertThat(series.getDataForRange(new Range(0, 100))).hasSize(101);
+
+    // Scrolling far enough drops the samples before the range, except for the one at its start.
+    LongSeriesDataList data = series.getDataForRange(new Range(5000, 5100));
+    assertThat(data).hasSize(101);
+    assertThat(data.getX(0)).isEqualTo(5000);
+    assertThat(series.size()).isEqualTo(101);
+
+    // Scrolling a little does not copy the cache.
+    series.getDataForRange(new Range(5010, 5110));
+    assertThat(series.getX(0)).isEqualTo(5000);
+
+    // Dropped samples are fetched again when needed.
+    data = series.getDataForRange(new Range(10, 20));
+    assertThat(data).hasSize(11);
+    assertThat(data.getX(0)).isEqualTo(10);
+  }
+
+  @Test
+  public void testUsedAsLongDataSeriesByRangedSeries() {
+    DefaultDataSeries<Long> source = new DefaultDataSeries<>();
+    for (int i = 0; i < 10_000; i++) {
+      source.add(i, (long)(i % 10));
+    }
+    Range range = new Range(0, 10_000);
+    RangedContinuousSeries ranged = new RangedContinuousSeries("test", range, new Range(), new CachingLongDataSeries(source));
+    assertThat(ranged.getSeries(100).size()).isAtMost(4 * 101);
+    assertThat(ranged.getSeries()).hasSize(10_000);
+  }
+}
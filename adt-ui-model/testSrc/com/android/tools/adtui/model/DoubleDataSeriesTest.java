@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.adtui.model;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Test;
+
+public class DoubleDataSeriesTest {
+  @Test
+  public void testGetDataForRange() {
+    DoubleDataSeries series = new DoubleDataSeries();
+    for (int i = 0; i < 100; i++) {
+      series.add(i * 10, i / 2.0);
+    }
+
+    DoubleSeriesDataList data = series.getDataForRange(new Range(105, 155));
+    assertThat(data).hasSize(6);
+    assertThat(data.getX(0)).isEqualTo(100);
+    assertThat(data.getValue(0)).isWithin(0).of(5);
+    assertThat(data.get(5)).isEqualTo(new SeriesData<>(150, 7.5));
+    assertThat(RangedSeries.getX(data, 5)).isEqualTo(150);
+
+    assertThat(series.getDataForRange(new Range())).isEmpty();
+    assertThat(new DoubleDataSeries().getDataForRange(new Range(0, 100))).isEmpty();
+  }
+
+  @Test
+  public void testDownsampledDataKeepsExtremes() {
+    DoubleDataSeries series = new DoubleDataSeries();
+    for (int i = 0; i < 100_000; i++) {
+      double value = i == 54_321 ? 0.75 : i == 12_345 ? -0.75 : (i % 100) / 1000.0;
+      series.add(i * 10L, value);
+    }
+
+    Range range = new Range(1000, 900_000);
+    DoubleSeriesDataList downsampled = series.getDataForRange(range, 200);
+    assertThat(downsampled.size()).isAtMost(4 * 201);
+    double min = Double.MAX_VALUE;
+    double max = -Double.MAX_VALUE;
+    for (int i = 0; i < downsampled.size(); i++) {
+      if (i > 0) {
+        assertThat(downsampled.getX(i)).isGreaterThan(downsampled.getX(i - 1));
+      }
+      min = Math.min(min, downsampled.getValue(i));
+      max = Math.max(max, downsampled.getValue(i));
+    }
+    assertThat(min).isWithin(0).of(-0.75);
+    assertThat(max).isWithin(0).of(0.75);
+  }
+}
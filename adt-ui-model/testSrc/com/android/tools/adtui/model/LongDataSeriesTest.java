@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.adtui.model;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+
+public class LongDataSeriesTest {
+  @Test
+  public void testGetDataForRange() {
+    LongDataSeries series = new LongDataSeries();
+    for (int i = 0; i < 100; i++) {
+      series.add(i * 10, i);
+    }
+
+    // The range is extended to the nearest samples at or before its bounds, like DefaultDataSeries does.
+    LongSeriesDataList data = series.getDataForRange(new Range(105, 155));
+    assertThat(data).hasSize(6);
+    assertThat(data.getX(0)).isEqualTo(100);
+    assertThat(data.getValue(0)).isEqualTo(10);
+    assertThat(data.getX(5)).isEqualTo(150);
+    assertThat(data.get(5)).isEqualTo(new SeriesData<>(150, 15L));
+
+    assertThat(series.getDataForRange(new Range(-100, -50))).containsExactly(new SeriesData<>(0, 0L));
+    assertThat(series.getDataForRange(new Range())).isEmpty();
+    assertThat(new LongDataSeries().getDataForRange(new Range(0, 100))).isEmpty();
+  }
+
+  @Test
+  public void testMatchesDefaultDataSeries() {
+    LongDataSeries longSeries = new LongDataSeries();
+    DefaultDataSeries<Long> defaultSeries = new DefaultDataSeries<>();
+    for (int i = 0; i < 1000; i++) {
+      longSeries.add(i * 3, i * 7);
+      defaultSeries.add(i * 3, (long)(i * 7));
+    }
+    for (long x = -5; x < 3005; x++) {
+      assertThat(longSeries.getNearestXIndex(x)).isEqualTo(defaultSeries.getNearestXIndex(x));
+    }
+    Range range = new Range(1000, 2000);
+    assertThat(longSeries.getDataForRange(range)).containsExactlyElementsIn(defaultSeries.getDataForRange(range)).inOrder();
+    assertThat(longSeries.getAllData()).containsExactlyElementsIn(defaultSeries.getAllData()).inOrder();
+  }
+
+  @Test
+  public void testViewsAreNotAffectedByLaterSamples() {
+    LongDataSeries series = new LongDataSeries();
+    for (int i = 0; i < 10; i++) {
+      series.add(i, i);
+    }
+    LongSeriesDataList data = series.getAllData();
+    // Adding many samples grows the arrays backing the series.
+    for (int i = 10; i < 1000; i++) {
+      series.add(i, -i);
+    }
+    assertThat(data).hasSize(10);
+    assertThat(data.getValue(9)).isEqualTo(9);
+    assertThat(series.getAllData()).hasSize(1000);
+  }
+
+  @Test
+  public void testRemoveBefore() {
+    LongDataSeries series = new LongDataSeries();
+    for (int i = 0; i < 1000; i++) {
+      series.add(i, i % 10 == 0 ? -i : i);
+    }
+    LongSeriesDataList data = series.getAllData();
+    series.removeBefore(900);
+    assertThat(series.size()).isEqualTo(100);
+    assertThat(series.getX(0)).isEqualTo(900);
+    assertThat(series.getNearestXIndex(950)).isEqualTo(50);
+    // Views returned earlier are not affected.
+    assertThat(data).hasSize(1000);
+    assertThat(data.getX(0)).isEqualTo(0);
+    // The downsampling index is rebuilt for the remaining samples.
+    LongSeriesDataList downsampled = series.getDataForRange(new Range(900, 999), 5);
+    assertThat(downsampled.getX(0)).isEqualTo(900);
+    long min = Long.MAX_VALUE;
+    for (int i = 0; i < downsampled.size(); i++) {
+      min = Math.min(min, downsampled.getValue(i));
+    }
+    assertThat(min).isEqualTo(-990);
+
+    series.removeBefore(series.size());
+    assertThat(series.size()).isEqualTo(0);
+    series.add(2000, 1);
+    assertThat(series.getAllData()).containsExactly(new SeriesData<>(2000, 1L));
+  }
+
+  @Test
+  public void testIndexAccessorsOfRangedSeries() {
+    LongDataSeries series = new LongDataSeries();
+    DefaultDataSeries<Long> defaultSeries = new DefaultDataSeries<>();
+    for (int i = 0; i < 10; i++) {
+      series.add(i * 10, i);
+      defaultSeries.add(i * 10, (long)i);
+    }
+    for (List<SeriesData<Long>> data : Arrays.asList(series.getAllData(), defaultSeries.getAllData())) {
+      assertThat(RangedSeries.getX(data, 3)).isEqualTo(30);
+      assertThat(RangedContinuousSeries.getValue(data, 3)).isEqualTo(3);
+    }
+  }
+
+  @Test
+  public void testDownsampledDataKeepsExtremes() {
+    LongDataSeries series = new LongDataSeries();
+    for (int i = 0; i < 100_000; i++) {
+      // A sawtooth with a single spike in each direction.
+      long value = i == 54_321 ? 1_000_000 : i == 12_345 ? -1_000_000 : i % 100;
+      series.add(i * 10L, value);
+    }
+
+    Range range = new Range(1000, 900_000);
+    LongSeriesDataList all = series.getDataForRange(range);
+    LongSeriesDataList downsampled = series.getDataForRange(range, 200);
+    assertThat(downsampled.size()).isAtMost(4 * 201);
+    assertThat(downsampled.getX(0)).isEqualTo(all.getX(0));
+    assertThat(downsampled.getX(downsampled.size() - 1)).isEqualTo(all.getX(all.size() - 1));
+    long min = Long.MAX_VALUE;
+    long max = Long.MIN_VALUE;
+    for (int i = 0; i < downsampled.size(); i++) {
+      if (i > 0) {
+        assertThat(downsampled.getX(i)).isGreaterThan(downsampled.getX(i - 1));
+      }
+      min = Math.min(min, downsampled.getValue(i));
+      max = Math.max(max, downsampled.getValue(i));
+    }
+    assertThat(min).isEqualTo(-1_000_000);
+    assertThat(max).isEqualTo(1_000_000);
+
+    // Narrow ranges are not downsampled.
+    Range narrowRange = new Range(1000, 2000);
+    assertThat(series.getDataForRange(narrowRange, 200)).containsExactlyElementsIn(series.getDataForRange(narrowRange)).inOrder();
+  }
+
+  @Test
+  public void testDownsampledDataWhileAddingSamples() throws Exception {
+    LongDataSeries series = new LongDataSeries();
+    AtomicReference<Throwable> error = new AtomicReference<>();
+    Thread writer = new Thread(() -> {
+      try {
+        for (int i = 0; i < 200_000; i++) {
+          series.add(i, i % 1000);
+        }
+      }
+      catch (Throwable t) {
+        error.set(t);
+      }
+    });
+    writer.start();
+    Range range = new Range(0, 200_000);
+    while (writer.isAlive()) {
+      // Adding samples grows the arrays of the series and of its pyramid, which must not be observed half way.
+      LongSeriesDataList data = series.getDataForRange(range, 100);
+      assertThat(data.size()).isAtMost(4 * 101);
+      for (int i = 1; i < data.size(); i++) {
+        assertThat(data.getX(i)).isGreaterThan(data.getX(i - 1));
+      }
+    }
+    writer.join();
+    assertThat(error.get()).isNull();
+    assertThat(series.getDataForRange(range, 100).getX(0)).isEqualTo(0);
+  }
+
+  @Test
+  public void testLineChartModelUsesLongDataSeries() {
+    Range xRange = new Range(0, 100);
+    Range yRange = new Range(0, 50);
+    LongDataSeries series = new LongDataSeries();
+    for (int i = 0; i < 101; i++) {
+      series.add(i, i * 2);
+    }
+    LineChartModel model = new LineChartModel();
+    model.add(new RangedContinuousSeries("test", xRange, yRange, series));
+    model.update(0);
+    assertThat(yRange.getMax()).isWithin(0).of(200);
+  }
+}
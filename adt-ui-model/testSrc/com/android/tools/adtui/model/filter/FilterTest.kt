@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.adtui.model.filter
+
+import com.google.common.truth.Truth.assertThat
+import org.junit.Test
+
+class FilterTest {
+  @Test
+  fun equalFiltersAreEqual() {
+    assertThat(Filter("abc", true, true)).isEqualTo(Filter("abc", true, true))
+    assertThat(Filter("abc", true, true).hashCode()).isEqualTo(Filter("abc", true, true).hashCode())
+    assertThat(Filter("")).isEqualTo(Filter.EMPTY_FILTER)
+  }
+
+  @Test
+  fun differentFiltersAreNotEqual() {
+    assertThat(Filter("abc")).isNotEqualTo(Filter("abd"))
+    assertThat(Filter("abc", false, false)).isNotEqualTo(Filter("abc", true, false))
+    assertThat(Filter("a.c", false, false)).isNotEqualTo(Filter("a.c", false, true))
+    assertThat(Filter("abc")).isNotEqualTo(Filter.EMPTY_FILTER)
+    assertThat(Filter.EMPTY_FILTER).isNotEqualTo(Filter("abc"))
+  }
+}
@@ -25,6 +25,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.*;
 
@@ -150,6 +151,91 @@ public class UpdaterTest {
     assertEquals(Arrays.asList(updatableA, updatableB), reset);
   }
 
+  @Test
+  public void testStatsRecordUpdateTimes() {
+    long[] clock = new long[1];
+    Updater updater = new Updater(new FakeTimer(), () -> clock[0]);
+    List<Updatable> updated = new ArrayList<>();
+    updater.register(new SlowUpdatable(updated, clock, TimeUnit.MILLISECONDS.toNanos(3)));
+
+    updater.getTimer().tick(1);
+    updater.getTimer().tick(1);
+    UpdaterStats stats = updater.getStats();
+    assertEquals(2, stats.getFrameCount());
+    assertEquals(0, stats.getOverBudgetFrameCount());
+    assertEquals(1, stats.getUpdatableStats().size());
+
+    UpdaterStats.UpdatableStats updatableStats = stats.getUpdatableStats().get(0);
+    assertEquals(SlowUpdatable.class, updatableStats.getUpdatableClass());
+    assertEquals(2, updatableStats.getUpdateCount());
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(6), updatableStats.getTotalTimeNs());
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(3), updatableStats.getMaxTimeNs());
+    // 3ms falls into the [2ms, 4ms) bucket.
+    assertEquals(2, updatableStats.getHistogram()[2]);
+
+    stats.clear();
+    assertEquals(0, stats.getFrameCount());
+    assertTrue(stats.getUpdatableStats().isEmpty());
+  }
+
+  @Test
+  public void testDeferrableUpdatablesAreSkippedWhenOverBudget() {
+    long[] clock = new long[1];
+    Updater updater = new Updater(new FakeTimer(), () -> clock[0]);
+    updater.setFrameBudgetNs(TimeUnit.MILLISECONDS.toNanos(10));
+    List<Updatable> updated = new ArrayList<>();
+    List<Long> deferrableElapsed = new ArrayList<>();
+    SlowUpdatable slow = new SlowUpdatable(updated, clock, TimeUnit.MILLISECONDS.toNanos(20));
+    FakeUpdatable deferrable = new FakeUpdatable(updated) {
+      @Override
+      public void update(long elapsedNs) {
+        super.update(elapsedNs);
+        deferrableElapsed.add(elapsedNs);
+      }
+
+      @Override
+      public boolean isDeferrable() {
+        return true;
+      }
+    };
+    FakeUpdatable critical = new FakeUpdatable(updated);
+    updater.register(Arrays.asList(slow, deferrable, critical));
+
+    // The slow updatable exceeds the budget, so only the critical one is updated after it.
+    updater.getTimer().tick(5);
+    assertEquals(Arrays.asList(slow, critical), updated);
+
+    // A deferred updatable is never skipped twice in a row, and receives the time elapsed since its last update.
+    updated.clear();
+    updater.getTimer().tick(7);
+    assertEquals(Arrays.asList(slow, deferrable, critical), updated);
+    assertEquals(Collections.singletonList(12L), deferrableElapsed);
+
+    UpdaterStats stats = updater.getStats();
+    assertEquals(2, stats.getOverBudgetFrameCount());
+    UpdaterStats.UpdatableStats deferrableStats =
+      stats.getUpdatableStats().stream().filter(entry -> entry.getUpdatableClass() == deferrable.getClass()).findFirst().get();
+    assertEquals(1, deferrableStats.getDeferredCount());
+    assertEquals(1, deferrableStats.getUpdateCount());
+  }
+
+  private static class SlowUpdatable extends FakeUpdatable {
+    private final long[] myClock;
+    private final long myUpdateTimeNs;
+
+    private SlowUpdatable(List<Updatable> updated, long[] clock, long updateTimeNs) {
+      super(updated);
+      myClock = clock;
+      myUpdateTimeNs = updateTimeNs;
+    }
+
+    @Override
+    public void update(long elapsedNs) {
+      super.update(elapsedNs);
+      myClock[0] += myUpdateTimeNs;
+    }
+  }
+
   private static class FakeUpdatable implements Updatable {
     private final List<Updatable> myUpdated;
 
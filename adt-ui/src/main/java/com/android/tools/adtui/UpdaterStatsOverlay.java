@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.adtui;
+
+import com.android.tools.adtui.common.AdtUiUtils;
+import com.android.tools.adtui.model.updater.Updatable;
+import com.android.tools.adtui.model.updater.Updater;
+import com.android.tools.adtui.model.updater.UpdaterStats;
+import com.intellij.openapi.Disposable;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Transparent debug overlay listing the {@link Updatable}s that took the most time in the update loop of an {@link Updater}.
+ * The overlay is meant to be added on top of the other components of a {@link javax.swing.JLayeredPane}, and never
+ * receives mouse events itself. It is only updated while it is displayable, and it has to be disposed with its owner if the
+ * owner can be disposed without removing it.
+ */
+public class UpdaterStatsOverlay extends AnimatedComponent implements Updatable, Disposable {
+  private static final int MAX_ENTRIES = 5;
+  private static final int PADDING = 5;
+  private static final long REFRESH_INTERVAL_NS = TimeUnit.SECONDS.toNanos(1);
+  private static final double NS_PER_MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  @NotNull private final Updater myUpdater;
+  @NotNull private final UpdaterStats myStats;
+  private long myTimeSinceRefreshNs;
+
+  public UpdaterStatsOverlay(@NotNull Updater updater) {
+    myUpdater = updater;
+    myStats = updater.getStats();
+    setOpaque(false);
+  }
+
+  @Override
+  public void addNotify() {
+    super.addNotify();
+    myUpdater.register(this);
+  }
+
+  @Override
+  public void removeNotify() {
+    myUpdater.unregister(this);
+    super.removeNotify();
+  }
+
+  @Override
+  public void dispose() {
+    myUpdater.unregister(this);
+  }
+
+  @Override
+  public void update(long elapsedNs) {
+    myTimeSinceRefreshNs += elapsedNs;
+    if (myTimeSinceRefreshNs >= REFRESH_INTERVAL_NS) {
+      myTimeSinceRefreshNs = 0;
+      opaqueRepaint();
+    }
+  }
+
+  @Override
+  public boolean isDeferrable() {
+    return true;
+  }
+
+  @Override
+  public boolean contains(int x, int y) {
+    // Let the mouse events reach the components underneath.
+    return false;
+  }
+
+  @Override
+  protected void draw(Graphics2D g, Dimension size) {
+    List<String> lines = new ArrayList<>();
+    lines.add(String.format("Frames over budget: %d/%d, max %.1fms", myStats.getOverBudgetFrameCount(), myStats.getFrameCount(),
+                            myStats.getMaxFrameTimeNs() / NS_PER_MS));
+    List<UpdaterStats.UpdatableStats> stats = myStats.getUpdatableStats();
+    for (UpdaterStats.UpdatableStats entry : stats.subList(0, Math.min(stats.size(), MAX_ENTRIES))) {
+      lines.add(String.format("%s: %.2fms avg, %.1fms max, %d deferred", entry.getUpdatableClass().getSimpleName(),
+                              entry.getTotalTimeNs() / NS_PER_MS / Math.max(entry.getUpdateCount(), 1),
+                              entry.getMaxTimeNs() / NS_PER_MS, entry.getDeferredCount()));
+    }
+
+    g.setFont(AdtUiUtils.DEFAULT_FONT);
+    g.setColor(AdtUiUtils.DEFAULT_FONT_COLOR);
+    int lineHeight = mDefaultFontMetrics.getHeight();
+    int y = size.height - lineHeight * lines.size();
+    for (String line : lines) {
+      y += lineHeight;
+      g.drawString(line, size.width - mDefaultFontMetrics.stringWidth(line) - PADDING, y - mDefaultFontMetrics.getDescent() - PADDING);
+    }
+  }
+}
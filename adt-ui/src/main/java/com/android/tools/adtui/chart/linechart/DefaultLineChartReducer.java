@@ -15,6 +15,8 @@
  */
 package com.android.tools.adtui.chart.linechart;
 
+import com.android.tools.adtui.model.LongSeriesDataList;
+import com.android.tools.adtui.model.RangedContinuousSeries;
 import com.android.tools.adtui.model.SeriesData;
 import org.jetbrains.annotations.NotNull;
 
@@ -48,22 +50,32 @@ class DefaultLineChartReducer implements LineChartReducer {
       return dataList;
     }
 
-    List<SeriesData<Long>> reduced = new ArrayList<>();
-    for (SeriesData<Long> data: dataList) {
-      while (reduced.size() >= 2) {
-        SeriesData<Long> preLast = reduced.get(reduced.size() - 2);
-        SeriesData<Long> last = reduced.get(reduced.size() - 1);
-
-        if (preLast.value.equals(last.value) &&
-            (config.isStepped() || last.value.equals(data.value))) {
-          reduced.remove(reduced.size() - 1);
+    // Work on indices so that views of a LongDataSeries are reduced without creating a SeriesData for every sample.
+    int[] reduced = new int[dataList.size()];
+    int reducedSize = 0;
+    for (int i = 0; i < dataList.size(); i++) {
+      long value = RangedContinuousSeries.getValue(dataList, i);
+      while (reducedSize >= 2) {
+        long preLast = RangedContinuousSeries.getValue(dataList, reduced[reducedSize - 2]);
+        long last = RangedContinuousSeries.getValue(dataList, reduced[reducedSize - 1]);
+
+        if (preLast == last &&
+            (config.isStepped() || last == value)) {
+          reducedSize--;
         } else {
           break;
         }
       }
-      reduced.add(data);
+      reduced[reducedSize++] = i;
+    }
+    if (dataList instanceof LongSeriesDataList) {
+      return ((LongSeriesDataList)dataList).select(reduced, reducedSize);
+    }
+    List<SeriesData<Long>> result = new ArrayList<>(reducedSize);
+    for (int i = 0; i < reducedSize; i++) {
+      result.add(dataList.get(reduced[i]));
     }
-    return reduced;
+    return result;
   }
 
   /**
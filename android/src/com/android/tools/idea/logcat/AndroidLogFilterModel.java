@@ -45,7 +45,7 @@ public abstract class AndroidLogFilterModel extends LogFilterModel {
    * it has been parsed and broken up into component parts.
    * This is normally set by the Android Monitor search bar.
    */
-  @Nullable private Pattern myCustomPattern;
+  @Nullable private PrefilteredPattern myCustomPattern;
   private boolean myCustomApplicable = false; // True if myCustomPattern matches this message
   private boolean myConfiguredApplicable = false;  // True if the active filter matches this message
 
@@ -74,7 +74,7 @@ public abstract class AndroidLogFilterModel extends LogFilterModel {
    * Replaces the customFilter mechanism.
    */
   public void updateCustomPattern(@Nullable Pattern pattern) {
-    myCustomPattern = pattern;
+    myCustomPattern = pattern != null ? new PrefilteredPattern(pattern) : null;
     fireTextFilterChange();
   }
 
@@ -135,7 +135,7 @@ public abstract class AndroidLogFilterModel extends LogFilterModel {
   @Override
   public final boolean isApplicable(String line) {
     // Not calling the super class version, it does not do what we want with regular expression matching
-    if (myCustomPattern != null && !myCustomPattern.matcher(line).find()) return false;
+    if (myCustomPattern != null && !myCustomPattern.find(line)) return false;
     final LogFilter selectedLogLevelFilter = getSelectedLogLevelFilter();
     return selectedLogLevelFilter == null || selectedLogLevelFilter.isAcceptable(line);
   }
@@ -217,8 +217,9 @@ public abstract class AndroidLogFilterModel extends LogFilterModel {
   @Override
   @NotNull
   public final MyProcessingResult processLine(String line) {
-    LogCatMessage message = myFormatter.tryParseMessage(line);
-    String continuation = (message == null) ? AndroidLogcatFormatter.tryParseContinuation(line) : null;
+    // Continuation lines are told apart by their prefix, so they are checked first to avoid running the header patterns on them.
+    String continuation = AndroidLogcatFormatter.tryParseContinuation(line);
+    LogCatMessage message = (continuation == null) ? myFormatter.tryParseMessage(line) : null;
 
     boolean validContinuation = continuation != null && myPrevHeader != null;
     if (message == null && !validContinuation) {
@@ -248,7 +249,8 @@ public abstract class AndroidLogFilterModel extends LogFilterModel {
     }
 
     Key key = AndroidLogcatUtils.getProcessOutputType(myPrevHeader.getLogLevel());
-    MyProcessingResult result = new MyProcessingResult(key, isApplicable, myMessageSoFar.toString());
+    // The prefix is only used for applicable lines. Copying it for every rejected line would be quadratic in the length of the message.
+    MyProcessingResult result = new MyProcessingResult(key, isApplicable, isApplicable ? myMessageSoFar.toString() : null);
 
     if (isApplicable) {
       myMessageSoFar.setLength(0); // Don't need anymore, already added as a prefix at this point
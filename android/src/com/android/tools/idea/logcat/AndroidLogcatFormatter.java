@@ -163,6 +163,9 @@ public final class AndroidLogcatFormatter extends DefaultLogFormatter {
    */
   @Nullable
   public static String tryParseContinuation(@NotNull String msg) {
+    if (!msg.startsWith("+ ")) {
+      return null;
+    }
     Matcher matcher = CONTINUATION_PATTERN.matcher(msg);
     if (!matcher.matches()) {
       return null;
@@ -22,6 +22,7 @@ import com.android.ddmlib.logcat.LogCatHeader;
 import com.android.ddmlib.logcat.LogCatLongEpochMessageParser;
 import com.android.ddmlib.logcat.LogCatMessage;
 import com.android.ddmlib.logcat.LogCatMessageParser;
+import com.android.ddmlib.logcat.LogCatTimestamp;
 import com.android.tools.idea.logcat.AndroidLogcatService.LogcatListener;
 import com.intellij.openapi.Disposable;
 import com.intellij.openapi.util.text.StringUtil;
@@ -29,6 +30,11 @@ import org.jetbrains.android.util.AndroidOutputReceiver;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.regex.Pattern;
 
 /**
@@ -52,11 +58,17 @@ public final class AndroidLogcatReceiver extends AndroidOutputReceiver implement
 
   private static final Pattern CARRIAGE_RETURN = Pattern.compile("\r", Pattern.LITERAL);
 
+  /**
+   * Maximum number of distinct app names and tags shared between headers. Past that, the strings of new headers are not shared.
+   */
+  private static final int MAX_INTERNED_STRINGS = 4096;
+
   private final LogCatMessageParser myLongEpochParser;
   private final LogCatMessageParser myLongParser;
   private final IDevice myDevice;
   private final StackTraceExpander myStackTraceExpander;
   private final LogcatListener myLogcatListener;
+  private final Map<String, String> myInternedStrings = new HashMap<>();
 
   /**
    * We don't always want to add a newline when we get one, as we can't tell if it came from the
@@ -69,6 +81,11 @@ public final class AndroidLogcatReceiver extends AndroidOutputReceiver implement
   private int myLineIndex;
   private volatile boolean myCanceled;
 
+  /**
+   * Messages of the lines being processed by {@link #processNewLines(String[])}, or null if lines are processed one at a time.
+   */
+  @Nullable private List<LogCatMessage> myPendingMessages;
+
   AndroidLogcatReceiver(@NotNull IDevice device, @NotNull LogcatListener listener) {
     myLongEpochParser = new LogCatLongEpochMessageParser();
     myLongParser = new LogCatMessageParser();
@@ -77,6 +94,23 @@ public final class AndroidLogcatReceiver extends AndroidOutputReceiver implement
     myLogcatListener = listener;
   }
 
+  @Override
+  public void processNewLines(@NotNull String[] lines) {
+    // The messages of a chunk of output are passed to the listener together, so that the buffers and listeners downstream take
+    // their locks once per chunk rather than once per line.
+    List<LogCatMessage> messages = new ArrayList<>();
+    myPendingMessages = messages;
+    try {
+      super.processNewLines(lines);
+    }
+    finally {
+      myPendingMessages = null;
+      if (!messages.isEmpty()) {
+        myLogcatListener.onLogLinesReceived(messages);
+      }
+    }
+  }
+
   @Override
   public void processNewLine(@NotNull String line) {
     // Really, the user's log should never put any system characters in it ever - that will cause
@@ -105,7 +139,7 @@ public final class AndroidLogcatReceiver extends AndroidOutputReceiver implement
 
     if (header != null) {
       myStackTraceExpander.reset();
-      myActiveHeader = header;
+      myActiveHeader = shareStrings(header);
       myLineIndex = 0;
       // Intentionally drop any trailing newlines once we hit a new header. Usually, logcat
       // separates log entries with a single newline but sometimes it outputs more than one. As we
@@ -129,10 +163,52 @@ public final class AndroidLogcatReceiver extends AndroidOutputReceiver implement
 
   // This method is package protected so other Logcat components can feed receiver processed log lines if they need to
   void notifyLine(@NotNull LogCatHeader header, @NotNull String line) {
-    myLogcatListener.onLogLineReceived(new LogCatMessage(header, line));
+    LogCatMessage message = new LogCatMessage(header, line);
+    if (myPendingMessages != null) {
+      myPendingMessages.add(message);
+    }
+    else {
+      myLogcatListener.onLogLineReceived(message);
+    }
     myLineIndex++;
   }
 
+  /**
+   * Returns a header equal to the given one whose app name and tag are the same instances as in the previous headers, so that the
+   * messages kept in the logcat buffers do not each hold their own copies of these strings.
+   */
+  @NotNull
+  private LogCatHeader shareStrings(@NotNull LogCatHeader header) {
+    String appName = shareString(header.getAppName());
+    String tag = shareString(header.getTag());
+    if (appName == header.getAppName() && tag == header.getTag()) {
+      return header;
+    }
+
+    Instant timestamp = header.getTimestampInstant();
+    if (timestamp != null) {
+      return new LogCatHeader(header.getLogLevel(), header.getPid(), header.getTid(), appName, tag, timestamp);
+    }
+
+    @SuppressWarnings("deprecation")
+    LogCatTimestamp logCatTimestamp = header.getTimestamp();
+    @SuppressWarnings("deprecation")
+    LogCatHeader sharedHeader = new LogCatHeader(header.getLogLevel(), header.getPid(), header.getTid(), appName, tag, logCatTimestamp);
+    return sharedHeader;
+  }
+
+  @NotNull
+  private String shareString(@NotNull String string) {
+    String sharedString = myInternedStrings.get(string);
+    if (sharedString != null) {
+      return sharedString;
+    }
+    if (myInternedStrings.size() < MAX_INTERNED_STRINGS) {
+      myInternedStrings.put(string, string);
+    }
+    return string;
+  }
+
   private void processAnyDelayedNewlines(@NotNull LogCatHeader header) {
     if (myDelayedNewlineCount == 0) {
       return;
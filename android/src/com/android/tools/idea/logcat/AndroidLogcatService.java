@@ -60,44 +60,43 @@ public final class AndroidLogcatService implements AndroidDebugBridge.IDeviceCha
     return Logger.getInstance(AndroidLogcatService.class);
   }
 
-  private static class LogcatBuffer {
-    private int myBufferSize;
-    private final LinkedList<LogCatMessage> myMessages = new LinkedList<>();
-
-    public void addMessage(@NotNull LogCatMessage message) {
-      myMessages.add(message);
-      myBufferSize += message.getMessage().length();
-      if (ConsoleBuffer.useCycleBuffer()) {
-        while (myBufferSize > ConsoleBuffer.getCycleBufferSize()) {
-          myBufferSize -= myMessages.removeFirst().getMessage().length();
-        }
-      }
-    }
-
-    @NotNull
-    public List<LogCatMessage> getMessages() {
-      return myMessages;
-    }
-  }
-
   private static class ListenerConnector implements LogcatListener {
+    private static final int BACKLOG_BATCH_SIZE = 1000;
+
     @GuardedBy("myListenerLock")
     @Nullable private LogcatListener myListener; // Initially not null, set to null when disconnected.
     @GuardedBy("myBacklogLock")
-    @Nullable private Queue<LogCatMessage> myBacklog; // myBacklog is either null or not empty.
+    @Nullable private LogcatBuffer myBacklog; // Null once the messages in [myBacklogSequence, myBacklogEndSequence) are dispatched.
+    @GuardedBy("myBacklogLock")
+    private long myBacklogSequence;
+    @GuardedBy("myBacklogLock")
+    private long myBacklogEndSequence;
     // The two locks bellow should never be held simultaneously or for a prolonged period of time.
     @NotNull private final Object myListenerLock = new Object();
     @NotNull private final Object myBacklogLock = new Object();
 
-    ListenerConnector(@NotNull LogcatListener listener, @NotNull Collection<LogCatMessage> messageBacklog) {
+    /**
+     * @param backlog the buffer holding the messages received before the listener was added, or null if the listener should not
+     *                receive them. The caller must prevent messages from being added to the buffer during the call.
+     */
+    ListenerConnector(@NotNull LogcatListener listener, @Nullable LogcatBuffer backlog) {
       myListener = listener;
-      myBacklog = messageBacklog.isEmpty() ? null : new ArrayDeque<>(messageBacklog);
+      if (backlog != null && backlog.getFirstSequence() < backlog.getNextSequence()) {
+        myBacklog = backlog;
+        myBacklogSequence = backlog.getFirstSequence();
+        myBacklogEndSequence = backlog.getNextSequence();
+      }
     }
 
     @Override
     public void onLogLineReceived(@NotNull LogCatMessage message) {
-      processBacklog(); // Make sure that the backlog is processed before the new message.
-      dispatchMessage(message);
+      onLogLinesReceived(Collections.singletonList(message));
+    }
+
+    @Override
+    public void onLogLinesReceived(@NotNull List<LogCatMessage> messages) {
+      processBacklog(); // Make sure that the backlog is processed before the new messages.
+      dispatchMessages(messages);
     }
 
     @Override
@@ -127,32 +126,43 @@ public final class AndroidLogcatService implements AndroidDebugBridge.IDeviceCha
       }
     }
 
+    boolean hasBacklog() {
+      synchronized (myBacklogLock) {
+        return myBacklog != null;
+      }
+    }
+
     void processBacklog() {
-      LogCatMessage message;
-      while ((message = getMessageFromBacklog()) != null) {
-        dispatchMessage(message);
+      List<LogCatMessage> messages;
+      while (!(messages = getMessagesFromBacklog()).isEmpty()) {
+        dispatchMessages(messages);
       }
     }
 
-    private void dispatchMessage(@NotNull LogCatMessage message) {
+    private void dispatchMessages(@NotNull List<LogCatMessage> messages) {
       synchronized (myListenerLock) {
         if (myListener != null) {
-          myListener.onLogLineReceived(message);
+          myListener.onLogLinesReceived(messages);
         }
       }
     }
 
-    @Nullable
-    private LogCatMessage getMessageFromBacklog() {
+    /**
+     * Returns the next batch of backlog messages that have not been evicted from the buffer yet, or an empty list once the
+     * backlog is processed.
+     */
+    @NotNull
+    private List<LogCatMessage> getMessagesFromBacklog() {
       synchronized (myBacklogLock) {
         if (myBacklog == null) {
-          return null;
+          return Collections.emptyList();
         }
-        LogCatMessage message = myBacklog.remove();
-        if (myBacklog.isEmpty()) {
+        List<LogCatMessage> messages = new ArrayList<>(BACKLOG_BATCH_SIZE);
+        myBacklogSequence = myBacklog.read(myBacklogSequence, myBacklogEndSequence, BACKLOG_BATCH_SIZE, messages);
+        if (myBacklogSequence >= myBacklogEndSequence) {
           myBacklog = null;
         }
-        return message;
+        return messages;
       }
     }
   }
@@ -161,6 +171,13 @@ public final class AndroidLogcatService implements AndroidDebugBridge.IDeviceCha
     default void onLogLineReceived(@NotNull LogCatMessage line) {
     }
 
+    /**
+     * Called with consecutive lines received together. The list must not be modified or kept after the call returns.
+     */
+    default void onLogLinesReceived(@NotNull List<LogCatMessage> lines) {
+      lines.forEach(this::onLogLineReceived);
+    }
+
     default void onCleared() {
     }
   }
@@ -212,7 +229,7 @@ public final class AndroidLogcatService implements AndroidDebugBridge.IDeviceCha
 
       AndroidLogcatReceiver receiver = newAndroidLogcatReceiver(device);
       myLogReceivers.put(device, receiver);
-      myLogBuffers.put(device, new LogcatBuffer());
+      myLogBuffers.put(device, new LogcatBuffer(AndroidLogcatService::getMaxBufferSizeBytes));
       myExecutors.get(device).execute(() -> executeLogcat(device, receiver));
     }
   }
@@ -222,21 +239,33 @@ public final class AndroidLogcatService implements AndroidDebugBridge.IDeviceCha
     return new AndroidLogcatReceiver(device, new LogcatListener() {
       @Override
       public void onLogLineReceived(@NotNull LogCatMessage line) {
+        onLogLinesReceived(Collections.singletonList(line));
+      }
+
+      @Override
+      public void onLogLinesReceived(@NotNull List<LogCatMessage> lines) {
         Iterable<ListenerConnector> connectors;
         synchronized (myLock) {
           connectors = ImmutableList.copyOf(myDeviceToListenerMultimap.get(device));
           LogcatBuffer buffer = myLogBuffers.get(device);
 
           if (buffer != null) {
-            buffer.addMessage(line);
+            buffer.addMessages(lines);
           }
         }
 
-        connectors.forEach(connector -> connector.onLogLineReceived(line));
+        connectors.forEach(connector -> connector.onLogLinesReceived(lines));
       }
     });
   }
 
+  /**
+   * The buffer of each device holds about as much text as the console cycle buffer, which is counted in characters.
+   */
+  private static long getMaxBufferSizeBytes() {
+    return ConsoleBuffer.useCycleBuffer() ? 2L * ConsoleBuffer.getCycleBufferSize() : Long.MAX_VALUE;
+  }
+
   private static void executeLogcat(@NotNull IShellEnabledDevice device, @NotNull AndroidLogcatReceiver receiver) {
     try {
       execute(device, supportsEpochFormatModifier(device) ? "logcat -v long -v epoch" : "logcat -v long", receiver, Duration.ZERO);
@@ -365,17 +394,14 @@ public final class AndroidLogcatService implements AndroidDebugBridge.IDeviceCha
    */
   public void addListener(@NotNull IDevice device, @NotNull LogcatListener listener, boolean addOldLogs) {
     synchronized (myLock) {
-      List<LogCatMessage> oldMessages =
-          addOldLogs && myLogBuffers.containsKey(device) ? myLogBuffers.get(device).getMessages() : ImmutableList.of();
-
-      ListenerConnector listenerConnector = new ListenerConnector(listener, oldMessages);
+      ListenerConnector listenerConnector = new ListenerConnector(listener, addOldLogs ? myLogBuffers.get(device) : null);
       myDeviceToListenerMultimap.put(device, listenerConnector);
 
       if (device.isOnline()) {
         startReceiving(device);
       }
 
-      if (!oldMessages.isEmpty()) {
+      if (listenerConnector.hasBacklog()) {
         ExecutorService executor = myExecutors.get(device);
         assert executor != null;
         executor.execute(() -> listenerConnector.processBacklog());
@@ -19,6 +19,8 @@ import com.android.ddmlib.Log;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 /**
@@ -26,10 +28,20 @@ import java.util.regex.Pattern;
  * multiple predicate patterns (all non-null predicates must match).
  */
 public final class DefaultAndroidLogcatFilter implements AndroidLogcatFilter {
+  /**
+   * Maximum number of tags or package names whose match results are remembered.
+   */
+  private static final int MAX_REMEMBERED_MATCHES = 4096;
+
   @NotNull private final String myName;
-  @Nullable private final Pattern myMessagePattern;
-  @Nullable private final Pattern myTagPattern;
-  @Nullable private final Pattern myPkgNamePattern;
+  @Nullable private final PrefilteredPattern myMessagePattern;
+  @Nullable private final PrefilteredPattern myTagPattern;
+  @Nullable private final PrefilteredPattern myPkgNamePattern;
+
+  // There are few distinct tags and package names, so whether they match is remembered rather than matched again for every message.
+  @NotNull private final Map<String, Boolean> myTagMatches = new ConcurrentHashMap<>();
+  @NotNull private final Map<String, Boolean> myPkgNameMatches = new ConcurrentHashMap<>();
+
   @Nullable private final String myPid;
   @Nullable private final Log.LogLevel myLogLevel;
 
@@ -90,9 +102,9 @@ public final class DefaultAndroidLogcatFilter implements AndroidLogcatFilter {
                                      @Nullable String pid,
                                      @Nullable Log.LogLevel logLevel) {
     myName = name;
-    myMessagePattern = messagePattern;
-    myTagPattern = tagPattern;
-    myPkgNamePattern = pkgNamePattern;
+    myMessagePattern = messagePattern != null ? new PrefilteredPattern(messagePattern) : null;
+    myTagPattern = tagPattern != null ? new PrefilteredPattern(tagPattern) : null;
+    myPkgNamePattern = pkgNamePattern != null ? new PrefilteredPattern(pkgNamePattern) : null;
     myPid = pid;
     myLogLevel = logLevel;
   }
@@ -103,15 +115,15 @@ public final class DefaultAndroidLogcatFilter implements AndroidLogcatFilter {
       return false;
     }
 
-    if (myMessagePattern != null && !myMessagePattern.matcher(message).find()) {
+    if (myTagPattern != null && !find(myTagPattern, myTagMatches, tag)) {
       return false;
     }
 
-    if (myTagPattern != null && !myTagPattern.matcher(tag).find()) {
+    if (myPkgNamePattern != null && !find(myPkgNamePattern, myPkgNameMatches, pkg)) {
       return false;
     }
 
-    if (myPkgNamePattern != null && !myPkgNamePattern.matcher(pkg).find()) {
+    if (myMessagePattern != null && !myMessagePattern.find(message)) {
       return false;
     }
 
@@ -123,6 +135,13 @@ public final class DefaultAndroidLogcatFilter implements AndroidLogcatFilter {
     return true;
   }
 
+  private static boolean find(@NotNull PrefilteredPattern pattern, @NotNull Map<String, Boolean> matches, @NotNull String text) {
+    if (matches.size() >= MAX_REMEMBERED_MATCHES) {
+      matches.clear();
+    }
+    return matches.computeIfAbsent(text, pattern::find);
+  }
+
   @Override
   @NotNull
   public String getName() {
@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.logcat;
+
+import com.android.ddmlib.logcat.LogCatMessage;
+import java.util.List;
+import java.util.function.LongSupplier;
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Ring buffer of the log messages received from a device, trimmed to a maximum size in bytes by evicting the oldest messages.
+ * Messages are numbered with consecutive sequence numbers, so that readers can resume reading where they stopped without
+ * copying the whole buffer. Messages evicted before a reader gets to them are skipped.
+ */
+@ThreadSafe
+final class LogcatBuffer {
+  private static final int INITIAL_CAPACITY = 1024;
+
+  /**
+   * Estimated size of a message besides its text. The header of a message is shared by all the lines of a log entry.
+   */
+  private static final int MESSAGE_OVERHEAD_BYTES = 32;
+
+  @NotNull private final LongSupplier myMaxSizeBytes;
+
+  /** Message with sequence number {@code s} is stored at index {@code s & (myMessages.length - 1)}. */
+  @GuardedBy("this")
+  @NotNull private LogCatMessage[] myMessages = new LogCatMessage[INITIAL_CAPACITY];
+  @GuardedBy("this")
+  private long myFirstSequence;
+  @GuardedBy("this")
+  private long myNextSequence;
+  @GuardedBy("this")
+  private long mySizeBytes;
+
+  /**
+   * @param maxSizeBytes supplies the maximum size of the buffer, which may change while the buffer is in use
+   */
+  LogcatBuffer(@NotNull LongSupplier maxSizeBytes) {
+    myMaxSizeBytes = maxSizeBytes;
+  }
+
+  synchronized void addMessages(@NotNull List<LogCatMessage> messages) {
+    for (LogCatMessage message : messages) {
+      if (myNextSequence - myFirstSequence == myMessages.length) {
+        grow();
+      }
+      myMessages[index(myNextSequence++)] = message;
+      mySizeBytes += getSizeBytes(message);
+    }
+
+    long maxSizeBytes = myMaxSizeBytes.getAsLong();
+    while (mySizeBytes > maxSizeBytes && myFirstSequence < myNextSequence) {
+      int index = index(myFirstSequence++);
+      mySizeBytes -= getSizeBytes(myMessages[index]);
+      myMessages[index] = null;
+    }
+  }
+
+  /**
+   * Returns the sequence number of the oldest message in the buffer, or {@link #getNextSequence()} if the buffer is empty.
+   */
+  synchronized long getFirstSequence() {
+    return myFirstSequence;
+  }
+
+  /**
+   * Returns the sequence number the next added message will get.
+   */
+  synchronized long getNextSequence() {
+    return myNextSequence;
+  }
+
+  /**
+   * Adds up to {@code maxCount} messages with sequence numbers in [fromSequence, toSequence) to {@code messages}, skipping the
+   * messages that have already been evicted.
+   *
+   * @return the sequence number to continue reading from
+   */
+  synchronized long read(long fromSequence, long toSequence, int maxCount, @NotNull List<LogCatMessage> messages) {
+    long sequence = Math.max(fromSequence, myFirstSequence);
+    long end = Math.min(Math.min(toSequence, myNextSequence), sequence + maxCount);
+    for (; sequence < end; sequence++) {
+      messages.add(myMessages[index(sequence)]);
+    }
+    return sequence;
+  }
+
+  @GuardedBy("this")
+  private int index(long sequence) {
+    return (int)(sequence & (myMessages.length - 1));
+  }
+
+  @GuardedBy("this")
+  private void grow() {
+    LogCatMessage[] messages = new LogCatMessage[myMessages.length * 2];
+    for (long sequence = myFirstSequence; sequence < myNextSequence; sequence++) {
+      messages[(int)(sequence & (messages.length - 1))] = myMessages[index(sequence)];
+    }
+    myMessages = messages;
+  }
+
+  private static long getSizeBytes(@NotNull LogCatMessage message) {
+    return 2L * message.getMessage().length() + MESSAGE_OVERHEAD_BYTES;
+  }
+}
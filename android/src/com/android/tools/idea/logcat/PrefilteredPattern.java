@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.logcat;
+
+import com.intellij.openapi.util.text.StringUtil;
+import java.util.regex.Pattern;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A {@link Pattern} searched for in log text. When the pattern is a plain string, which is the case for the text typed in the search
+ * bar unless the regex option is checked, the text is first searched for with a string search. Most log lines do not contain the
+ * searched text, so most lines are rejected without running the regex engine.
+ */
+final class PrefilteredPattern {
+  private static final String REGEX_METACHARACTERS = "\\^$.|?*+()[]{}";
+
+  @NotNull private final Pattern myPattern;
+
+  /**
+   * Text which every match contains, or null if the pattern is not a plain string.
+   */
+  @Nullable private final String myLiteral;
+
+  private final boolean myIgnoreCase;
+
+  PrefilteredPattern(@NotNull Pattern pattern) {
+    myPattern = pattern;
+    myLiteral = getLiteral(pattern);
+    myIgnoreCase = (pattern.flags() & Pattern.CASE_INSENSITIVE) != 0;
+  }
+
+  /**
+   * Returns the same as {@code pattern.matcher(text).find()}.
+   */
+  boolean find(@NotNull String text) {
+    // The string search ignores case for all characters while the regex engine may only do so for ASCII characters, so the string
+    // search can only reject text. The regex engine confirms what it accepts.
+    if (myLiteral != null && !(myIgnoreCase ? StringUtil.containsIgnoreCase(text, myLiteral) : text.contains(myLiteral))) {
+      return false;
+    }
+    return myPattern.matcher(text).find();
+  }
+
+  @Nullable
+  private static String getLiteral(@NotNull Pattern pattern) {
+    String regex = pattern.pattern();
+    int flags = pattern.flags();
+    if ((flags & Pattern.LITERAL) != 0) {
+      return regex;
+    }
+    if ((flags & (Pattern.COMMENTS | Pattern.CANON_EQ)) != 0) {
+      return null;
+    }
+
+    // Pattern.quote wraps the text in \Q...\E, and escapes any \E it contains in a way that leaves more than one \E.
+    if (regex.length() >= 4 && regex.startsWith("\\Q") && regex.indexOf("\\E", 2) == regex.length() - 2) {
+      return regex.substring(2, regex.length() - 2);
+    }
+
+    for (int i = 0; i < regex.length(); i++) {
+      if (REGEX_METACHARACTERS.indexOf(regex.charAt(i)) >= 0) {
+        return null;
+      }
+    }
+    return regex;
+  }
+}
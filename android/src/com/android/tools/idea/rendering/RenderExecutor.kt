@@ -20,13 +20,15 @@ import com.intellij.openapi.diagnostic.Logger
 import org.jetbrains.annotations.TestOnly
 import java.util.concurrent.Callable
 import java.util.concurrent.CompletableFuture
-import java.util.concurrent.ExecutorService
-import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.Executor
+import java.util.concurrent.FutureTask
+import java.util.concurrent.PriorityBlockingQueue
 import java.util.concurrent.ThreadFactory
 import java.util.concurrent.ThreadPoolExecutor
 import java.util.concurrent.TimeUnit
 import java.util.concurrent.TimeoutException
 import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
 import java.util.concurrent.atomic.AtomicReference
 import java.util.function.Supplier
 
@@ -35,23 +37,41 @@ private val DEFAULT_RENDER_THREAD_TIMEOUT_MS = java.lang.Long.getLong("layoutlib
                                                                       TimeUnit.SECONDS.toMillis(
                                                                         if (ApplicationManager.getApplication().isUnitTestMode) 60 else 6.toLong()))
 
+/**
+ * Priority of an action submitted to the [RenderExecutor]. Pending actions with a higher priority are executed first,
+ * actions of the same priority are executed in the order they were submitted.
+ *
+ * To keep a steady stream of higher priority actions from starving the lower priority ones, an action is queued as if it had been
+ * submitted [agingDelayMs] later than it actually was. Once an action has waited that long, it runs before any action submitted
+ * after that, whatever its priority.
+ */
+enum class RenderingPriority(val agingDelayMs: Long) {
+  /** Actions that a thread is blocked on, or that render a surface currently visible to the user. */
+  HIGH(0),
+  NORMAL(200),
+  /** Actions rendering surfaces that are not currently visible. */
+  LOW(1000)
+}
+
 /**
  * Intended to be used for executing render tasks of layoutlib [RenderSession].
  * Currently, all calls to the layoutlib should be done from the same thread.
  * This executor guarantees that unit of work passed to [runAction] or [runAsyncAction]
- * will be executed sequentially from the same thread.
+ * will be executed sequentially from the same thread. Pending actions are ordered by their [RenderingPriority],
+ * so that renders of visible surfaces do not have to wait for renders that nobody is looking at.
  */
 class RenderExecutor {
   private val renderingThread = AtomicReference<Thread?>()
-  private val renderingExecutor: ExecutorService
+  private val renderingExecutor: ThreadPoolExecutor
   private val timeoutExceptionCounter = AtomicInteger(0)
+  private val sequenceCounter = AtomicLong(0)
 
   private var isFirstCall = true
 
   init {
     renderingExecutor = ThreadPoolExecutor(1, 1,
                                            0, TimeUnit.MILLISECONDS,
-                                           LinkedBlockingQueue(),
+                                           PriorityBlockingQueue(),
                                            ThreadFactory {
                                              val renderingThread =
                                                Thread(null, it, "Layoutlib Render Thread")
@@ -72,7 +92,7 @@ class RenderExecutor {
     return try { // If the number of timeouts exceeds a certain threshold, stop waiting so the caller doesn't block. We try to submit a task that
       // clean-up the timeout counter instead. If it goes through, it means the queue is free.
       if (timeoutExceptionCounter.get() > 3) {
-        renderingExecutor.submit { timeoutExceptionCounter.set(0) }.get(50, TimeUnit.MILLISECONDS)
+        execute(FutureTask { timeoutExceptionCounter.set(0) }, RenderingPriority.HIGH).get(50, TimeUnit.MILLISECONDS)
       }
       var timeout = DEFAULT_RENDER_THREAD_TIMEOUT_MS
       if (isFirstCall) { // The initial call might be significantly slower since there is a lot of initialization done on the resource management side.
@@ -80,7 +100,8 @@ class RenderExecutor {
         isFirstCall = false
         timeout *= 2
       }
-      val result = renderingExecutor.submit(callable).get(timeout, TimeUnit.MILLISECONDS)
+      // The caller is blocked until the action completes, so it takes precedence over asynchronous ones.
+      val result = execute(FutureTask(callable), RenderingPriority.HIGH).get(timeout, TimeUnit.MILLISECONDS)
       // The executor seems to be taking tasks so reset the counter
       timeoutExceptionCounter.set(0)
       result
@@ -100,11 +121,19 @@ This typically happens when there is an infinite loop or unbounded recursion in
     }
   }
 
-  fun <T> runAsyncAction(callable: Supplier<T>): CompletableFuture<T> =
-    CompletableFuture.supplyAsync(callable, renderingExecutor)
+  @JvmOverloads
+  fun <T> runAsyncAction(callable: Supplier<T>, priority: RenderingPriority = RenderingPriority.NORMAL): CompletableFuture<T> =
+    CompletableFuture.supplyAsync(callable, Executor { execute(it, priority) })
+
+  @JvmOverloads
+  fun runAsyncAction(runnable: Runnable, priority: RenderingPriority = RenderingPriority.NORMAL) {
+    execute(runnable, priority)
+  }
 
-  fun runAsyncAction(runnable: Runnable) {
-    renderingExecutor.submit(runnable)
+  private fun <R : Runnable> execute(action: R, priority: RenderingPriority): R {
+    val queuePosition = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(priority.agingDelayMs)
+    renderingExecutor.execute(PrioritizedAction(action, queuePosition, sequenceCounter.getAndIncrement()))
+    return action
   }
 
   @TestOnly
@@ -120,4 +149,17 @@ This typically happens when there is an infinite loop or unbounded recursion in
 
     shutdown()
   }
-}
\ No newline at end of file
+}
+
+/**
+ * Wrapper for the actions stored in the [RenderExecutor] queue. Orders the actions by their queue position, which is the submission
+ * time delayed by the [RenderingPriority.agingDelayMs] of the action, and by submission order second.
+ */
+private class PrioritizedAction(private val action: Runnable,
+                                private val queuePositionNs: Long,
+                                private val sequence: Long) : Runnable, Comparable<PrioritizedAction> {
+  override fun run() = action.run()
+
+  override fun compareTo(other: PrioritizedAction): Int =
+    compareValuesBy(this, other, PrioritizedAction::queuePositionNs, PrioritizedAction::sequence)
+}
@@ -249,6 +249,15 @@ public class RenderService implements Disposable {
     return ourExecutor.runAsyncAction(callable);
   }
 
+  /**
+   * Same as {@link #runAsyncRenderAction(Supplier)} but allows to specify priority of the action relative to other pending
+   * render actions.
+   */
+  @NotNull
+  public static <T> CompletableFuture<T> runAsyncRenderAction(@NotNull Supplier<T> callable, @NotNull RenderingPriority priority) {
+    return ourExecutor.runAsyncAction(callable, priority);
+  }
+
   /**
    * Runs an action that requires the rendering lock. Layoutlib is not thread safe so any rendering actions should be called using this
    * method.
@@ -99,6 +99,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import javax.annotation.concurrent.GuardedBy;
 import org.jetbrains.android.facet.AndroidFacet;
 import org.jetbrains.android.uipreview.ModuleClassLoader;
 import org.jetbrains.android.uipreview.ModuleClassLoaderManager;
@@ -179,6 +180,11 @@ public class RenderTask {
   private final boolean isSecurityManagerEnabled;
   @NotNull private CrashReporter myCrashReporter;
   private final List<CompletableFuture<?>> myRunningFutures = new LinkedList<>();
+  @NotNull private volatile RenderingPriority myPriority = RenderingPriority.NORMAL;
+  private final Object myPendingRenderLock = new Object();
+  /** A render that has been requested but has not started executing on the render thread yet. */
+  @GuardedBy("myPendingRenderLock")
+  @Nullable private PendingRender myPendingRender;
   @NotNull private final AtomicBoolean isDisposed = new AtomicBoolean(false);
   @Nullable private XmlFile myXmlFile;
   @NotNull private final Function<Module, MergedManifestSnapshot> myManifestProvider;
@@ -811,12 +817,17 @@ public class RenderTask {
   @VisibleForTesting
   @NotNull
   <V> CompletableFuture<V> runAsyncRenderAction(@NotNull Supplier<V> callable) {
+    return runAsyncRenderAction(callable, myPriority);
+  }
+
+  @NotNull
+  private <V> CompletableFuture<V> runAsyncRenderAction(@NotNull Supplier<V> callable, @NotNull RenderingPriority priority) {
     if (isDisposed.get()) {
       return immediateFailedFuture(new IllegalStateException("RenderTask was already disposed"));
     }
 
     synchronized (myRunningFutures) {
-      CompletableFuture<V> newFuture = RenderService.runAsyncRenderAction(callable);
+      CompletableFuture<V> newFuture = RenderService.runAsyncRenderAction(callable, priority);
       myRunningFutures.add(newFuture);
       newFuture
         .whenCompleteAsync((result, ex) -> {
@@ -936,39 +947,66 @@ public class RenderTask {
   }
 
   /**
-   * Renders the layout to the current {@link IImageFactory} set in {@link #myImageFactoryDelegate}
+   * Inflates the layout with the given {@link IImageFactory} if there is no render session yet.
+   */
+  @NotNull
+  private CompletableFuture<RenderResult> inflateIfNeeded(@NotNull IImageFactory factory) {
+    if (myRenderSession != null) {
+      return CompletableFuture.completedFuture(null);
+    }
+
+    myImageFactoryDelegate = factory;
+    return inflate()
+      .whenComplete((renderResult, exception) -> {
+        Result result = renderResult != null ? renderResult.getRenderResult() : null;
+        if (result == null || !result.isSuccess()) {
+          Throwable e = result != null ? result.getException() : exception;
+          if (e != null) {
+            reportException(e);
+          }
+          if (result != null) {
+            myLogger.error(null, result.getErrorMessage(), e, null, null);
+          }
+        }
+      });
+  }
+
+  /**
+   * Queues the given render at the given priority. The render uses the {@link IImageFactory} of the {@link PendingRender}.
+   * The returned future completes with null if another copy of the same render, queued at a higher priority, has already run.
    */
+  @GuardedBy("myPendingRenderLock")
   @NotNull
-  private CompletableFuture<RenderResult> renderInner() {
+  private CompletableFuture<RenderResult> renderInner(@NotNull PendingRender pending, @NotNull RenderingPriority priority) {
     // During development only:
     //assert !ApplicationManager.getApplication().isReadAccessAllowed() : "Do not hold read lock during render!";
 
     PsiFile psiFile = getXmlFile();
     assert psiFile != null;
 
-    CompletableFuture<RenderResult> inflateCompletableResult;
-    if (myRenderSession == null) {
-      inflateCompletableResult = inflate()
-        .whenComplete((renderResult, exception) -> {
-          Result result = renderResult != null ? renderResult.getRenderResult() : null;
-          if (result == null || !result.isSuccess()) {
-            Throwable e = result != null ? result.getException() : exception;
-            if (e != null) {
-              reportException(e);
-            }
-            if (result != null) {
-              myLogger.error(null, result.getErrorMessage(), e, null, null);
-            }
-          }
-        });
-    }
-    else {
-      inflateCompletableResult = CompletableFuture.completedFuture(null);
+    // Copies of the same render share the inflation, so that the layout is not inflated twice.
+    CompletableFuture<RenderResult> inflateCompletableResult = pending.myInflateResult;
+    if (inflateCompletableResult == null) {
+      inflateCompletableResult = inflateIfNeeded(pending.myFactory);
+      pending.myInflateResult = inflateCompletableResult;
     }
 
     return inflateCompletableResult.thenCompose(ignored -> {
       try {
         return runAsyncRenderAction(() -> {
+          synchronized (myPendingRenderLock) {
+            if (pending.myStarted) {
+              // A copy of this render queued at a higher priority has already run.
+              return null;
+            }
+            pending.myStarted = true;
+            // From now on, new render requests have to be executed separately since they may be caused by changes
+            // that this render won't see.
+            if (myPendingRender == pending) {
+              myPendingRender = null;
+            }
+          }
+          myImageFactoryDelegate = pending.myFactory;
           myRenderSession.render();
           RenderResult result =
             RenderResult.create(this, myRenderSession, psiFile, myLogger, myImagePool.copyOf(myRenderSession.getImage()));
@@ -978,7 +1016,7 @@ public class RenderTask {
             myLogger.error(null, renderResult.getErrorMessage(), renderResult.getException(), null, null);
           }
           return result;
-        }).whenComplete((result, ex) -> {
+        }, priority).whenComplete((result, ex) -> {
           clearComposeTables();
           // After render clean-up. Dispose the GapWorker cache.
           clearGapWorkerCache();
@@ -1005,9 +1043,44 @@ public class RenderTask {
    */
   @NotNull
   CompletableFuture<RenderResult> render(@NotNull IImageFactory factory) {
-    myImageFactoryDelegate = factory;
+    RenderingPriority priority = myPriority;
+    synchronized (myPendingRenderLock) {
+      PendingRender pending = myPendingRender;
+      // A render that hasn't started yet will render the latest state of the session, so it can serve this request as well
+      // if it renders to the same image factory.
+      if (pending != null && pending.myFactory == factory) {
+        if (pending.myPriority.compareTo(priority) > 0) {
+          // The pending render was queued at a lower priority. Queue it again at the new priority, the first copy to start renders.
+          pending.myPriority = priority;
+          queueRender(pending, priority);
+        }
+        return pending.myResult;
+      }
+
+      PendingRender newPending = new PendingRender(factory, priority);
+      myPendingRender = newPending;
+      newPending.myResult.whenComplete((result, ex) -> {
+        synchronized (myPendingRenderLock) {
+          if (myPendingRender == newPending) {
+            myPendingRender = null;
+          }
+        }
+      });
+      queueRender(newPending, priority);
+      return newPending.myResult;
+    }
+  }
 
-    return renderInner();
+  @GuardedBy("myPendingRenderLock")
+  private void queueRender(@NotNull PendingRender pending, @NotNull RenderingPriority priority) {
+    renderInner(pending, priority).whenComplete((result, ex) -> {
+      if (ex != null) {
+        pending.myResult.completeExceptionally(ex);
+      }
+      else if (result != null) {
+        pending.myResult.complete(result);
+      }
+    });
   }
 
   /**
@@ -1021,6 +1094,14 @@ public class RenderTask {
     return render(myCachingImageFactory);
   }
 
+  /**
+   * Sets the priority of the render actions submitted by this task after this call. Surfaces visible to the user should use
+   * {@link RenderingPriority#HIGH} so that their renders are not delayed by renders of surfaces that are not visible.
+   */
+  public void setPriority(@NotNull RenderingPriority priority) {
+    myPriority = priority;
+  }
+
   /**
    * Sets the time for which the next frame will be selected. The time is the elapsed time from
    * the current system nanos time.
@@ -1348,4 +1429,22 @@ public class RenderTask {
       LOG.warn( "Unexpected error while disposing compose view", ex);
     }
   }
+
+  /**
+   * A render requested through {@link #render(IImageFactory)}. The same render may be queued several times at increasing priorities,
+   * only the first copy to start on the render thread renders.
+   */
+  private static final class PendingRender {
+    @NotNull final IImageFactory myFactory;
+    @NotNull final CompletableFuture<RenderResult> myResult = new CompletableFuture<>();
+    // The fields below are guarded by myPendingRenderLock of the owning RenderTask.
+    @NotNull RenderingPriority myPriority;
+    @Nullable CompletableFuture<RenderResult> myInflateResult;
+    boolean myStarted;
+
+    PendingRender(@NotNull IImageFactory factory, @NotNull RenderingPriority priority) {
+      myFactory = factory;
+      myPriority = priority;
+    }
+  }
 }
@@ -45,6 +45,8 @@ public abstract class RenderClassLoader extends ClassLoader {
   protected static final Logger LOG = Logger.getInstance(RenderClassLoader.class);
 
   private final Function<ClassVisitor, ClassVisitor> myTransformationProvider;
+  /** Identifier of the transformations used as a key in {@link TransformedClassCache}, or null if the transformed classes are not cached. */
+  @Nullable private final String myTransformationId;
   private final Object myJarClassLoaderLock = new Object();
   @GuardedBy("myJarClassLoaderLock")
   private Supplier<UrlClassLoader> myJarClassLoader = Suppliers.memoize(() -> createJarClassLoader(getExternalJars()));
@@ -58,8 +60,23 @@ public abstract class RenderClassLoader extends ClassLoader {
    *                               transformation.
    */
   public RenderClassLoader(@Nullable ClassLoader parent, @NotNull Function<ClassVisitor, ClassVisitor> transformationProvider) {
+    this(parent, transformationProvider, null);
+  }
+
+  /**
+   * Creates a new {@link RenderClassLoader} that shares the transformed classes with other class loaders using the same transformations.
+   *
+   * @param parent the parent {@link ClassLoader}
+   * @param transformationProvider a {@link Function} that given a {@link ClassVisitor} returns a new one applying any desired
+   *                               transformation.
+   * @param transformationId identifier of the transformations applied by {@code transformationProvider}. Class loaders applying
+   *                         different transformations must use different identifiers. If null, transformed classes are not cached.
+   */
+  public RenderClassLoader(@Nullable ClassLoader parent, @NotNull Function<ClassVisitor, ClassVisitor> transformationProvider,
+                           @Nullable String transformationId) {
     super(parent);
     myTransformationProvider = transformationProvider;
+    myTransformationId = transformationId;
   }
 
   /**
@@ -111,7 +128,7 @@ public abstract class RenderClassLoader extends ClassLoader {
       if (!isValidClassFile(data)) {
         throw new ClassFormatError(name);
       }
-      byte[] rewritten = ClassConverter.rewriteClass(data, myTransformationProvider);
+      byte[] rewritten = rewriteClass(data);
       return defineClassAndPackage(name, rewritten, 0, rewritten.length);
     }
     catch (IOException | ClassNotFoundException e) {
@@ -144,7 +161,7 @@ public abstract class RenderClassLoader extends ClassLoader {
       throw new ClassFormatError(fqcn);
     }
 
-    byte[] rewritten = ClassConverter.rewriteClass(data, myTransformationProvider);
+    byte[] rewritten = rewriteClass(data);
     try {
       if (LOG.isDebugEnabled()) {
         LOG.debug(String.format("Defining class '%s' from disk file", anonymizeClassName(fqcn)));
@@ -158,6 +175,14 @@ public abstract class RenderClassLoader extends ClassLoader {
     }
   }
 
+  private byte @NotNull [] rewriteClass(byte @NotNull [] data) {
+    if (myTransformationId == null) {
+      return ClassConverter.rewriteClass(data, myTransformationProvider);
+    }
+    return TransformedClassCache.getInstance()
+      .getOrTransform(myTransformationId, data, classData -> ClassConverter.rewriteClass(classData, myTransformationProvider));
+  }
+
   @NotNull
   protected Class<?> defineClassAndPackage(@NotNull String name, byte @NotNull [] b, int offset, int len) {
     int i = name.lastIndexOf('.');
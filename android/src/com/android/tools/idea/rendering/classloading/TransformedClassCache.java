@@ -0,0 +1,364 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.rendering.classloading;
+
+import static com.android.tools.idea.rendering.classloading.ClassConverter.isValidClassFile;
+import static com.android.tools.idea.res.AndroidPluginVersion.getAndroidPluginVersion;
+
+import com.android.tools.idea.concurrency.AndroidIoManager;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.intellij.ide.caches.CachesInvalidator;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.io.FileUtil;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Cache of class files rewritten by {@link ClassConverter}, keyed by a hash of the original class file contents and
+ * an identifier of the applied transformations. The cache is shared by all {@link RenderClassLoader}s, so after a build
+ * only classes whose bytes actually changed have to be transformed again. Transformed classes are also stored on disk
+ * so that they can be reused across IDE sessions.
+ * <p>
+ * The disk cache is trimmed at startup: files that were not used for {@link #MAX_DISK_CACHE_AGE_MS} are deleted, and so are
+ * the least recently used files exceeding the size limit. "Invalidate Caches" deletes the whole disk cache at the next startup.
+ */
+final class TransformedClassCache {
+  private static final Logger LOG = Logger.getInstance(TransformedClassCache.class);
+  private static final String CACHE_DIRECTORY = "caches/render_classes";
+  private static final String INVALIDATION_MARKER_FILE = "invalidated.txt";
+  /**
+   * Version of the transformed class files. Has to be incremented when the output of the transformations changes without a change
+   * of the transformation identifiers, so that files written by development builds with the same plugin version are not reused.
+   */
+  @VisibleForTesting
+  static final String TRANSFORM_FORMAT_VERSION = "1";
+  private static final long MAX_MEMORY_CACHE_SIZE_BYTES = 64 * 1024 * 1024;
+  private static final long MAX_DISK_CACHE_SIZE_BYTES = 256 * 1024 * 1024;
+  private static final long MAX_DISK_CACHE_AGE_MS = TimeUnit.DAYS.toMillis(30);
+  private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+  @NotNull private final Cache<Key, byte[]> myMemoryCache = CacheBuilder.newBuilder()
+    .maximumWeight(MAX_MEMORY_CACHE_SIZE_BYTES)
+    .<Key, byte[]>weigher((key, value) -> value.length)
+    .build();
+  /** Root of the disk cache, or null if the disk cache is disabled. */
+  @Nullable private final Path myRootDir;
+  /** Directory of the disk cache used by the current version of the Android plugin, or null if the disk cache is disabled. */
+  @Nullable private final Path myVersionDir;
+  @NotNull private final Executor myDiskIoExecutor;
+  private final long myMaxDiskCacheSizeBytes;
+  /** Directories of the disk cache keyed by transformation identifiers. */
+  @NotNull private final ConcurrentHashMap<String, Path> myTransformationDirs = new ConcurrentHashMap<>();
+  /** False while the disk cache is invalidated and has not been deleted yet. */
+  private volatile boolean myDiskCacheValid;
+
+  @VisibleForTesting
+  TransformedClassCache(@Nullable Path rootDir, @Nullable String codeVersion, @NotNull Executor diskIoExecutor,
+                        long maxDiskCacheSizeBytes) {
+    myRootDir = codeVersion == null ? null : rootDir;
+    myVersionDir = myRootDir == null
+                   ? null
+                   : myRootDir.resolve(FileUtil.sanitizeFileName(codeVersion + '_' + TRANSFORM_FORMAT_VERSION));
+    myDiskIoExecutor = diskIoExecutor;
+    myMaxDiskCacheSizeBytes = maxDiskCacheSizeBytes;
+    myDiskCacheValid = myRootDir != null && Files.notExists(myRootDir.resolve(INVALIDATION_MARKER_FILE));
+  }
+
+  @VisibleForTesting
+  TransformedClassCache(@Nullable Path rootDir, @Nullable String codeVersion, @NotNull Executor diskIoExecutor) {
+    this(rootDir, codeVersion, diskIoExecutor, MAX_DISK_CACHE_SIZE_BYTES);
+  }
+
+  @NotNull
+  private static TransformedClassCache createDefault() {
+    String codeVersion = getAndroidPluginVersion();
+    Path rootDir = Paths.get(PathManager.getSystemPath()).resolve(CACHE_DIRECTORY);
+    TransformedClassCache cache = new TransformedClassCache(rootDir, codeVersion, AndroidIoManager.getInstance().getBackgroundDiskIoExecutor());
+    cache.myDiskIoExecutor.execute(cache::cleanUpDiskCache);
+    return cache;
+  }
+
+  @NotNull
+  static TransformedClassCache getInstance() {
+    return InstanceHolder.INSTANCE;
+  }
+
+  /**
+   * Returns the given class transformed by the {@code transformation}. If the same class has already been transformed with
+   * a transformation with the same identifier, the previous result is returned without running the transformation again.
+   *
+   * @param transformationId the identifier of the transformation. Transformations producing different results have to have
+   *     different identifiers.
+   * @param classData the contents of the class file to transform
+   * @param transformation the transformation to apply if the transformed class is not in the cache
+   * @return the contents of the transformed class file
+   */
+  byte @NotNull [] getOrTransform(@NotNull String transformationId, byte @NotNull [] classData,
+                                  @NotNull UnaryOperator<byte[]> transformation) {
+    Key key = new Key(transformationId, HASH_FUNCTION.hashBytes(classData));
+    byte[] transformed = myMemoryCache.getIfPresent(key);
+    if (transformed != null) {
+      return transformed;
+    }
+
+    Path file = getCacheFile(key);
+    if (file != null) {
+      transformed = readFromDisk(file);
+      if (transformed != null) {
+        // The modification time of the files tracks their last use, to trim the least recently used ones.
+        myDiskIoExecutor.execute(() -> touch(file));
+      }
+    }
+    if (transformed == null) {
+      transformed = transformation.apply(classData);
+      if (file != null) {
+        byte[] data = transformed;
+        myDiskIoExecutor.execute(() -> writeToDisk(file, data));
+      }
+    }
+    myMemoryCache.put(key, transformed);
+    return transformed;
+  }
+
+  @Nullable
+  private Path getCacheFile(@NotNull Key key) {
+    if (myVersionDir == null || !myDiskCacheValid) {
+      return null;
+    }
+    Path dir = myTransformationDirs.computeIfAbsent(
+      key.transformationId, id -> myVersionDir.resolve(HASH_FUNCTION.hashString(id, StandardCharsets.UTF_8).toString()));
+    String hash = key.hash.toString();
+    return dir.resolve(hash.substring(0, 2)).resolve(hash + ".class");
+  }
+
+  private static byte @Nullable [] readFromDisk(@NotNull Path file) {
+    try {
+      byte[] data = Files.readAllBytes(file);
+      if (isValidClassFile(data)) {
+        return data;
+      }
+      LOG.warn("Invalid cached class file " + file);
+      Files.deleteIfExists(file);
+    }
+    catch (NoSuchFileException ignored) {
+      // The class is not in the disk cache.
+    }
+    catch (IOException e) {
+      LOG.warn("Failed to read cached class file " + file, e);
+    }
+    return null;
+  }
+
+  private static void writeToDisk(@NotNull Path file, byte @NotNull [] data) {
+    try {
+      Files.createDirectories(file.getParent());
+      // Write to a temporary file first to make sure that a partially written file is never read.
+      Path tempFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+      try {
+        Files.write(tempFile, data);
+        Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      }
+      finally {
+        Files.deleteIfExists(tempFile);
+      }
+    }
+    catch (IOException e) {
+      LOG.debug("Failed to write cached class file " + file, e);
+    }
+  }
+
+  private static void touch(@NotNull Path file) {
+    try {
+      Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+    }
+    catch (IOException e) {
+      LOG.debug("Failed to update the modification time of " + file, e);
+    }
+  }
+
+  /**
+   * Marks the disk cache as invalid. The disk cache is not used anymore, and is deleted by the next {@link #cleanUpDiskCache()}.
+   */
+  @VisibleForTesting
+  void invalidateDiskCache() {
+    myDiskCacheValid = false;
+    if (myRootDir == null) {
+      return;
+    }
+    Path markerFile = myRootDir.resolve(INVALIDATION_MARKER_FILE);
+    try {
+      Files.createDirectories(myRootDir);
+      if (Files.notExists(markerFile)) {
+        Files.createFile(markerFile);
+      }
+    }
+    catch (IOException e) {
+      LOG.warn("Failed to write cache invalidation marker file " + markerFile, e);
+    }
+  }
+
+  /**
+   * Deletes the whole disk cache if it was invalidated, otherwise deletes the directories created by other versions of the Android
+   * plugin or other transformation formats, and trims the directory of the current version to the size and age limits.
+   */
+  @VisibleForTesting
+  void cleanUpDiskCache() {
+    if (myRootDir == null || !Files.isDirectory(myRootDir)) {
+      return;
+    }
+    Path markerFile = myRootDir.resolve(INVALIDATION_MARKER_FILE);
+    boolean invalidated = Files.exists(markerFile);
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(
+      myRootDir, dir -> !dir.equals(markerFile) && (invalidated || !dir.equals(myVersionDir)))) {
+      for (Path dir : stream) {
+        FileUtil.delete(dir.toFile());
+      }
+    }
+    catch (IOException e) {
+      LOG.warn("Failed to clean up " + myRootDir, e);
+      return;
+    }
+
+    if (invalidated) {
+      try {
+        Files.deleteIfExists(markerFile);
+        myDiskCacheValid = true;
+      }
+      catch (IOException e) {
+        LOG.warn("Failed to delete " + markerFile, e);
+      }
+    }
+    else {
+      trimDiskCache();
+    }
+  }
+
+  /**
+   * Deletes the files of the current version that were not used for {@link #MAX_DISK_CACHE_AGE_MS}, and the least recently used files
+   * above the size limit of the disk cache.
+   */
+  private void trimDiskCache() {
+    if (myVersionDir == null || !Files.isDirectory(myVersionDir)) {
+      return;
+    }
+    List<CacheFile> files = new ArrayList<>();
+    try (Stream<Path> stream = Files.walk(myVersionDir)) {
+      for (Path file : stream.filter(Files::isRegularFile).collect(Collectors.toList())) {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        files.add(new CacheFile(file, attributes.size(), attributes.lastModifiedTime().toMillis()));
+      }
+    }
+    catch (IOException e) {
+      LOG.warn("Failed to trim " + myVersionDir, e);
+      return;
+    }
+
+    files.sort(Comparator.comparingLong((CacheFile file) -> file.lastModifiedMs).reversed());
+    long oldestAllowedMs = System.currentTimeMillis() - MAX_DISK_CACHE_AGE_MS;
+    long totalSize = 0;
+    for (CacheFile file : files) {
+      totalSize += file.size;
+      if (totalSize > myMaxDiskCacheSizeBytes || file.lastModifiedMs < oldestAllowedMs) {
+        try {
+          Files.deleteIfExists(file.path);
+        }
+        catch (IOException e) {
+          LOG.debug("Failed to delete " + file.path, e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Hook to invalidate the disk cache. The cache files are deleted at the next IDE startup.
+   */
+  public static class CacheInvalidator extends CachesInvalidator {
+    @Override
+    public void invalidateCaches() {
+      getInstance().invalidateDiskCache();
+    }
+  }
+
+  private static final class CacheFile {
+    @NotNull final Path path;
+    final long size;
+    final long lastModifiedMs;
+
+    CacheFile(@NotNull Path path, long size, long lastModifiedMs) {
+      this.path = path;
+      this.size = size;
+      this.lastModifiedMs = lastModifiedMs;
+    }
+  }
+
+  /** Defers creation of the shared instance until it is first needed. */
+  private static final class InstanceHolder {
+    static final TransformedClassCache INSTANCE = createDefault();
+  }
+
+  private static final class Key {
+    @NotNull final String transformationId;
+    @NotNull final HashCode hash;
+
+    Key(@NotNull String transformationId, @NotNull HashCode hash) {
+      this.transformationId = transformationId;
+      this.hash = hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (obj == null || getClass() != obj.getClass()) {
+        return false;
+      }
+      Key other = (Key)obj;
+      return hash.equals(other.hash) && transformationId.equals(other.transformationId);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(transformationId, hash);
+    }
+  }
+}
@@ -116,6 +116,11 @@ public interface ImagePool {
      * Returns the number of times we had an image that was returned to this bucket.
      */
     long imageWasReturned();
+
+    /**
+     * Returns the number of images that were removed from this bucket to keep the pool under its memory limit.
+     */
+    long bucketEvictions();
   }
 
   interface Stats {
@@ -123,6 +128,16 @@ public interface ImagePool {
 
     long totalBytesInUse();
 
+    /**
+     * Returns the total size of the images kept in the pool waiting to be reused.
+     */
+    long totalBytesPooled();
+
+    /**
+     * Returns the maximum total size of the images kept in the pool. The limit may be shared with other pools.
+     */
+    long maxBytesPooled();
+
     BucketStats[] getBucketStats();
   }
 
@@ -19,12 +19,19 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Factory to create new instances of {@link ImagePool}. The factory currently offers another
  * method that returns an {@link ImagePool} instance that has pooling disabled.
  */
 public class ImagePoolFactory {
+  /**
+   * Total size of the images kept for reuse in all the pools created by {@link #createImagePool()}. There is one pool per project,
+   * so the limit returned by {@link #getDefaultMaxPooledBytes()} applies to all of them together.
+   */
+  private static final AtomicLong ourDefaultPooledBytes = new AtomicLong();
+
   private static final ImagePool NO_POOL_INSTANCE = new ImagePool() {
     @NotNull
     @Override
@@ -64,7 +71,14 @@ public class ImagePoolFactory {
       }
 
       return 50_000_000 / (w * h);
-    });
+    }, getDefaultMaxPooledBytes(), ourDefaultPooledBytes);
+  }
+
+  /**
+   * Returns the default limit of the total size of the images kept in all pools for reuse, 1/10 of the maximum heap size.
+   */
+  private static long getDefaultMaxPooledBytes() {
+    return Runtime.getRuntime().maxMemory() / 10;
   }
 
   /**
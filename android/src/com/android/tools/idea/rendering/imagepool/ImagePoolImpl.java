@@ -22,6 +22,7 @@ import com.google.common.collect.EvictingQueue;
 import com.google.common.collect.ForwardingQueue;
 import com.google.common.collect.Sets;
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.LowMemoryWatcher;
 import java.awt.AlphaComposite;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
@@ -30,14 +31,14 @@ import java.awt.image.BufferedImage;
 import java.awt.image.DataBufferInt;
 import java.awt.image.WritableRaster;
 import java.lang.ref.Reference;
-import java.lang.ref.SoftReference;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.IdentityHashMap;
+import java.util.Comparator;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReadWriteLock;
@@ -51,7 +52,11 @@ import org.jetbrains.annotations.Nullable;
 /**
  * Class that offers a pool of {@link BufferedImage}s. The returned {@link Image} do not offer a direct access
  * to the underlying {@link BufferedImage} to avoid clients holding references to it.
- * Once the {@link Image} is not being referenced anymore, it will be automatically returned to the pool.
+ * Once the {@link Image} is disposed or not being referenced anymore, it will be returned to the pool.
+ * <p>
+ * Returned images are kept in the pool until they are reused or evicted. The total size of the images kept in the pool
+ * is limited by a hard cap, which can be shared with other pools. When a returned image does not fit, images from the least
+ * recently used buckets of this pool are evicted. All the pooled images are released when the IDE is low on memory.
  */
 @SuppressWarnings("ALL")
 class ImagePoolImpl implements ImagePool {
@@ -59,8 +64,8 @@ class ImagePoolImpl implements ImagePool {
 
   private static final Bucket NULL_BUCKET = new Bucket(0, 0, 0);
   private final int[] myBucketSizes;
-  private final HashMap<String, Bucket> myPool = new HashMap<>();
-  private final IdentityHashMap<Bucket, BucketStatsImpl> myBucketStats = new IdentityHashMap<>();
+  private final Map<String, Bucket> myPool = new ConcurrentHashMap<>();
+  private final Map<Bucket, BucketStatsImpl> myBucketStats = new ConcurrentHashMap<>();
   private final BiFunction<Integer, Integer, Function<Integer, Integer>> myBucketSizingPolicy;
   @SuppressWarnings("IOResourceOpenedButNotSafelyClosed")
   private final FinalizableReferenceQueue myFinalizableReferenceQueue = new FinalizableReferenceQueue();
@@ -68,6 +73,12 @@ class ImagePoolImpl implements ImagePool {
 
   private final LongAdder myTotalAllocatedBytes = new LongAdder();
   private final LongAdder myTotalInUseBytes = new LongAdder();
+  /** Total size of the images that are kept in the pool waiting to be reused. */
+  private final AtomicLong myTotalPooledBytes = new AtomicLong();
+  /** Total size of the images kept in all the pools sharing {@link #myMaxPooledBytes} with this one. */
+  private final AtomicLong mySharedPooledBytes;
+  private final long myMaxPooledBytes;
+  private final LowMemoryWatcher myLowMemoryWatcher;
 
   private final Stats myStats = new Stats() {
     @Override
@@ -80,6 +91,16 @@ class ImagePoolImpl implements ImagePool {
       return myTotalInUseBytes.sum();
     }
 
+    @Override
+    public long totalBytesPooled() {
+      return myTotalPooledBytes.get();
+    }
+
+    @Override
+    public long maxBytesPooled() {
+      return myMaxPooledBytes;
+    }
+
     @Override
     public BucketStats[] getBucketStats() {
       return myBucketStats.values().stream()
@@ -98,14 +119,36 @@ class ImagePoolImpl implements ImagePool {
    *                           allocated into the pool.
    * @param bucketSizingPolicy Function that returns the maximum size for a given bucket. The bucket is defined by width, height and image
    *                           type. If the returned size is 0, no pooling will be done for that bucket size.
+   * @param maxPooledBytes     Maximum total size in bytes of the images kept for reuse in all the pools sharing sharedPooledBytes.
+   * @param sharedPooledBytes  Total size in bytes of the images kept for reuse in all the pools sharing the maxPooledBytes limit.
    */
-  ImagePoolImpl(@NotNull int[] bucketSizes, @NotNull BiFunction<Integer, Integer, Function<Integer, Integer>> bucketSizingPolicy) {
+  ImagePoolImpl(@NotNull int[] bucketSizes, @NotNull BiFunction<Integer, Integer, Function<Integer, Integer>> bucketSizingPolicy,
+                long maxPooledBytes, @NotNull AtomicLong sharedPooledBytes) {
     if (LOG.isDebugEnabled()) {
-      LOG.debug("New ImagePool " + Arrays.toString(bucketSizes));
+      LOG.debug("New ImagePool " + Arrays.toString(bucketSizes) + " maxPooledBytes=" + maxPooledBytes);
     }
     myBucketSizes = bucketSizes;
     Arrays.sort(myBucketSizes);
     myBucketSizingPolicy = bucketSizingPolicy;
+    myMaxPooledBytes = maxPooledBytes;
+    mySharedPooledBytes = sharedPooledBytes;
+    myLowMemoryWatcher = LowMemoryWatcher.register(this::trim, LowMemoryWatcher.LowMemoryWatcherType.ONLY_AFTER_GC);
+  }
+
+  /**
+   * Constructs a new {@link ImagePoolImpl} whose limit on the total size of the pooled images is not shared with other pools.
+   */
+  ImagePoolImpl(@NotNull int[] bucketSizes, @NotNull BiFunction<Integer, Integer, Function<Integer, Integer>> bucketSizingPolicy,
+                long maxPooledBytes) {
+    this(bucketSizes, bucketSizingPolicy, maxPooledBytes, new AtomicLong());
+  }
+
+  /**
+   * Constructs a new {@link ImagePoolImpl} without a limit on the total size of the pooled images other than the one
+   * imposed by the bucketSizingPolicy.
+   */
+  ImagePoolImpl(@NotNull int[] bucketSizes, @NotNull BiFunction<Integer, Integer, Function<Integer, Integer>> bucketSizingPolicy) {
+    this(bucketSizes, bucketSizingPolicy, Long.MAX_VALUE);
   }
 
   private boolean isDisposed = false;
@@ -194,14 +237,11 @@ class ImagePoolImpl implements ImagePool {
     }
 
     BufferedImage image;
-    SoftReference<BufferedImage> imageRef;
     try {
-      imageRef = bucket.remove();
-      while ((image = imageRef.get()) == null) {
-        imageRef = bucket.remove();
-      }
+      image = bucket.remove();
 
       long totalSize = image.getWidth() * image.getHeight();
+      releasePooledBytes(totalSize * 4);
       if (bucketStats != null) {
         bucketStats.bucketHit();
       }
@@ -252,7 +292,12 @@ class ImagePoolImpl implements ImagePool {
       public void finalizeReferent() {
         // This method might be called twice if the user has manually called the free() method. The second call will have no effect.
         if (myReferences.remove(this)) {
-          boolean accepted = bucket.offer(new SoftReference<>(imagePointer));
+          long estimatedSize = imagePointer.getWidth() * imagePointer.getHeight() * 4;
+          boolean accepted = bucket != NULL_BUCKET && reservePooledBytes(estimatedSize);
+          if (accepted && !bucket.offer(imagePointer)) {
+            releasePooledBytes(estimatedSize);
+            accepted = false;
+          }
           if (bucketStats != null) {
             if (accepted) {
               bucketStats.returnedImageAccepted();
@@ -267,13 +312,10 @@ class ImagePoolImpl implements ImagePool {
                                     w, h, type, bucket.myMinWidth, bucket.myMinHeight));
           }
 
-          long estimatedSize = imagePointer.getWidth() * imagePointer.getHeight() * 4;
+          myTotalInUseBytes.add(-estimatedSize);
           if (!accepted) {
             myTotalAllocatedBytes.add(-estimatedSize);
           }
-          else {
-            myTotalInUseBytes.add(-estimatedSize);
-          }
           if (freedCallback != null) {
             freedCallback.accept(imagePointer);
           }
@@ -286,6 +328,71 @@ class ImagePoolImpl implements ImagePool {
     return pooledImage;
   }
 
+  /**
+   * Makes room for an image of the given size in the pool, evicting images from the least recently used buckets if necessary.
+   *
+   * @return true if the space has been reserved, false if the image can not be kept in the pool
+   */
+  private boolean reservePooledBytes(long bytes) {
+    if (bytes > myMaxPooledBytes) {
+      return false;
+    }
+    while (true) {
+      long pooledBytes = mySharedPooledBytes.get();
+      if (pooledBytes + bytes <= myMaxPooledBytes) {
+        if (mySharedPooledBytes.compareAndSet(pooledBytes, pooledBytes + bytes)) {
+          myTotalPooledBytes.addAndGet(bytes);
+          return true;
+        }
+      }
+      else if (!evictLeastRecentlyUsedImage()) {
+        return false;
+      }
+    }
+  }
+
+  private void releasePooledBytes(long bytes) {
+    myTotalPooledBytes.addAndGet(-bytes);
+    mySharedPooledBytes.addAndGet(-bytes);
+  }
+
+  /**
+   * Evicts all the images kept in the pool for reuse. Images in use are not affected.
+   */
+  @VisibleForTesting
+  void trim() {
+    //noinspection StatementWithEmptyBody
+    while (evictLeastRecentlyUsedImage()) {
+    }
+  }
+
+  /**
+   * Evicts one image from this pool's bucket that was accessed least recently.
+   *
+   * @return false if there was nothing to evict
+   */
+  private boolean evictLeastRecentlyUsedImage() {
+    BucketStatsImpl victim = myBucketStats.values().stream()
+      .filter(stats -> !stats.myBucket.isEmpty())
+      .min(Comparator.comparingLong(BucketStatsImpl::getLastAccessTimeMs))
+      .orElse(null);
+    if (victim == null) {
+      return false;
+    }
+    BufferedImage image = victim.myBucket.poll();
+    if (image != null) {
+      long estimatedSize = image.getWidth() * image.getHeight() * 4;
+      releasePooledBytes(estimatedSize);
+      myTotalAllocatedBytes.add(-estimatedSize);
+      victim.imageEvicted();
+      if (LOG.isDebugEnabled()) {
+        LOG.debug(String.format("Evicted image (%dx%d) from bucket (%dx%d)\n",
+                                image.getWidth(), image.getHeight(), victim.getMinWidth(), victim.getMinHeight()));
+      }
+    }
+    return true;
+  }
+
   private static final class BucketStatsImpl implements BucketStats {
     private final Bucket myBucket;
     private final AtomicLong myLastAccessMs = new AtomicLong(System.currentTimeMillis());
@@ -293,6 +400,7 @@ class ImagePoolImpl implements ImagePool {
     private final AtomicLong myBucketHit = new AtomicLong(0);
     private final AtomicLong myBucketFull = new AtomicLong(0);
     private final AtomicLong myBucketHadSpace = new AtomicLong(0);
+    private final AtomicLong myBucketEvictions = new AtomicLong(0);
 
     BucketStatsImpl(@NotNull Bucket bucket) {
       myBucket = bucket;
@@ -338,6 +446,11 @@ class ImagePoolImpl implements ImagePool {
       return myBucketHadSpace.get();
     }
 
+    @Override
+    public long bucketEvictions() {
+      return myBucketEvictions.get();
+    }
+
     public void bucketHit() {
       myLastAccessMs.set(System.currentTimeMillis());
       myBucketHit.incrementAndGet();
@@ -355,10 +468,14 @@ class ImagePoolImpl implements ImagePool {
     public void returnedImageRejected() {
       myBucketFull.incrementAndGet();
     }
+
+    public void imageEvicted() {
+      myBucketEvictions.incrementAndGet();
+    }
   }
 
-  private static class Bucket extends ForwardingQueue<SoftReference<BufferedImage>> {
-    private final Queue<SoftReference<BufferedImage>> myDelegate;
+  private static class Bucket extends ForwardingQueue<BufferedImage> {
+    private final Queue<BufferedImage> myDelegate;
     private final int myMinWidth;
     private final int myMinHeight;
     private final int myMaxSize;
@@ -373,11 +490,11 @@ class ImagePoolImpl implements ImagePool {
       myMaxSize = maxSize;
       myDelegate = maxSize == 0 ?
                    EvictingQueue.create(0)
-                                : new ArrayBlockingQueue<SoftReference<BufferedImage>>(maxSize);
+                                : new ArrayBlockingQueue<BufferedImage>(maxSize);
     }
 
     @Override
-    protected Queue<SoftReference<BufferedImage>> delegate() {
+    protected Queue<BufferedImage> delegate() {
       return myDelegate;
     }
 
@@ -424,9 +541,12 @@ class ImagePoolImpl implements ImagePool {
    */
   public void dispose() {
     isDisposed = true;
+    myLowMemoryWatcher.stop();
     myFinalizableReferenceQueue.close();
     myReferences.clear();
+    myPool.values().forEach(Bucket::clear);
     myPool.clear();
+    mySharedPooledBytes.addAndGet(-myTotalPooledBytes.getAndSet(0));
   }
 
   public static class ImageImpl implements ImagePool.Image {
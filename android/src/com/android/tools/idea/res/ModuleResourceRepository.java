@@ -23,6 +23,7 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.MoreObjects;
 import com.google.common.collect.ImmutableList;
 import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ReadAction;
 import com.intellij.openapi.util.Disposer;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.util.containers.ContainerUtil;
@@ -126,13 +127,36 @@ final class ModuleResourceRepository extends MultiResourceRepository implements
     return new ModuleResourceRepository(facet, namespace, childRepositories, SourceSet.TEST);
   }
 
+  /**
+   * Loads repositories for the main resource folders of the given module into the {@link ResourceFolderRegistry}, in parallel.
+   * Should be called outside of a read action before {@link #forMainResources}, which then finds the repositories in the registry.
+   */
+  static void loadMainFolderRepositories(@NotNull AndroidFacet facet) {
+    loadFolderRepositories(facet, ReadAction.compute(() -> ResourceFolderManager.getInstance(facet).getFolders()));
+  }
+
+  /**
+   * Loads repositories for the test resource folders of the given module into the {@link ResourceFolderRegistry}, in parallel.
+   * Should be called outside of a read action before {@link #forTestResources}, which then finds the repositories in the registry.
+   */
+  static void loadTestFolderRepositories(@NotNull AndroidFacet facet) {
+    loadFolderRepositories(facet, ReadAction.compute(() -> ResourceFolderManager.getInstance(facet).getTestFolders()));
+  }
+
+  private static void loadFolderRepositories(@NotNull AndroidFacet facet, @NotNull List<VirtualFile> resourceDirectories) {
+    if (resourceDirectories.size() > 1) {
+      ResourceFolderRegistry.getInstance(facet.getModule().getProject()).get(facet, resourceDirectories);
+    }
+  }
+
   /**
    * Inserts repositories for the given {@code resourceDirectories} into {@code childRepositories}, in the right order.
    *
    * <p>{@code resourceDirectories} is assumed to be in the order returned from
    * {@link SourceProviderManager#getCurrentSourceProviders()}, which is the inverse of what we need. The code in
    * {@link MultiResourceRepository#getMap(ResourceNamespace, ResourceType, boolean)} gives priority to child repositories which are earlier
-   * in the list, so after creating repositories for every folder, we add them in reverse to the list.
+   * in the list, so after creating repositories for every folder, we add them in reverse to the list. Repositories for different
+   * folders are loaded in parallel, see {@link ResourceFolderRegistry#get(AndroidFacet, List)}.
    *
    * @param resourceDirectories directories for which repositories should be constructed
    * @param childRepositories the list of repositories to which new repositories will be added
@@ -143,10 +167,9 @@ final class ModuleResourceRepository extends MultiResourceRepository implements
                                                            @NotNull List<LocalResourceRepository> childRepositories,
                                                            @NotNull AndroidFacet facet,
                                                            @NotNull ResourceFolderRegistry resourceFolderRegistry) {
-    for (int i = resourceDirectories.size(); --i >= 0;) {
-      VirtualFile resourceDirectory = resourceDirectories.get(i);
-      ResourceFolderRepository repository = resourceFolderRegistry.get(facet, resourceDirectory);
-      childRepositories.add(repository);
+    List<ResourceFolderRepository> repositories = resourceFolderRegistry.get(facet, resourceDirectories);
+    for (int i = repositories.size(); --i >= 0;) {
+      childRepositories.add(repositories.get(i));
     }
   }
 
@@ -212,6 +235,10 @@ final class ModuleResourceRepository extends MultiResourceRepository implements
       resources.addAll(other);
     }
 
+    // Load repositories for the added directories in parallel.
+    List<VirtualFile> addedDirs = ContainerUtil.filter(resourceDirectories, dir -> !map.containsKey(dir));
+    myRegistry.get(myFacet, addedDirs);
+
     for (VirtualFile dir : resourceDirectories) {
       ResourceFolderRepository repository = map.get(dir);
       if (repository == null) {
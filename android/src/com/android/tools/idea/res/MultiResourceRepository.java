@@ -54,7 +54,10 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.function.Predicate;
 import javax.annotation.concurrent.GuardedBy;
 import org.jetbrains.annotations.NotNull;
@@ -67,33 +70,27 @@ import org.jetbrains.annotations.Nullable;
  * replace/hide any subsequent definitions of the same resource.
  *
  * <p>In the resource repository hierarchy, MultiResourceRepository is an internal node, never a leaf.
+ *
+ * <p>Lookups are served from immutable snapshots that are read without holding {@link #ITEM_MAP_LOCK}.
+ * The list of children is replaced as a whole by {@link #setChildren}. A snapshot of the resources of
+ * a namespace and type is published to {@link #myPublishedMaps} when it is first requested, and from
+ * then on it is replaced by the writer: when a leaf repository invalidates resources, the new snapshots
+ * are built in {@link #invalidateCache} while the leaf still holds the lock, so readers never see a
+ * partially updated map and never wait for one. Only the first request for a namespace and type takes
+ * the lock.
  */
 @SuppressWarnings("InstanceGuardedByStatic") // TODO: The whole locking scheme for resource repositories needs to be reworked.
 public abstract class MultiResourceRepository extends LocalResourceRepository implements Disposable {
   private static final Logger LOG = Logger.getInstance(MultiResourceRepository.class);
 
-  @GuardedBy("ITEM_MAP_LOCK")
-  @NotNull private ImmutableList<LocalResourceRepository> myLocalResources = ImmutableList.of();
-  @GuardedBy("ITEM_MAP_LOCK")
-  @NotNull private ImmutableList<AarResourceRepository> myLibraryResources = ImmutableList.of();
-  /** A concatenation of {@link #myLocalResources} and {@link #myLibraryResources}. */
-  @GuardedBy("ITEM_MAP_LOCK")
-  @NotNull private ImmutableList<ResourceRepository> myChildren = ImmutableList.of();
-  /** Leaf resource repositories keyed by namespace. */
-  @GuardedBy("ITEM_MAP_LOCK")
-  @NotNull private ImmutableListMultimap<ResourceNamespace, SingleNamespaceResourceRepository> myLeafsByNamespace =
-      ImmutableListMultimap.of();
-  /** Contained single-namespace resource repositories keyed by namespace. */
-  @GuardedBy("ITEM_MAP_LOCK")
-  @NotNull private ImmutableListMultimap<ResourceNamespace, SingleNamespaceResourceRepository> myRepositoriesByNamespace =
-      ImmutableListMultimap.of();
-
-  @GuardedBy("ITEM_MAP_LOCK")
-  @NotNull private ResourceItemComparator myResourceComparator =
-      new ResourceItemComparator(new ResourcePriorityComparator(ImmutableList.of()));
+  /** Immutable description of the children. Replaced under {@link #ITEM_MAP_LOCK}, read without locking. */
+  @NotNull private volatile Children myChildren = Children.EMPTY;
 
-  @GuardedBy("ITEM_MAP_LOCK")
-  private long[] myModificationCounts;
+  /**
+   * Immutable copies of the up to date resource maps that have been requested so far. Entries are added and replaced under
+   * {@link #ITEM_MAP_LOCK}, readers look them up without locking.
+   */
+  @NotNull private final Map<MapKey, ImmutableListMultimap<String, ResourceItem>> myPublishedMaps = new ConcurrentHashMap<>();
 
   @GuardedBy("ITEM_MAP_LOCK")
   private final ResourceTable myCachedMaps = new ResourceTable();
@@ -116,49 +113,32 @@ public abstract class MultiResourceRepository extends LocalResourceRepository im
                              @NotNull Collection<? extends AarResourceRepository> libraryResources,
                              @NotNull Collection<? extends ResourceRepository> otherResources) {
     synchronized (ITEM_MAP_LOCK) {
-      for (LocalResourceRepository child : myLocalResources) {
+      for (LocalResourceRepository child : myChildren.localResources) {
         child.removeParent(this);
       }
       setModificationCount(ourModificationCounter.incrementAndGet());
-      myLocalResources = ImmutableList.copyOf(localResources);
-      myLibraryResources = ImmutableList.copyOf(libraryResources);
-      int size = myLocalResources.size() + myLibraryResources.size() + otherResources.size();
-      myChildren = ImmutableList.<ResourceRepository>builderWithExpectedSize(size)
-          .addAll(myLocalResources).addAll(myLibraryResources).addAll(otherResources).build();
-
-      ImmutableListMultimap.Builder<ResourceNamespace, SingleNamespaceResourceRepository> mapBuilder = ImmutableListMultimap.builder();
-      computeLeafs(this, mapBuilder);
-      myLeafsByNamespace = mapBuilder.build();
-
-      mapBuilder = ImmutableListMultimap.builder();
-      computeNamespaceMap(this, mapBuilder);
-      myRepositoriesByNamespace = mapBuilder.build();
-
-      myResourceComparator = new ResourceItemComparator(new ResourcePriorityComparator(myLeafsByNamespace.values()));
+      myCachedMaps.clear();
+      myChildren = new Children(this, localResources, libraryResources, otherResources);
+      myPublishedMaps.clear();
 
-      myModificationCounts = new long[localResources.size()];
       if (localResources.size() == 1) {
         // Make sure that the modification count of the child and the parent are same. This is
         // done so that we can return child's modification count, instead of ours.
         LocalResourceRepository child = localResources.get(0);
         child.setModificationCount(getModificationCount());
       }
-      int i = 0;
-      for (LocalResourceRepository child : myLocalResources) {
+      for (LocalResourceRepository child : myChildren.localResources) {
         child.addParent(this);
-        myModificationCounts[i++] = child.getModificationCount();
       }
-      myCachedMaps.clear();
 
       invalidateParentCaches();
     }
   }
 
-  @GuardedBy("ITEM_MAP_LOCK")
   private static void computeLeafs(@NotNull ResourceRepository repository,
                                    @NotNull ImmutableListMultimap.Builder<ResourceNamespace, SingleNamespaceResourceRepository> result) {
     if (repository instanceof MultiResourceRepository) {
-      for (ResourceRepository child : ((MultiResourceRepository)repository).myChildren) {
+      for (ResourceRepository child : ((MultiResourceRepository)repository).myChildren.all) {
         computeLeafs(child, result);
       }
     } else {
@@ -168,7 +148,6 @@ public abstract class MultiResourceRepository extends LocalResourceRepository im
     }
   }
 
-  @GuardedBy("ITEM_MAP_LOCK")
   private static void computeNamespaceMap(
       @NotNull ResourceRepository repository,
       @NotNull ImmutableListMultimap.Builder<ResourceNamespace, SingleNamespaceResourceRepository> result) {
@@ -178,29 +157,23 @@ public abstract class MultiResourceRepository extends LocalResourceRepository im
       result.put(namespace, singleNamespaceRepository);
     }
     else if (repository instanceof MultiResourceRepository) {
-      for (ResourceRepository child : ((MultiResourceRepository)repository).myChildren) {
+      for (ResourceRepository child : ((MultiResourceRepository)repository).myChildren.all) {
         computeNamespaceMap(child, result);
       }
     }
   }
 
   public ImmutableList<LocalResourceRepository> getLocalResources() {
-    synchronized (ITEM_MAP_LOCK) {
-      return myLocalResources;
-    }
+    return myChildren.localResources;
   }
 
   public ImmutableList<AarResourceRepository> getLibraryResources() {
-    synchronized (ITEM_MAP_LOCK) {
-      return myLibraryResources;
-    }
+    return myChildren.libraryResources;
   }
 
   @NotNull
   public final List<ResourceRepository> getChildren() {
-    synchronized (ITEM_MAP_LOCK) {
-      return myChildren;
-    }
+    return myChildren.all;
   }
 
   /**
@@ -213,59 +186,50 @@ public abstract class MultiResourceRepository extends LocalResourceRepository im
    */
   @NotNull
   public final List<SingleNamespaceResourceRepository> getRepositoriesForNamespace(@NotNull ResourceNamespace namespace) {
-    synchronized (ITEM_MAP_LOCK) {
-      return myRepositoriesByNamespace.get(namespace);
-    }
+    return myChildren.repositoriesByNamespace.get(namespace);
   }
 
   @Override
   public long getModificationCount() {
-    synchronized (ITEM_MAP_LOCK) {
-      if (myLocalResources.size() == 1) {
-        return myLocalResources.get(0).getModificationCount();
-      }
-
-      // See if any of the delegates have changed.
-      boolean changed = false;
-      for (int i = 0; i < myLocalResources.size(); i++) {
-        LocalResourceRepository child = myLocalResources.get(i);
-        long rev = child.getModificationCount();
-        if (rev != myModificationCounts[i]) {
-          myModificationCounts[i] = rev;
-          changed = true;
+    Children children = myChildren;
+    // See if any of the delegates have changed. Only recording of the new counts requires the lock. Since a leaf repository
+    // changes its count and invalidates the caches of its parents while holding the lock, a new count is never returned
+    // before the snapshots matching it have been published.
+    if (children.hasModifiedLocalResources()) {
+      synchronized (ITEM_MAP_LOCK) {
+        children = myChildren;
+        long[] counts = children.getLocalResourceModificationCounts();
+        if (children.hasModifiedLocalResources(counts)) {
+          // The generation has to be updated before the new counts become visible to readers that don't take the lock.
+          if (counts.length != 1) {
+            setModificationCount(ourModificationCounter.incrementAndGet());
+          }
+          children.setLocalResourceModificationCounts(counts);
         }
       }
+    }
 
-      if (changed) {
-        setModificationCount(ourModificationCounter.incrementAndGet());
-      }
-
-      return super.getModificationCount();
+    if (children.localResources.size() == 1) {
+      return children.getLocalResourceModificationCount(0);
     }
+    return super.getModificationCount();
   }
 
   @Override
   @NotNull
   public Set<ResourceNamespace> getNamespaces() {
-    synchronized (ITEM_MAP_LOCK) {
-      return myRepositoriesByNamespace.keySet();
-    }
+    return myChildren.repositoriesByNamespace.keySet();
   }
 
   @Override
   @NotNull
   public ResourceVisitor.VisitResult accept(@NotNull ResourceVisitor visitor) {
-    synchronized (ITEM_MAP_LOCK) {
-      for (ResourceNamespace namespace : getNamespaces()) {
-        if (visitor.shouldVisitNamespace(namespace)) {
-          for (ResourceType type : ResourceType.values()) {
-            if (visitor.shouldVisitResourceType(type)) {
-              ListMultimap<String, ResourceItem> map = getMap(namespace, type);
-              for (ResourceItem item : map.values()) {
-                if (visitor.visit(item) == ResourceVisitor.VisitResult.ABORT) {
-                  return ResourceVisitor.VisitResult.ABORT;
-                }
-              }
+    for (ResourceNamespace namespace : getNamespaces()) {
+      if (visitor.shouldVisitNamespace(namespace)) {
+        for (ResourceType type : ResourceType.values()) {
+          if (visitor.shouldVisitResourceType(type)) {
+            if (visit(getPublishedMap(namespace, type).values(), visitor) == ResourceVisitor.VisitResult.ABORT) {
+              return ResourceVisitor.VisitResult.ABORT;
             }
           }
         }
@@ -275,11 +239,84 @@ public abstract class MultiResourceRepository extends LocalResourceRepository im
     return ResourceVisitor.VisitResult.CONTINUE;
   }
 
+  @NotNull
+  private static ResourceVisitor.VisitResult visit(@NotNull Collection<ResourceItem> items, @NotNull ResourceVisitor visitor) {
+    for (ResourceItem item : items) {
+      if (visitor.visit(item) == ResourceVisitor.VisitResult.ABORT) {
+        return ResourceVisitor.VisitResult.ABORT;
+      }
+    }
+    return ResourceVisitor.VisitResult.CONTINUE;
+  }
+
+  @Override
+  @NotNull
+  public ListMultimap<String, ResourceItem> getResources(@NotNull ResourceNamespace namespace, @NotNull ResourceType resourceType) {
+    return getPublishedMap(namespace, resourceType);
+  }
+
+  @Override
+  @NotNull
+  public List<ResourceItem> getResources(@NotNull ResourceNamespace namespace,
+                                         @NotNull ResourceType resourceType,
+                                         @NotNull String resourceName) {
+    return getPublishedMap(namespace, resourceType).get(resourceName);
+  }
+
+  @Override
+  @NotNull
+  public List<ResourceItem> getResources(@NotNull ResourceNamespace namespace,
+                                         @NotNull ResourceType resourceType,
+                                         @NotNull Predicate<ResourceItem> filter) {
+    ImmutableList.Builder<ResourceItem> result = ImmutableList.builder();
+    for (ResourceItem item : getPublishedMap(namespace, resourceType).values()) {
+      if (filter.test(item)) {
+        result.add(item);
+      }
+    }
+    return result.build();
+  }
+
+  @Override
+  @NotNull
+  public Set<String> getResourceNames(@NotNull ResourceNamespace namespace, @NotNull ResourceType resourceType) {
+    return getPublishedMap(namespace, resourceType).keySet();
+  }
+
+  @Override
+  public boolean hasResources(@NotNull ResourceNamespace namespace, @NotNull ResourceType resourceType, @NotNull String resourceName) {
+    return getPublishedMap(namespace, resourceType).containsKey(resourceName);
+  }
+
+  /**
+   * Returns an immutable merged map of resources of the given namespace and type. The map is taken from
+   * {@link #myPublishedMaps} without locking if it is there, otherwise it is computed under {@link #ITEM_MAP_LOCK}
+   * and published for subsequent readers. Once published, the map is kept up to date by {@link #invalidateCache}.
+   */
+  @NotNull
+  private ImmutableListMultimap<String, ResourceItem> getPublishedMap(@NotNull ResourceNamespace namespace, @NotNull ResourceType type) {
+    MapKey key = new MapKey(namespace, type);
+    ImmutableListMultimap<String, ResourceItem> map = myPublishedMaps.get(key);
+    if (map != null) {
+      return map;
+    }
+
+    synchronized (ITEM_MAP_LOCK) {
+      map = myPublishedMaps.get(key);
+      if (map == null) {
+        map = ImmutableListMultimap.copyOf(getMap(namespace, type));
+        myPublishedMaps.put(key, map);
+      }
+      return map;
+    }
+  }
+
   @GuardedBy("ITEM_MAP_LOCK")
   @Override
   @NotNull
   protected ListMultimap<String, ResourceItem> getMap(@NotNull ResourceNamespace namespace, @NotNull ResourceType type) {
-    ImmutableList<SingleNamespaceResourceRepository> repositoriesForNamespace = myLeafsByNamespace.get(namespace);
+    Children children = myChildren;
+    ImmutableList<SingleNamespaceResourceRepository> repositoriesForNamespace = children.leafsByNamespace.get(namespace);
     if (repositoriesForNamespace.size() == 1) {
       SingleNamespaceResourceRepository repository = repositoriesForNamespace.get(0);
       return getResourcesUnderLock(repository, namespace, type);
@@ -303,7 +340,7 @@ public abstract class MultiResourceRepository extends LocalResourceRepository im
       // not a styleable or an id. Styleables and ids are allowed to be defined in multiple
       // places even with the same qualifiers.
       map = type == ResourceType.STYLEABLE || type == ResourceType.ID ?
-            ArrayListMultimap.create() : new PerConfigResourceMap(myResourceComparator);
+            ArrayListMultimap.create() : new PerConfigResourceMap(children.resourceComparator);
       for (SingleNamespaceResourceRepository repository : repositoriesForNamespace) {
         ListMultimap<String, ResourceItem> items = getResourcesUnderLock(repository, namespace, type);
         map.putAll(items);
@@ -372,36 +409,35 @@ public abstract class MultiResourceRepository extends LocalResourceRepository im
 
   @Override
   public boolean hasResources(@NotNull ResourceNamespace namespace, @NotNull ResourceType type) {
-    synchronized (ITEM_MAP_LOCK) {
-      if (myChildren.size() == 1) {
-        return myChildren.get(0).hasResources(namespace, type);
-      }
+    Children children = myChildren;
+    if (children.all.size() == 1) {
+      return children.all.get(0).hasResources(namespace, type);
+    }
 
-      if (this instanceof SingleNamespaceResourceRepository) {
-        if (namespace.equals(((SingleNamespaceResourceRepository)this).getNamespace())) {
-          for (ResourceRepository child : myChildren) {
-            if (child.hasResources(namespace, type)) {
-              return true;
-            }
+    if (this instanceof SingleNamespaceResourceRepository) {
+      if (namespace.equals(((SingleNamespaceResourceRepository)this).getNamespace())) {
+        for (ResourceRepository child : children.all) {
+          if (child.hasResources(namespace, type)) {
+            return true;
           }
         }
-        return false;
       }
+      return false;
+    }
 
-      Collection<SingleNamespaceResourceRepository> repositories = myRepositoriesByNamespace.get(namespace);
-      for (ResourceRepository repository : repositories) {
-        if (repository.hasResources(namespace, type)) {
-          return true;
-        }
+    Collection<SingleNamespaceResourceRepository> repositories = children.repositoriesByNamespace.get(namespace);
+    for (ResourceRepository repository : repositories) {
+      if (repository.hasResources(namespace, type)) {
+        return true;
       }
-      return false;
     }
+    return false;
   }
 
   @Override
   public void dispose() {
     synchronized (ITEM_MAP_LOCK) {
-      for (LocalResourceRepository child : myLocalResources) {
+      for (LocalResourceRepository child : myChildren.localResources) {
         child.removeParent(this);
       }
     }
@@ -415,6 +451,10 @@ public abstract class MultiResourceRepository extends LocalResourceRepository im
     myCachedMaps.clear();
     myResourceNames.clear();
     myUnreconciledResources.clear();
+    // Replace the published maps with new ones instead of removing them, so that readers don't have to compute them.
+    for (MapKey key : myPublishedMaps.keySet()) {
+      republishMap(key);
+    }
     setModificationCount(ourModificationCounter.incrementAndGet());
 
     invalidateParentCaches();
@@ -428,10 +468,10 @@ public abstract class MultiResourceRepository extends LocalResourceRepository im
   public void invalidateCache(@NotNull SingleNamespaceResourceRepository repository, @NotNull ResourceType... types) {
     ResourceNamespace namespace = repository.getNamespace();
 
-    // Since myLeafsByNamespace updates are not atomic with respect to grandchildren updates, it is
-    // possible that the repository that triggered cache invalidation is not in myLeafsByNamespace.
+    // Since myChildren updates are not atomic with respect to grandchildren updates, it is possible
+    // that the repository that triggered cache invalidation is not among the leafs of myChildren.
     // In such a case we don't need to do anything.
-    ImmutableList<SingleNamespaceResourceRepository> leafs = myLeafsByNamespace.get(namespace);
+    ImmutableList<SingleNamespaceResourceRepository> leafs = myChildren.leafsByNamespace.get(namespace);
     if (leafs != null && leafs.contains(repository)) {
       // Update myUnreconciledResources only if myCachedMaps is used for this namespace.
       if (leafs.size() != 1) {
@@ -445,7 +485,18 @@ public abstract class MultiResourceRepository extends LocalResourceRepository im
             repositories.add(repository);
           }
         }
+      }
+
+      // Copy on write: the maps that readers have already requested are rebuilt and replaced here, so that readers never
+      // have to take the lock to get the new contents.
+      for (ResourceType type : types) {
+        MapKey key = new MapKey(namespace, type);
+        if (myPublishedMaps.containsKey(key)) {
+          republishMap(key);
+        }
+      }
 
+      if (leafs.size() != 1) {
         setModificationCount(ourModificationCounter.incrementAndGet());
       }
 
@@ -453,18 +504,21 @@ public abstract class MultiResourceRepository extends LocalResourceRepository im
     }
   }
 
+  @GuardedBy("ITEM_MAP_LOCK")
+  private void republishMap(@NotNull MapKey key) {
+    myPublishedMaps.put(key, ImmutableListMultimap.copyOf(getMap(key.myNamespace, key.myType)));
+  }
+
   @Override
   boolean isScanPending(@NotNull PsiFile psiFile) {
-    synchronized (ITEM_MAP_LOCK) {
-      assert ApplicationManager.getApplication().isUnitTestMode();
-      for (LocalResourceRepository child : myLocalResources) {
-        if (child.isScanPending(psiFile)) {
-          return true;
-        }
+    assert ApplicationManager.getApplication().isUnitTestMode();
+    for (LocalResourceRepository child : myChildren.localResources) {
+      if (child.isScanPending(psiFile)) {
+        return true;
       }
-
-      return false;
     }
+
+    return false;
   }
 
   @Override
@@ -479,20 +533,143 @@ public abstract class MultiResourceRepository extends LocalResourceRepository im
   @Override
   @NotNull
   protected Set<VirtualFile> computeResourceDirs() {
-    synchronized (ITEM_MAP_LOCK) {
-      Set<VirtualFile> result = new HashSet<>();
-      for (LocalResourceRepository resourceRepository : myLocalResources) {
-        result.addAll(resourceRepository.computeResourceDirs());
-      }
-      return result;
+    Set<VirtualFile> result = new HashSet<>();
+    for (LocalResourceRepository resourceRepository : myChildren.localResources) {
+      result.addAll(resourceRepository.computeResourceDirs());
     }
+    return result;
   }
 
   @Override
   @NotNull
   public Collection<SingleNamespaceResourceRepository> getLeafResourceRepositories() {
-    synchronized (ITEM_MAP_LOCK) {
-      return myLeafsByNamespace.values();
+    return myChildren.leafsByNamespace.values();
+  }
+
+  /** Key of a map in {@link #myPublishedMaps}. */
+  private static final class MapKey {
+    @NotNull private final ResourceNamespace myNamespace;
+    @NotNull private final ResourceType myType;
+
+    MapKey(@NotNull ResourceNamespace namespace, @NotNull ResourceType type) {
+      myNamespace = namespace;
+      myType = type;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof MapKey)) {
+        return false;
+      }
+      MapKey other = (MapKey)obj;
+      return myType == other.myType && myNamespace.equals(other.myNamespace);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(myNamespace, myType);
+    }
+  }
+
+  /**
+   * Immutable description of the children of a {@link MultiResourceRepository} together with the data derived from them.
+   * A new instance is created every time the children change.
+   */
+  private static class Children {
+    static final Children EMPTY = new Children();
+
+    @NotNull final ImmutableList<LocalResourceRepository> localResources;
+    @NotNull final ImmutableList<AarResourceRepository> libraryResources;
+    /** A concatenation of {@link #localResources}, {@link #libraryResources} and other resource repositories. */
+    @NotNull final ImmutableList<ResourceRepository> all;
+    /** Leaf resource repositories keyed by namespace. */
+    @NotNull final ImmutableListMultimap<ResourceNamespace, SingleNamespaceResourceRepository> leafsByNamespace;
+    /** Contained single-namespace resource repositories keyed by namespace. */
+    @NotNull final ImmutableListMultimap<ResourceNamespace, SingleNamespaceResourceRepository> repositoriesByNamespace;
+    @NotNull final ResourceItemComparator resourceComparator;
+    /** Last seen modification counts of {@link #localResources}. */
+    @NotNull private final AtomicLongArray localResourceModificationCounts;
+
+    private Children() {
+      localResources = ImmutableList.of();
+      libraryResources = ImmutableList.of();
+      all = ImmutableList.of();
+      leafsByNamespace = ImmutableListMultimap.of();
+      repositoriesByNamespace = ImmutableListMultimap.of();
+      resourceComparator = new ResourceItemComparator(new ResourcePriorityComparator(ImmutableList.of()));
+      localResourceModificationCounts = new AtomicLongArray(0);
+    }
+
+    Children(@NotNull MultiResourceRepository owner,
+             @NotNull List<? extends LocalResourceRepository> localResources,
+             @NotNull Collection<? extends AarResourceRepository> libraryResources,
+             @NotNull Collection<? extends ResourceRepository> otherResources) {
+      this.localResources = ImmutableList.copyOf(localResources);
+      this.libraryResources = ImmutableList.copyOf(libraryResources);
+      int size = this.localResources.size() + this.libraryResources.size() + otherResources.size();
+      all = ImmutableList.<ResourceRepository>builderWithExpectedSize(size)
+          .addAll(this.localResources).addAll(this.libraryResources).addAll(otherResources).build();
+
+      ImmutableListMultimap.Builder<ResourceNamespace, SingleNamespaceResourceRepository> mapBuilder = ImmutableListMultimap.builder();
+      for (ResourceRepository child : all) {
+        computeLeafs(child, mapBuilder);
+      }
+      leafsByNamespace = mapBuilder.build();
+
+      mapBuilder = ImmutableListMultimap.builder();
+      if (owner instanceof SingleNamespaceResourceRepository) {
+        computeNamespaceMap(owner, mapBuilder);
+      }
+      else {
+        for (ResourceRepository child : all) {
+          computeNamespaceMap(child, mapBuilder);
+        }
+      }
+      repositoriesByNamespace = mapBuilder.build();
+
+      resourceComparator = new ResourceItemComparator(new ResourcePriorityComparator(leafsByNamespace.values()));
+
+      localResourceModificationCounts = new AtomicLongArray(getLocalResourceModificationCounts());
+    }
+
+    @NotNull
+    long[] getLocalResourceModificationCounts() {
+      long[] counts = new long[localResources.size()];
+      for (int i = 0; i < counts.length; i++) {
+        counts[i] = localResources.get(i).getModificationCount();
+      }
+      return counts;
+    }
+
+    long getLocalResourceModificationCount(int index) {
+      return localResourceModificationCounts.get(index);
+    }
+
+    void setLocalResourceModificationCounts(@NotNull long[] counts) {
+      for (int i = 0; i < counts.length; i++) {
+        localResourceModificationCounts.set(i, counts[i]);
+      }
+    }
+
+    boolean hasModifiedLocalResources() {
+      for (int i = 0; i < localResources.size(); i++) {
+        if (localResources.get(i).getModificationCount() != localResourceModificationCounts.get(i)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    boolean hasModifiedLocalResources(@NotNull long[] counts) {
+      for (int i = 0; i < counts.length; i++) {
+        if (counts[i] != localResourceModificationCounts.get(i)) {
+          return true;
+        }
+      }
+      return false;
     }
   }
 
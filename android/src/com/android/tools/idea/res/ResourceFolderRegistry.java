@@ -19,6 +19,7 @@ import com.android.ide.common.rendering.api.ResourceNamespace;
 import com.android.tools.idea.concurrency.AndroidIoManager;
 import com.android.utils.concurrency.CacheUtils;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
@@ -28,19 +29,25 @@ import com.intellij.openapi.Disposable;
 import com.intellij.openapi.application.Application;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProcessCanceledException;
 import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.project.DumbModeTask;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.roots.ModuleRootEvent;
 import com.intellij.openapi.roots.ModuleRootListener;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.util.containers.ContainerUtil;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.function.BiConsumer;
 import org.jetbrains.android.facet.AndroidFacet;
 import org.jetbrains.android.facet.ResourceFolderManager;
@@ -53,6 +60,9 @@ import org.jetbrains.annotations.Nullable;
  * needed.
  */
 public final class ResourceFolderRegistry implements Disposable {
+  private static final Logger LOG = Logger.getInstance(ResourceFolderRegistry.class);
+  private static final int NUMBER_OF_SLOWEST_FOLDERS_TO_LOG = 10;
+
   @NotNull private final Project myProject;
   @NotNull private final Cache<VirtualFile, ResourceFolderRepository> myNamespacedCache = buildCache();
   @NotNull private final Cache<VirtualFile, ResourceFolderRepository> myNonNamespacedCache = buildCache();
@@ -86,6 +96,46 @@ public final class ResourceFolderRegistry implements Disposable {
     return ReadAction.compute(() -> get(facet, dir, ResourceRepositoryManager.getInstance(facet).getNamespace()));
   }
 
+  /**
+   * Returns repositories for the given resource directories, in the same order. Repositories that are not in the registry yet are
+   * loaded in parallel using the {@linkplain AndroidIoManager#getBackgroundDiskIoExecutor() background disk IO executor}. The calling
+   * thread takes part in loading, so the method doesn't deadlock when called from a thread of the same executor.
+   * <p>
+   * If the calling thread holds the IDE read lock, the repositories are loaded sequentially since the loading threads need the read
+   * lock too, and a pending write action would prevent them from getting it.
+   */
+  @NotNull
+  public List<ResourceFolderRepository> get(@NotNull AndroidFacet facet, @NotNull List<? extends VirtualFile> dirs) {
+    if (dirs.size() <= 1 || ApplicationManager.getApplication().isReadAccessAllowed()) {
+      return ContainerUtil.map(dirs, dir -> get(facet, dir));
+    }
+
+    ExecutorService executor = AndroidIoManager.getInstance().getBackgroundDiskIoExecutor();
+    List<FutureTask<ResourceFolderRepository>> tasks = new ArrayList<>(dirs.size());
+    for (VirtualFile dir : dirs) {
+      FutureTask<ResourceFolderRepository> task = new FutureTask<>(() -> get(facet, dir));
+      tasks.add(task);
+      executor.execute(task);
+    }
+
+    List<ResourceFolderRepository> result = new ArrayList<>(dirs.size());
+    for (FutureTask<ResourceFolderRepository> task : tasks) {
+      task.run(); // Does nothing if the task has already been started by the executor.
+      try {
+        result.add(task.get());
+      }
+      catch (ExecutionException e) {
+        Throwables.throwIfUnchecked(e.getCause());
+        throw new RuntimeException(e.getCause());
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new ProcessCanceledException(e);
+      }
+    }
+    return result;
+  }
+
   @VisibleForTesting
   @NotNull
   ResourceFolderRepository get(@NotNull AndroidFacet facet, @NotNull VirtualFile dir, @NotNull ResourceNamespace namespace) {
@@ -207,13 +257,15 @@ public final class ResourceFolderRegistry implements Disposable {
         repositoryJobs.add(parallelExecutor.submit(() -> registry.get(facet, dir)));
       }
 
+      long startTime = System.currentTimeMillis();
+      List<ResourceFolderRepository> loadedRepositories = new ArrayList<>(repositoryJobs.size());
       for (Future<ResourceFolderRepository> job : repositoryJobs) {
         if (indicator.isCanceled()) {
           break;
         }
         indicator.setFraction((double)numDone / resDirectories.size());
         try {
-          job.get();
+          loadedRepositories.add(job.get());
         }
         catch (ExecutionException e) {
           // If we get an exception, that's okay -- we stop pre-populating the cache, which is just for performance.
@@ -223,6 +275,25 @@ public final class ResourceFolderRegistry implements Disposable {
         }
         ++numDone;
       }
+
+      if (LOG.isDebugEnabled()) {
+        logLoadingTimes(loadedRepositories, System.currentTimeMillis() - startTime);
+      }
+    }
+
+    private static void logLoadingTimes(@NotNull List<ResourceFolderRepository> repositories, long elapsedMillis) {
+      long totalLoadTime = 0;
+      for (ResourceFolderRepository repository : repositories) {
+        totalLoadTime += repository.getInitialLoadTimeMillis();
+      }
+      LOG.debug(String.format(Locale.US, "Populated %d resource folder repositories in %d ms, %d ms spent in loading",
+                              repositories.size(), elapsedMillis, totalLoadTime));
+
+      List<ResourceFolderRepository> slowest = new ArrayList<>(repositories);
+      slowest.sort(Comparator.comparingLong(ResourceFolderRepository::getInitialLoadTimeMillis).reversed());
+      for (ResourceFolderRepository repository : slowest.subList(0, Math.min(slowest.size(), NUMBER_OF_SLOWEST_FOLDERS_TO_LOG))) {
+        LOG.debug(String.format(Locale.US, "  %s: %d ms", repository.getResourceDir().getPath(), repository.getInitialLoadTimeMillis()));
+      }
     }
   }
 
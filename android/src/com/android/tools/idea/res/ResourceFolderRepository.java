@@ -109,7 +109,7 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
    * Increment when making changes that may affect content of repository cache files.
    * Used together with CachingData.codeVersion. Important for developer builds.
    */
-  static final String CACHE_FILE_FORMAT_VERSION = "2";
+  static final String CACHE_FILE_FORMAT_VERSION = "3";
   private static final byte[] CACHE_FILE_HEADER = "Resource cache".getBytes(UTF_8);
   /**
    * Maximum fraction of resources out of date in the cache for the cache to be considered fresh.
@@ -143,6 +143,7 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
   // Statistics of the initial repository loading.
   private int myNumXmlFilesLoadedInitially; // Doesn't count files that were explicitly skipped.
   private int myNumXmlFilesLoadedInitiallyFromSources;
+  private long myInitialLoadTimeMillis;
 
   @SuppressWarnings("InstanceGuardedByStatic")
   @GuardedBy("ITEM_MAP_LOCK")
@@ -173,6 +174,10 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
    * The remaining resources are then loaded by parsing XML files that were not present in the cache or were newer
    * than their cached versions.
    * <p>
+   * The cache file is read through a memory mapping, and every distinct string is stored in it only once (see
+   * {@link Base128OutputStream#enableStringTable()}). All cached resource items are still deserialized while loading,
+   * since PSI and VFS updates modify the resource maps of the repository in place.
+   * <p>
    * If a significant (determined by {@link #CACHE_STALENESS_THRESHOLD}} percentage of resources was loaded by parsing
    * XML files and {@code cachingData.cacheCreationExecutor} is not null, the new cache file is created using that
    * executor, possibly after this method has already returned.
@@ -289,6 +294,13 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
     return myNumXmlFilesLoadedInitiallyFromSources <= myNumXmlFilesLoadedInitially * CACHE_STALENESS_THRESHOLD;
   }
 
+  /**
+   * Returns the wall clock time in milliseconds that it took to load the initial contents of the repository.
+   */
+  long getInitialLoadTimeMillis() {
+    return myInitialLoadTimeMillis;
+  }
+
   @TestOnly
   int getNumXmlFilesLoadedInitially() {
     return myNumXmlFilesLoadedInitially;
@@ -669,6 +681,8 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
     }
 
     Map<ResourceType, ListMultimap<String, ResourceItem>> result = new HashMap<>();
+    // Parents are notified after the new items have been committed, so that they never see the repository without them.
+    ResourceType[] invalidatedTypes = null;
 
     PsiFile file = psiFile;
     if (folderType == VALUES) {
@@ -701,8 +715,7 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
       if (added || removed) {
         // TODO: Consider doing a deeper diff of the changes to the resource items
         //       to determine if the removed and added items actually differ.
-        setModificationCount(ourModificationCounter.incrementAndGet());
-        invalidateParentCaches(this, ResourceType.values());
+        invalidatedTypes = ResourceType.values();
       }
     } else if (checkResourceFilename(file, folderType)) {
       ResourceItemSource<? extends ResourceItem> source = mySources.get(file.getVirtualFile());
@@ -766,8 +779,7 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
           }
 
           // Identities may have changed even if the ids are the same, so update maps.
-          setModificationCount(ourModificationCounter.incrementAndGet());
-          invalidateParentCaches(this, ResourceType.ID);
+          invalidatedTypes = new ResourceType[]{ResourceType.ID};
         }
       } else {
         // Either we're switching to PSI or the file is not XML (image or font), which is not incremental. Remove old items first, rescan
@@ -797,13 +809,18 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
               scanFileResourceFileAsPsi(result, folderType, folderConfiguration, type, idGeneratingFile, file);
             }
           }
-          setModificationCount(ourModificationCounter.incrementAndGet());
-          invalidateParentCaches(this, ResourceType.values());
+          invalidatedTypes = ResourceType.values();
         }
       }
     }
 
-    commitToRepository(result);
+    synchronized (ITEM_MAP_LOCK) {
+      commitToRepositoryWithoutLock(result);
+      if (invalidatedTypes != null) {
+        setModificationCount(ourModificationCounter.incrementAndGet());
+        invalidateParentCaches(this, invalidatedTypes);
+      }
+    }
   }
 
   private void scan(@NotNull VirtualFile file) {
@@ -1065,8 +1082,10 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
                     for (PsiResourceItem id : ids) {
                       psiResourceFile.addItem(id);
                     }
-                    setModificationCount(ourModificationCounter.incrementAndGet());
-                    invalidateParentCaches(ResourceFolderRepository.this, ResourceType.ID);
+                    synchronized (ITEM_MAP_LOCK) {
+                      setModificationCount(ourModificationCounter.incrementAndGet());
+                      invalidateParentCaches(ResourceFolderRepository.this, ResourceType.ID);
+                    }
                   }
                 }
                 return;
@@ -1670,8 +1689,11 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
 
     boolean removed = removeItemsFromSource(source);
     if (removed) {
-      setModificationCount(ourModificationCounter.incrementAndGet());
-      invalidateParentCaches(this, ResourceType.values());
+      // The new count and the new snapshots of the parents have to become visible together.
+      synchronized (ITEM_MAP_LOCK) {
+        setModificationCount(ourModificationCounter.incrementAndGet());
+        invalidateParentCaches(this, ResourceType.values());
+      }
     }
 
     ResourceFolderType folderType = IdeResourcesUtil.getFolderType(file);
@@ -1934,6 +1956,8 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
         return;
       }
 
+      long startTime = System.currentTimeMillis();
+
       loadFromPersistentCache();
 
       ApplicationManager.getApplication().runReadAction(this::getPsiDirsForListener);
@@ -1944,6 +1968,14 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
 
       ApplicationManager.getApplication().runReadAction(() -> scanQueuedPsiResources());
 
+      myRepository.myInitialLoadTimeMillis = System.currentTimeMillis() - startTime;
+      if (LOG.isDebugEnabled()) {
+        LOG.debug(String.format(Locale.US, "Loaded %s in %d ms, %d of %d XML files parsed, %d files reparsed as PSI",
+                                myResourceDir.getPath(), myRepository.myInitialLoadTimeMillis,
+                                myRepository.myNumXmlFilesLoadedInitiallyFromSources, myRepository.myNumXmlFilesLoadedInitially,
+                                myFilesToReparseAsPsi.size()));
+      }
+
       if (myCachingData != null && !myRepository.hasFreshFileCache()) {
         Executor executor = myCachingData.getCacheCreationExecutor();
         if (executor != null) {
@@ -1958,11 +1990,12 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
       }
 
       byte[] fileHeader = getCacheFileHeader(myCachingData);
-      try (Base128InputStream stream = new Base128InputStream(myCachingData.getCacheFile())) {
+      try (Base128InputStream stream = Base128InputStream.mapFile(myCachingData.getCacheFile())) {
         if (!stream.validateContents(fileHeader)) {
           return; // Cache file header doesn't match.
         }
-        ResourceSerializationUtil.readResourcesFromStream(stream, Maps.newHashMapWithExpectedSize(1000), null, myRepository,
+        stream.enableStringTable();
+        ResourceSerializationUtil.readResourcesFromStream(stream, Maps.newHashMapWithExpectedSize(1000), myRepository,
                                                           item -> addResourceItem(item, myRepository));
       }
       catch (NoSuchFileException ignored) {
@@ -1991,7 +2024,10 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
       assert myCachingData != null;
       byte[] header = getCacheFileHeader(myCachingData);
       try {
-        createPersistentCache(myCachingData.getCacheFile(), header, stream -> writeResourcesToStream(myResources, stream, config -> true));
+        createPersistentCache(myCachingData.getCacheFile(), header, stream -> {
+          stream.enableStringTable();
+          writeResourcesToStream(myResources, stream, config -> true);
+        });
       }
       catch (Throwable e) {
         LOG.error(e);
@@ -425,6 +425,12 @@ public final class ResourceRepositoryManager implements Disposable {
       return moduleResources;
     }
 
+    if (!ApplicationManager.getApplication().isReadAccessAllowed() && !myFacet.isDisposed()) {
+      // Load the folder repositories in parallel before taking the read lock. The loading threads need the read lock too, so they
+      // can't run while the calling thread holds it.
+      ModuleResourceRepository.loadMainFolderRepositories(myFacet);
+    }
+
     return ApplicationManager.getApplication().runReadAction((Computable<LocalResourceRepository>)() -> {
       synchronized (MODULE_RESOURCES_LOCK) {
         if (myModuleResources == null) {
@@ -459,6 +465,7 @@ public final class ResourceRepositoryManager implements Disposable {
    */
   @NotNull
   public LocalResourceRepository getTestAppResources() {
+    loadTestFolderRepositoriesOutsideOfReadAction();
     return ApplicationManager.getApplication().runReadAction((Computable<LocalResourceRepository>)() -> {
       synchronized (TEST_RESOURCES_LOCK) {
         if (myTestAppResources == null) {
@@ -478,6 +485,7 @@ public final class ResourceRepositoryManager implements Disposable {
    */
   @NotNull
   public LocalResourceRepository getTestModuleResources() {
+    loadTestFolderRepositoriesOutsideOfReadAction();
     return ApplicationManager.getApplication().runReadAction((Computable<LocalResourceRepository>)() -> {
       synchronized (TEST_RESOURCES_LOCK) {
         if (myTestModuleResources == null) {
@@ -492,6 +500,19 @@ public final class ResourceRepositoryManager implements Disposable {
     });
   }
 
+  private void loadTestFolderRepositoriesOutsideOfReadAction() {
+    if (ApplicationManager.getApplication().isReadAccessAllowed() || myFacet.isDisposed()) {
+      return;
+    }
+    synchronized (TEST_RESOURCES_LOCK) {
+      if (myTestModuleResources != null) {
+        return;
+      }
+    }
+    // See the comment in getModuleResources.
+    ModuleResourceRepository.loadTestFolderRepositories(myFacet);
+  }
+
   @NotNull
   private LocalResourceRepository computeTestAppResources() {
     // For disposal, the newly created test module repository ends up owned by the repository manager if returned from this method or the
@@ -84,6 +84,8 @@ public final class ModuleClassLoader extends RenderClassLoader {
     visitor -> new ViewMethodWrapperTransform(visitor),
     visitor -> new VersionClassTransform(visitor, getCurrentClassVersion(), 0)
   );
+  /** Identifier of {@link #DEFAULT_TRANSFORMS} used to share the transformed classes between class loaders. */
+  private static final String DEFAULT_TRANSFORMS_ID = "ViewMethodWrapperTransform,VersionClassTransform(" + getCurrentClassVersion() + ",0)";
 
   /**
    * A list of packages. Classes from these packages should be reloaded by this ClassLoader from the external jars
@@ -118,7 +120,7 @@ public final class ModuleClassLoader extends RenderClassLoader {
   }
 
   ModuleClassLoader(@Nullable ClassLoader parent, @NotNull Module module) {
-    super(parent, DEFAULT_TRANSFORMS);
+    super(parent, DEFAULT_TRANSFORMS, DEFAULT_TRANSFORMS_ID);
     myModuleReference = new WeakReference<>(module);
     mAdditionalLibraries = getAdditionalLibraries();
 
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.logcat;
+
+import com.android.ddmlib.Log.LogLevel;
+import com.android.ddmlib.logcat.LogCatHeader;
+import com.android.ddmlib.logcat.LogCatMessage;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+
+public final class LogcatBufferTest {
+  private static final LogCatHeader HEADER =
+    new LogCatHeader(LogLevel.INFO, 28740, 28740, "com.google.myapplication", "MainActivity", Instant.ofEpochMilli(1_524_000_000_000L));
+
+  @Test
+  public void readReturnsMessagesInOrderAcrossGrowth() {
+    LogcatBuffer buffer = new LogcatBuffer(() -> Long.MAX_VALUE);
+    buffer.addMessages(messages(0, 3000));
+
+    List<LogCatMessage> read = new ArrayList<>();
+    long sequence = buffer.getFirstSequence();
+    while (sequence < buffer.getNextSequence()) {
+      sequence = buffer.read(sequence, buffer.getNextSequence(), 1000, read);
+    }
+
+    assertEquals(3000, sequence);
+    assertEquals(texts(0, 3000), read.stream().map(LogCatMessage::getMessage).collect(Collectors.toList()));
+  }
+
+  @Test
+  public void oldestMessagesAreEvictedOverBudget() {
+    // Each message of 4 characters costs 2 * 4 + 32 bytes.
+    LogcatBuffer buffer = new LogcatBuffer(() -> 400);
+    buffer.addMessages(messages(0, 5));
+    buffer.addMessages(messages(5, 20));
+
+    assertEquals(10, buffer.getFirstSequence());
+    assertEquals(20, buffer.getNextSequence());
+
+    // Reading from an evicted message skips to the oldest message left.
+    List<LogCatMessage> read = new ArrayList<>();
+    assertEquals(15, buffer.read(2, 15, 100, read));
+    assertEquals(texts(10, 15), read.stream().map(LogCatMessage::getMessage).collect(Collectors.toList()));
+  }
+
+  private static List<LogCatMessage> messages(int from, int to) {
+    return texts(from, to).stream().map(text -> new LogCatMessage(HEADER, text)).collect(Collectors.toList());
+  }
+
+  private static List<String> texts(int from, int to) {
+    return IntStream.range(from, to).mapToObj(i -> String.format("%04d", i)).collect(Collectors.toList());
+  }
+}
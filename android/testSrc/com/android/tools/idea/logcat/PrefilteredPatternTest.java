@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.logcat;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+import org.junit.Test;
+
+public final class PrefilteredPatternTest {
+  private static final List<String> LINES = Arrays.asList(
+    "2018-01-23 12:34:56.789 1234-5678/com.example I/MainActivity: Hello World",
+    "2018-01-23 12:34:56.789 1234-5678/com.example I/MainActivity: hello, world",
+    "+ at com.example.Foo.bar(Foo.java:12)",
+    "+ \\Q not a quote \\E",
+    "+ \u00dcn\u00efc\u00f6d\u00e9",
+    "");
+
+  @Test
+  public void findMatchesPatternForQuotedText() {
+    assertSameAsPattern(RegexFilterComponent.pattern("hello", false));
+    assertSameAsPattern(RegexFilterComponent.pattern("Foo.java", false));
+    assertSameAsPattern(RegexFilterComponent.pattern("\\Q not a quote \\E", false));
+    assertSameAsPattern(RegexFilterComponent.pattern("\u00fcn\u00efc\u00f6d\u00e9", false));
+  }
+
+  @Test
+  public void findMatchesPatternForRegexes() {
+    assertSameAsPattern(Pattern.compile("World"));
+    assertSameAsPattern(Pattern.compile("world", Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE));
+    assertSameAsPattern(Pattern.compile("Foo\\.bar\\(.*\\)"));
+    assertSameAsPattern(Pattern.compile("^\\+ "));
+    assertSameAsPattern(Pattern.compile("a.b", Pattern.LITERAL));
+    assertSameAsPattern(Pattern.compile(""));
+  }
+
+  private static void assertSameAsPattern(Pattern pattern) {
+    PrefilteredPattern prefilteredPattern = new PrefilteredPattern(pattern);
+    for (String line : LINES) {
+      assertThat(prefilteredPattern.find(line)).named(pattern + " in " + line).isEqualTo(pattern.matcher(line).find());
+    }
+  }
+}
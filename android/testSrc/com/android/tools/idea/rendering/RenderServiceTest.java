@@ -20,9 +20,15 @@ import com.google.common.util.concurrent.ListenableFuture;
 import java.util.concurrent.CompletableFuture;
 import junit.framework.TestCase;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 
 public class RenderServiceTest extends TestCase {
   public void testGetSafeBounds() {
@@ -84,4 +90,66 @@ public class RenderServiceTest extends TestCase {
     future.get();
     assertTrue(called.get());
   }
-}
\ No newline at end of file
+
+  public void testRenderActionsAreOrderedByPriority() throws ExecutionException, InterruptedException {
+    CountDownLatch startedLatch = new CountDownLatch(1);
+    CountDownLatch countDownLatch = new CountDownLatch(1);
+    RenderService.runAsyncRenderAction(() -> {
+      startedLatch.countDown();
+      try {
+        countDownLatch.await();
+      }
+      catch (InterruptedException ignore) {
+      }
+      return null;
+    });
+    startedLatch.await();
+
+    List<RenderingPriority> executionOrder = Collections.synchronizedList(new ArrayList<>());
+    List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+    for (RenderingPriority priority : Arrays.asList(RenderingPriority.LOW, RenderingPriority.NORMAL, RenderingPriority.HIGH,
+                                                    RenderingPriority.LOW, RenderingPriority.HIGH)) {
+      futures.add(RenderService.runAsyncRenderAction(() -> executionOrder.add(priority), priority));
+    }
+    countDownLatch.countDown();
+    for (CompletableFuture<Boolean> future : futures) {
+      future.get();
+    }
+
+    assertEquals(Arrays.asList(RenderingPriority.HIGH, RenderingPriority.HIGH, RenderingPriority.NORMAL,
+                               RenderingPriority.LOW, RenderingPriority.LOW), executionOrder);
+  }
+
+  public void testLowPriorityActionsAreNotStarved() throws Exception {
+    Supplier<Void> highPriorityWork = () -> {
+      try {
+        Thread.sleep(2);
+      }
+      catch (InterruptedException ignore) {
+      }
+      return null;
+    };
+    // Make sure that the LOW priority action is queued behind HIGH priority ones.
+    for (int i = 0; i < 5; i++) {
+      RenderService.runAsyncRenderAction(highPriorityWork, RenderingPriority.HIGH);
+    }
+    CompletableFuture<Void> lowPriorityAction = RenderService.runAsyncRenderAction(() -> null, RenderingPriority.LOW);
+    List<CompletableFuture<Void>> pendingHighPriorityActions = new ArrayList<>();
+    long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+    // Keep a few HIGH priority actions pending at all times.
+    while (!lowPriorityAction.isDone() && System.currentTimeMillis() < deadline) {
+      pendingHighPriorityActions.removeIf(CompletableFuture::isDone);
+      if (pendingHighPriorityActions.size() < 5) {
+        pendingHighPriorityActions.add(RenderService.runAsyncRenderAction(highPriorityWork, RenderingPriority.HIGH));
+      }
+      else {
+        Thread.sleep(1);
+      }
+    }
+
+    assertTrue(lowPriorityAction.isDone());
+    for (CompletableFuture<Void> action : pendingHighPriorityActions) {
+      action.get();
+    }
+  }
+}
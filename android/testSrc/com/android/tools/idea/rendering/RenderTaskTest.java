@@ -55,6 +55,7 @@ import java.util.concurrent.Future;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.imageio.ImageIO;
 import javax.tools.ToolProvider;
 import org.intellij.lang.annotations.Language;
@@ -243,6 +244,73 @@ public class RenderTaskTest extends AndroidTestCase {
     task.dispose().get(5, TimeUnit.SECONDS);
   }
 
+  public void testPendingRendersAreCoalesced() throws Exception {
+    VirtualFile file = myFixture.addFileToProject("res/layout/layout.xml", SIMPLE_LAYOUT).getVirtualFile();
+    Configuration configuration = RenderTestUtil.getConfiguration(myModule, file);
+    RenderLogger logger = mock(RenderLogger.class);
+
+    RenderTask task = RenderTestUtil.createRenderTask(myFacet, file, configuration, logger);
+    checkSimpleLayoutResult(task.inflate());
+
+    // Keep the render thread busy so that the renders requested below can't start.
+    Semaphore semaphore = new Semaphore(0);
+    RenderService.runAsyncRenderAction(() -> {
+      semaphore.acquireUninterruptibly();
+      return null;
+    });
+    CompletableFuture<RenderResult> firstRender = task.render();
+    CompletableFuture<RenderResult> secondRender = task.render();
+    assertSame(firstRender, secondRender);
+    semaphore.release();
+    checkSimpleLayoutResult(firstRender);
+
+    // Once the previous render is finished, a new one is scheduled.
+    CompletableFuture<RenderResult> thirdRender = task.render();
+    assertNotSame(firstRender, thirdRender);
+    checkSimpleLayoutResult(thirdRender);
+    task.dispose().get(5, TimeUnit.SECONDS);
+  }
+
+  public void testPendingRendersWithDifferentFactoryOrPriority() throws Exception {
+    VirtualFile file = myFixture.addFileToProject("res/layout/layout.xml", SIMPLE_LAYOUT).getVirtualFile();
+    Configuration configuration = RenderTestUtil.getConfiguration(myModule, file);
+    RenderLogger logger = mock(RenderLogger.class);
+
+    RenderTask task = RenderTestUtil.createRenderTask(myFacet, file, configuration, logger);
+    checkSimpleLayoutResult(task.inflate());
+
+    // Keep the render thread busy so that the renders requested below can't start.
+    Semaphore semaphore = new Semaphore(0);
+    RenderService.runAsyncRenderAction(() -> {
+      semaphore.acquireUninterruptibly();
+      return null;
+    });
+    task.setPriority(RenderingPriority.LOW);
+    CompletableFuture<RenderResult> lowPriorityRender = task.render();
+    // A render to a different image factory is not coalesced with the pending one.
+    AtomicBoolean otherFactoryUsed = new AtomicBoolean();
+    CompletableFuture<RenderResult> otherFactoryRender = task.render((width, height) -> {
+      otherFactoryUsed.set(true);
+      return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    });
+    assertNotSame(lowPriorityRender, otherFactoryRender);
+
+    // A render requested at a higher priority is served by the pending render, which is queued again at that priority.
+    CompletableFuture<Void> normalPriorityAction = RenderService.runAsyncRenderAction(() -> null, RenderingPriority.NORMAL);
+    task.setPriority(RenderingPriority.HIGH);
+    CompletableFuture<RenderResult> highPriorityRender = task.render();
+    assertSame(lowPriorityRender, highPriorityRender);
+    AtomicBoolean renderedBeforeNormalAction = new AtomicBoolean();
+    highPriorityRender.whenComplete((result, ex) -> renderedBeforeNormalAction.set(!normalPriorityAction.isDone()));
+    semaphore.release();
+
+    checkSimpleLayoutResult(highPriorityRender);
+    assertTrue(renderedBeforeNormalAction.get());
+    checkSimpleLayoutResult(otherFactoryRender);
+    assertTrue(otherFactoryUsed.get());
+    task.dispose().get(5, TimeUnit.SECONDS);
+  }
+
   public void testAsyncCallAndDispose() throws ExecutionException, InterruptedException, TimeoutException {
     VirtualFile layoutFile = myFixture.addFileToProject("res/layout/foo.xml", "").getVirtualFile();
     Configuration configuration = RenderTestUtil.getConfiguration(myModule, layoutFile);
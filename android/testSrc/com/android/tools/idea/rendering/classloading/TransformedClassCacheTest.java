@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.rendering.classloading;
+
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.jetbrains.org.objectweb.asm.Opcodes.ACC_PUBLIC;
+import static org.jetbrains.org.objectweb.asm.Opcodes.ACC_SUPER;
+import static org.jetbrains.org.objectweb.asm.Opcodes.V1_8;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.org.objectweb.asm.ClassWriter;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TransformedClassCacheTest {
+  @Rule
+  public TemporaryFolder myTemporaryFolder = new TemporaryFolder();
+
+  private final AtomicInteger myTransformationCount = new AtomicInteger();
+  private final UnaryOperator<byte[]> myTransformation = data -> {
+    myTransformationCount.incrementAndGet();
+    return ClassConverter.rewriteClass(data, visitor -> new VersionClassTransform(visitor, V1_8, 0));
+  };
+
+  @NotNull
+  private static byte[] createClass(@NotNull String name) {
+    ClassWriter cw = new ClassWriter(0);
+    cw.visit(V1_8, ACC_PUBLIC + ACC_SUPER, name, null, "java/lang/Object", null);
+    cw.visitEnd();
+    return cw.toByteArray();
+  }
+
+  @Test
+  public void testMemoryCache() {
+    TransformedClassCache cache = new TransformedClassCache(null, null, directExecutor());
+    byte[] classA = createClass("com/example/A");
+    byte[] transformed = cache.getOrTransform("transform", classA, myTransformation);
+    assertEquals(1, myTransformationCount.get());
+
+    // Same contents, possibly coming from a different class loader.
+    assertArrayEquals(transformed, cache.getOrTransform("transform", classA.clone(), myTransformation));
+    assertEquals(1, myTransformationCount.get());
+
+    // Changed contents or a different transformation have to be transformed again.
+    cache.getOrTransform("transform", createClass("com/example/B"), myTransformation);
+    assertEquals(2, myTransformationCount.get());
+    cache.getOrTransform("otherTransform", classA, myTransformation);
+    assertEquals(3, myTransformationCount.get());
+  }
+
+  @Test
+  public void testDiskCache() {
+    Path rootDir = myTemporaryFolder.getRoot().toPath();
+    byte[] classA = createClass("com/example/A");
+    byte[] transformed = new TransformedClassCache(rootDir, "1.0", directExecutor()).getOrTransform("transform", classA, myTransformation);
+    assertEquals(1, myTransformationCount.get());
+
+    // A new cache instance simulates a new IDE session.
+    TransformedClassCache cache = new TransformedClassCache(rootDir, "1.0", directExecutor());
+    assertArrayEquals(transformed, cache.getOrTransform("transform", classA, myTransformation));
+    assertEquals(1, myTransformationCount.get());
+
+    // Classes transformed by a different version of the plugin are not reused.
+    cache = new TransformedClassCache(rootDir, "2.0", directExecutor());
+    assertArrayEquals(transformed, cache.getOrTransform("transform", classA, myTransformation));
+    assertEquals(2, myTransformationCount.get());
+  }
+
+  @Test
+  public void testDiskCacheInvalidation() {
+    Path rootDir = myTemporaryFolder.getRoot().toPath();
+    byte[] classA = createClass("com/example/A");
+    TransformedClassCache cache = new TransformedClassCache(rootDir, "1.0", directExecutor());
+    cache.getOrTransform("transform", classA, myTransformation);
+    cache.invalidateDiskCache();
+    assertEquals(1, myTransformationCount.get());
+
+    // The invalidated disk cache is not used until it is deleted.
+    cache = new TransformedClassCache(rootDir, "1.0", directExecutor());
+    cache.getOrTransform("transform", classA, myTransformation);
+    assertEquals(2, myTransformationCount.get());
+
+    cache.cleanUpDiskCache();
+    assertEquals(0, rootDir.toFile().list().length);
+    cache.getOrTransform("transform", createClass("com/example/B"), myTransformation);
+    cache = new TransformedClassCache(rootDir, "1.0", directExecutor());
+    cache.getOrTransform("transform", createClass("com/example/B"), myTransformation);
+    assertEquals(3, myTransformationCount.get());
+  }
+
+  @Test
+  public void testDiskCacheTrimming() throws IOException {
+    Path rootDir = myTemporaryFolder.getRoot().toPath();
+    byte[] classA = createClass("com/example/A");
+    byte[] classB = createClass("com/example/B");
+    byte[] classC = createClass("com/example/C");
+    TransformedClassCache cache = new TransformedClassCache(rootDir, "1.0", directExecutor());
+    cache.getOrTransform("transform", classA, myTransformation);
+    cache.getOrTransform("transform", classB, myTransformation);
+    cache.getOrTransform("transform", classC, myTransformation);
+    List<Path> files = getCacheFiles(rootDir);
+    assertEquals(3, files.size());
+    long fileSize = Files.size(files.get(0));
+    // A was not used for a long time, and B is older than C.
+    long now = System.currentTimeMillis();
+    for (Path file : files) {
+      long lastModified = now;
+      if (isCacheFileFor(file, classA)) {
+        lastModified -= TimeUnit.DAYS.toMillis(60);
+      }
+      else if (isCacheFileFor(file, classB)) {
+        lastModified -= TimeUnit.MINUTES.toMillis(1);
+      }
+      Files.setLastModifiedTime(file, FileTime.fromMillis(lastModified));
+    }
+
+    // There is only room for two files, and A is too old anyway.
+    new TransformedClassCache(rootDir, "1.0", directExecutor(), 2 * fileSize).cleanUpDiskCache();
+    assertEquals(2, getCacheFiles(rootDir).size());
+    cache = new TransformedClassCache(rootDir, "1.0", directExecutor(), fileSize);
+    cache.cleanUpDiskCache();
+    assertEquals(1, getCacheFiles(rootDir).size());
+    cache.getOrTransform("transform", classC, myTransformation);
+    assertEquals(3, myTransformationCount.get());
+    cache.getOrTransform("transform", classA, myTransformation);
+    assertEquals(4, myTransformationCount.get());
+  }
+
+  @NotNull
+  private static List<Path> getCacheFiles(@NotNull Path rootDir) throws IOException {
+    try (Stream<Path> stream = Files.walk(rootDir)) {
+      return stream.filter(Files::isRegularFile).collect(Collectors.toList());
+    }
+  }
+
+  private boolean isCacheFileFor(@NotNull Path file, byte @NotNull [] classData) throws IOException {
+    byte[] transformed = ClassConverter.rewriteClass(classData, visitor -> new VersionClassTransform(visitor, V1_8, 0));
+    return Arrays.equals(Files.readAllBytes(file), transformed);
+  }
+}
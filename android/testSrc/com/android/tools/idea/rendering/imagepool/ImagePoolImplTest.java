@@ -23,9 +23,11 @@ import org.junit.Test;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.junit.Assert.*;
 
@@ -158,6 +160,70 @@ public class ImagePoolImplTest {
     assertNotEquals(internalPtr, myPool.create(10, 10, BufferedImage.TYPE_INT_ARGB, null).myBuffer);
   }
 
+  @Test
+  public void testMaxPooledBytes() {
+    // 50x50 images are allocated in the 500x500 bucket so each one of them takes 1MB.
+    long imageSize = 500 * 500 * 4;
+    ImagePoolImpl pool = new ImagePoolImpl(new int[]{50, 500, 1000}, (w, h) -> (type) -> 10, 2 * imageSize);
+    try {
+      ImagePoolImpl.ImageImpl argb1 = pool.create(50, 50, BufferedImage.TYPE_INT_ARGB, null);
+      ImagePoolImpl.ImageImpl argb2 = pool.create(50, 50, BufferedImage.TYPE_INT_ARGB, null);
+      ImagePoolImpl.ImageImpl argbPre = pool.create(50, 50, BufferedImage.TYPE_INT_ARGB_PRE, null);
+      BufferedImage argbPrePtr = argbPre.myBuffer;
+      // Images larger than the limit are never pooled.
+      pool.create(600, 600, BufferedImage.TYPE_INT_ARGB, null).dispose();
+      assertEquals(0, pool.getStats().totalBytesPooled());
+
+      argb1.dispose();
+      argb2.dispose();
+      assertEquals(2 * imageSize, pool.getStats().totalBytesPooled());
+      assertEquals(2 * imageSize, pool.getStats().maxBytesPooled());
+
+      // Returning a third image evicts one of the images in the least recently used bucket.
+      argbPre.dispose();
+      assertEquals(2 * imageSize, pool.getStats().totalBytesPooled());
+      assertEquals(2 * imageSize, pool.getStats().totalBytesAllocated());
+      assertEquals(0, pool.getStats().totalBytesInUse());
+      assertEquals(1, Arrays.stream(pool.getStats().getBucketStats()).mapToLong(ImagePool.BucketStats::bucketEvictions).sum());
+      assertEquals(argbPrePtr, pool.create(50, 50, BufferedImage.TYPE_INT_ARGB_PRE, null).myBuffer);
+    }
+    finally {
+      pool.dispose();
+    }
+  }
+
+  @Test
+  public void testSharedMaxPooledBytes() {
+    long imageSize = 500 * 500 * 4;
+    AtomicLong sharedPooledBytes = new AtomicLong();
+    ImagePoolImpl pool1 = new ImagePoolImpl(new int[]{50, 500, 1000}, (w, h) -> (type) -> 10, imageSize, sharedPooledBytes);
+    ImagePoolImpl pool2 = new ImagePoolImpl(new int[]{50, 500, 1000}, (w, h) -> (type) -> 10, imageSize, sharedPooledBytes);
+    try {
+      ImagePoolImpl.ImageImpl image1 = pool1.create(50, 50, BufferedImage.TYPE_INT_ARGB, null);
+      ImagePoolImpl.ImageImpl image2 = pool2.create(50, 50, BufferedImage.TYPE_INT_ARGB, null);
+      image1.dispose();
+      assertEquals(imageSize, pool1.getStats().totalBytesPooled());
+
+      // The limit is taken by the first pool, so the second one can not keep its image.
+      image2.dispose();
+      assertEquals(0, pool2.getStats().totalBytesPooled());
+      assertEquals(imageSize, sharedPooledBytes.get());
+
+      // Trimming the first pool makes room for the second one.
+      pool1.trim();
+      assertEquals(0, pool1.getStats().totalBytesPooled());
+      assertEquals(0, sharedPooledBytes.get());
+      pool2.create(50, 50, BufferedImage.TYPE_INT_ARGB, null).dispose();
+      assertEquals(imageSize, pool2.getStats().totalBytesPooled());
+      assertEquals(imageSize, sharedPooledBytes.get());
+    }
+    finally {
+      pool1.dispose();
+      pool2.dispose();
+    }
+    assertEquals(0, sharedPooledBytes.get());
+  }
+
   @Test
   public void testImageCopy() throws IOException {
     BufferedImage original = getSampleImage();
@@ -25,10 +25,14 @@ import com.android.resources.ResourceType;
 import com.android.tools.idea.testing.AndroidGradleTestCase;
 import com.google.common.collect.Iterables;
 import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiDocumentManager;
 import com.intellij.testFramework.PlatformTestUtil;
+import java.util.ArrayList;
 import java.util.List;
+import org.jetbrains.android.facet.ResourceFolderManager;
 
 /** Tests for {@link ModuleResourceRepository} based on {@link AndroidGradleTestCase}. */
 public class ModuleResourceRepositoryGradleTest extends AndroidGradleTestCase {
@@ -52,6 +56,48 @@ public class ModuleResourceRepositoryGradleTest extends AndroidGradleTestCase {
     assertThat(resources.get(0).getResourceValue().getValue()).isEqualTo("This app_name definition should win");
   }
 
+  /**
+   * Checks that {@link ResourceRepositoryManager#getModuleResources()} loads the folder repositories into the registry before creating
+   * the module repository, which then uses the registry's instances in overlay order.
+   */
+  public void testFolderRepositoriesLoadedBeforeReadAction() throws Exception {
+    loadProject(PROJECT_WITH_APPAND_LIB);
+    VirtualFile debugValues = createFile(
+      PlatformTestUtil.getOrCreateProjectBaseDir(getProject()),
+      "app/src/debug/res/values/strings.xml",
+        "" +
+        "<resources>\n" +
+        "  <string name=\"app_name\">Debug app name</string>\n" +
+        "</resources>");
+    VirtualFile debugRes = debugValues.getParent().getParent();
+    ResourceRepositoryManager repositoryManager = ResourceRepositoryManager.getInstance(myAndroidFacet);
+    ResourceFolderRegistry registry = ResourceFolderRegistry.getInstance(getProject());
+    repositoryManager.resetAllCaches();
+    registry.reset();
+
+    // Called on a pooled thread since the test thread has read access, which makes loading sequential.
+    LocalResourceRepository repository =
+        ApplicationManager.getApplication().executeOnPooledThread(repositoryManager::getModuleResources).get();
+
+    List<VirtualFile> folders = ResourceFolderManager.getInstance(myAndroidFacet).getFolders();
+    assertThat(folders).contains(debugRes);
+    assertThat(folders.size()).isGreaterThan(1);
+    List<LocalResourceRepository> folderRepositories = new ArrayList<>();
+    for (VirtualFile folder : folders) {
+      ResourceFolderRegistry.CachedRepositories cached = registry.getCached(folder);
+      assertThat(cached).isNotNull();
+      assertThat(cached.nonNamespaced).isNotNull();
+      folderRepositories.add(0, cached.nonNamespaced);
+    }
+    List<LocalResourceRepository> children = ((MultiResourceRepository)repository).getLocalResources();
+    assertThat(children.subList(children.size() - folderRepositories.size(), children.size()))
+      .containsExactlyElementsIn(folderRepositories).inOrder();
+
+    List<ResourceItem> resources = repository.getResources(RES_AUTO, ResourceType.STRING, "app_name");
+    assertThat(resources).hasSize(1);
+    assertThat(resources.get(0).getResourceValue().getValue()).isEqualTo("Debug app name");
+  }
+
   /**
    * Checks that test res folders created between syncs are picked up by ResourceFolderManager and handled by ModuleResourceRepository.
    */
@@ -26,6 +26,8 @@ import com.android.ide.common.resources.configuration.FolderConfiguration;
 import com.android.resources.ResourceType;
 import com.android.tools.lint.detector.api.Lint;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ListMultimap;
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.command.WriteCommandAction;
 import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.vfs.VirtualFile;
@@ -228,6 +230,57 @@ public class ModuleResourceRepositoryTest extends AndroidTestCase {
     assertItemIsInDir(res2, layout2);
   }
 
+  public void testPublishedMapsAreReplacedOnUpdate() {
+    VirtualFile layoutOverlay = myFixture.copyFileToProject(LAYOUT_OVERLAY, "res2/layout/layout1.xml");
+    VirtualFile res1 = myFixture.copyFileToProject(VALUES_OVERLAY2, "res1/values/nameDoesNotMatter.xml").getParent().getParent();
+    VirtualFile res2 = myFixture.copyFileToProject(VALUES_OVERLAY1, "res2/values/values.xml").getParent().getParent();
+    ModuleResourceRepository resources = ModuleResourceRepository.createForTest(myFacet, ImmutableList.of(res1, res2), RES_AUTO, null);
+
+    // Unchanged resources are served from the same immutable snapshot.
+    ListMultimap<String, ResourceItem> layouts = resources.getResources(RES_AUTO, ResourceType.LAYOUT);
+    assertSame(layouts, resources.getResources(RES_AUTO, ResourceType.LAYOUT));
+    assertTrue(layouts.containsKey("layout1"));
+
+    WriteCommandAction.runWriteCommandAction(null, new Runnable() {
+      @Override
+      public void run() {
+        try {
+          layoutOverlay.rename(this, "layout2.xml");
+        }
+        catch (IOException e) {
+          fail(e.toString());
+        }
+      }
+    });
+
+    // The old snapshot is not affected by the update, the new one reflects it.
+    assertTrue(layouts.containsKey("layout1"));
+    assertFalse(layouts.containsKey("layout2"));
+    ListMultimap<String, ResourceItem> updatedLayouts = resources.getResources(RES_AUTO, ResourceType.LAYOUT);
+    assertNotSame(layouts, updatedLayouts);
+    assertFalse(updatedLayouts.containsKey("layout1"));
+    assertTrue(updatedLayouts.containsKey("layout2"));
+    assertTrue(resources.hasResources(RES_AUTO, ResourceType.LAYOUT, "layout2"));
+    assertThat(resources.getResourceNames(RES_AUTO, ResourceType.LAYOUT)).containsExactly("layout2");
+  }
+
+  public void testParallelLoading() throws Exception {
+    VirtualFile res1 = myFixture.copyFileToProject(VALUES_OVERLAY2, "res1/values/nameDoesNotMatter.xml").getParent().getParent();
+    VirtualFile res2 = myFixture.copyFileToProject(VALUES_OVERLAY1, "res2/values/values.xml").getParent().getParent();
+    VirtualFile res3 = myFixture.copyFileToProject(VALUES, "res/values/values.xml").getParent().getParent();
+    ResourceFolderRegistry registry = ResourceFolderRegistry.getInstance(getProject());
+    ResourceFolderRepository cached = registry.get(myFacet, res2);
+
+    // Load from a pooled thread since loading is sequential on threads holding the read lock.
+    List<ResourceFolderRepository> repositories =
+        ApplicationManager.getApplication().executeOnPooledThread(() -> registry.get(myFacet, ImmutableList.of(res1, res2, res3))).get();
+
+    assertThat(ContainerUtil.map(repositories, ResourceFolderRepository::getResourceDir)).containsExactly(res1, res2, res3).inOrder();
+    assertSame(cached, repositories.get(1));
+    assertSame(repositories.get(0), registry.get(myFacet, res1));
+    assertSame(repositories.get(2), registry.get(myFacet, res3));
+  }
+
   public void testOverlayUpdates2() {
     // Like testOverlayUpdates1, but rather than testing changes to layout resources (file-based resource)
     // perform document edits in value-documents
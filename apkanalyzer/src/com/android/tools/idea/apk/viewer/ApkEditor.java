@@ -131,11 +131,14 @@ public class ApkEditor extends UserDataHolderBase implements FileEditor, ApkView
     disposeArchive();
 
     try {
+      Path apk = VfsUtilCore.virtualToIoFile(apkVirtualFile).toPath();
+      // Sizes are cached for the original file, since every refresh makes a new copy.
+      CachingApkSizeCalculator sizeCalculator = CachingApkSizeCalculator.getDefault().forCopyOf(apk);
       // this temporary copy is destroyed while disposing the archive, see #disposeArchive
       Path copyOfApk = Files.createTempFile(apkVirtualFile.getNameWithoutExtension(), "." + apkVirtualFile.getExtension());
-      Files.copy(VfsUtilCore.virtualToIoFile(apkVirtualFile).toPath(), copyOfApk, StandardCopyOption.REPLACE_EXISTING);
+      Files.copy(apk, copyOfApk, StandardCopyOption.REPLACE_EXISTING);
       myArchiveContext = Archives.open(copyOfApk, new LogWrapper(getLog()));
-      myApkViewPanel = new ApkViewPanel(myProject, new ApkParser(myArchiveContext, ApkSizeCalculator.getDefault()));
+      myApkViewPanel = new ApkViewPanel(myProject, new ApkParser(myArchiveContext, sizeCalculator));
       myApkViewPanel.setListener(this);
       mySplitter.setFirstComponent(myApkViewPanel.getContainer());
       selectionChanged(null);
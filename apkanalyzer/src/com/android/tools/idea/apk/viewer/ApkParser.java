@@ -48,12 +48,15 @@ public class ApkParser {
 
   @Nullable private ListenableFuture<ArchiveNode> myTreeStructure;
   @Nullable private ListenableFuture<ArchiveNode> myTreeStructureWithDownloadSizes;
+  @Nullable private ListenableFuture<?> myDownloadSizePerFile;
   @Nullable private ListenableFuture<Long> myRawFullApkSize;
   @Nullable private ListenableFuture<Long> myCompressedFullApkSize;
 
   public ApkParser(@NotNull ArchiveContext archiveContext, @NotNull ApkSizeCalculator sizeCalculator) {
     myArchiveContext = archiveContext;
-    myApkSizeCalculator = sizeCalculator;
+    // The sizes are requested by tasks running in parallel, which share them through the cache.
+    myApkSizeCalculator =
+      sizeCalculator instanceof CachingApkSizeCalculator ? sizeCalculator : new CachingApkSizeCalculator(sizeCalculator);
   }
 
   @NotNull
@@ -64,6 +67,7 @@ public class ApkParser {
   public synchronized void cancelAll(){
     ListenableFuture[] futures = {
       myTreeStructureWithDownloadSizes,
+      myDownloadSizePerFile,
       myTreeStructure,
       myRawFullApkSize,
       myCompressedFullApkSize
@@ -87,7 +91,12 @@ public class ApkParser {
   @NotNull
   public synchronized ListenableFuture<ArchiveNode> updateTreeWithDownloadSizes() {
     if (myTreeStructureWithDownloadSizes == null) {
-      myTreeStructureWithDownloadSizes = Futures.transform(constructTreeStructure(), input -> {
+      // The download sizes of the files are estimated while the tree is being built, and then read from the cache to update the tree.
+      ListenableFuture<ArchiveNode> treeStructure = constructTreeStructure();
+      myDownloadSizePerFile =
+        ourExecutorService.submit(() -> myApkSizeCalculator.getDownloadSizePerFile(myArchiveContext.getArchive().getPath()));
+      myTreeStructureWithDownloadSizes = Futures.whenAllSucceed(treeStructure, myDownloadSizePerFile).call(() -> {
+        ArchiveNode input = Futures.getDone(treeStructure);
         ArchiveTreeStructure.updateDownloadFileSizes(input, myApkSizeCalculator);
         return input;
       }, PooledThreadExecutor.INSTANCE);
@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.apk.viewer;
+
+import com.android.tools.apk.analyzer.ApkSizeCalculator;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * An {@link ApkSizeCalculator} which remembers the sizes computed for an archive until the archive file is modified. Estimating download
+ * sizes compresses the whole archive, which takes seconds for large APKs and bundles, so the sizes are shared between the tasks of an
+ * {@link ApkParser} and between the editors opened for the same file. Concurrent requests for the same size wait for a single computation.
+ */
+public final class CachingApkSizeCalculator implements ApkSizeCalculator {
+  private static final int MAX_CACHED_ARCHIVES = 16;
+
+  private static final CachingApkSizeCalculator ourDefault = new CachingApkSizeCalculator(ApkSizeCalculator.getDefault());
+
+  @NotNull private final ApkSizeCalculator myDelegate;
+  @NotNull private final Cache<FileKey, ArchiveSizes> myCache;
+  /** If not null, the key of the original file that all archives passed to this calculator are copies of. */
+  @Nullable private final FileKey myOriginalKey;
+
+  @VisibleForTesting
+  CachingApkSizeCalculator(@NotNull ApkSizeCalculator delegate) {
+    this(delegate, CacheBuilder.newBuilder().maximumSize(MAX_CACHED_ARCHIVES).build(), null);
+  }
+
+  private CachingApkSizeCalculator(@NotNull ApkSizeCalculator delegate,
+                                   @NotNull Cache<FileKey, ArchiveSizes> cache,
+                                   @Nullable FileKey originalKey) {
+    myDelegate = delegate;
+    myCache = cache;
+    myOriginalKey = originalKey;
+  }
+
+  /**
+   * Returns the caching calculator shared by all APK editors, which wraps {@link ApkSizeCalculator#getDefault()}.
+   */
+  @NotNull
+  public static CachingApkSizeCalculator getDefault() {
+    return ourDefault;
+  }
+
+  /**
+   * Returns a calculator for copies of the given archive that shares the cache of this calculator. Sizes are cached under the current
+   * path, size and modification time of {@code original} rather than under the path of the copy, so that the sizes computed for one
+   * copy are reused for later copies of the same unmodified file. Must be called before the copy is made.
+   */
+  @NotNull
+  public CachingApkSizeCalculator forCopyOf(@NotNull Path original) throws IOException {
+    return new CachingApkSizeCalculator(myDelegate, myCache, new FileKey(original));
+  }
+
+  @Override
+  public long getFullApkDownloadSize(@NotNull Path apk) {
+    return getSizes(apk).myFullApkDownloadSize.get(() -> myDelegate.getFullApkDownloadSize(apk));
+  }
+
+  @Override
+  public long getFullApkRawSize(@NotNull Path apk) {
+    return getSizes(apk).myFullApkRawSize.get(() -> myDelegate.getFullApkRawSize(apk));
+  }
+
+  @NotNull
+  @Override
+  public Map<String, Long> getDownloadSizePerFile(@NotNull Path apk) {
+    return getSizes(apk).myDownloadSizePerFile.get(() -> ImmutableMap.copyOf(myDelegate.getDownloadSizePerFile(apk)));
+  }
+
+  @NotNull
+  @Override
+  public Map<String, Long> getRawSizePerFile(@NotNull Path apk) {
+    return getSizes(apk).myRawSizePerFile.get(() -> ImmutableMap.copyOf(myDelegate.getRawSizePerFile(apk)));
+  }
+
+  @NotNull
+  private ArchiveSizes getSizes(@NotNull Path apk) {
+    FileKey key = myOriginalKey;
+    if (key == null) {
+      try {
+        key = new FileKey(apk);
+      }
+      catch (IOException e) {
+        // Let the delegate report the problem with the file.
+        return new ArchiveSizes();
+      }
+    }
+
+    try {
+      return myCache.get(key, ArchiveSizes::new);
+    }
+    catch (ExecutionException e) {
+      // Creating ArchiveSizes does not compute anything, so it cannot fail.
+      throw new AssertionError(e);
+    }
+  }
+
+  /**
+   * Identifies a version of an archive file by its path, size and modification time.
+   */
+  private static final class FileKey {
+    @NotNull private final Path myPath;
+    private final long mySize;
+    private final long myLastModifiedMillis;
+
+    private FileKey(@NotNull Path path) throws IOException {
+      myPath = path.toAbsolutePath().normalize();
+      mySize = Files.size(path);
+      myLastModifiedMillis = Files.getLastModifiedTime(path).toMillis();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof FileKey)) {
+        return false;
+      }
+      FileKey key = (FileKey)o;
+      return mySize == key.mySize && myLastModifiedMillis == key.myLastModifiedMillis && myPath.equals(key.myPath);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(myPath, mySize, myLastModifiedMillis);
+    }
+  }
+
+  /**
+   * Sizes of an archive, each computed the first time it is requested. A computation that fails is attempted again on the next request.
+   * The sizes don't hold on to the path of the archive, since later requests may come for a different copy of it.
+   */
+  private static final class ArchiveSizes {
+    @NotNull private final LazyValue<Long> myFullApkDownloadSize = new LazyValue<>();
+    @NotNull private final LazyValue<Long> myFullApkRawSize = new LazyValue<>();
+    @NotNull private final LazyValue<Map<String, Long>> myDownloadSizePerFile = new LazyValue<>();
+    @NotNull private final LazyValue<Map<String, Long>> myRawSizePerFile = new LazyValue<>();
+  }
+
+  private static final class LazyValue<T> {
+    @Nullable private T myValue;
+
+    @NotNull
+    synchronized T get(@NotNull Supplier<T> computation) {
+      if (myValue == null) {
+        myValue = computation.get();
+      }
+      return myValue;
+    }
+  }
+}
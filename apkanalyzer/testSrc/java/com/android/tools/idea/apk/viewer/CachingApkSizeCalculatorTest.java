@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.apk.viewer;
+
+import com.android.tools.apk.analyzer.ApkSizeCalculator;
+import com.google.common.collect.ImmutableMap;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class CachingApkSizeCalculatorTest {
+  @Rule
+  public final TemporaryFolder myTemporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void sizesAreComputedOncePerFile() throws Exception {
+    Path apk = myTemporaryFolder.newFile("test.apk").toPath();
+    CountingSizeCalculator delegate = new CountingSizeCalculator();
+    CachingApkSizeCalculator calculator = new CachingApkSizeCalculator(delegate);
+
+    assertEquals(1, calculator.getFullApkDownloadSize(apk));
+    assertEquals(1, calculator.getFullApkDownloadSize(apk));
+    assertEquals(ImmutableMap.of("/classes.dex", 1L), calculator.getDownloadSizePerFile(apk));
+    assertEquals(ImmutableMap.of("/classes.dex", 1L), calculator.getDownloadSizePerFile(apk));
+
+    assertEquals(2, delegate.myCallCount);
+  }
+
+  @Test
+  public void sizesAreComputedAgainWhenFileIsModified() throws Exception {
+    Path apk = myTemporaryFolder.newFile("test.apk").toPath();
+    CountingSizeCalculator delegate = new CountingSizeCalculator();
+    CachingApkSizeCalculator calculator = new CachingApkSizeCalculator(delegate);
+
+    assertEquals(1, calculator.getFullApkRawSize(apk));
+    Files.write(apk, new byte[]{1, 2, 3});
+    Files.setLastModifiedTime(apk, FileTime.fromMillis(Files.getLastModifiedTime(apk).toMillis() + 1000));
+
+    assertEquals(2, calculator.getFullApkRawSize(apk));
+  }
+
+  @Test
+  public void sizesAreSharedBetweenCopiesOfSameFile() throws Exception {
+    Path apk = myTemporaryFolder.newFile("test.apk").toPath();
+    Files.write(apk, new byte[]{1, 2, 3});
+    CountingSizeCalculator delegate = new CountingSizeCalculator();
+    CachingApkSizeCalculator calculator = new CachingApkSizeCalculator(delegate);
+
+    CachingApkSizeCalculator firstCalculator = calculator.forCopyOf(apk);
+    Path firstCopy = myTemporaryFolder.newFile("copy1.apk").toPath();
+    Files.copy(apk, firstCopy, StandardCopyOption.REPLACE_EXISTING);
+    assertEquals(1, firstCalculator.getFullApkDownloadSize(firstCopy));
+    Files.delete(firstCopy);
+
+    CachingApkSizeCalculator secondCalculator = calculator.forCopyOf(apk);
+    Path secondCopy = myTemporaryFolder.newFile("copy2.apk").toPath();
+    Files.copy(apk, secondCopy, StandardCopyOption.REPLACE_EXISTING);
+    assertEquals(1, secondCalculator.getFullApkDownloadSize(secondCopy));
+
+    assertEquals(1, delegate.myCallCount);
+  }
+
+  @Test
+  public void copiesOfModifiedFileAreComputedAgain() throws Exception {
+    Path apk = myTemporaryFolder.newFile("test.apk").toPath();
+    CountingSizeCalculator delegate = new CountingSizeCalculator();
+    CachingApkSizeCalculator calculator = new CachingApkSizeCalculator(delegate);
+
+    Path firstCopy = myTemporaryFolder.newFile("copy1.apk").toPath();
+    assertEquals(1, calculator.forCopyOf(apk).getFullApkRawSize(firstCopy));
+    Files.write(apk, new byte[]{1, 2, 3});
+    Files.setLastModifiedTime(apk, FileTime.fromMillis(Files.getLastModifiedTime(apk).toMillis() + 1000));
+
+    Path secondCopy = myTemporaryFolder.newFile("copy2.apk").toPath();
+    assertEquals(2, calculator.forCopyOf(apk).getFullApkRawSize(secondCopy));
+  }
+
+  private static class CountingSizeCalculator implements ApkSizeCalculator {
+    private int myCallCount;
+
+    @Override
+    public long getFullApkDownloadSize(@NotNull Path apk) {
+      return ++myCallCount;
+    }
+
+    @Override
+    public long getFullApkRawSize(@NotNull Path apk) {
+      return ++myCallCount;
+    }
+
+    @NotNull
+    @Override
+    public Map<String, Long> getDownloadSizePerFile(@NotNull Path apk) {
+      myCallCount++;
+      return ImmutableMap.of("/classes.dex", 1L);
+    }
+
+    @NotNull
+    @Override
+    public Map<String, Long> getRawSizePerFile(@NotNull Path apk) {
+      myCallCount++;
+      return ImmutableMap.of("/classes.dex", 1L);
+    }
+  }
+}
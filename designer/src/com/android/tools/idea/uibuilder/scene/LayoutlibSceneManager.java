@@ -54,6 +54,7 @@ import com.android.tools.idea.rendering.RenderLogger;
 import com.android.tools.idea.rendering.RenderResult;
 import com.android.tools.idea.rendering.RenderService;
 import com.android.tools.idea.rendering.RenderTask;
+import com.android.tools.idea.rendering.RenderingPriority;
 import com.android.tools.idea.rendering.imagepool.ImagePool;
 import com.android.tools.idea.rendering.parsers.LayoutPullParsers;
 import com.android.tools.idea.rendering.parsers.TagSnapshot;
@@ -93,6 +94,8 @@ import com.intellij.util.ui.UIUtil;
 import com.intellij.util.ui.update.MergingUpdateQueue;
 import com.intellij.util.ui.update.Update;
 import java.awt.*;
+import java.awt.event.HierarchyEvent;
+import java.awt.event.HierarchyListener;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -169,6 +172,16 @@ public class LayoutlibSceneManager extends SceneManager {
    * If we try to schedule a new render while this is true, we simply re-use the last render in progress.
    */
   private final AtomicBoolean myIsCurrentlyRendering = new AtomicBoolean(false);
+  /**
+   * Whether the design surface is showing. It is recorded on the EDT so that render requests from other threads can read it to
+   * compute their priority.
+   */
+  private volatile boolean myIsSurfaceShowing = true;
+  private final HierarchyListener mySurfaceHierarchyListener = event -> {
+    if ((event.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) != 0) {
+      myIsSurfaceShowing = getDesignSurface().isShowing();
+    }
+  };
 
   /**
    * If true, the renders using this LayoutlibSceneManager will use transparent backgrounds
@@ -271,6 +284,8 @@ public class LayoutlibSceneManager extends SceneManager {
     updateTrackingConfiguration();
 
     getDesignSurface().getSelectionModel().addListener(mySelectionChangeListener);
+    getDesignSurface().addHierarchyListener(mySurfaceHierarchyListener);
+    UIUtil.invokeLaterIfNeeded(() -> myIsSurfaceShowing = getDesignSurface().isShowing());
 
     Scene scene = getScene();
 
@@ -371,6 +386,7 @@ public class LayoutlibSceneManager extends SceneManager {
       if (myAreListenersRegistered) {
         NlModel model = getModel();
         getDesignSurface().getSelectionModel().removeListener(mySelectionChangeListener);
+        getDesignSurface().removeHierarchyListener(mySurfaceHierarchyListener);
         model.getConfiguration().removeListener(myConfigurationChangeListener);
         model.removeListener(myModelChangeListener);
       }
@@ -941,6 +957,7 @@ public class LayoutlibSceneManager extends SceneManager {
         if (newTask != null) {
           newTask.getLayoutlibCallback()
             .setAdaptiveIconMaskPath(getDesignSurface().getAdaptiveIconShape().getPathDescription());
+          newTask.setPriority(getRenderingPriority());
           return newTask.inflate().whenComplete((result, exception) -> {
             if (exception != null) {
               Logger.getInstance(LayoutlibSceneManager.class).warn(exception);
@@ -1215,6 +1232,7 @@ public class LayoutlibSceneManager extends SceneManager {
           if (elapsedFrameTimeMs != -1) {
             myRenderTask.setElapsedFrameTimeNanos(TimeUnit.MILLISECONDS.toNanos(elapsedFrameTimeMs));
           }
+          myRenderTask.setPriority(getRenderingPriority());
           return myRenderTask.render().thenApply(result -> {
             // When the layout was inflated in this same call, we do not have to update the hierarchy again
             if (result != null && !inflated) {
@@ -1229,6 +1247,15 @@ public class LayoutlibSceneManager extends SceneManager {
       });
   }
 
+  /**
+   * Returns the priority for the render actions of this scene. Renders of surfaces that are not visible to the user
+   * yield to the ones that are.
+   */
+  @NotNull
+  private RenderingPriority getRenderingPriority() {
+    return myIsSurfaceShowing ? RenderingPriority.HIGH : RenderingPriority.LOW;
+  }
+
   public void setElapsedFrameTimeMs(long ms) {
     myElapsedFrameTimeMs = ms;
   }
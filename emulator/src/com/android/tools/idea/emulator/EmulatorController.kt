@@ -294,7 +294,8 @@ class EmulatorController(val emulatorId: EmulatorId, parentDisposable: Disposabl
   }
 
   /**
-   * Streams a series of screenshots.
+   * Streams a series of screenshots. If [streamObserver] is a [ClientResponseObserver], it may disable automatic inbound
+   * flow control in its [ClientResponseObserver.beforeStart] method and request screenshots when it is ready for them.
    */
   fun streamScreenshot(imageFormat: ImageFormat, streamObserver: StreamObserver<Image>): Cancelable? {
     if (EMBEDDED_EMULATOR_TRACE_GRPC_CALLS.get()) {
@@ -302,7 +303,15 @@ class EmulatorController(val emulatorId: EmulatorId, parentDisposable: Disposabl
     }
     val method = EmulatorControllerGrpc.getStreamScreenshotMethod()
     val call = emulatorController.channel.newCall(method, emulatorController.callOptions)
-    ClientCalls.asyncServerStreamingCall(call, imageFormat, DelegatingStreamObserver(streamObserver, method))
+    @Suppress("UNCHECKED_CAST")
+    val delegatingObserver =
+      if (streamObserver is ClientResponseObserver<*, *>) {
+        DelegatingClientResponseObserver(streamObserver as ClientResponseObserver<ImageFormat, Image>, method)
+      }
+      else {
+        DelegatingStreamObserver(streamObserver, method)
+      }
+    ClientCalls.asyncServerStreamingCall(call, imageFormat, delegatingObserver)
     return object : Cancelable {
       override fun cancel() {
         call.cancel("Canceled by consumer", null)
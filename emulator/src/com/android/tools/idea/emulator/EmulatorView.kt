@@ -15,6 +15,7 @@
  */
 package com.android.tools.idea.emulator
 
+import com.android.annotations.concurrency.AnyThread
 import com.android.annotations.concurrency.Slow
 import com.android.annotations.concurrency.UiThread
 import com.android.emulator.control.ClipData
@@ -45,9 +46,12 @@ import com.intellij.openapi.actionSystem.CommonDataKeys
 import com.intellij.openapi.diagnostic.Logger
 import com.intellij.openapi.util.Disposer
 import com.intellij.openapi.util.SystemInfo
+import com.intellij.util.concurrency.AppExecutorUtil
 import com.intellij.xml.util.XmlStringUtil
 import io.grpc.Status
 import io.grpc.StatusRuntimeException
+import io.grpc.stub.ClientCallStreamObserver
+import io.grpc.stub.ClientResponseObserver
 import java.awt.BorderLayout
 import java.awt.Component
 import java.awt.Dimension
@@ -87,12 +91,16 @@ import java.awt.event.MouseAdapter
 import java.awt.event.MouseEvent
 import java.awt.event.MouseMotionAdapter
 import java.awt.geom.AffineTransform
-import java.awt.image.ColorModel
 import java.awt.image.MemoryImageSource
+import java.nio.ByteOrder
+import java.util.Arrays
+import java.util.concurrent.TimeUnit
 import java.util.concurrent.atomic.AtomicReference
 import javax.swing.JLabel
 import javax.swing.JPanel
 import javax.swing.SwingConstants
+import javax.swing.SwingUtilities
+import kotlin.math.ceil
 import kotlin.math.floor
 import kotlin.math.max
 import kotlin.math.min
@@ -131,6 +139,8 @@ class EmulatorView(
   @VisibleForTesting
   var frameNumber = 0
     private set
+  /** Frame rate, latency and dropped frame counters of the display. */
+  val frameStatistics = FrameStatistics()
 
   init {
     Disposer.register(parentDisposable, this)
@@ -667,12 +677,31 @@ class EmulatorView(
   private inner class ScreenshotReceiver(
     val rotation: SkinRotation,
     val currentScreenshotShape: DisplayShape
-  ) : DummyStreamObserver<ImageMessage>() {
+  ) : DummyStreamObserver<ImageMessage>(), ClientResponseObserver<ImageFormat, ImageMessage> {
+    /** Used to request screenshots one at a time, or null before the call starts. */
+    @Volatile
+    private var requestStream: ClientCallStreamObserver<ImageFormat>? = null
+    @Volatile
+    private var lastRequestTime = 0L
     private var cachedImageSource: MemoryImageSource? = null
+    /** Pixels of the image produced by [cachedImageSource], updated in place when a new screenshot is displayed. */
+    private var cachedImagePixels: IntArray? = null
+    /** Pixel array of an already displayed or dropped screenshot, which is reused for the next screenshot. */
+    private val recycledPixels = AtomicReference<IntArray>()
     private val screenshotForSkinUpdate = AtomicReference<Screenshot>()
     private val screenshotForDisplay = AtomicReference<Screenshot>()
 
+    override fun beforeStart(requestStream: ClientCallStreamObserver<ImageFormat>) {
+      // The next screenshot is requested only after the previous one has been displayed, so that a view falling behind makes
+      // the Emulator skip frames instead of making it send frames that would be dropped.
+      requestStream.disableAutoInboundFlowControl()
+      this.requestStream = requestStream
+      lastRequestTime = System.nanoTime() // The call requests the first screenshot when it starts.
+    }
+
     override fun onNext(response: ImageMessage) {
+      val arrivalTime = System.nanoTime()
+      frameStatistics.frameReceived(response.image.size(), arrivalTime)
       if (EMBEDDED_EMULATOR_TRACE_SCREENSHOTS.get()) {
         LOG.info("Screenshot ${response.seq} ${response.format.width}x${response.format.height} ${response.format.rotation.rotation}")
       }
@@ -680,22 +709,29 @@ class EmulatorView(
         return // This screenshot feed has already been cancelled.
       }
 
-      if (response.format.width == 0 || response.format.height == 0) {
+      val format = response.format
+      if (format.width == 0 || format.height == 0) {
+        requestNextScreenshotNow()
         return // Ignore empty screenshot.
       }
 
-      val screenshot = Screenshot(response)
+      val shape = DisplayShape(format.width, format.height, format.rotation.rotation)
 
       // It is possible that the snapshot feed was requested assuming an out of date device rotation.
       // If the received rotation is different from the assumed one, ignore this screenshot and request
       // a fresh feed for the accurate rotation.
-      if (screenshot.rotation != rotation) {
+      if (shape.rotation != rotation) {
         invokeLaterInAnyModalityState {
-          requestScreenshotFeed(screenshot.rotation)
+          requestScreenshotFeed(shape.rotation)
         }
         return
       }
 
+      val size = shape.width * shape.height
+      val pixels = recycledPixels.getAndSet(null)?.takeIf { it.size == size } ?: IntArray(size)
+      getPixels(response.image, pixels)
+      val screenshot = Screenshot(shape, pixels, arrivalTime)
+
       if (screenshot.shape == currentScreenshotShape) {
         updateDisplayImageAsync(screenshot)
       }
@@ -705,7 +741,7 @@ class EmulatorView(
     }
 
     private fun updateSkinAndDisplayImageAsync(screenshot: Screenshot) {
-      screenshotForSkinUpdate.set(screenshot)
+      screenshotForSkinUpdate.getAndSet(screenshot)?.let { dropScreenshot(it) }
 
       executeOnPooledThread {
         // If the screenshot feed has not been cancelled, update the skin and the display image.
@@ -724,7 +760,7 @@ class EmulatorView(
     }
 
     private fun updateDisplayImageAsync(screenshot: Screenshot) {
-      screenshotForDisplay.set(screenshot)
+      screenshotForDisplay.getAndSet(screenshot)?.let { dropScreenshot(it) }
 
       invokeLaterInAnyModalityState {
         // If the screenshot feed has not been cancelled, update the display image.
@@ -734,6 +770,11 @@ class EmulatorView(
       }
     }
 
+    private fun dropScreenshot(screenshot: Screenshot) {
+      frameStatistics.frameDropped()
+      recycledPixels.set(screenshot.pixels)
+    }
+
     @UiThread
     private fun updateDisplayImage() {
       hideLongRunningOperationIndicatorInstantly()
@@ -751,26 +792,92 @@ class EmulatorView(
         skinLayout = SkinLayout(Dimension(w, h))
       }
 
-      var imageSource = cachedImageSource
-      if (imageSource == null || screenshotShape.width != w || screenshotShape.height != h) {
-        imageSource = MemoryImageSource(w, h, screenshot.pixels, 0, w)
-        imageSource.setAnimated(true)
-        screenshotImage = createImage(imageSource)
+      val imageSource = cachedImageSource
+      val imagePixels = cachedImagePixels
+      if (imageSource == null || imagePixels == null || screenshotShape.width != w || screenshotShape.height != h) {
+        // The image has its own pixels so that the pixel arrays of screenshots can be reused, and only the rows that changed
+        // are passed to the image and repainted.
+        val pixels = screenshot.pixels.copyOf()
+        val newImageSource = MemoryImageSource(w, h, pixels, 0, w)
+        newImageSource.setAnimated(true)
+        screenshotImage = createImage(newImageSource)
         screenshotShape = screenshot.shape
-        cachedImageSource = imageSource
+        cachedImageSource = newImageSource
+        cachedImagePixels = pixels
+        repaint()
       }
       else {
-        imageSource.newPixels(screenshot.pixels, ColorModel.getRGBdefault(), 0, w)
+        val changedRows = copyChangedRows(screenshot.pixels, imagePixels, w, h)
+        if (!changedRows.isEmpty()) {
+          imageSource.newPixels(0, changedRows.first, w, changedRows.last + 1 - changedRows.first)
+        }
+        if (layout != null) {
+          repaint() // The device frame may have changed.
+        }
+        else if (!changedRows.isEmpty()) {
+          repaintDisplayRows(changedRows, h)
+        }
       }
+      recycledPixels.set(screenshot.pixels)
 
+      frameStatistics.frameDisplayed(screenshot.arrivalTime)
       frameNumber++
+      if (EMBEDDED_EMULATOR_TRACE_SCREENSHOTS.get()) {
+        LOG.info("Frame $frameNumber: $frameStatistics")
+      }
+
+      requestNextScreenshot()
+    }
+
+    /**
+     * Requests the next screenshot when the frame interval allowed by the state of the view has elapsed.
+     */
+    @UiThread
+    private fun requestNextScreenshot() {
+      val minFrameIntervalNanos = when {
+        isFocusOwner -> 0L
+        SwingUtilities.getWindowAncestor(this@EmulatorView)?.isActive == true -> UNFOCUSED_MIN_FRAME_INTERVAL_NANOS
+        else -> INACTIVE_MIN_FRAME_INTERVAL_NANOS
+      }
+      val delay = lastRequestTime + minFrameIntervalNanos - System.nanoTime()
+      if (delay <= 0) {
+        requestNextScreenshotNow()
+      }
+      else {
+        frameStatistics.requestDelayed(delay)
+        AppExecutorUtil.getAppScheduledExecutorService().schedule(Runnable { requestNextScreenshotNow() }, delay, TimeUnit.NANOSECONDS)
+      }
+    }
+
+    @AnyThread
+    private fun requestNextScreenshotNow() {
+      if (screenshotReceiver == this) {
+        lastRequestTime = System.nanoTime()
+        requestStream?.request(1)
+      }
+    }
+  }
+
+  /**
+   * Repaints the part of the view showing the given rows of a display image of the given height.
+   */
+  @UiThread
+  private fun repaintDisplayRows(rows: IntRange, imageHeight: Int) {
+    val displayRect = displayRectangle
+    if (displayRect == null) {
       repaint()
+      return
     }
+    // Scaling of the display image may blend adjacent rows, so one extra pixel is repainted on each side.
+    val rowHeight = displayRect.height.toDouble() / imageHeight
+    val top = floor((displayRect.y + rows.first * rowHeight) / screenScale).toInt() - 1
+    val bottom = ceil((displayRect.y + (rows.last + 1) * rowHeight) / screenScale).toInt() + 1
+    val left = floor(displayRect.x / screenScale).toInt() - 1
+    val right = ceil((displayRect.x + displayRect.width) / screenScale).toInt() + 1
+    repaint(left, top, right - left, bottom - top)
   }
 
-  private class Screenshot(emulatorImage: ImageMessage) {
-    val shape: DisplayShape
-    val pixels: IntArray
+  private class Screenshot(val shape: DisplayShape, val pixels: IntArray, val arrivalTime: Long) {
     var skinLayout: SkinLayout? = null
     val width: Int
       get() = shape.width
@@ -778,32 +885,54 @@ class EmulatorView(
       get() = shape.height
     val rotation: SkinRotation
       get() = shape.rotation
+  }
 
-    init {
-      val format = emulatorImage.format
-      shape = DisplayShape(format.width, format.height, format.rotation.rotation)
-      pixels = getPixels(emulatorImage.image, width, height)
-    }
+  private data class DisplayShape(val width: Int, val height: Int, val rotation: SkinRotation)
+}
 
-    private fun getPixels(imageBytes: ByteString, width: Int, height: Int): IntArray {
-      val pixels = IntArray(width * height)
-      val byteIterator = imageBytes.iterator()
-      for (i in pixels.indices) {
-        val red = byteIterator.nextByte().toInt() and 0xFF
-        val green = byteIterator.nextByte().toInt() and 0xFF
-        val blue = byteIterator.nextByte().toInt() and 0xFF
-        byteIterator.nextByte() // Alpha is ignored since the screenshots are always opaque.
-        pixels[i] = 0xFF000000.toInt() or (red shl 16) or (green shl 8) or blue
+/**
+ * Converts RGBA8888 image bytes to ARGB pixels.
+ */
+private fun getPixels(imageBytes: ByteString, pixels: IntArray) {
+  // The pixels are read in bulk as little-endian ints, which puts red in the lowest byte, and then converted in a simple loop.
+  imageBytes.asReadOnlyByteBuffer().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(pixels)
+  for (i in pixels.indices) {
+    val abgr = pixels[i]
+    // Alpha is ignored since the screenshots are always opaque.
+    pixels[i] = 0xFF000000.toInt() or ((abgr and 0xFF) shl 16) or (abgr and 0xFF00) or ((abgr ushr 16) and 0xFF)
+  }
+}
+
+/**
+ * Copies the rows of [source] that differ from [destination] to it and returns the range of rows between the first and the last
+ * copied ones.
+ */
+private fun copyChangedRows(source: IntArray, destination: IntArray, width: Int, height: Int): IntRange {
+  var first = -1
+  var last = -1
+  for (row in 0 until height) {
+    val start = row * width
+    val end = start + width
+    if (Arrays.mismatch(source, start, end, destination, start, end) >= 0) {
+      System.arraycopy(source, start, destination, start, width)
+      if (first < 0) {
+        first = row
       }
-      return pixels
+      last = row
     }
   }
-
-  private data class DisplayShape(val width: Int, val height: Int, val rotation: SkinRotation)
+  return if (first < 0) IntRange.EMPTY else first..last
 }
 
 private var emulatorOutOfDateNotificationShown = false
 
+/** Minimum interval between screenshots when the Emulator view is not focused. */
+private val UNFOCUSED_MIN_FRAME_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1) / 30
+
+/** Minimum interval between screenshots when the window containing the Emulator view is not active. */
+@VisibleForTesting
+internal val INACTIVE_MIN_FRAME_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1) / 10
+
 private const val MAX_SCALE = 2.0 // Zoom above 200% is not allowed.
 
 private val ZOOM_LEVELS = intArrayOf(5, 10, 25, 50, 100, 200) // In percent.
@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.emulator
+
+import com.android.annotations.concurrency.AnyThread
+import com.android.annotations.concurrency.UiThread
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Counters of the frames received from the Emulator. A frame is dropped when a newer frame arrives before it is displayed.
+ * The latency of a frame is the time between its arrival and its display. The request delay is the time the view waited
+ * before requesting frames to limit the frame rate, which is how it applies backpressure to the Emulator.
+ */
+class FrameStatistics {
+  private val droppedFrames = AtomicInteger()
+  private val receivedBytes = AtomicLong()
+  private val requestDelayNanos = AtomicLong()
+  @Volatile
+  private var firstArrivalTimeNanos = 0L
+  @Volatile
+  private var lastArrivalTimeNanos = 0L
+  /** Display times of the last [FRAME_RATE_WINDOW] frames, in a circular buffer. */
+  private val displayTimesNanos = LongArray(FRAME_RATE_WINDOW)
+  private var totalLatencyNanos = 0L
+
+  /** Number of displayed frames. */
+  @get:UiThread
+  var displayedFrameCount = 0
+    private set
+
+  /** Number of dropped frames. */
+  val droppedFrameCount: Int
+    @AnyThread
+    get() = droppedFrames.get()
+
+  /** Rate at which image data was received, between the arrival of the first and the last frame. */
+  val bytesPerSecond: Double
+    @AnyThread
+    get() {
+      val duration = lastArrivalTimeNanos - firstArrivalTimeNanos
+      return if (duration <= 0) 0.0 else receivedBytes.get() * TimeUnit.SECONDS.toNanos(1).toDouble() / duration
+    }
+
+  /** Total time the view waited before requesting frames, in milliseconds. */
+  val requestDelayMillis: Long
+    @AnyThread
+    get() = TimeUnit.NANOSECONDS.toMillis(requestDelayNanos.get())
+
+  /** Average latency of the displayed frames in milliseconds. */
+  val averageLatencyMillis: Double
+    @UiThread
+    get() = if (displayedFrameCount == 0) 0.0 else totalLatencyNanos.toDouble() / displayedFrameCount / TimeUnit.MILLISECONDS.toNanos(1)
+
+  /** Frame rate over the last [FRAME_RATE_WINDOW] displayed frames. */
+  val framesPerSecond: Double
+    @UiThread
+    get() {
+      val count = displayedFrameCount.coerceAtMost(FRAME_RATE_WINDOW)
+      if (count < 2) {
+        return 0.0
+      }
+      val last = displayTimesNanos[(displayedFrameCount - 1) % FRAME_RATE_WINDOW]
+      val first = displayTimesNanos[(displayedFrameCount - count) % FRAME_RATE_WINDOW]
+      return if (last == first) 0.0 else (count - 1) * TimeUnit.SECONDS.toNanos(1).toDouble() / (last - first)
+    }
+
+  /**
+   * Records the arrival of a frame with [byteCount] bytes of image data at [arrivalTimeNanos], as returned by [System.nanoTime].
+   */
+  @AnyThread
+  fun frameReceived(byteCount: Int, arrivalTimeNanos: Long) {
+    if (receivedBytes.getAndAdd(byteCount.toLong()) == 0L) {
+      firstArrivalTimeNanos = arrivalTimeNanos
+    }
+    lastArrivalTimeNanos = arrivalTimeNanos
+  }
+
+  @AnyThread
+  fun requestDelayed(delayNanos: Long) {
+    requestDelayNanos.addAndGet(delayNanos)
+  }
+
+  @AnyThread
+  fun frameDropped() {
+    droppedFrames.incrementAndGet()
+  }
+
+  /**
+   * Records the display of a frame that arrived at [arrivalTimeNanos], as returned by [System.nanoTime].
+   */
+  @UiThread
+  fun frameDisplayed(arrivalTimeNanos: Long) {
+    val now = System.nanoTime()
+    totalLatencyNanos += now - arrivalTimeNanos
+    displayTimesNanos[displayedFrameCount % FRAME_RATE_WINDOW] = now
+    displayedFrameCount++
+  }
+
+  @UiThread
+  override fun toString(): String =
+    "%d frames displayed, %d dropped, %.1f fps, %.1f ms average latency, %.1f MB/s received, %d ms request delay"
+      .format(displayedFrameCount, droppedFrameCount, framesPerSecond, averageLatencyMillis, bytesPerSecond / 1_000_000,
+              requestDelayMillis)
+}
+
+private const val FRAME_RATE_WINDOW = 64
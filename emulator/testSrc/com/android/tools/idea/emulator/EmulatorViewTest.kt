@@ -134,6 +134,7 @@ class EmulatorViewTest {
     call = getStreamScreenshotCallAndWaitForFrame(view, ++frameNumber)
     assertThat(shortDebugString(call.request)).isEqualTo("format: RGBA8888 width: 454 height: 364")
     assertAppearance(ui, "image2")
+    assertThat(view.frameStatistics.displayedFrameCount).isEqualTo(view.frameNumber)
     assertThat(previousCall.completion.isCancelled).isTrue() // The previous call is cancelled.
     assertThat(call.completion.isCancelled).isFalse() // The latest call has not been cancelled.
     assertThat(call.completion.isDone).isFalse() // The latest call is still ongoing.
@@ -341,6 +342,70 @@ class EmulatorViewTest {
     assertThat(Pattern.matches("Screenshot_.*\\.png", filesOpened[0].name)).isTrue()
   }
 
+  @Test
+  fun testScreenshotsRequestedOneAtATime() {
+    val view = createEmulatorView()
+    @Suppress("UndesirableClassUsage")
+    val container = JScrollPane(view).apply { border = null }
+    val ui = FakeUi(container, 2.0)
+    container.size = Dimension(200, 300)
+    ui.layoutAndDispatchEvents()
+    var call = getStreamScreenshotCallAndWaitForFrame(view, 1)
+    if (call.completion.isCancelled) {
+      // Due to timing of connection and resizing events there could be two streamScreenshot calls.
+      call = getStreamScreenshotCallAndWaitForFrame(view, view.frameNumber + 1)
+    }
+    assertThat(call.completion.isDone).isFalse()
+
+    // After displaying a screenshot the view requests the next one.
+    waitForCondition(2, TimeUnit.SECONDS) { emulator.isScreenshotStreamReady }
+    emulator.screenshotRequestTimes.clear()
+
+    var previousRequestTime = 0L
+    for (i in 1..3) {
+      val frameNumber = view.frameNumber
+      emulator.sendScreenshot()
+      // The screenshot has been consumed, and the next one is not requested until this one is displayed.
+      assertThat(emulator.isScreenshotStreamReady).isFalse()
+      assertThat(emulator.screenshotRequestTimes).isEmpty()
+
+      view.waitForFrame(frameNumber + 1, 2, TimeUnit.SECONDS)
+      val requestTime = emulator.screenshotRequestTimes.poll(2, TimeUnit.SECONDS)
+      assertThat(requestTime).isNotNull()
+      if (previousRequestTime != 0L) {
+        // The view is not in an active window, so screenshots are requested at a reduced rate.
+        assertThat(requestTime - previousRequestTime).isAtLeast(INACTIVE_MIN_FRAME_INTERVAL_NANOS - TimeUnit.MILLISECONDS.toNanos(10))
+      }
+      previousRequestTime = requestTime
+    }
+    assertThat(view.frameStatistics.displayedFrameCount).isEqualTo(view.frameNumber)
+  }
+
+  @Test
+  fun testScreenshotQueuedUntilRequested() {
+    val view = createEmulatorView()
+    @Suppress("UndesirableClassUsage")
+    val container = JScrollPane(view).apply { border = null }
+    val ui = FakeUi(container, 2.0)
+    container.size = Dimension(200, 300)
+    ui.layoutAndDispatchEvents()
+    var call = getStreamScreenshotCallAndWaitForFrame(view, 1)
+    if (call.completion.isCancelled) {
+      call = getStreamScreenshotCallAndWaitForFrame(view, view.frameNumber + 1)
+    }
+    waitForCondition(2, TimeUnit.SECONDS) { emulator.isScreenshotStreamReady }
+
+    // Two screenshots sent back to back. The second one is delivered only after the first one is displayed.
+    val frameNumber = view.frameNumber
+    val droppedFrameCount = view.frameStatistics.droppedFrameCount
+    emulator.sendScreenshot()
+    emulator.sendScreenshot()
+    assertThat(emulator.isScreenshotStreamReady).isFalse()
+    view.waitForFrame(frameNumber + 2, 2, TimeUnit.SECONDS)
+    assertThat(view.frameStatistics.droppedFrameCount).isEqualTo(droppedFrameCount)
+    assertThat(call.completion.isDone).isFalse()
+  }
+
   private fun getStreamScreenshotCallAndWaitForFrame(view: EmulatorView, frameNumber: Int): GrpcCallRecord {
     val call = emulator.getNextGrpcCall(2, TimeUnit.SECONDS)
     assertThat(call.methodName).isEqualTo("android.emulation.control.EmulatorController/streamScreenshot")
@@ -54,6 +54,7 @@ import io.grpc.ServerInterceptors
 import io.grpc.Status
 import io.grpc.StatusRuntimeException
 import io.grpc.inprocess.InProcessServerBuilder
+import io.grpc.stub.ServerCallStreamObserver
 import io.grpc.stub.StreamObserver
 import java.awt.Color
 import java.awt.RenderingHints
@@ -113,6 +114,18 @@ class FakeEmulator(val avdFolder: Path, val grpcPort: Int, registrationDirectory
       }
     }
   @Volatile private var clipboardStreamObserver: StreamObserver<ClipData>? = null
+  @Volatile private var screenshotStreamRequest: ImageFormat? = null
+  @Volatile private var screenshotStreamObserver: ServerCallStreamObserver<Image>? = null
+
+  /**
+   * Times, as returned by [System.nanoTime], when the client of the latest screenshot stream became ready to receive
+   * the next screenshot.
+   */
+  val screenshotRequestTimes = LinkedBlockingDeque<Long>()
+
+  /** True if the client of the latest screenshot stream has requested a screenshot that has not been sent yet. */
+  val isScreenshotStreamReady: Boolean
+    get() = screenshotStreamObserver?.isReady ?: false
 
   val serialPort
     get() = grpcPort - 3000 // Just like a real emulator.
@@ -174,6 +187,17 @@ class FakeEmulator(val avdFolder: Path, val grpcPort: Int, registrationDirectory
     }
   }
 
+  /**
+   * Sends a screenshot to the latest screenshot stream. The method returns after the screenshot has been sent.
+   * Like a real Emulator the method doesn't check whether the client has requested the screenshot. gRPC queues
+   * the screenshot until the client requests it.
+   */
+  fun sendScreenshot() {
+    val request = screenshotStreamRequest ?: throw IllegalStateException("No screenshot stream")
+    val responseObserver = screenshotStreamObserver ?: throw IllegalStateException("No screenshot stream")
+    executor.submit { sendScreenshot(request, responseObserver) }.get()
+  }
+
   /**
    * Waits for the next gRPC call while dispatching UI events. Returns the next gRPC call and removes
    * it from the queue of recorded calls. Throws TimeoutException if the call is not recorded within
@@ -371,45 +395,53 @@ class FakeEmulator(val avdFolder: Path, val grpcPort: Int, registrationDirectory
     }
 
     override fun streamScreenshot(request: ImageFormat, responseObserver: StreamObserver<Image>) {
+      val serverCallObserver = responseObserver as ServerCallStreamObserver<Image>
+      serverCallObserver.setOnReadyHandler { screenshotRequestTimes.add(System.nanoTime()) }
+      screenshotStreamRequest = request
+      screenshotStreamObserver = serverCallObserver
       executor.execute {
-        val aspectRatio = config.displayHeight.toDouble() / config.displayWidth
-        val w: Int
-        val h: Int
-        if (displayRotation.ordinal % 2 == 0) {
-          w = request.width.coerceAtMost((request.height / aspectRatio).toInt())
-          h = request.height.coerceAtMost((request.width * aspectRatio).toInt())
-        }
-        else {
-          w = request.height.coerceAtMost((request.width / aspectRatio).toInt())
-          h = request.width.coerceAtMost((request.height * aspectRatio).toInt())
-        }
-
-        val image = drawDisplayImage(w, h)
-        val rotatedImage = rotateByQuadrants(image, displayRotation.ordinal)
-        val imageBytes = ByteArray(rotatedImage.width * rotatedImage.height * 4)
-        val alpha = 0xFF.toByte()
-        var i = 0
-        for (y in 0 until rotatedImage.height) {
-          for (x in 0 until rotatedImage.width) {
-            val rgb = rotatedImage.getRGB(x, y)
-            imageBytes[i++] = (rgb ushr 16).toByte()
-            imageBytes[i++] = (rgb ushr 8).toByte()
-            imageBytes[i++] = rgb.toByte()
-            imageBytes[i++] = alpha
-          }
-        }
-        val response = Image.newBuilder()
-          .setImage(ByteString.copyFrom(imageBytes))
-          .setFormat(ImageFormat.newBuilder()
-            .setFormat(request.format)
-            .setWidth(rotatedImage.width)
-            .setHeight(rotatedImage.height)
-            .setRotation(Rotation.newBuilder().setRotation(displayRotation))
-          )
+        sendScreenshot(request, responseObserver)
+      }
+    }
+  }
 
-        sendStreamingResponse(responseObserver, response.build())
+  private fun sendScreenshot(request: ImageFormat, responseObserver: StreamObserver<Image>) {
+    val aspectRatio = config.displayHeight.toDouble() / config.displayWidth
+    val w: Int
+    val h: Int
+    if (displayRotation.ordinal % 2 == 0) {
+      w = request.width.coerceAtMost((request.height / aspectRatio).toInt())
+      h = request.height.coerceAtMost((request.width * aspectRatio).toInt())
+    }
+    else {
+      w = request.height.coerceAtMost((request.width / aspectRatio).toInt())
+      h = request.width.coerceAtMost((request.height * aspectRatio).toInt())
+    }
+
+    val image = drawDisplayImage(w, h)
+    val rotatedImage = rotateByQuadrants(image, displayRotation.ordinal)
+    val imageBytes = ByteArray(rotatedImage.width * rotatedImage.height * 4)
+    val alpha = 0xFF.toByte()
+    var i = 0
+    for (y in 0 until rotatedImage.height) {
+      for (x in 0 until rotatedImage.width) {
+        val rgb = rotatedImage.getRGB(x, y)
+        imageBytes[i++] = (rgb ushr 16).toByte()
+        imageBytes[i++] = (rgb ushr 8).toByte()
+        imageBytes[i++] = rgb.toByte()
+        imageBytes[i++] = alpha
       }
     }
+    val response = Image.newBuilder()
+      .setImage(ByteString.copyFrom(imageBytes))
+      .setFormat(ImageFormat.newBuilder()
+        .setFormat(request.format)
+        .setWidth(rotatedImage.width)
+        .setHeight(rotatedImage.height)
+        .setRotation(Rotation.newBuilder().setRotation(displayRotation))
+      )
+
+    sendStreamingResponse(responseObserver, response.build())
   }
 
   private inner class EmulatorSnapshotService(private val executor: ExecutorService) : SnapshotServiceGrpc.SnapshotServiceImplBase() {
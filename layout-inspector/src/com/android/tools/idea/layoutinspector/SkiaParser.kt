@@ -25,7 +25,7 @@ import com.android.tools.idea.flags.StudioFlags
 import com.android.tools.idea.layoutinspector.model.InspectorView
 import com.android.tools.idea.layoutinspector.proto.SkiaParser
 import com.android.tools.idea.layoutinspector.proto.SkiaParserServiceGrpc
-import com.android.tools.idea.protobuf.ByteString
+import com.android.tools.idea.protobuf.UnsafeByteOperations
 import com.android.tools.idea.sdk.AndroidSdks
 import com.android.tools.idea.sdk.StudioDownloader
 import com.android.tools.idea.sdk.StudioSettingsController
@@ -57,6 +57,7 @@ import java.awt.image.Raster
 import java.awt.image.SinglePixelPackedSampleModel
 import java.io.File
 import java.nio.ByteOrder
+import java.nio.IntBuffer
 import java.util.concurrent.CompletableFuture
 import java.util.concurrent.TimeUnit
 import javax.xml.bind.JAXBContext
@@ -75,18 +76,49 @@ class InvalidPictureException : Exception()
 class UnsupportedPictureVersionException(val version: Int) : Exception()
 
 interface SkiaParserService {
+  /**
+   * Parses the picture in [data], reusing the images in [imageCache] for views that are unchanged since the last picture parsed with
+   * the same cache. Each inspector client has its own cache, since the pictures of different clients are unrelated.
+   */
   @Throws(InvalidPictureException::class)
-  fun getViewTree(data: ByteArray, isInterrupted: () -> Boolean = { false }): InspectorView?
+  fun getViewTree(data: ByteArray, imageCache: SkiaImageCache, isInterrupted: () -> Boolean = { false }): InspectorView?
 
   fun shutdownAll()
 }
 
+/**
+ * The images of the last picture parsed for one inspector client by view id. Most views are unchanged between two pictures captured in
+ * live mode, so their images are reused instead of being decoded again.
+ */
+class SkiaImageCache {
+  @Volatile
+  internal var images: Map<String, DecodedImage> = emptyMap()
+
+  /**
+   * Drops the images kept from the last parsed picture for reuse by the next one.
+   */
+  fun clear() {
+    images = emptyMap()
+  }
+}
+
+/**
+ * An image with the array holding its pixels, which is kept here because getting it from the image would prevent Java2D from caching
+ * the image in video memory.
+ */
+internal class DecodedImage(val pixels: IntArray, val image: BufferedImage)
+
 // The minimum version of a skia parser component required by this version of studio.
 // It's the parser's responsibility to be compatible with all supported studio versions.
 private val minimumRevisions = mapOf(
   "skiaparser;1" to Revision(1)
 )
 
+/**
+ * Parses SKPs with one parser server process per parser version, chosen by the SKP version of the picture. A server is started by the
+ * first picture it can parse and kept running until [shutdownAll], so concurrent [getViewTree] calls share the running server over its
+ * channel. Images decoded from the responses are kept per inspector client in a [SkiaImageCache].
+ */
 object SkiaParser : SkiaParserService {
   private val unmarshaller = JAXBContext.newInstance(VersionMap::class.java).createUnmarshaller()
   private val devbuildServerInfo = ServerInfo(null, -1, -1)
@@ -95,19 +127,31 @@ object SkiaParser : SkiaParserService {
   private val mapLock = Any()
   private const val VERSION_MAP_FILE_NAME = "version-map.xml"
   private val progressIndicator = StudioLoggerProgressIndicator(SkiaParser::class.java)
+  private val bitMasks = intArrayOf(0xff0000, 0xff00, 0xff, 0xff000000.toInt())
+  private val colorModel = DirectColorModel(ColorSpace.getInstance(ColorSpace.CS_sRGB),
+                                            32, bitMasks[0], bitMasks[1], bitMasks[2], bitMasks[3], false, DataBuffer.TYPE_INT)
 
   @Slow
   @Throws(InvalidPictureException::class)
-  override fun getViewTree(data: ByteArray, isInterrupted: () -> Boolean): InspectorView? {
+  override fun getViewTree(data: ByteArray, imageCache: SkiaImageCache, isInterrupted: () -> Boolean): InspectorView? {
     val server = runServer(data) ?: throw UnsupportedPictureVersionException(getSkpVersion(data))
     val response = server.getViewTree(data)
-    return response?.root?.let {
-      try {
-        buildTree(it, isInterrupted)
-      }
-      catch (interruptedException: InterruptedException) {
-        null
-      }
+    return response?.root?.let { buildTree(it, imageCache, isInterrupted) }
+  }
+
+  /**
+   * Builds the view tree for the [root] of a parser response, reusing the images in [imageCache] for unchanged views.
+   */
+  @VisibleForTesting
+  fun buildTree(root: SkiaParser.InspectorView, imageCache: SkiaImageCache, isInterrupted: () -> Boolean = { false }): InspectorView? {
+    return try {
+      val images = HashMap<String, DecodedImage>()
+      val tree = buildTree(root, isInterrupted, imageCache.images, images)
+      imageCache.images = images
+      tree
+    }
+    catch (interruptedException: InterruptedException) {
+      null
     }
   }
 
@@ -117,7 +161,10 @@ object SkiaParser : SkiaParserService {
     devbuildServerInfo.shutdown()
   }
 
-  private fun buildTree(node: SkiaParser.InspectorView, isInterrupted: () -> Boolean): InspectorView? {
+  private fun buildTree(node: SkiaParser.InspectorView,
+                        isInterrupted: () -> Boolean,
+                        previousImages: Map<String, DecodedImage>,
+                        images: MutableMap<String, DecodedImage>): InspectorView? {
     if (isInterrupted()) {
       throw InterruptedException()
     }
@@ -125,21 +172,29 @@ object SkiaParser : SkiaParserService {
     val height = node.height
     var image: Image? = null
     if (!node.image.isEmpty) {
-      val intArray = IntArray(width * height)
-      node.image.asReadOnlyByteBuffer().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(intArray)
-      val buffer = DataBufferInt(intArray, width * height)
-      val model = SinglePixelPackedSampleModel(DataBuffer.TYPE_INT, width, height, intArrayOf(0xff0000, 0xff00, 0xff, 0xff000000.toInt()))
-      val raster = Raster.createWritableRaster(model, buffer, Point(0, 0))
-      val colorModel = DirectColorModel(ColorSpace.getInstance(ColorSpace.CS_sRGB),
-                                        32, 0xff0000, 0xff00, 0xff, 0xff000000.toInt(), false, DataBuffer.TYPE_INT)
-      @Suppress("UndesirableClassUsage")
-      image = BufferedImage(colorModel, raster, false, null)
+      val pixels = node.image.asReadOnlyByteBuffer().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer()
+      val previous = previousImages[node.id]
+      val decoded = if (previous != null && previous.image.width == width && previous.image.height == height &&
+                        IntBuffer.wrap(previous.pixels) == pixels) previous else decodeImage(pixels, width, height)
+      images[node.id] = decoded
+      image = decoded.image
     }
     val res = InspectorView(node.id, node.type, node.x, node.y, width, height, image)
-    node.childrenList.mapNotNull { buildTree(it, isInterrupted) }.forEach { res.addChild(it) }
+    node.childrenList.mapNotNull { buildTree(it, isInterrupted, previousImages, images) }.forEach { res.addChild(it) }
     return res
   }
 
+  private fun decodeImage(pixels: IntBuffer, width: Int, height: Int): DecodedImage {
+    val intArray = IntArray(width * height)
+    pixels.get(intArray)
+    val buffer = DataBufferInt(intArray, width * height)
+    val model = SinglePixelPackedSampleModel(DataBuffer.TYPE_INT, width, height, bitMasks)
+    val raster = Raster.createWritableRaster(model, buffer, Point(0, 0))
+    @Suppress("UndesirableClassUsage")
+    val image = BufferedImage(colorModel, raster, false, null)
+    return DecodedImage(intArray, image)
+  }
+
   /**
    * Run a server that can parse the given [data], or null if no appropriate server version is available.
    */
@@ -314,13 +369,15 @@ class ServerInfo(val serverVersion: Int?, skpStart: Int, skpEnd: Int?) {
   }
 
   /**
-   * Start the server if it isn't already running.
+   * Start the server if it isn't already running. A server that is started is pinged until it responds, so that the running server
+   * can be used for any number of concurrent requests without further checks.
    *
    * If the server is killed by another process we detect it with process.isAlive.
    * Note that this will be a sub process of Android Studio and will terminate when
    * Android Studio process is terminated.
    */
   @Slow
+  @Synchronized
   fun runServer() {
     if (client != null && channel?.isShutdown != true && channel?.isTerminated != true && handler?.process?.isAlive == true) {
       // already started
@@ -365,9 +422,11 @@ class ServerInfo(val serverVersion: Int?, skpStart: Int, skpEnd: Int?) {
       }
     })
     handler?.startNotify()
+    ping()
   }
 
   @Slow
+  @Synchronized
   fun shutdown() {
     channel?.shutdownNow()
     channel?.awaitTermination(1, TimeUnit.SECONDS)
@@ -406,7 +465,6 @@ class ServerInfo(val serverVersion: Int?, skpStart: Int, skpEnd: Int?) {
 
   @Slow
   fun getViewTree(data: ByteArray): SkiaParser.GetViewTreeResponse? {
-    ping()
     return getViewTreeImpl(data)
   }
 
@@ -417,7 +475,8 @@ class ServerInfo(val serverVersion: Int?, skpStart: Int, skpEnd: Int?) {
   }
 
   private fun getViewTreeImpl(data: ByteArray): SkiaParser.GetViewTreeResponse? {
-    val request = SkiaParser.GetViewTreeRequest.newBuilder().setSkp(ByteString.copyFrom(data)).build()
+    // The picture can be tens of megabytes and is not modified after it is received, so it is sent without being copied.
+    val request = SkiaParser.GetViewTreeRequest.newBuilder().setSkp(UnsafeByteOperations.unsafeWrap(data)).build()
     return getViewTreeWithRetry(request)
   }
 
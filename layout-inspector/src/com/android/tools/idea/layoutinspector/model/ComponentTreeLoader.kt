@@ -99,7 +99,7 @@ private class ComponentTreeLoaderImpl(
         try {
           when (tree.payloadType) {
             PNG_AS_REQUESTED, PNG_SKP_TOO_LARGE -> processPng(bytes, rootView, client)
-            SKP -> processSkp(bytes, skiaParser, project, client, rootView)
+            SKP -> processSkp(bytes, skiaParser, project, defaultClient, rootView)
             else -> client.logEvent(DynamicLayoutInspectorEventType.INITIAL_RENDER_NO_PICTURE) // Shouldn't happen
           }
         }
@@ -119,7 +119,7 @@ private class ComponentTreeLoaderImpl(
                          project: Project,
                          client: DefaultInspectorClient,
                          rootView: ViewNode) {
-    val (rootViewFromSkiaImage, errorMessage) = getViewTree(bytes, skiaParser)
+    val (rootViewFromSkiaImage, errorMessage) = getViewTree(bytes, skiaParser, client)
 
     if (errorMessage != null) {
       InspectorBannerService.getInstance(project).setNotification(errorMessage)
@@ -144,10 +144,12 @@ private class ComponentTreeLoaderImpl(
     client.logEvent(DynamicLayoutInspectorEventType.INITIAL_RENDER_BITMAPS)
   }
 
-  private fun getViewTree(bytes: ByteArray, skiaParser: SkiaParserService): Pair<InspectorView?, String?> {
+  private fun getViewTree(bytes: ByteArray,
+                          skiaParser: SkiaParserService,
+                          client: DefaultInspectorClient): Pair<InspectorView?, String?> {
     var errorMessage: String? = null
     val inspectorView = try {
-      val root = skiaParser.getViewTree(bytes) { isInterrupted }
+      val root = skiaParser.getViewTree(bytes, client.skiaImageCache) { isInterrupted }
       if (root == null) {
         // We were unable to parse the skia image. Allow the user to interact with the component tree.
         errorMessage = "Invalid picture data received from device. Rotation disabled."
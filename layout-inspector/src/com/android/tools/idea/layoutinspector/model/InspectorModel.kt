@@ -34,8 +34,8 @@ class InspectorModel(val project: Project) {
   val connectionListeners = mutableListOf<(InspectorClient?) -> Unit>()
   val resourceLookup = ResourceLookup(project)
 
-  private fun findSubimages(root: ViewNode?) =
-    root?.flatten()?.minus(root)?.any { it.imageBottom != null || it.imageTop != null } == true
+  private fun findSubimages(root: ViewNode?): Boolean =
+    root?.children?.any { it.imageBottom != null || it.imageTop != null || findSubimages(it) } == true
 
   var selection: ViewNode? by Delegates.observable(null as ViewNode?) { _, old, new ->
     if (new != old) {
@@ -54,6 +54,13 @@ class InspectorModel(val project: Project) {
   // dummy node to hold the roots of the current windows.
   val root = ViewNode(-1, "root - hide", null, 0, 0, 0, 0, null, "", 0)
 
+  /**
+   * Nodes by drawId and by viewId name, built from [root] on the first lookup after a structural change. If several nodes have
+   * the same id, the first one in the order of [ViewNode.flatten] is used.
+   */
+  private var nodesByDrawId: Map<Long, ViewNode>? = null
+  private var nodesByViewId: Map<String, ViewNode>? = null
+
   var hasSubImages = false
     private set
 
@@ -64,12 +71,40 @@ class InspectorModel(val project: Project) {
   /**
    * Get a ViewNode by drawId
    */
-  operator fun get(id: Long) = root.flatten().find { it.drawId == id }
+  operator fun get(id: Long): ViewNode? {
+    if (nodesByDrawId == null) {
+      buildIndices()
+    }
+    return nodesByDrawId?.get(id)
+  }
 
   /**
    * Get a ViewNode by viewId name
    */
-  operator fun get(id: String) = root.flatten().find { it.viewId?.name == id }
+  operator fun get(id: String): ViewNode? {
+    if (nodesByViewId == null) {
+      buildIndices()
+    }
+    return nodesByViewId?.get(id)
+  }
+
+  private fun buildIndices() {
+    val byDrawId = HashMap<Long, ViewNode>()
+    val byViewId = HashMap<String, ViewNode>()
+    fun add(node: ViewNode) {
+      node.children.forEach { add(it) }
+      byDrawId.putIfAbsent(node.drawId, node)
+      node.viewId?.name?.let { byViewId.putIfAbsent(it, node) }
+    }
+    add(root)
+    nodesByDrawId = byDrawId
+    nodesByViewId = byViewId
+  }
+
+  private fun invalidateIndices() {
+    nodesByDrawId = null
+    nodesByViewId = null
+  }
 
   /**
    * Update [root]'s bounds and children based on any updates to [roots]
@@ -144,14 +179,33 @@ class InspectorModel(val project: Project) {
     }
 
     updateRoot(allIds)
+    if (structuralChange) {
+      // Existing nodes keep their ids when updated, so the indices only change when nodes are added, removed or moved.
+      invalidateIndices()
+    }
     hasSubImages = root.children.any { findSubimages(it) }
     modificationListeners.forEach { it(oldRoot, roots[id], structuralChange) }
   }
 
   fun notifyModified() = modificationListeners.forEach { it(root, root, false) }
 
+  /**
+   * Removes all windows without notifying the listeners, for example to release memory. The next update adds its window again.
+   */
+  fun clear() {
+    roots.clear()
+    root.children.clear()
+    invalidateIndices()
+  }
+
+  /**
+   * Updates the tree of [oldRoot] to match [newRoot], keeping the existing nodes. Subtrees whose children have the same ids are updated
+   * in place, and the nodes of the old tree are only looked up by drawId when the children of a node have changed.
+   */
   private class Updater(private val oldRoot: ViewNode, private val newRoot: ViewNode) {
-    private val oldNodes = oldRoot.flatten().asSequence().filter{ it.drawId != 0L }.associateBy { it.drawId }
+    private val oldNodes by lazy(LazyThreadSafetyMode.NONE) {
+      oldRoot.flatten().asSequence().filter{ it.drawId != 0L }.associateBy { it.drawId }
+    }
 
     fun update(): Boolean {
       return update(oldRoot, oldRoot.parent, newRoot)
@@ -178,9 +232,18 @@ class InspectorModel(val project: Project) {
         oldNode.composeLineNumber = newNode.composeLineNumber
       }
 
+      if (!modified && canUpdateChildrenInPlace(oldNode, newNode)) {
+        for (i in newNode.children.indices) {
+          modified = update(oldNode.children[i], oldNode, newNode.children[i]) || modified
+        }
+        return modified
+      }
+
+      // The old nodes must be looked up before any children of the old tree are removed.
+      val nodes = oldNodes
       oldNode.children.clear()
       for (newChild in newNode.children) {
-        val oldChild = oldNodes[newChild.drawId]
+        val oldChild = nodes[newChild.drawId]
         if (oldChild != null && oldChild.javaClass == newChild.javaClass) {
           modified = update(oldChild, oldNode, newChild) || modified
           oldNode.children.add(oldChild)
@@ -193,6 +256,16 @@ class InspectorModel(val project: Project) {
       return modified
     }
 
+    /**
+     * Whether the children of [oldNode] can be updated from the children of [newNode] at the same position, given that they have the
+     * same drawIds. Children without a drawId and children of a different class are replaced instead.
+     */
+    private fun canUpdateChildrenInPlace(oldNode: ViewNode, newNode: ViewNode): Boolean =
+      oldNode.children.indices.all {
+        val oldChild = oldNode.children[it]
+        oldChild.drawId != 0L && oldChild.javaClass == newNode.children[it].javaClass
+      }
+
     private fun sameChildren(oldNode: ViewNode?, newNode: ViewNode?): Boolean {
       if (oldNode?.children?.size != newNode?.children?.size) {
         return false
@@ -22,6 +22,7 @@ import com.android.tools.analytics.UsageTracker
 import com.android.tools.idea.adb.AdbService
 import com.android.tools.idea.flags.StudioFlags
 import com.android.tools.idea.layoutinspector.LayoutInspectorPreferredProcess
+import com.android.tools.idea.layoutinspector.SkiaImageCache
 import com.android.tools.idea.layoutinspector.SkiaParser
 import com.android.tools.idea.layoutinspector.isDeviceMatch
 import com.android.tools.idea.layoutinspector.model.ComponentTreeLoader
@@ -133,12 +134,18 @@ class DefaultInspectorClient(
 
   override val treeLoader = ComponentTreeLoader
 
+  /**
+   * The images of the last picture received from the inspected process, reused for the views that are unchanged in the next one.
+   */
+  val skiaImageCache = SkiaImageCache()
+
   private val SELECTION_LOCK = Any()
 
   @Suppress("unused") // Need to keep a reference to receive notifications
   private val lowMemoryWatcher = LowMemoryWatcher.register(
     {
-      model.root.children.clear()
+      model.clear()
+      skiaImageCache.clear()
       requestScreenshotMode()
       InspectorBannerService.getInstance(project).setNotification("Low Memory. Rotation disabled.")
     }, LowMemoryWatcher.LowMemoryWatcherType.ONLY_AFTER_GC)
@@ -440,6 +447,7 @@ class DefaultInspectorClient(
       processChangedListeners.forEach { it() }
       SkiaParser.shutdownAll()
     }
+    skiaImageCache.clear()
   }
 
   private fun setDebugViewAttributes(stream: Common.Stream, enable: Boolean) {
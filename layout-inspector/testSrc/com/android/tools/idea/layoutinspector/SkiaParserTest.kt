@@ -17,6 +17,7 @@ package com.android.tools.idea.layoutinspector
 
 import com.android.repository.testframework.MockFileOp
 import com.android.tools.idea.FakeSdkRule
+import com.android.tools.idea.protobuf.ByteString
 import com.android.tools.idea.testing.AndroidProjectRule
 import com.google.common.truth.Truth.assertThat
 import junit.framework.Assert.assertEquals
@@ -24,9 +25,12 @@ import junit.framework.Assert.fail
 import org.junit.Rule
 import org.junit.Test
 import org.junit.rules.RuleChain
+import java.awt.image.BufferedImage
 import java.io.File
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import com.android.tools.idea.layoutinspector.proto.SkiaParser as SkiaParserProto
 
-// TODO(152816022): testBuildTree
 class SkiaParserTest {
 
   @Test
@@ -38,11 +42,67 @@ class SkiaParserTest {
   @Test
   fun testInvalidSkp() {
     try {
-      SkiaParser.getViewTree("foobarbaz".toByteArray())
+      SkiaParser.getViewTree("foobarbaz".toByteArray(), SkiaImageCache())
       fail()
     }
     catch (expected: InvalidPictureException) {}
   }
+
+  @Test
+  fun testUnchangedImagesReused() {
+    val imageCache = SkiaImageCache()
+    val first = SkiaParser.buildTree(createResponse(0xff0000ff.toInt()), imageCache)!!
+    val second = SkiaParser.buildTree(createResponse(0xff00ff00.toInt()), imageCache)!!
+
+    assertThat(second.image).isSameAs(first.image)
+    assertThat(second.children["unchanged"]!!.image).isSameAs(first.children["unchanged"]!!.image)
+    val changed = second.children["changed"]!!.image as BufferedImage
+    assertThat(changed).isNotSameAs(first.children["changed"]!!.image)
+    assertThat(changed.getRGB(0, 0)).isEqualTo(0xff00ff00.toInt())
+    assertThat((first.children["changed"]!!.image as BufferedImage).getRGB(0, 0)).isEqualTo(0xff0000ff.toInt())
+  }
+
+  @Test
+  fun testImagesNotReusedAfterCacheCleared() {
+    val imageCache = SkiaImageCache()
+    val first = SkiaParser.buildTree(createResponse(0xff0000ff.toInt()), imageCache)!!
+    imageCache.clear()
+    val second = SkiaParser.buildTree(createResponse(0xff0000ff.toInt()), imageCache)!!
+
+    assertThat(second.image).isNotSameAs(first.image)
+    assertThat(second.children["unchanged"]!!.image).isNotSameAs(first.children["unchanged"]!!.image)
+  }
+
+  @Test
+  fun testImagesNotSharedBetweenCaches() {
+    val imageCache1 = SkiaImageCache()
+    val imageCache2 = SkiaImageCache()
+    val first1 = SkiaParser.buildTree(createResponse(0xff0000ff.toInt()), imageCache1)!!
+    val first2 = SkiaParser.buildTree(createResponse(0xff00ff00.toInt()), imageCache2)!!
+    val second1 = SkiaParser.buildTree(createResponse(0xff0000ff.toInt()), imageCache1)!!
+
+    // Parsing a picture for another client doesn't replace the images kept for the first one.
+    assertThat(second1.children["changed"]!!.image).isSameAs(first1.children["changed"]!!.image)
+    assertThat(second1.children["unchanged"]!!.image).isNotSameAs(first2.children["unchanged"]!!.image)
+  }
+
+  private fun createResponse(changedColor: Int): SkiaParserProto.InspectorView {
+    return createView("root", 2, 2, 0xffff0000.toInt())
+      .addChildren(createView("unchanged", 1, 2, 0xff808080.toInt()))
+      .addChildren(createView("changed", 2, 1, changedColor))
+      .build()
+  }
+
+  private fun createView(id: String, width: Int, height: Int, color: Int): SkiaParserProto.InspectorView.Builder {
+    val pixels = ByteBuffer.allocate(width * height * 4).order(ByteOrder.LITTLE_ENDIAN)
+    repeat(width * height) { pixels.putInt(color) }
+    return SkiaParserProto.InspectorView.newBuilder()
+      .setId(id)
+      .setType("LinearLayout")
+      .setWidth(width)
+      .setHeight(height)
+      .setImage(ByteString.copyFrom(pixels.array()))
+  }
 }
 
 // TODO: test with downloading (currently no way to mock out installation)
@@ -131,7 +131,7 @@ class ComponentTreeLoaderTest {
     val payload = "samplepicture".toByteArray()
     `when`(client.getPayload(111)).thenReturn(payload)
     val skiaParser = mock(SkiaParserService::class.java)!!
-    `when`(skiaParser.getViewTree(eq(payload), any())).thenReturn(skiaResponse)
+    `when`(skiaParser.getViewTree(eq(payload), any(), any())).thenReturn(skiaResponse)
 
     val tree = ComponentTreeLoader.loadComponentTree(event, ResourceLookup(projectRule.project), client, skiaParser, projectRule.project)!!
     assertThat(tree.drawId).isEqualTo(1)
@@ -203,7 +203,7 @@ class ComponentTreeLoaderTest {
     `when`(client.getPayload(111)).thenReturn(payload)
 
     val skiaParser = mock(SkiaParserService::class.java)!!
-    `when`(skiaParser.getViewTree(eq(payload), any())).thenAnswer { throw UnsupportedPictureVersionException(123) }
+    `when`(skiaParser.getViewTree(eq(payload), any(), any())).thenAnswer { throw UnsupportedPictureVersionException(123) }
 
     ComponentTreeLoader.loadComponentTree(event, ResourceLookup(projectRule.project), client, skiaParser, projectRule.project)
     verify(client).requestScreenshotMode()
@@ -220,7 +220,7 @@ class ComponentTreeLoaderTest {
     `when`(client.getPayload(111)).thenReturn(payload)
 
     val skiaParser = mock(SkiaParserService::class.java)!!
-    `when`(skiaParser.getViewTree(eq(payload), any())).thenReturn(null)
+    `when`(skiaParser.getViewTree(eq(payload), any(), any())).thenReturn(null)
 
     ComponentTreeLoader.loadComponentTree(event, ResourceLookup(projectRule.project), client, skiaParser, projectRule.project)
     verify(client).requestScreenshotMode()
@@ -237,7 +237,7 @@ class ComponentTreeLoaderTest {
     `when`(client.getPayload(111)).thenReturn(payload)
 
     val skiaParser = mock(SkiaParserService::class.java)
-    `when`(skiaParser.getViewTree(eq(payload), any())).thenAnswer { throw Exception() }
+    `when`(skiaParser.getViewTree(eq(payload), any(), any())).thenAnswer { throw Exception() }
 
     ComponentTreeLoader.loadComponentTree(event, ResourceLookup(projectRule.project), client, skiaParser, projectRule.project)
     verify(client).requestScreenshotMode()
@@ -15,6 +15,9 @@
  */
 package com.android.tools.idea.layoutinspector.model
 
+import com.android.ide.common.rendering.api.ResourceNamespace
+import com.android.ide.common.rendering.api.ResourceReference
+import com.android.resources.ResourceType
 import com.android.tools.idea.layoutinspector.model
 import com.android.tools.idea.layoutinspector.view
 import com.intellij.openapi.project.Project
@@ -206,4 +209,35 @@ class InspectorModelTest {
     assertEmpty(model.root.children)
     assertTrue(model.isEmpty)
   }
-}
\ No newline at end of file
+
+  @Test
+  fun testLookupAfterUpdates() {
+    val title = ResourceReference(ResourceNamespace.fromPackageName("com.example"), ResourceType.ID, "title")
+    val model = model {
+      view(ROOT, 1, 2, 3, 4, "rootType") {
+        view(VIEW1, 4, 3, 2, 1, "v1Type", title)
+      }
+    }
+    assertEquals(VIEW1, model["title"]?.drawId)
+    assertNull(model[VIEW2])
+
+    // properties only
+    model.update(view(ROOT, 1, 2, 3, 4, "rootType") { view(VIEW1, 5, 6, 7, 8, "v1Type", title) }, ROOT, listOf(ROOT))
+    assertSame(model[VIEW1], model["title"])
+    assertEquals(5, model["title"]?.x)
+
+    // the view with the id is replaced
+    model.update(view(ROOT, 1, 2, 3, 4, "rootType") { view(VIEW2, 5, 6, 7, 8, "v2Type", title) }, ROOT, listOf(ROOT))
+    assertNull(model[VIEW1])
+    assertSame(model[VIEW2], model["title"])
+
+    model.clear()
+    assertTrue(model.isEmpty)
+    assertNull(model[ROOT])
+    assertNull(model["title"])
+
+    model.update(view(ROOT, 1, 2, 3, 4, "rootType") { view(VIEW1, 4, 3, 2, 1, "v1Type", title) }, ROOT, listOf(ROOT))
+    assertEquals(listOf(ROOT), model.root.children.map { it.drawId })
+    assertSame(model[VIEW1], model["title"])
+  }
+}
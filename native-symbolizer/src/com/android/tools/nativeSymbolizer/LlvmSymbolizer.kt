@@ -18,6 +18,11 @@ package com.android.tools.nativeSymbolizer
 import com.intellij.openapi.Disposable
 import java.io.*
 import java.util.concurrent.*
+import java.util.concurrent.atomic.AtomicInteger
+
+private val MAX_PROCESSES = Runtime.getRuntime().availableProcessors().coerceIn(1, 4)
+private const val MAX_CACHED_SYMBOLS = 100_000
+private val NO_SYMBOL = Symbol("", "")
 
 /**
  * Implementation of NativeSymbolizer that uses llvm-symbolizer.
@@ -39,15 +44,87 @@ class LlvmSymbolizer(private val symbolizerExe: String,
                      private val symLocator: SymbolFilesLocator,
                      private val timeoutMsc: Long = 5000) : NativeSymbolizer {
 
-  private var procHolder : ProcessHolder? = null
-  private val executor : ExecutorService = Executors.newSingleThreadExecutor()
+  // Processes that are not handling a request. Concurrent requests are handled by up to MAX_PROCESSES processes.
+  private val idleProcesses = ConcurrentLinkedDeque<ProcessHolder>()
+  // All running processes, idle or not, so that stop() can destroy them all.
+  private val processes: MutableSet<ProcessHolder> = ConcurrentHashMap.newKeySet()
+  private val processPermits = Semaphore(MAX_PROCESSES)
+  private val executor : ExecutorService = Executors.newCachedThreadPool()
+
+  // Symbols by symbol file and offset, or NO_SYMBOL, kept across captures. The same frames show up in many call stacks.
+  private val symbolCache = object : LinkedHashMap<SymbolKey, Symbol>(16, 0.75f, true) {
+    override fun removeEldestEntry(eldest: MutableMap.MutableEntry<SymbolKey, Symbol>?) = size > MAX_CACHED_SYMBOLS
+  }
 
-  override fun symbolize(abiArch: String, module: String, offset: Long): Symbol? {
-    val symFiles = symLocator.findSymbolFiles(abiArch, module)
+  override fun symbolize(abiArch: String, module: String, offset: Long): Symbol? =
+    symbolize(module, offset, symLocator.findSymbolFiles(abiArch, module))
 
+  private fun symbolize(module: String, offset: Long, symFiles: List<File>): Symbol? {
     for (symFile in symFiles) {
-      val request = formatRequest(symFile, offset)
+      val key = SymbolKey(symFile, symFile.lastModified(), offset)
+      val result = synchronized(symbolCache) { symbolCache[key] } ?: symbolize(key)
+      if (result != null && result !== NO_SYMBOL)
+        return result.copy(module = module)
+    }
+
+    return null
+  }
+
+  /**
+   * Symbolizes [moduleOffsets] on up to MAX_PROCESSES llvm-symbolizer processes at the same time. Call stacks share most of their
+   * frames, so each distinct frame is symbolized once, and by a single process, and its symbol is then returned for all of its
+   * occurrences. The symbol files of each module are looked up once per batch.
+   */
+  @Throws(IOException::class)
+  override fun symbolize(abiArch: String, moduleOffsets: List<ModuleOffset>): List<Symbol?> {
+    val uniqueOffsets = moduleOffsets.distinct()
+    val symFilesByModule = ConcurrentHashMap<String, List<File>>()
+    val results = arrayOfNulls<Symbol>(uniqueOffsets.size)
+    val nextIndex = AtomicInteger()
+    val workers = (0 until minOf(MAX_PROCESSES, uniqueOffsets.size)).map {
+      executor.submit(Runnable {
+        while (true) {
+          val index = nextIndex.getAndIncrement()
+          if (index >= uniqueOffsets.size) {
+            break
+          }
+          val (module, offset) = uniqueOffsets[index]
+          try {
+            val symFiles = symFilesByModule.computeIfAbsent(module) { symLocator.findSymbolFiles(abiArch, it) }
+            results[index] = symbolize(module, offset, symFiles)
+          }
+          catch (e: IOException) {
+            getLogger().warn(e)
+          }
+          catch (e: RuntimeException) {
+            getLogger().warn(e)
+          }
+        }
+      })
+    }
+    for (worker in workers) {
+      try {
+        worker.get()
+      }
+      catch (e: ExecutionException) {
+        // The workers handle the failures of single requests, so only errors get here.
+        throw e.cause ?: e
+      }
+    }
+    val resultsByOffset = HashMap<ModuleOffset, Symbol?>(uniqueOffsets.size * 2)
+    uniqueOffsets.forEachIndexed { index, moduleOffset -> resultsByOffset[moduleOffset] = results[index] }
+    return moduleOffsets.map { resultsByOffset[it] }
+  }
 
+  /**
+   * Asks llvm-symbolizer for the symbol at the offset of [key] and caches the result, which is [NO_SYMBOL] if there is no symbol.
+   * Returns null without caching anything if llvm-symbolizer failed to respond.
+   */
+  private fun symbolize(key: SymbolKey): Symbol? {
+    val request = formatRequest(key.symFile, key.offset)
+
+    processPermits.acquire()
+    try {
       val holder = getProcHolder()
       val future = executor.submit( Callable<List<String>> {
         holder.stdin.write(request)
@@ -69,29 +146,34 @@ class LlvmSymbolizer(private val symbolizerExe: String,
         response = future.get(timeoutMsc, TimeUnit.MILLISECONDS)
       } catch (e: TimeoutException) {
         getLogger().warn("llvm-symbolizer timed out", e)
-        stop()
-        continue
+        dispose(holder)
+        return null
       } catch (e: ExecutionException) {
         getLogger().warn("llvm-symbolizer communication failed", e)
-        stop()
-        continue
+        dispose(holder)
+        return null
       }
+      idleProcesses.addFirst(holder)
 
-      val result = parseResponse(response, module)
-      if (result != null)
-        return result
+      val result = parseResponse(response, "") ?: NO_SYMBOL
+      synchronized(symbolCache) {
+        symbolCache[key] = result
+      }
+      return result
+    }
+    finally {
+      processPermits.release()
     }
-
-    return null
   }
 
   private fun getProcHolder() : ProcessHolder {
-    var holder = procHolder
-    if (holder == null || !holder.process.isAlive) {
-      start()
-      holder = procHolder!! // procHolder must't be null after start()
+    while (true) {
+      val holder = idleProcesses.pollFirst() ?: return start()
+      if (holder.process.isAlive) {
+        return holder
+      }
+      dispose(holder)
     }
-    return holder
   }
 
   private fun formatRequest(symFile: File, offset: Long): String {
@@ -126,10 +208,7 @@ class LlvmSymbolizer(private val symbolizerExe: String,
     return Symbol(name, module, sourceFile, lineNumber)
   }
 
-  private fun start() {
-    if (procHolder != null)
-      stop()
-
+  private fun start() : ProcessHolder {
     val builder = ProcessBuilder(symbolizerExe)
     val process = builder.start()
     if (!process.isAlive) {
@@ -138,14 +217,24 @@ class LlvmSymbolizer(private val symbolizerExe: String,
 
     val stdin = OutputStreamWriter(process.outputStream, Charsets.UTF_8)
     val stdout = BufferedReader(InputStreamReader(process.inputStream, Charsets.UTF_8))
-    procHolder = ProcessHolder(process, stdout, stdin)
+    val holder = ProcessHolder(process, stdout, stdin)
+    processes.add(holder)
+    return holder
+  }
+
+  private fun dispose(holder: ProcessHolder) {
+    processes.remove(holder)
+    holder.dispose()
   }
 
   override fun stop() {
-    procHolder?.dispose()
-    procHolder = null
+    idleProcesses.clear()
+    // Processes handling a request are destroyed too, which makes their pending reads fail.
+    processes.forEach { dispose(it) }
   }
 
+  private data class SymbolKey(val symFile: File, val lastModified: Long, val offset: Long)
+
   private class ProcessHolder(val process: Process,
                               val stdout: BufferedReader,
                               val stdin: OutputStreamWriter) : Disposable {
@@ -25,6 +25,8 @@ import java.nio.file.Paths
 
 data class Symbol(val name: String, val module: String, val sourceFile: String = "", val lineNumber: Int = 0)
 
+data class ModuleOffset(val module: String, val offset: Long)
+
 /**
  * Components that can fetch information about native symbols by a module and an offset.
  */
@@ -39,6 +41,15 @@ interface NativeSymbolizer {
    */
   @Throws(IOException::class)
   fun symbolize(abiArch: String, module: String, offset: Long): Symbol?
+
+  /**
+   * Obtains information about the functions located at the given offsets in the given modules. The symbols may be looked up concurrently.
+   * @param abiArch - CPU architecture of the given modules
+   * @param moduleOffsets - paths to native modules and offsets in them that need to be symbolized
+   * @return symbols info for each of the moduleOffsets in the same order, null for the ones that can't be found or failed to symbolize
+   */
+  @Throws(IOException::class)
+  fun symbolize(abiArch: String, moduleOffsets: List<ModuleOffset>): List<Symbol?>
   fun stop()
 }
 
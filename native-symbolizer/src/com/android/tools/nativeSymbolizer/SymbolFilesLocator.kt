@@ -26,19 +26,30 @@ import com.intellij.openapi.module.ModuleManager
 import com.intellij.openapi.project.Project
 import java.io.File
 import java.util.*
+import java.util.concurrent.ConcurrentHashMap
 
 /**
  * Given a map of possible symbols locations finds symbol files
  * for a (device module + CPU arch) pairs.
  */
 class SymbolFilesLocator(private val cpuToSymbolDirs: Map<String, Set<File>>) {
+  private val cache = ConcurrentHashMap<Pair<String, String>, CachedSymbolFiles>()
 
   fun findSymbolFiles(cpuArch: String, module: String): List<File> {
-    // TODO (ezemetsov): Add a cache
     // Just look in all dirs from the map and find files with the same
     // basename as a given device module.
     val symDirs = cpuToSymbolDirs.getOrDefault(cpuArch, setOf<File>()).toList()
     val baseModuleName = File(File(module).name).nameWithoutExtension
+
+    // Symbols are requested for every frame of a capture, so the files found are reused until a file is added to
+    // or removed from one of the dirs, which changes the modification time of the dir.
+    val key = Pair(cpuArch, baseModuleName)
+    val dirTimestamps = symDirs.map { it.lastModified() }
+    val cached = cache[key]
+    if (cached != null && cached.dirTimestamps == dirTimestamps) {
+      return cached.files
+    }
+
     val symNameCandidates = arrayListOf(baseModuleName + ".so", baseModuleName + ".dwo")
     val result = mutableListOf<File>()
     for (dir in symDirs) {
@@ -48,8 +59,11 @@ class SymbolFilesLocator(private val cpuToSymbolDirs: Map<String, Set<File>>) {
         result.addAll(files)
       }
     }
+    cache[key] = CachedSymbolFiles(dirTimestamps, result)
     return result
   }
+
+  private class CachedSymbolFiles(val dirTimestamps: List<Long>, val files: List<File>)
 }
 
 /**
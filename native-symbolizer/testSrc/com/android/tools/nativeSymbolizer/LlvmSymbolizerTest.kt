@@ -24,6 +24,9 @@ import org.junit.Test
 import java.io.File
 import java.io.IOException
 import java.nio.file.Paths
+import java.util.concurrent.Callable
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
 
 
 class LlvmSymbolizerTest {
@@ -117,6 +120,80 @@ class LlvmSymbolizerTest {
     }
   }
 
+  @Test
+  fun testSymbolizeBatch() {
+    val symbolizer = createSymbolizer()
+    try {
+      for (arch in architectures) {
+        val expectedSymbolsFile = Paths.get(testDataDir, arch, EXPECTED_SYMBOLS_FILE_NAME).toFile()
+        val expectedNames = expectedSymbolsFile.readLines().map { line ->
+          val symParts = line.split('|')
+          Pair(symParts[0].toLong(16) + 1, symParts[1])
+        }
+        val module = "/data/app/com.someapp.name-abcd09876abds==/lib/$arch/" + LIB_FILE_NAME
+        // Unknown modules are resolved to null without failing the other requests.
+        val moduleOffsets = expectedNames.map { (offset, _) -> ModuleOffset(module, offset) } + ModuleOffset("libunknown.so", 1)
+        val symbols = symbolizer.symbolize(arch, moduleOffsets)
+        Assert.assertEquals(moduleOffsets.size, symbols.size)
+        Assert.assertEquals(expectedNames.map { it.second }, symbols.dropLast(1).map { it!!.name })
+        Assert.assertNull(symbols.last())
+      }
+    }
+    finally {
+      symbolizer.stop()
+    }
+  }
+
+  @Test
+  fun testSymbolizeBatchWithRepeatedFrames() {
+    val symbolizer = createSymbolizer()
+    try {
+      for (arch in architectures) {
+        val module = "/data/app/com.someapp.name-abcd09876abds==/lib/$arch/" + LIB_FILE_NAME
+        val offsets = Paths.get(testDataDir, arch, EXPECTED_SYMBOLS_FILE_NAME).toFile().readLines().map { it.split('|')[0].toLong(16) + 1 }
+        val moduleOffsets = offsets.map { ModuleOffset(module, it) }
+        // Each frame is symbolized once and its symbol is returned for all of its occurrences.
+        val repeatedOffsets = moduleOffsets + moduleOffsets.reversed() + moduleOffsets
+        val expected = offsets.map { symbolizer.symbolize(arch, module, it) }
+        Assert.assertEquals(expected + expected.reversed() + expected, symbolizer.symbolize(arch, repeatedOffsets))
+      }
+    }
+    finally {
+      symbolizer.stop()
+    }
+  }
+
+  @Test
+  fun testSymbolizeConcurrently() {
+    val symbolizer = createSymbolizer()
+    val executor = Executors.newFixedThreadPool(8)
+    try {
+      for (arch in architectures) {
+        val expectedSymbolsFile = Paths.get(testDataDir, arch, EXPECTED_SYMBOLS_FILE_NAME).toFile()
+        val expectedNames = expectedSymbolsFile.readLines().map { line ->
+          val symParts = line.split('|')
+          Pair(symParts[0].toLong(16) + 1, symParts[1])
+        }
+        // Each offset is requested several times, by different threads and for different device paths of the module.
+        val futures = (1..4).flatMap { copy ->
+          expectedNames.map { (offset, name) ->
+            val module = "/data/app/com.someapp.name-$copy/lib/$arch/" + LIB_FILE_NAME
+            executor.submit(Callable {
+              val symbol = symbolizer.symbolize(arch, module, offset)!!
+              Assert.assertEquals(name, symbol.name)
+              Assert.assertEquals(module, symbol.module)
+            })
+          }
+        }
+        futures.forEach { it.get(1, TimeUnit.MINUTES) }
+      }
+    }
+    finally {
+      executor.shutdownNow()
+      symbolizer.stop()
+    }
+  }
+
   @Test
   fun testExeRestart() {
     val symbolizer = createSymbolizer()
@@ -41,24 +41,18 @@ class HeapProfdConverter(private val abi: String,
   }
 
   /**
-   * Given a {@link Memory.StackFrame} from the trace processor we attempt to gather symbolized data. If we cannot get symbolized data
-   * we return a frame with the original name if one was provided. If no name was found then we return {@link UNKNOWN_FRAME}
+   * Given a {@link Memory.StackFrame} from the trace processor and the result of symbolizing it, we attempt to gather symbolized data.
+   * If we cannot get symbolized data we return a frame with the original name if one was provided. If no name was found then we return
+   * {@link UNKNOWN_FRAME}
    * When we have a symbolized frame we return a frame with a method name in the form of
    * Symbol (File:Line) eg.. operator new (new.cpp:256)
    * The file name and line number are also populated if available.
    */
-  private fun toBestAvailableStackFrame(rawFrame: StackFrame): StackFrameInfo {
-    val module = String(Base64.decode(rawFrame.module))
-    val symbolizedFrame = symbolizer.symbolize(abi, Memory.NativeCallStack.NativeFrame.newBuilder()
-      .setModuleName(module)
-      // +1 because the common symbolizer does -1 accounting for an offset heapprofd does not have.
-      // see IntellijNativeFrameSymbolizer:getOffsetOfPreviousInstruction
-      .setModuleOffset(rawFrame.relPc + 1)
-      .build())
+  private fun toBestAvailableStackFrame(rawFrame: StackFrame, symbolizedFrame: Memory.NativeCallStack.NativeFrame): StackFrameInfo {
     val symbolName = symbolizedFrame.symbolName
     if (symbolName.startsWith("0x")) {
       val methodName = if (rawFrame.name.isNullOrBlank()) UNKNOWN_FRAME.methodName else String(Base64.decode(rawFrame.name))
-      return StackFrameInfo(name = methodName, moduleName = module)
+      return StackFrameInfo(name = methodName, moduleName = String(Base64.decode(rawFrame.module)))
     }
     val file = File(symbolizedFrame.fileName).name
     val formattedName = "${symbolName} (${file}:${symbolizedFrame.lineNumber})"
@@ -68,6 +62,15 @@ class HeapProfdConverter(private val abi: String,
                           moduleName = symbolizedFrame.moduleName)
   }
 
+  private fun toNativeFrame(rawFrame: StackFrame): Memory.NativeCallStack.NativeFrame {
+    return Memory.NativeCallStack.NativeFrame.newBuilder()
+      .setModuleName(String(Base64.decode(rawFrame.module)))
+      // +1 because the common symbolizer does -1 accounting for an offset heapprofd does not have.
+      // see IntellijNativeFrameSymbolizer:getOffsetOfPreviousInstruction
+      .setModuleOffset(rawFrame.relPc + 1)
+      .build()
+  }
+
   /**
    * Given a context all values will be enumerated and added to the {@link NativeMemoryHeapSet}. If the context has an allocation with
    * a count > 0 it will be added as an allocation. If the count is <= 0 it will be added as a free.
@@ -77,8 +80,11 @@ class HeapProfdConverter(private val abi: String,
     val frames: MutableMap<Long, Memory.AllocationStack.StackFrame> = HashMap()
     val classDb = ClassDb()
 
-    context.framesList.forEach {
-      frameIdToFrame[it.id] = toBestAvailableStackFrame(it)
+    // Symbolize all frames at once, so that the symbolizer can look them up concurrently.
+    val rawFrames = context.framesList
+    val symbolizedFrames = symbolizer.symbolizeAll(abi, rawFrames.map { toNativeFrame(it) })
+    rawFrames.forEachIndexed { index, rawFrame ->
+      frameIdToFrame[rawFrame.id] = toBestAvailableStackFrame(rawFrame, symbolizedFrames[index])
     }
     // Demangle in place is significantly faster than passing in names 1 by 1
     demangler.demangleInplace(frameIdToFrame.values)
@@ -15,13 +15,19 @@
  */
 package com.android.tools.idea.profilers.stacktrace;
 
+import com.android.tools.nativeSymbolizer.ModuleOffset;
 import com.android.tools.nativeSymbolizer.NativeSymbolizer;
 import com.android.tools.nativeSymbolizer.Symbol;
 import com.android.tools.profiler.proto.Memory.NativeCallStack;
 import com.android.tools.profilers.stacktrace.NativeFrameSymbolizer;
 import com.intellij.openapi.diagnostic.Logger;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * Wrapper for {@link NativeSymbolizer} to return a NativeCallStack.NativeFrame instead of the Symbol class which profilers don't have a
@@ -52,7 +58,35 @@ public class IntelliJNativeFrameSymbolizer implements NativeFrameSymbolizer {
     catch (IOException | RuntimeException e) {
       getLogger().warn(e);
     }
+    return toSymbolizedFrame(unsymbolizedFrame, instructionOffset, symbol);
+  }
 
+  @NotNull
+  @Override
+  public List<NativeCallStack.NativeFrame> symbolizeAll(String abi, @NotNull List<NativeCallStack.NativeFrame> unsymbolizedFrames) {
+    List<ModuleOffset> moduleOffsets = unsymbolizedFrames.stream()
+      .map(frame -> new ModuleOffset(frame.getModuleName(), getOffsetOfPreviousInstruction(frame.getModuleOffset())))
+      .collect(Collectors.toList());
+    List<Symbol> symbols;
+    try {
+      symbols = mySymbolizer.symbolize(abi, moduleOffsets);
+    }
+    catch (IOException | RuntimeException e) {
+      getLogger().warn(e);
+      symbols = Collections.nCopies(moduleOffsets.size(), null);
+    }
+
+    List<NativeCallStack.NativeFrame> symbolizedFrames = new ArrayList<>(unsymbolizedFrames.size());
+    for (int i = 0; i < unsymbolizedFrames.size(); i++) {
+      symbolizedFrames.add(toSymbolizedFrame(unsymbolizedFrames.get(i), moduleOffsets.get(i).getOffset(), symbols.get(i)));
+    }
+    return symbolizedFrames;
+  }
+
+  @NotNull
+  private static NativeCallStack.NativeFrame toSymbolizedFrame(@NotNull NativeCallStack.NativeFrame unsymbolizedFrame,
+                                                               long instructionOffset,
+                                                               @Nullable Symbol symbol) {
     NativeCallStack.NativeFrame.Builder builder = unsymbolizedFrame.toBuilder();
     if (symbol == null) {
       String unfoundSymbolName = String.format("0x%x", instructionOffset);
@@ -18,9 +18,14 @@ package com.android.tools.idea.profilers.stacktrace;
 import static com.android.tools.idea.profilers.stacktrace.IntelliJNativeFrameSymbolizer.PREVIOUS_INSTRUCTION_OFFSET;
 import static com.google.common.truth.Truth.assertThat;
 
+import com.android.tools.nativeSymbolizer.ModuleOffset;
 import com.android.tools.nativeSymbolizer.NativeSymbolizer;
 import com.android.tools.nativeSymbolizer.Symbol;
 import com.android.tools.profiler.proto.Memory.NativeCallStack;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.junit.Test;
@@ -58,6 +63,38 @@ public class IntelliJNativeFrameSymbolizerTest {
     assertThat(symbolizedFrame2).isEqualTo(expectedSymbolizedFrame2);
   }
 
+  @Test
+  public void testSymbolizeAll() {
+    IntelliJNativeFrameSymbolizer frameSymbolizer = new IntelliJNativeFrameSymbolizer(new FakeNativeSymbolizer());
+    List<NativeCallStack.NativeFrame> frames = Arrays.asList(
+      NativeCallStack.NativeFrame.newBuilder().setModuleName("test1").setModuleOffset(100).build(),
+      NativeCallStack.NativeFrame.newBuilder().setModuleName("test2").setModuleOffset(200).build());
+
+    for (String abi : Arrays.asList("arm", "arm64")) {
+      List<NativeCallStack.NativeFrame> expectedFrames =
+        frames.stream().map(frame -> frameSymbolizer.symbolize(abi, frame)).collect(Collectors.toList());
+      assertThat(frameSymbolizer.symbolizeAll(abi, frames)).containsExactlyElementsIn(expectedFrames).inOrder();
+    }
+  }
+
+  @Test
+  public void testSymbolizeAllFailure() {
+    IntelliJNativeFrameSymbolizer frameSymbolizer = new IntelliJNativeFrameSymbolizer(new FakeNativeSymbolizer() {
+      @NotNull
+      @Override
+      public List<Symbol> symbolize(@NotNull String abiArch, @NotNull List<ModuleOffset> moduleOffsets) {
+        throw new IllegalStateException("Symbolizer stopped");
+      }
+    });
+    List<NativeCallStack.NativeFrame> frames =
+      Collections.singletonList(NativeCallStack.NativeFrame.newBuilder().setModuleName("test1").setModuleOffset(100).build());
+
+    // A failed batch leaves the frames unsymbolized instead of failing the caller.
+    List<NativeCallStack.NativeFrame> symbolizedFrames = frameSymbolizer.symbolizeAll("arm", frames);
+    assertThat(symbolizedFrames).hasSize(1);
+    assertThat(symbolizedFrames.get(0).getSymbolName()).isEqualTo(String.format("0x%x", 100 + PREVIOUS_INSTRUCTION_OFFSET));
+  }
+
   private static class FakeNativeSymbolizer implements NativeSymbolizer {
     @Nullable
     @Override
@@ -71,6 +108,13 @@ public class IntelliJNativeFrameSymbolizerTest {
       }
     }
 
+    @NotNull
+    @Override
+    public List<Symbol> symbolize(@NotNull String abiArch, @NotNull List<ModuleOffset> moduleOffsets) {
+      return moduleOffsets.stream().map(moduleOffset -> symbolize(abiArch, moduleOffset.getModule(), moduleOffset.getOffset()))
+        .collect(Collectors.toList());
+    }
+
     @Override
     public void stop() {
     }
@@ -15,6 +15,7 @@
  */
 package com.android.tools.profilers;
 
+import com.android.tools.adtui.UpdaterStatsOverlay;
 import com.android.tools.adtui.flat.FlatComboBox;
 import com.android.tools.adtui.flat.FlatSeparator;
 import com.android.tools.adtui.model.AspectObserver;
@@ -48,6 +49,7 @@ import com.google.common.collect.ImmutableMap;
 import com.intellij.icons.AllIcons;
 import com.intellij.openapi.Disposable;
 import com.intellij.openapi.ui.ThreeComponentsSplitter;
+import com.intellij.openapi.util.Disposer;
 import com.intellij.openapi.util.IconLoader;
 import com.intellij.openapi.util.SystemInfo;
 import com.intellij.openapi.wm.IdeGlassPane;
@@ -155,6 +157,11 @@ public class StudioProfilersView extends AspectObserver implements Disposable {
     mySplitter.setLastComponent(myStageComponent);
 
     myLayeredPane = new ProfilerLayeredPane(mySplitter);
+    if (myProfiler.getIdeServices().getFeatureConfig().isPerformanceMonitoringEnabled()) {
+      UpdaterStatsOverlay statsOverlay = new UpdaterStatsOverlay(myProfiler.getUpdater());
+      Disposer.register(this, statsOverlay);
+      myLayeredPane.add(statsOverlay, JLayeredPane.PALETTE_LAYER);
+    }
     initializeSessionUi();
     initializeStageUi();
 
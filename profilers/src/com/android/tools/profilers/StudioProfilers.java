@@ -190,6 +190,7 @@ public class StudioProfilers extends AspectModel<ProfilerAspect> implements Upda
 
   public StudioProfilers(@NotNull ProfilerClient client, @NotNull IdeProfilerServices ideServices) {
     this(client, ideServices, new FpsTimer(PROFILERS_UPDATE_RATE));
+    myUpdater.setFrameBudgetNs(TimeUnit.SECONDS.toNanos(1) / PROFILERS_UPDATE_RATE);
   }
 
   @VisibleForTesting
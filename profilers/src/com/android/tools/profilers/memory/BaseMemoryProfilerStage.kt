@@ -89,6 +89,14 @@ abstract class BaseMemoryProfilerStage(profilers: StudioProfilers, protected val
             val loadedCaptureObject = future.get()
             if (captureSelection.finishSelectingCaptureObject(loadedCaptureObject)) {
               captureSelection.selectHeapSet((loadedCaptureObject.heapSets).getDefault())
+              // Data computed in the background, e.g. retained sizes, is shown as soon as it is ready.
+              loadedCaptureObject.pendingUpdate?.addListener(Runnable {
+                if (captureSelection.selectedCapture === loadedCaptureObject) {
+                  captureSelection.refreshSelectedHeap()
+                  // The references of the selected instance are sorted by depth, so they are listed again.
+                  captureSelection.aspect.changed(CaptureSelectionAspect.CURRENT_INSTANCE)
+                }
+              }, joiner ?: MoreExecutors.directExecutor())
             }
             else {
               // Capture loading failed.
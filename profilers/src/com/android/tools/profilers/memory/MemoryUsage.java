@@ -15,6 +15,8 @@
  */
 package com.android.tools.profilers.memory;
 
+import com.android.tools.adtui.model.CachingLongDataSeries;
+import com.android.tools.adtui.model.DataSeries;
 import com.android.tools.adtui.model.LineChartModel;
 import com.android.tools.adtui.model.Range;
 import com.android.tools.adtui.model.RangedContinuousSeries;
@@ -55,7 +57,7 @@ public class MemoryUsage extends LineChartModel {
                                                             @NotNull Function<MemorySample, Long> getter) {
     MemoryServiceGrpc.MemoryServiceBlockingStub client = profilers.getClient().getMemoryClient();
     MemoryDataSeries series = new MemoryDataSeries(client, profilers.getSession(), getter);
-    return new RangedContinuousSeries(name, profilers.getTimeline().getViewRange(), range, series, profilers.getTimeline().getDataRange());
+    return createCachedRangedSeries(profilers, name, range, series);
   }
 
   protected RangedContinuousSeries createRangedSeries(@NotNull StudioProfilers profilers,
@@ -70,7 +72,21 @@ public class MemoryUsage extends LineChartModel {
                                                                        Common.Event.Kind.MEMORY_USAGE,
                                                                        groupId,
                                                                        dataExtractor);
-    return new RangedContinuousSeries(name, profilers.getTimeline().getViewRange(), range, series, profilers.getTimeline().getDataRange());
+    return createCachedRangedSeries(profilers, name, range, series);
+  }
+
+  /**
+   * Memory samples never change once they are in the data store, so the series only queries samples newer than the ones it
+   * already has and the line charts can downsample long sessions from the cached samples.
+   */
+  @NotNull
+  private static RangedContinuousSeries createCachedRangedSeries(@NotNull StudioProfilers profilers,
+                                                                 @NotNull String name,
+                                                                 @NotNull Range range,
+                                                                 @NotNull DataSeries<Long> series) {
+    Range dataRange = profilers.getTimeline().getDataRange();
+    return new RangedContinuousSeries(name, profilers.getTimeline().getViewRange(), range, new CachingLongDataSeries(series),
+                                      dataRange);
   }
 
   @NotNull
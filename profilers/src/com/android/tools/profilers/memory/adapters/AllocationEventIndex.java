@@ -0,0 +1,452 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.profilers.memory.adapters;
+
+import com.android.tools.profiler.proto.Memory;
+import com.android.tools.profiler.proto.Memory.AllocationEvent;
+import com.google.common.annotations.VisibleForTesting;
+import gnu.trove.TIntIntHashMap;
+import gnu.trove.TLongHashSet;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * In-memory index of the allocation and deallocation events of a live allocation capture. Events are added once, as their
+ * batches are fetched from the datastore, and are stored in time buckets of primitive arrays sorted by timestamp. Range
+ * queries then only visit the buckets overlapping the range, instead of fetching, parsing and sorting all the batches of
+ * the range again every time the selection changes.
+ * <p>
+ * Snapshot queries record the live allocations at periodic checkpoints, so later snapshots only replay the events since the
+ * nearest checkpoint instead of all the events since the start of the session. A checkpoint is only recorded if at least as
+ * many events have been replayed since the previous one as there are live allocations, so checkpoints never take more memory
+ * than the events they summarize. The number of events and of checkpointed allocations kept are both bounded: the oldest
+ * buckets and checkpoints are dropped first, and dropped events are fetched from the datastore again when a query needs them.
+ */
+final class AllocationEventIndex {
+  private static final long BUCKET_DURATION_NS = TimeUnit.SECONDS.toNanos(1);
+  private static final long CHECKPOINT_INTERVAL_NS = TimeUnit.SECONDS.toNanos(10);
+  // About 40 bytes per event.
+  private static final int DEFAULT_MAX_EVENT_COUNT = 1_000_000;
+  // About 40 bytes per live allocation.
+  private static final int DEFAULT_MAX_CHECKPOINT_ALLOCATION_COUNT = 1_000_000;
+
+  /** Receives the events visited by {@link #forEachEvent(long, long, EventConsumer)}. */
+  interface EventConsumer {
+    void onAllocation(long timestampNs, int tag, int classTag, int stackId, int threadId, long size, int heapId);
+
+    void onDeallocation(long timestampNs, int tag);
+  }
+
+  /** Fetches the batches of allocation events of a time range from the datastore. */
+  interface BatchLoader {
+    @NotNull
+    List<Memory.BatchAllocationEvents> getAllocationEvents(long startTimeNs, long endTimeNs);
+  }
+
+  @NotNull private final BatchLoader myLoader;
+  private final int myMaxEventCount;
+  private final int myMaxCheckpointAllocationCount;
+  @NotNull private final TreeMap<Long, Bucket> myBuckets = new TreeMap<>();
+  @NotNull private final TLongHashSet myBatchTimestamps = new TLongHashSet();
+  @NotNull private final TreeMap<Long, LiveSet> myCheckpoints = new TreeMap<>();
+  private int myEventCount;
+  private int myCheckpointAllocationCount;
+  // All the events before this time have been added.
+  private long myCompleteBeforeNs = Long.MIN_VALUE;
+  // The events before this time have been dropped from the buckets.
+  private long myDroppedBeforeNs = Long.MIN_VALUE;
+
+  AllocationEventIndex(@NotNull BatchLoader loader) {
+    this(loader, DEFAULT_MAX_EVENT_COUNT, DEFAULT_MAX_CHECKPOINT_ALLOCATION_COUNT);
+  }
+
+  @VisibleForTesting
+  AllocationEventIndex(@NotNull BatchLoader loader, int maxEventCount, int maxCheckpointAllocationCount) {
+    myLoader = loader;
+    myMaxEventCount = maxEventCount;
+    myMaxCheckpointAllocationCount = maxCheckpointAllocationCount;
+  }
+
+  /**
+   * Returns the time before which all the events have been added with {@link #addBatches(List, long)}.
+   */
+  long getCompleteBeforeNs() {
+    return myCompleteBeforeNs;
+  }
+
+  /**
+   * Adds the events of the given batches, which contain all the events before completeBeforeNs that have not been added yet.
+   * The oldest events are then dropped if the index holds too many of them.
+   */
+  void addBatches(@NotNull List<Memory.BatchAllocationEvents> batches, long completeBeforeNs) {
+    batches.forEach(this::addBatch);
+    myCompleteBeforeNs = Math.max(myCompleteBeforeNs, completeBeforeNs);
+    while (myEventCount > myMaxEventCount && !myBuckets.isEmpty()) {
+      Map.Entry<Long, Bucket> oldest = myBuckets.pollFirstEntry();
+      myEventCount -= oldest.getValue().mySize;
+      myDroppedBeforeNs = (oldest.getKey() + 1) * BUCKET_DURATION_NS;
+    }
+  }
+
+  /**
+   * Adds the allocation and deallocation events of a batch. Batches that have already been added are ignored, so batches
+   * fetched by overlapping queries can be passed again.
+   */
+  void addBatch(@NotNull Memory.BatchAllocationEvents batch) {
+    if (!myBatchTimestamps.add(batch.getTimestamp())) {
+      return;
+    }
+    for (AllocationEvent event : batch.getEventsList()) {
+      if (event.getTimestamp() < myDroppedBeforeNs) {
+        // Dropped events are fetched from the datastore again when needed.
+        continue;
+      }
+      switch (event.getEventCase()) {
+        case ALLOC_DATA:
+          AllocationEvent.Allocation allocation = event.getAllocData();
+          getBucket(event.getTimestamp()).add(event.getTimestamp(), true, allocation.getTag(), allocation.getClassTag(),
+                                              allocation.getStackId(), allocation.getThreadId(), allocation.getSize(),
+                                              allocation.getHeapId());
+          myEventCount++;
+          break;
+        case FREE_DATA:
+          getBucket(event.getTimestamp()).add(event.getTimestamp(), false, event.getFreeData().getTag(), 0, 0, 0, 0, 0);
+          myEventCount++;
+          break;
+        default:
+          // CLASS_DATA is handled via the allocation contexts.
+          break;
+      }
+    }
+  }
+
+  /**
+   * Passes the events with timestamps in [startTimeNs, endTimeNs) to the consumer, in timestamp order. Events with the same
+   * timestamp are passed in the order they were added.
+   */
+  void forEachEvent(long startTimeNs, long endTimeNs, @NotNull EventConsumer consumer) {
+    if (startTimeNs >= endTimeNs) {
+      return;
+    }
+    if (startTimeNs < myDroppedBeforeNs) {
+      // Dropped events are all before the ones still in the buckets, so they can be replayed first from a temporary index.
+      long droppedEndTimeNs = Math.min(endTimeNs, myDroppedBeforeNs);
+      AllocationEventIndex droppedEvents = new AllocationEventIndex(myLoader, Integer.MAX_VALUE, 0);
+      myLoader.getAllocationEvents(startTimeNs, droppedEndTimeNs).forEach(droppedEvents::addBatch);
+      droppedEvents.forEachEvent(startTimeNs, droppedEndTimeNs, consumer);
+      startTimeNs = droppedEndTimeNs;
+      if (startTimeNs >= endTimeNs) {
+        return;
+      }
+    }
+    long firstBucket = Math.floorDiv(startTimeNs, BUCKET_DURATION_NS);
+    long lastBucket = Math.floorDiv(endTimeNs - 1, BUCKET_DURATION_NS);
+    for (Bucket bucket : myBuckets.subMap(firstBucket, true, lastBucket, true).values()) {
+      bucket.forEachEvent(startTimeNs, endTimeNs, consumer);
+    }
+  }
+
+  /**
+   * Passes the allocations that are alive at snapshotTimeNs, i.e. allocated and not deallocated before it, to the consumer in
+   * the order they were allocated. The deallocations replayed to compute them are passed to the consumer first. Only the events
+   * since the nearest checkpoint before the snapshot time are replayed, and new checkpoints are recorded along the way.
+   */
+  void forEachLiveAllocation(long snapshotTimeNs, @NotNull EventConsumer consumer) {
+    Map.Entry<Long, LiveSet> checkpoint = myCheckpoints.floorEntry(snapshotTimeNs);
+    long replayStartNs = checkpoint == null ? Long.MIN_VALUE : checkpoint.getKey();
+    LiveSet liveSet = checkpoint == null ? new LiveSet(LiveSet.INITIAL_CAPACITY) : checkpoint.getValue().copy();
+    forEachEvent(replayStartNs, snapshotTimeNs, new EventConsumer() {
+      private long myLastCheckpointNs = replayStartNs;
+      private long myLastEventNs = Long.MIN_VALUE;
+      private int myEventsSinceCheckpoint;
+
+      @Override
+      public void onAllocation(long timestampNs, int tag, int classTag, int stackId, int threadId, long size, int heapId) {
+        beforeEvent(timestampNs);
+        liveSet.add(timestampNs, tag, classTag, stackId, threadId, size, heapId);
+      }
+
+      @Override
+      public void onDeallocation(long timestampNs, int tag) {
+        beforeEvent(timestampNs);
+        liveSet.remove(tag);
+        consumer.onDeallocation(timestampNs, tag);
+      }
+
+      /**
+       * Records a checkpoint at the last checkpoint time before the event if the events replayed so far are all before it.
+       */
+      private void beforeEvent(long timestampNs) {
+        long checkpointNs = Math.floorDiv(timestampNs, CHECKPOINT_INTERVAL_NS) * CHECKPOINT_INTERVAL_NS;
+        if (checkpointNs > myLastCheckpointNs && checkpointNs > myLastEventNs && checkpointNs <= myCompleteBeforeNs &&
+            myEventsSinceCheckpoint > 0 && myEventsSinceCheckpoint >= liveSet.getLiveCount()) {
+          addCheckpoint(checkpointNs, liveSet.copy());
+          myLastCheckpointNs = checkpointNs;
+          myEventsSinceCheckpoint = 0;
+        }
+        myLastEventNs = timestampNs;
+        myEventsSinceCheckpoint++;
+      }
+    });
+    liveSet.forEach(consumer);
+  }
+
+  int getEventCount() {
+    return myEventCount;
+  }
+
+  @VisibleForTesting
+  int getCheckpointCount() {
+    return myCheckpoints.size();
+  }
+
+  private void addCheckpoint(long timeNs, @NotNull LiveSet liveSet) {
+    myCheckpoints.put(timeNs, liveSet);
+    myCheckpointAllocationCount += liveSet.getLiveCount();
+    while (myCheckpointAllocationCount > myMaxCheckpointAllocationCount && !myCheckpoints.isEmpty()) {
+      myCheckpointAllocationCount -= myCheckpoints.pollFirstEntry().getValue().getLiveCount();
+    }
+  }
+
+  @NotNull
+  private Bucket getBucket(long timestampNs) {
+    return myBuckets.computeIfAbsent(Math.floorDiv(timestampNs, BUCKET_DURATION_NS), key -> new Bucket());
+  }
+
+  /**
+   * Events of one time bucket, stored column by column.
+   */
+  private static final class Bucket {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int mySize;
+    private long[] myTimestamps = new long[INITIAL_CAPACITY];
+    private boolean[] myIsAllocation = new boolean[INITIAL_CAPACITY];
+    private int[] myTags = new int[INITIAL_CAPACITY];
+    private int[] myClassTags = new int[INITIAL_CAPACITY];
+    private int[] myStackIds = new int[INITIAL_CAPACITY];
+    private int[] myThreadIds = new int[INITIAL_CAPACITY];
+    private long[] mySizes = new long[INITIAL_CAPACITY];
+    private int[] myHeapIds = new int[INITIAL_CAPACITY];
+
+    private void add(long timestampNs, boolean isAllocation, int tag, int classTag, int stackId, int threadId, long size, int heapId) {
+      if (mySize == myTimestamps.length) {
+        int capacity = mySize * 2;
+        myTimestamps = Arrays.copyOf(myTimestamps, capacity);
+        myIsAllocation = Arrays.copyOf(myIsAllocation, capacity);
+        myTags = Arrays.copyOf(myTags, capacity);
+        myClassTags = Arrays.copyOf(myClassTags, capacity);
+        myStackIds = Arrays.copyOf(myStackIds, capacity);
+        myThreadIds = Arrays.copyOf(myThreadIds, capacity);
+        mySizes = Arrays.copyOf(mySizes, capacity);
+        myHeapIds = Arrays.copyOf(myHeapIds, capacity);
+      }
+
+      // Events mostly arrive in timestamp order, so finding the insertion point from the end is usually immediate.
+      int index = mySize;
+      while (index > 0 && myTimestamps[index - 1] > timestampNs) {
+        index--;
+      }
+      if (index < mySize) {
+        int length = mySize - index;
+        System.arraycopy(myTimestamps, index, myTimestamps, index + 1, length);
+        System.arraycopy(myIsAllocation, index, myIsAllocation, index + 1, length);
+        System.arraycopy(myTags, index, myTags, index + 1, length);
+        System.arraycopy(myClassTags, index, myClassTags, index + 1, length);
+        System.arraycopy(myStackIds, index, myStackIds, index + 1, length);
+        System.arraycopy(myThreadIds, index, myThreadIds, index + 1, length);
+        System.arraycopy(mySizes, index, mySizes, index + 1, length);
+        System.arraycopy(myHeapIds, index, myHeapIds, index + 1, length);
+      }
+      myTimestamps[index] = timestampNs;
+      myIsAllocation[index] = isAllocation;
+      myTags[index] = tag;
+      myClassTags[index] = classTag;
+      myStackIds[index] = stackId;
+      myThreadIds[index] = threadId;
+      mySizes[index] = size;
+      myHeapIds[index] = heapId;
+      mySize++;
+    }
+
+    private void forEachEvent(long startTimeNs, long endTimeNs, @NotNull EventConsumer consumer) {
+      for (int i = 0; i < mySize; i++) {
+        long timestamp = myTimestamps[i];
+        if (timestamp < startTimeNs) {
+          continue;
+        }
+        if (timestamp >= endTimeNs) {
+          break;
+        }
+        if (myIsAllocation[i]) {
+          consumer.onAllocation(timestamp, myTags[i], myClassTags[i], myStackIds[i], myThreadIds[i], mySizes[i], myHeapIds[i]);
+        }
+        else {
+          consumer.onDeallocation(timestamp, myTags[i]);
+        }
+      }
+    }
+  }
+
+  /**
+   * Live allocations in allocation order, stored column by column. Removed allocations are only marked as such, and are
+   * compacted away once they outnumber the live ones.
+   */
+  private static final class LiveSet {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int mySize;
+    private int myLiveCount;
+    private boolean[] myRemoved;
+    private long[] myTimestamps;
+    private int[] myTags;
+    private int[] myClassTags;
+    private int[] myStackIds;
+    private int[] myThreadIds;
+    private long[] mySizes;
+    private int[] myHeapIds;
+    // Row of each live tag, only created when the set is modified so checkpoints do not keep one.
+    @Nullable private TIntIntHashMap myRows;
+
+    private LiveSet(int capacity) {
+      myRemoved = new boolean[capacity];
+      myTimestamps = new long[capacity];
+      myTags = new int[capacity];
+      myClassTags = new int[capacity];
+      myStackIds = new int[capacity];
+      myThreadIds = new int[capacity];
+      mySizes = new long[capacity];
+      myHeapIds = new int[capacity];
+    }
+
+    private int getLiveCount() {
+      return myLiveCount;
+    }
+
+    private void add(long timestampNs, int tag, int classTag, int stackId, int threadId, long size, int heapId) {
+      TIntIntHashMap rows = getRows();
+      int row;
+      if (rows.containsKey(tag)) {
+        // Like a map keyed by tag, allocating a live tag again replaces its data but keeps its position.
+        row = rows.get(tag);
+      }
+      else {
+        if (mySize == myTags.length) {
+          resize(Math.max(mySize * 2, INITIAL_CAPACITY));
+        }
+        row = mySize++;
+        rows.put(tag, row);
+        myLiveCount++;
+      }
+      myRemoved[row] = false;
+      myTimestamps[row] = timestampNs;
+      myTags[row] = tag;
+      myClassTags[row] = classTag;
+      myStackIds[row] = stackId;
+      myThreadIds[row] = threadId;
+      mySizes[row] = size;
+      myHeapIds[row] = heapId;
+    }
+
+    private void remove(int tag) {
+      TIntIntHashMap rows = getRows();
+      if (!rows.containsKey(tag)) {
+        return;
+      }
+      myRemoved[rows.remove(tag)] = true;
+      myLiveCount--;
+      if (mySize - myLiveCount > Math.max(myLiveCount, INITIAL_CAPACITY)) {
+        compact();
+      }
+    }
+
+    /**
+     * Returns a compacted copy of the live allocations.
+     */
+    @NotNull
+    private LiveSet copy() {
+      LiveSet copy = new LiveSet(myLiveCount);
+      for (int i = 0; i < mySize; i++) {
+        if (!myRemoved[i]) {
+          copy.copyRow(this, i, copy.mySize++);
+        }
+      }
+      copy.myLiveCount = copy.mySize;
+      return copy;
+    }
+
+    private void forEach(@NotNull EventConsumer consumer) {
+      for (int i = 0; i < mySize; i++) {
+        if (!myRemoved[i]) {
+          consumer.onAllocation(myTimestamps[i], myTags[i], myClassTags[i], myStackIds[i], myThreadIds[i], mySizes[i], myHeapIds[i]);
+        }
+      }
+    }
+
+    @NotNull
+    private TIntIntHashMap getRows() {
+      if (myRows == null) {
+        myRows = new TIntIntHashMap(Math.max(myLiveCount, INITIAL_CAPACITY));
+        for (int i = 0; i < mySize; i++) {
+          if (!myRemoved[i]) {
+            myRows.put(myTags[i], i);
+          }
+        }
+      }
+      return myRows;
+    }
+
+    private void compact() {
+      int size = 0;
+      for (int i = 0; i < mySize; i++) {
+        if (!myRemoved[i]) {
+          copyRow(this, i, size++);
+        }
+      }
+      mySize = size;
+      Arrays.fill(myRemoved, 0, mySize, false);
+      // Rows have moved, so the map is rebuilt on the next modification.
+      myRows = null;
+    }
+
+    private void copyRow(@NotNull LiveSet from, int fromRow, int toRow) {
+      myRemoved[toRow] = false;
+      myTimestamps[toRow] = from.myTimestamps[fromRow];
+      myTags[toRow] = from.myTags[fromRow];
+      myClassTags[toRow] = from.myClassTags[fromRow];
+      myStackIds[toRow] = from.myStackIds[fromRow];
+      myThreadIds[toRow] = from.myThreadIds[fromRow];
+      mySizes[toRow] = from.mySizes[fromRow];
+      myHeapIds[toRow] = from.myHeapIds[fromRow];
+    }
+
+    private void resize(int capacity) {
+      myRemoved = Arrays.copyOf(myRemoved, capacity);
+      myTimestamps = Arrays.copyOf(myTimestamps, capacity);
+      myTags = Arrays.copyOf(myTags, capacity);
+      myClassTags = Arrays.copyOf(myClassTags, capacity);
+      myStackIds = Arrays.copyOf(myStackIds, capacity);
+      myThreadIds = Arrays.copyOf(myThreadIds, capacity);
+      mySizes = Arrays.copyOf(mySizes, capacity);
+      myHeapIds = Arrays.copyOf(myHeapIds, capacity);
+    }
+  }
+}
@@ -191,6 +191,15 @@ public interface CaptureObject extends MemoryObject {
 
   void unload();
 
+  /**
+   * @return a future that completes once data computed in the background after {@link #load(Range, Executor)} has been added to the
+   * heap sets on the queryJoiner, or null if the capture has no such data. The heap sets are usable before the future completes.
+   */
+  @Nullable
+  default ListenableFuture<Void> getPendingUpdate() {
+    return null;
+  }
+
   @NotNull
   default Set<CaptureObjectInstanceFilter> getSupportedInstanceFilters() {
     return Collections.EMPTY_SET;
@@ -0,0 +1,277 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.profilers.memory.adapters;
+
+import java.util.Arrays;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Dominator tree of an object graph whose nodes are numbered from 0 to n - 1, computed with the semi-NCA algorithm.
+ * The graph is given as primitive adjacency arrays: the successors of node {@code i} are
+ * {@code successors[successorOffsets[i]]} to {@code successors[successorOffsets[i + 1] - 1]}. All roots are dominated by a
+ * virtual root, so the immediate dominator of a root is {@link #ROOT}.
+ * <p>
+ * Besides the immediate dominators, the retained size of every node (the total size of the nodes it dominates, including
+ * itself) and its depth (the length of the shortest path from a root) are computed.
+ */
+final class DominatorTree {
+  /** Immediate dominator of the roots and of the nodes only dominated by the virtual root. */
+  static final int ROOT = -1;
+  /** Immediate dominator and depth of the nodes not reachable from any root. */
+  static final int UNREACHABLE = -2;
+
+  @NotNull private final int[] myImmediateDominators;
+  @NotNull private final long[] myRetainedSizes;
+  @NotNull private final int[] myDepths;
+
+  private DominatorTree(@NotNull int[] immediateDominators, @NotNull long[] retainedSizes, @NotNull int[] depths) {
+    myImmediateDominators = immediateDominators;
+    myRetainedSizes = retainedSizes;
+    myDepths = depths;
+  }
+
+  /**
+   * @param successorOffsets offsets of the successors of each node in {@code successors}, with one more entry than there are nodes
+   * @param successors       successors of all nodes
+   * @param roots            the roots of the graph
+   * @param sizes            shallow size of each node
+   */
+  @NotNull
+  static DominatorTree compute(@NotNull int[] successorOffsets, @NotNull int[] successors, @NotNull int[] roots, @NotNull long[] sizes) {
+    int nodeCount = successorOffsets.length - 1;
+    if (sizes.length != nodeCount) {
+      throw new IllegalArgumentException(String.format("Expected %d sizes but got %d", nodeCount, sizes.length));
+    }
+
+    // Depth-first search from the virtual root, which gets the preorder number 0. Nodes are referred to by their preorder
+    // number from here on; vertex maps preorder numbers back to nodes, with -1 for the virtual root.
+    int[] preorder = new int[nodeCount];
+    Arrays.fill(preorder, -1);
+    boolean[] isRoot = new boolean[nodeCount];
+    int[] vertex = new int[nodeCount + 1];
+    int[] parent = new int[nodeCount + 1];
+    int count = depthFirstSearch(successorOffsets, successors, roots, preorder, isRoot, vertex, parent);
+
+    int[] predecessorOffsets = new int[nodeCount + 1];
+    int[] predecessors = invert(successorOffsets, successors, preorder, predecessorOffsets);
+
+    // Semidominators, computed in reverse preorder with a path-compressed forest of the already processed nodes.
+    int[] semi = new int[count];
+    int[] label = new int[count];
+    int[] ancestor = new int[count];
+    for (int i = 0; i < count; i++) {
+      semi[i] = i;
+      label[i] = i;
+      ancestor[i] = -1;
+    }
+    int[] stack = new int[count];
+    for (int i = count - 1; i > 0; i--) {
+      int node = vertex[i];
+      if (isRoot[node]) {
+        // The virtual root is a predecessor of every root.
+        semi[i] = 0;
+      }
+      else {
+        for (int j = predecessorOffsets[node]; j < predecessorOffsets[node + 1]; j++) {
+          int u = eval(predecessors[j], semi, label, ancestor, stack);
+          if (semi[u] < semi[i]) {
+            semi[i] = semi[u];
+          }
+        }
+      }
+      ancestor[i] = parent[i];
+    }
+
+    // The immediate dominator of a node is the nearest common ancestor of its semidominator and of its parent in the
+    // dominator tree of the nodes preceding it.
+    int[] idom = parent;
+    for (int i = 1; i < count; i++) {
+      int dominator = idom[i];
+      while (dominator > semi[i]) {
+        dominator = idom[dominator];
+      }
+      idom[i] = dominator;
+    }
+
+    // Nodes dominate nodes with larger preorder numbers only, so retained sizes can be accumulated in reverse preorder.
+    long[] retained = Arrays.copyOf(sizes, nodeCount);
+    for (int i = count - 1; i > 0; i--) {
+      if (idom[i] > 0) {
+        retained[vertex[idom[i]]] += retained[vertex[i]];
+      }
+    }
+
+    int[] immediateDominators = new int[nodeCount];
+    Arrays.fill(immediateDominators, UNREACHABLE);
+    for (int i = 1; i < count; i++) {
+      immediateDominators[vertex[i]] = idom[i] == 0 ? ROOT : vertex[idom[i]];
+    }
+    // The preorder numbers are not needed anymore, so their array is reused as the queue of the breadth-first search.
+    return new DominatorTree(immediateDominators, retained, computeDepths(successorOffsets, successors, roots, preorder));
+  }
+
+  /**
+   * Returns the immediate dominator of a node, {@link #ROOT} if it is only dominated by the virtual root, or
+   * {@link #UNREACHABLE} if it is not reachable from any root.
+   */
+  int getImmediateDominator(int node) {
+    return myImmediateDominators[node];
+  }
+
+  /**
+   * Returns the total size of the nodes dominated by a node, including itself. An unreachable node only retains itself.
+   */
+  long getRetainedSize(int node) {
+    return myRetainedSizes[node];
+  }
+
+  /**
+   * Returns the number of edges on the shortest path from a root to a node, or {@link #UNREACHABLE}.
+   */
+  int getDepth(int node) {
+    return myDepths[node];
+  }
+
+  /**
+   * Numbers the nodes reachable from the roots in depth-first preorder, starting with 1.
+   *
+   * @return the number of reachable nodes plus one for the virtual root
+   */
+  private static int depthFirstSearch(@NotNull int[] successorOffsets, @NotNull int[] successors, @NotNull int[] roots,
+                                      @NotNull int[] preorder, @NotNull boolean[] isRoot, @NotNull int[] vertex, @NotNull int[] parent) {
+    // Stack of nodes being visited, and the index of the next successor to visit for each of them.
+    int[] stack = new int[preorder.length];
+    int[] cursors = new int[preorder.length];
+    vertex[0] = -1;
+    parent[0] = -1;
+    int count = 1;
+    for (int root : roots) {
+      isRoot[root] = true;
+      if (preorder[root] != -1) {
+        continue;
+      }
+      preorder[root] = count;
+      vertex[count] = root;
+      parent[count] = 0;
+      count++;
+      int size = 0;
+      stack[size] = root;
+      cursors[size] = successorOffsets[root];
+      size++;
+      while (size > 0) {
+        int node = stack[size - 1];
+        int cursor = cursors[size - 1];
+        if (cursor == successorOffsets[node + 1]) {
+          size--;
+          continue;
+        }
+        cursors[size - 1] = cursor + 1;
+        int successor = successors[cursor];
+        if (preorder[successor] == -1) {
+          preorder[successor] = count;
+          vertex[count] = successor;
+          parent[count] = preorder[node];
+          count++;
+          stack[size] = successor;
+          cursors[size] = successorOffsets[successor];
+          size++;
+        }
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Returns the predecessors of the reachable nodes, as preorder numbers.
+   */
+  @NotNull
+  private static int[] invert(@NotNull int[] successorOffsets, @NotNull int[] successors, @NotNull int[] preorder,
+                              @NotNull int[] predecessorOffsets) {
+    int nodeCount = preorder.length;
+    for (int node = 0; node < nodeCount; node++) {
+      if (preorder[node] != -1) {
+        for (int j = successorOffsets[node]; j < successorOffsets[node + 1]; j++) {
+          predecessorOffsets[successors[j] + 1]++;
+        }
+      }
+    }
+    for (int node = 0; node < nodeCount; node++) {
+      predecessorOffsets[node + 1] += predecessorOffsets[node];
+    }
+    int[] predecessors = new int[predecessorOffsets[nodeCount]];
+    int[] positions = Arrays.copyOf(predecessorOffsets, nodeCount);
+    for (int node = 0; node < nodeCount; node++) {
+      if (preorder[node] != -1) {
+        for (int j = successorOffsets[node]; j < successorOffsets[node + 1]; j++) {
+          predecessors[positions[successors[j]]++] = preorder[node];
+        }
+      }
+    }
+    return predecessors;
+  }
+
+  /**
+   * Returns the node with the smallest semidominator on the path from {@code v} to the root of its tree in the forest,
+   * compressing the path on the way.
+   */
+  private static int eval(int v, @NotNull int[] semi, @NotNull int[] label, @NotNull int[] ancestor, @NotNull int[] stack) {
+    if (ancestor[v] == -1) {
+      return v;
+    }
+    // Iterative version of the recursive path compression, which would overflow the call stack on long paths.
+    int size = 0;
+    int u = v;
+    while (ancestor[ancestor[u]] != -1) {
+      stack[size++] = u;
+      u = ancestor[u];
+    }
+    while (size > 0) {
+      u = stack[--size];
+      int a = ancestor[u];
+      if (semi[label[a]] < semi[label[u]]) {
+        label[u] = label[a];
+      }
+      ancestor[u] = ancestor[a];
+    }
+    return label[v];
+  }
+
+  @NotNull
+  private static int[] computeDepths(@NotNull int[] successorOffsets, @NotNull int[] successors, @NotNull int[] roots,
+                                     @NotNull int[] queue) {
+    int[] depths = new int[queue.length];
+    Arrays.fill(depths, UNREACHABLE);
+    int head = 0;
+    int tail = 0;
+    for (int root : roots) {
+      if (depths[root] == UNREACHABLE) {
+        depths[root] = 0;
+        queue[tail++] = root;
+      }
+    }
+    while (head < tail) {
+      int node = queue[head++];
+      for (int j = successorOffsets[node]; j < successorOffsets[node + 1]; j++) {
+        int successor = successors[j];
+        if (depths[successor] == UNREACHABLE) {
+          depths[successor] = depths[node] + 1;
+          queue[tail++] = successor;
+        }
+      }
+    }
+    return depths;
+  }
+}
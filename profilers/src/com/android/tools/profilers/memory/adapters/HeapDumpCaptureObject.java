@@ -21,14 +21,18 @@ import static com.android.tools.profilers.memory.adapters.CaptureObject.Classifi
 import static com.android.tools.profilers.memory.adapters.CaptureObject.ClassifierAttribute.RETAINED_SIZE;
 import static com.android.tools.profilers.memory.adapters.CaptureObject.ClassifierAttribute.SHALLOW_SIZE;
 import static com.android.tools.profilers.memory.adapters.ClassDb.JAVA_LANG_CLASS;
+import static com.android.tools.profilers.memory.adapters.MemoryObject.INVALID_VALUE;
 
 import com.android.tools.adtui.model.Range;
 import com.android.tools.idea.protobuf.ByteString;
 import com.android.tools.perflib.heap.ClassObj;
 import com.android.tools.perflib.heap.Heap;
 import com.android.tools.perflib.heap.Instance;
+import com.android.tools.perflib.heap.RootObj;
 import com.android.tools.perflib.heap.Snapshot;
 import com.android.tools.perflib.heap.ext.NativeRegistryPostProcessor;
+import com.android.tools.perflib.captures.DataBuffer;
+import com.android.tools.perflib.captures.MemoryMappedFileBuffer;
 import com.android.tools.perflib.heap.io.InMemoryBuffer;
 import com.android.tools.profiler.proto.Common;
 import com.android.tools.profiler.proto.Memory.HeapDumpInfo;
@@ -47,17 +51,26 @@ import com.android.tools.profilers.memory.adapters.instancefilters.ProjectClasse
 import com.android.tools.proguard.ProguardMap;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.io.FileUtil;
+import gnu.trove.TLongIntHashMap;
 import gnu.trove.TLongObjectHashMap;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -72,6 +85,9 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 public class HeapDumpCaptureObject implements CaptureObject {
+  private static Logger getLogger() {
+    return Logger.getInstance(HeapDumpCaptureObject.class);
+  }
 
   @NotNull
   private final ProfilerClient myClient;
@@ -88,6 +104,12 @@ public class HeapDumpCaptureObject implements CaptureObject {
   @NotNull
   private final TLongObjectHashMap<InstanceObject> myInstanceIndex = new TLongObjectHashMap<>();
 
+  /**
+   * Temporary copy of the heap dump that the snapshot is memory-mapped from, or null if the heap dump is kept in memory.
+   */
+  @Nullable
+  private File myHeapDumpFile;
+
   @NotNull
   private final ClassDb myClassDb = new ClassDb();
 
@@ -116,6 +138,28 @@ public class HeapDumpCaptureObject implements CaptureObject {
     MoreExecutors.listeningDecorator(
       Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("memory-heapdump-instancefilters").build()));
 
+  private final ListeningExecutorService myDominatorExecutorService =
+    MoreExecutors.listeningDecorator(
+      Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("memory-heapdump-dominators").build()));
+
+  /**
+   * Maps the ids of the instances of the heap dump to their node in {@link #myDominatorTree} plus one, so that the default value 0
+   * of the map stands for instances without a node. Written before {@link #myDominatorTree}.
+   */
+  @Nullable
+  private TLongIntHashMap myNodeIndex;
+
+  @Nullable
+  private volatile DominatorTree myDominatorTree;
+
+  /**
+   * Whether depths and retained sizes come from {@link #myDominatorTree}. If false, the values computed by perflib are used.
+   */
+  private volatile boolean myUsesDominatorTree;
+
+  @Nullable
+  private ListenableFuture<Void> myDominatorTreeFuture;
+
   public HeapDumpCaptureObject(@NotNull ProfilerClient client,
                                @NotNull Common.Session session,
                                @NotNull HeapDumpInfo heapDumpInfo,
@@ -162,6 +206,12 @@ public class HeapDumpCaptureObject implements CaptureObject {
     return myClassDb;
   }
 
+  @VisibleForTesting
+  @Nullable
+  File getHeapDumpFile() {
+    return myHeapDumpFile;
+  }
+
   @NotNull
   @Override
   public Collection<HeapSet> getHeapSets() {
@@ -203,24 +253,21 @@ public class HeapDumpCaptureObject implements CaptureObject {
 
   @Override
   public boolean load(@Nullable Range queryRange, @Nullable Executor queryJoiner) {
-    Transport.BytesResponse response = myClient.getTransportClient().getBytes(Transport.BytesRequest.newBuilder()
-                                                                                .setStreamId(mySession.getStreamId())
-                                                                                .setId(Long.toString(myHeapDumpInfo.getStartTime()))
-                                                                                .build());
-
-    if (response.getContents() == ByteString.EMPTY) {
+    DataBuffer buffer = fetchHeapDump();
+    if (buffer == null) {
       myIsLoadingError = true;
       return false;
     }
 
-    InMemoryBuffer buffer = new InMemoryBuffer(response.getContents().asReadOnlyByteBuffer());
-
     NativeRegistryPostProcessor nativeRegistryPostProcessor = new NativeRegistryPostProcessor();
     Snapshot snapshot = Snapshot.createSnapshot(buffer,
                                                 myProguardMap != null ? myProguardMap : new ProguardMap(),
                                                 Collections.singletonList(nativeRegistryPostProcessor));
-    snapshot.computeDominators();
     myHasNativeAllocations = nativeRegistryPostProcessor.getHasNativeAllocations();
+    myUsesDominatorTree = true;
+    if (queryJoiner == null) {
+      computeDominatorTree(snapshot);
+    }
     hasLoaded = true;
 
     InstanceObject javaLangClassObject = snapshot.getHeaps().stream()
@@ -240,14 +287,12 @@ public class HeapDumpCaptureObject implements CaptureObject {
         heap.getClasses().forEach(cl ->
           addInstance(superHeap, cl.getId(), createClassObjectInstance(javaLangClassObject, cl)));
 
+        // Instances of the same class share the class entry, so each class is registered once instead of once per instance.
+        Map<ClassObj, ClassDb.ClassEntry> classEntries = new IdentityHashMap<>();
         heap.forEachInstance(instance -> {
           assert !JAVA_LANG_CLASS.equals(instance.getClassObj().getClassName());
 
-          ClassObj classObj = instance.getClassObj();
-          ClassDb.ClassEntry classEntry =
-            classObj.getSuperClassObj() != null ?
-            myClassDb.registerClass(classObj.getId(), classObj.getSuperClassObj().getId(), classObj.getClassName()) :
-            myClassDb.registerClass(classObj.getId(), classObj.getClassName());
+          ClassDb.ClassEntry classEntry = classEntries.computeIfAbsent(instance.getClassObj(), this::registerClass);
           addInstance(superHeap, instance.getId(), new HeapDumpInstanceObject(this, instance, classEntry, null));
           return true;
         });
@@ -263,14 +308,12 @@ public class HeapDumpCaptureObject implements CaptureObject {
         heap.getClasses().forEach(cl ->
           addInstance(heapSet, cl.getId(), createClassObjectInstance(javaLangClassObject, cl)));
 
+        // Instances of the same class share the class entry, so each class is registered once instead of once per instance.
+        Map<ClassObj, ClassDb.ClassEntry> classEntries = new IdentityHashMap<>();
         heap.forEachInstance(instance -> {
           assert !JAVA_LANG_CLASS.equals(instance.getClassObj().getClassName());
 
-          ClassObj classObj = instance.getClassObj();
-          ClassDb.ClassEntry classEntry =
-            classObj.getSuperClassObj() != null ?
-            myClassDb.registerClass(classObj.getId(), classObj.getSuperClassObj().getId(), classObj.getClassName()) :
-            myClassDb.registerClass(classObj.getId(), classObj.getClassName());
+          ClassDb.ClassEntry classEntry = classEntries.computeIfAbsent(instance.getClassObj(), this::registerClass);
           addInstance(heapSet, instance.getId(), new HeapDumpInstanceObject(this, instance, classEntry, null));
           return true;
         });
@@ -281,15 +324,166 @@ public class HeapDumpCaptureObject implements CaptureObject {
       });
     }
 
+    if (queryJoiner != null) {
+      // The classes and instances are shown right away, and their depths and retained sizes once the dominator tree is ready.
+      ListenableFuture<Void> treeFuture = myDominatorExecutorService.submit(() -> {
+        computeDominatorTree(snapshot);
+        return null;
+      });
+      // Filters that ran before the depths were known, e.g. the leak filter, matched instances by unknown depths. They are
+      // applied again to all instances, after any filter change that is already queued.
+      myDominatorTreeFuture = Futures.transformAsync(
+        treeFuture,
+        unused -> myExecutorService.submit(() -> refreshInstances(applyCurrentFilters(getAllInstances()), queryJoiner)),
+        MoreExecutors.directExecutor());
+    }
+
     return true;
   }
 
+  @Nullable
+  @Override
+  public ListenableFuture<Void> getPendingUpdate() {
+    return myDominatorTreeFuture;
+  }
+
+  /**
+   * Computes the dominator tree of the hard references between the instances and classes of the snapshot. The tree replaces
+   * the one perflib can compute, which needs much more memory and time on large heap dumps.
+   */
+  private void computeDominatorTree(@NotNull Snapshot snapshot) {
+    List<Instance> nodes = new ArrayList<>();
+    snapshot.getHeaps().forEach(heap -> {
+      nodes.addAll(heap.getClasses());
+      heap.forEachInstance(instance -> {
+        nodes.add(instance);
+        return true;
+      });
+    });
+    int nodeCount = nodes.size();
+    TLongIntHashMap nodeIndex = new TLongIntHashMap(nodeCount);
+    long[] sizes = new long[nodeCount];
+    for (int i = 0; i < nodeCount; i++) {
+      Instance instance = nodes.get(i);
+      nodeIndex.put(instance.getId(), i + 1);
+      sizes[i] = instance.getSize();
+    }
+
+    // Perflib only records the referrers of an instance, so the references are inverted into adjacency arrays.
+    int[] successorOffsets = new int[nodeCount + 1];
+    for (Instance instance : nodes) {
+      for (Instance referrer : instance.getHardReverseReferences()) {
+        int node = nodeIndex.get(referrer.getId()) - 1;
+        if (node >= 0) {
+          successorOffsets[node + 1]++;
+        }
+      }
+    }
+    for (int i = 0; i < nodeCount; i++) {
+      successorOffsets[i + 1] += successorOffsets[i];
+    }
+    int[] successors = new int[successorOffsets[nodeCount]];
+    int[] positions = Arrays.copyOf(successorOffsets, nodeCount);
+    for (int i = 0; i < nodeCount; i++) {
+      for (Instance referrer : nodes.get(i).getHardReverseReferences()) {
+        int node = nodeIndex.get(referrer.getId()) - 1;
+        if (node >= 0) {
+          successors[positions[node]++] = i;
+        }
+      }
+    }
+    nodes.clear();
+
+    int[] roots = snapshot.getGCRoots().stream()
+      .map(RootObj::getReferredInstance)
+      .filter(instance -> instance != null && nodeIndex.containsKey(instance.getId()))
+      .mapToInt(instance -> nodeIndex.get(instance.getId()) - 1)
+      .toArray();
+
+    DominatorTree tree = DominatorTree.compute(successorOffsets, successors, roots, sizes);
+    myNodeIndex = nodeIndex;
+    myDominatorTree = tree;
+  }
+
+  /**
+   * Returns the number of references on the shortest path from a GC root to the instance, or {@link Integer#MAX_VALUE} if the
+   * instance is unreachable or the depth is not known yet.
+   */
+  int getDepth(@NotNull Instance instance) {
+    if (!myUsesDominatorTree) {
+      return instance.getDistanceToGcRoot();
+    }
+    DominatorTree tree = myDominatorTree;
+    int node = tree == null ? -1 : myNodeIndex.get(instance.getId()) - 1;
+    if (node < 0 || tree.getDepth(node) == DominatorTree.UNREACHABLE) {
+      return Integer.MAX_VALUE;
+    }
+    return tree.getDepth(node);
+  }
+
+  /**
+   * Returns the total size of the instances only reachable through the instance, including itself, or
+   * {@link MemoryObject#INVALID_VALUE} if the retained size is not known yet.
+   */
+  long getRetainedSize(@NotNull Instance instance) {
+    if (!myUsesDominatorTree) {
+      return instance.getTotalRetainedSize();
+    }
+    DominatorTree tree = myDominatorTree;
+    int node = tree == null ? -1 : myNodeIndex.get(instance.getId()) - 1;
+    return node < 0 ? INVALID_VALUE : tree.getRetainedSize(node);
+  }
+
   private void addInstance(HeapSet heapSet, long id, InstanceObject instObj) {
     assert !myInstanceIndex.containsKey(id);
     myInstanceIndex.put(id, instObj);
     heapSet.addDeltaInstanceObject(instObj);
   }
 
+  /**
+   * Fetches the heap dump and copies it to a temporary file, which the snapshot is then memory-mapped from. This way the
+   * heap dump does not have to stay on the Java heap while the snapshot is in use. If the file cannot be written, the
+   * heap dump is kept in memory instead.
+   *
+   * @return the buffer to read the heap dump from, or null if the heap dump is not available.
+   */
+  @Nullable
+  private DataBuffer fetchHeapDump() {
+    Transport.BytesResponse response = myClient.getTransportClient().getBytes(Transport.BytesRequest.newBuilder()
+                                                                                .setStreamId(mySession.getStreamId())
+                                                                                .setId(Long.toString(myHeapDumpInfo.getStartTime()))
+                                                                                .build());
+    ByteString contents = response.getContents();
+    if (contents == ByteString.EMPTY) {
+      return null;
+    }
+
+    File file = null;
+    try {
+      file = FileUtil.createTempFile("heapdump_" + myHeapDumpInfo.getStartTime(), ".hprof", true);
+      try (OutputStream outputStream = new FileOutputStream(file)) {
+        contents.writeTo(outputStream);
+      }
+      DataBuffer buffer = new MemoryMappedFileBuffer(file);
+      myHeapDumpFile = file;
+      return buffer;
+    }
+    catch (IOException e) {
+      getLogger().warn("Unable to map heap dump, keeping it in memory instead", e);
+      if (file != null) {
+        FileUtil.delete(file);
+      }
+      return new InMemoryBuffer(contents.asReadOnlyByteBuffer());
+    }
+  }
+
+  @NotNull
+  private ClassDb.ClassEntry registerClass(@NotNull ClassObj classObj) {
+    return classObj.getSuperClassObj() != null ?
+           myClassDb.registerClass(classObj.getId(), classObj.getSuperClassObj().getId(), classObj.getClassName()) :
+           myClassDb.registerClass(classObj.getId(), classObj.getClassName());
+  }
+
   @Override
   public boolean isDoneLoading() {
     return hasLoaded || myIsLoadingError;
@@ -303,6 +497,12 @@ public class HeapDumpCaptureObject implements CaptureObject {
   @Override
   public void unload() {
     myExecutorService.shutdownNow();
+    myDominatorExecutorService.shutdownNow();
+    if (myHeapDumpFile != null) {
+      // The mapping itself is released once the snapshot is garbage collected. On platforms where a mapped file cannot be
+      // deleted, the file is deleted on exit instead.
+      FileUtil.delete(myHeapDumpFile);
+    }
   }
 
   @NotNull
@@ -364,6 +564,11 @@ public class HeapDumpCaptureObject implements CaptureObject {
     return myExecutorService;
   }
 
+  @VisibleForTesting
+  ExecutorService getDominatorExecutor() {
+    return myDominatorExecutorService;
+  }
+
   @Override
   public ListenableFuture<Void> addInstanceFilter(@NotNull CaptureObjectInstanceFilter filterToAdd,
                                                   @NotNull Executor analyzeJoiner) {
@@ -390,12 +595,7 @@ public class HeapDumpCaptureObject implements CaptureObject {
     return myExecutorService.submit(() -> {
       // Run the remaining analyzers on the full instance set, since we don't know that the instances that have been removed from the
       // HeapSets using the filter that we are removing.
-      Set<InstanceObject> matchedInstances = getAllInstances();
-      for (CaptureObjectInstanceFilter filter : myCurrentInstanceFilters) {
-        matchedInstances = filter.filter(matchedInstances);
-      }
-
-      return refreshInstances(matchedInstances, analyzeJoiner);
+      return refreshInstances(applyCurrentFilters(getAllInstances()), analyzeJoiner);
     });
   }
 
@@ -413,6 +613,15 @@ public class HeapDumpCaptureObject implements CaptureObject {
     return myExecutorService.submit(() -> refreshInstances(getAllInstances(), analyzeJoiner));
   }
 
+  @NotNull
+  private Set<InstanceObject> applyCurrentFilters(@NotNull Set<InstanceObject> instances) {
+    Set<InstanceObject> matchedInstances = instances;
+    for (CaptureObjectInstanceFilter filter : myCurrentInstanceFilters) {
+      matchedInstances = filter.filter(matchedInstances);
+    }
+    return matchedInstances;
+  }
+
   private Set<InstanceObject> getAllInstances() {
     Set<InstanceObject> allInstances = new HashSet<>(myInstanceIndex.size());
     myInstanceIndex.forEachValue(allInstances::add);
@@ -421,16 +630,18 @@ public class HeapDumpCaptureObject implements CaptureObject {
 
   private Void refreshInstances(@NotNull Set<InstanceObject> instances,
                                 @NotNull Executor executor) {
-    executor.execute(() -> {
-      myHeapSets.values().forEach(HeapSet::clearClassifierSets);
-      Consumer<InstanceObject> onInst = myHeapSets.values().stream().filter(heap -> heap instanceof AllHeapSet)
-        .map(h -> (Consumer<InstanceObject>)h::addDeltaInstanceObject).findAny()
-        .orElse((InstanceObject inst) -> myHeapSets.get(inst.getHeapId()).addDeltaInstanceObject(inst));
-      instances.forEach(onInst);
-    });
+    executor.execute(() -> resetHeapSets(instances));
     return null;
   }
 
+  private void resetHeapSets(@NotNull Set<InstanceObject> instances) {
+    myHeapSets.values().forEach(HeapSet::clearClassifierSets);
+    Consumer<InstanceObject> onInst = myHeapSets.values().stream().filter(heap -> heap instanceof AllHeapSet)
+      .map(h -> (Consumer<InstanceObject>)h::addDeltaInstanceObject).findAny()
+      .orElse((InstanceObject inst) -> myHeapSets.get(inst.getHeapId()).addDeltaInstanceObject(inst));
+    instances.forEach(onInst);
+  }
+
   @Override
   public boolean canSafelyLoad() {
     Transport.BytesResponse response = myClient.getTransportClient().getBytes(Transport.BytesRequest.newBuilder()
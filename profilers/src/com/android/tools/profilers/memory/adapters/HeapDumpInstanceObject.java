@@ -33,9 +33,6 @@ import static com.android.tools.profilers.memory.adapters.ValueObject.ValueType.
 class HeapDumpInstanceObject implements InstanceObject {
   private static final String NAME_FORMATTER = "%s@%d (0x%x)";
   private static final int MAX_VALUE_TEXT_LENGTH = 1024;
-  private static final Comparator<Instance> DEPTH_THEN_ID_COMPARATOR =
-    // compare by id after depth to enforce more deterministic order
-    Comparator.comparingInt(Instance::getDistanceToGcRoot).thenComparingLong(Instance::getId);
   private static final String INVALID_STRING_VALUE = " ...<invalid string value>...";
   private static final Map<Type, ValueType> VALUE_TYPE_MAP = ImmutableMap.<Type, ValueObject.ValueType>builder()
     .put(Type.BOOLEAN, BOOLEAN)
@@ -98,6 +95,12 @@ class HeapDumpInstanceObject implements InstanceObject {
     return myInstance.hashCode();
   }
 
+  @VisibleForTesting
+  @NotNull
+  Instance getInstance() {
+    return myInstance;
+  }
+
   @NotNull
   @Override
   public String getName() {
@@ -152,7 +155,7 @@ class HeapDumpInstanceObject implements InstanceObject {
 
   @Override
   public int getDepth() {
-    return myInstance.getDistanceToGcRoot();
+    return myCaptureObject.getDepth(myInstance);
   }
 
   @Override
@@ -167,7 +170,7 @@ class HeapDumpInstanceObject implements InstanceObject {
 
   @Override
   public long getRetainedSize() {
-    return myInstance.getTotalRetainedSize();
+    return myCaptureObject.getRetainedSize(myInstance);
   }
 
   @Override
@@ -306,12 +309,15 @@ class HeapDumpInstanceObject implements InstanceObject {
   public List<ReferenceObject> extractReferences() {
     // Sort hard referrers to appear first.
     List<Instance> sortedReferences = new ArrayList<>(myInstance.getHardReverseReferences());
-    sortedReferences.sort(DEPTH_THEN_ID_COMPARATOR);
+    // compare by id after depth to enforce more deterministic order
+    Comparator<Instance> depthThenIdComparator =
+      Comparator.comparingInt(myCaptureObject::getDepth).thenComparingLong(Instance::getId);
+    sortedReferences.sort(depthThenIdComparator);
 
     // Sort soft referrers to appear second.
     if (myInstance.getSoftReverseReferences() != null) {
       List<Instance> sortedSoftReferences = new ArrayList<>(myInstance.getSoftReverseReferences());
-      sortedSoftReferences.sort(DEPTH_THEN_ID_COMPARATOR);
+      sortedSoftReferences.sort(depthThenIdComparator);
       sortedReferences.addAll(sortedSoftReferences);
     }
 
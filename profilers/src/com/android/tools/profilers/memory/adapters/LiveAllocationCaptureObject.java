@@ -28,7 +28,6 @@ import com.android.tools.adtui.model.Range;
 import com.android.tools.profiler.proto.Common;
 import com.android.tools.profiler.proto.Memory;
 import com.android.tools.profiler.proto.Memory.AllocatedClass;
-import com.android.tools.profiler.proto.Memory.AllocationEvent;
 import com.android.tools.profiler.proto.Memory.AllocationStack;
 import com.android.tools.profiler.proto.Memory.BatchJNIGlobalRefEvent;
 import com.android.tools.profiler.proto.Memory.JNIGlobalReferenceEvent;
@@ -103,6 +102,7 @@ public class LiveAllocationCaptureObject implements CaptureObject {
   private final TLongObjectHashMap<AllocationStack.StackFrame> myMethodIdMap;
   private final TIntObjectHashMap<ThreadId> myThreadIdMap;
   private final TreeMap<Long, Memory.MemoryMap.MemoryRegion> myJniMemoryRegionMap;
+  private final AllocationEventIndex myAllocationEventIndex;
 
   private final ProfilerClient myClient;
   private final Common.Session mySession;
@@ -144,6 +144,9 @@ public class LiveAllocationCaptureObject implements CaptureObject {
 
     myClient = client;
     mySession = session;
+    // Events dropped from the index to bound its memory are fetched again from the start of the session at the earliest.
+    myAllocationEventIndex = new AllocationEventIndex(
+      (startTimeNs, endTimeNs) -> getAllocationEvents(Math.max(startTimeNs, mySession.getStartTimestamp()), endTimeNs));
     myCaptureStartTime = captureStartTime;
     myAspectObserver = new AspectObserver();
     myStage = stage;
@@ -497,41 +500,23 @@ public class LiveAllocationCaptureObject implements CaptureObject {
    * Populates the input list with all instance objects that are alive at |snapshotTimeNs|.
    */
   private void queryJavaInstanceSnapshot(long snapshotTimeNs, @NotNull List<InstanceObject> snapshotList) {
-    // Retrieve all the event samples from the start of the session until the snapshot time.
-    long sessionStartNs = mySession.getStartTimestamp();
-    List<Memory.BatchAllocationEvents> eventsList = getAllocationEvents(sessionStartNs, snapshotTimeNs);
-    Map<Integer, LiveAllocationInstanceObject> liveInstanceMap = new LinkedHashMap<>();
-    for (Memory.BatchAllocationEvents events : eventsList) {
-      // Only consider events up to but excluding the snapshot time.
-      Iterator<AllocationEvent> itr = events.getEventsList().stream().filter(evt -> evt.getTimestamp() < snapshotTimeNs)
-        .sorted(Comparator.comparingLong(AllocationEvent::getTimestamp)).iterator();
-      while (itr.hasNext()) {
-        AllocationEvent event = itr.next();
-        LiveAllocationInstanceObject instance;
-        switch (event.getEventCase()) {
-          case ALLOC_DATA:
-            // Allocation - create an InstanceObject. This might be removed later if there is a corresponding FREE_DATA event.
-            AllocationEvent.Allocation allocation = event.getAllocData();
-            instance = getOrCreateInstanceObject(allocation.getTag(), allocation.getClassTag(), allocation.getStackId(),
-                                                 allocation.getThreadId(), allocation.getSize(), allocation.getHeapId());
-            instance.setAllocationTime(event.getTimestamp());
-            liveInstanceMap.put(allocation.getTag(), instance);
-            break;
-          case FREE_DATA:
-            // Deallocation - there should be a matching InstanceObject.
-            AllocationEvent.Deallocation deallocation = event.getFreeData();
-            liveInstanceMap.remove(deallocation.getTag());
-            // Don't keep deallocated objects around in the cache to avoid bloating memory.
-            myInstanceMap.remove(deallocation.getTag());
-            break;
-          case CLASS_DATA:
-            // ignore CLASS_DATA as they are handled via context updates.
-            break;
-        }
+    // Only the objects allocated and not deallocated before the snapshot time are passed as allocations, and the index only
+    // replays the events since its nearest checkpoint to find them.
+    indexAllocationEvents(snapshotTimeNs);
+    myAllocationEventIndex.forEachLiveAllocation(snapshotTimeNs, new AllocationEventIndex.EventConsumer() {
+      @Override
+      public void onAllocation(long timestampNs, int tag, int classTag, int stackId, int threadId, long size, int heapId) {
+        LiveAllocationInstanceObject instance = getOrCreateInstanceObject(tag, classTag, stackId, threadId, size, heapId);
+        instance.setAllocationTime(timestampNs);
+        snapshotList.add(instance);
       }
-    }
 
-    snapshotList.addAll(liveInstanceMap.values());
+      @Override
+      public void onDeallocation(long timestampNs, int tag) {
+        // Don't keep deallocated objects around in the cache to avoid bloating memory.
+        myInstanceMap.remove(tag);
+      }
+    });
   }
 
   private void queryJniReferencesSnapshot(long snapshotTimeNs, @NotNull List<InstanceObject> snapshotList) {
@@ -606,41 +591,26 @@ public class LiveAllocationCaptureObject implements CaptureObject {
       return;
     }
 
+    // Only consider events between the delta range [start time, end time)
+    indexAllocationEvents(endTimeNs);
+    myAllocationEventIndex.forEachEvent(startTimeNs, endTimeNs, new AllocationEventIndex.EventConsumer() {
+      @Override
+      public void onAllocation(long timestampNs, int tag, int classTag, int stackId, int threadId, long size, int heapId) {
+        // New allocation - create an InstanceObject.
+        LiveAllocationInstanceObject instance = getOrCreateInstanceObject(tag, classTag, stackId, threadId, size, heapId);
+        instance.setAllocationTime(resetInstance ? Long.MIN_VALUE : timestampNs);
+        allocationList.add(instance);
+      }
 
-    List<Memory.BatchAllocationEvents> eventsList = getAllocationEvents(startTimeNs, endTimeNs);
-    for (Memory.BatchAllocationEvents events : eventsList) {
-      // Only consider events between the delta range [start time, end time)
-      Iterator<AllocationEvent> itr =
-        events.getEventsList().stream()
-          .filter(evt -> evt.getTimestamp() >= startTimeNs && evt.getTimestamp() < endTimeNs)
-          .sorted(Comparator.comparingLong(AllocationEvent::getTimestamp))
-          .iterator();
-      while (itr.hasNext()) {
-        AllocationEvent event = itr.next();
-        LiveAllocationInstanceObject instance;
-        switch (event.getEventCase()) {
-          case ALLOC_DATA:
-            // New allocation - create an InstanceObject.
-            AllocationEvent.Allocation allocation = event.getAllocData();
-            instance = getOrCreateInstanceObject(allocation.getTag(), allocation.getClassTag(), allocation.getStackId(),
-                                                 allocation.getThreadId(), allocation.getSize(), allocation.getHeapId());
-            instance.setAllocationTime(resetInstance ? Long.MIN_VALUE : event.getTimestamp());
-            allocationList.add(instance);
-            break;
-          case FREE_DATA:
-            // New deallocation - there should be a matching InstanceObject.
-            AllocationEvent.Deallocation deallocation = event.getFreeData();
-            assert myInstanceMap.containsKey(deallocation.getTag());
-            instance = myInstanceMap.get(deallocation.getTag());
-            instance.setDeallocTime(resetInstance ? Long.MAX_VALUE : event.getTimestamp());
-            deallocationList.add(instance);
-            break;
-          case CLASS_DATA:
-            // ignore CLASS_DATA as they are handled via context updates.
-            break;
-        }
+      @Override
+      public void onDeallocation(long timestampNs, int tag) {
+        // New deallocation - there should be a matching InstanceObject.
+        assert myInstanceMap.containsKey(tag);
+        LiveAllocationInstanceObject instance = myInstanceMap.get(tag);
+        instance.setDeallocTime(resetInstance ? Long.MAX_VALUE : timestampNs);
+        deallocationList.add(instance);
       }
-    }
+    });
   }
 
   private void queryJniReferencesDelta(long startTimeNs,
@@ -708,6 +678,20 @@ public class LiveAllocationCaptureObject implements CaptureObject {
     }
   }
 
+  /**
+   * Adds the allocation events up to endTimeNs that have not been fetched yet to {@link #myAllocationEventIndex}.
+   */
+  private void indexAllocationEvents(long endTimeNs) {
+    long indexedEndTimeNs = myAllocationEventIndex.getCompleteBeforeNs();
+    if (indexedEndTimeNs >= endTimeNs) {
+      return;
+    }
+    long startTimeNs = indexedEndTimeNs == Long.MIN_VALUE ? mySession.getStartTimestamp() : indexedEndTimeNs;
+    List<Memory.BatchAllocationEvents> batches = getAllocationEvents(startTimeNs, endTimeNs);
+    // Samples after the last one we have seen may not have arrived from the daemon yet, so they are requested again next time.
+    myAllocationEventIndex.addBatches(batches, Math.min(endTimeNs, myLastSeenTimestampNs));
+  }
+
   @NotNull
   NativeCallStack resolveNativeBacktrace(@Nullable NativeBacktrace backtrace) {
     if (backtrace == null || backtrace.getAddressesCount() == 0) {
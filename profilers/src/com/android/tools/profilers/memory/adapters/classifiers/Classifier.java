@@ -85,12 +85,31 @@ public abstract class Classifier {
       return;
     }
 
+    addSnapshotInstances(snapshotInstances);
+    addDeltaInstances(deltaInstances, snapshotInstances);
+    snapshotInstances.clear();
+    deltaInstances.clear();
+  }
+
+  /**
+   * Adds the given instances to the baseline snapshot of the ClassifierSets they belong to.
+   */
+  final void addSnapshotInstances(@NotNull Collection<InstanceObject> snapshotInstances) {
     snapshotInstances.forEach(instance -> getClassifierSet(instance, true).addSnapshotInstanceObject(instance));
+  }
+
+  /**
+   * Adds the allocation and deallocation information of the given instances to the ClassifierSets they belong to.
+   *
+   * @param allSnapshotInstances all instances of the baseline snapshot, whose allocations are already accounted for.
+   */
+  final void addDeltaInstances(@NotNull Collection<InstanceObject> deltaInstances,
+                               @NotNull Collection<InstanceObject> allSnapshotInstances) {
     deltaInstances.forEach(instance -> {
       if (instance.hasTimeData()) {
         // Note - we only add the instance allocation to our delta set if it is not already accounted for in the baseline snapshot.
         // Otherwise we would be double counting allocations.
-        if (instance.hasAllocTime() && !snapshotInstances.contains(instance)) {
+        if (instance.hasAllocTime() && !allSnapshotInstances.contains(instance)) {
           getClassifierSet(instance, true).addDeltaInstanceObject(instance);
         }
         if (instance.hasDeallocTime()) {
@@ -101,7 +120,5 @@ public abstract class Classifier {
         getClassifierSet(instance, true).addDeltaInstanceObject(instance);
       }
     });
-    snapshotInstances.clear();
-    deltaInstances.clear();
   }
 }
\ No newline at end of file
@@ -20,6 +20,7 @@ import com.android.tools.profilers.CachedFunction;
 import com.android.tools.profilers.memory.adapters.InstanceObject;
 import com.android.tools.profilers.memory.adapters.MemoryObject;
 import com.android.tools.profilers.memory.adapters.instancefilters.CaptureObjectInstanceFilter;
+import com.google.common.annotations.VisibleForTesting;
 import java.util.IdentityHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -32,8 +33,10 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -42,6 +45,16 @@ import org.jetbrains.annotations.Nullable;
  * A general base class for classifying/filtering objects into categories.
  */
 public abstract class ClassifierSet implements MemoryObject {
+  /**
+   * Number of instances from which the children of a ClassifierSet are built in parallel, see {@link #ensurePartition()}.
+   */
+  @VisibleForTesting
+  static int ourParallelPartitionThreshold = 1 << 16;
+  /**
+   * Number of chunks per worker thread the instances are split into, so that threads finishing early can pick up more work.
+   */
+  private static final int PARTITION_CHUNKS_PER_THREAD = 4;
+
   @Nullable private String myName;
   @Nullable private Supplier<String> myNameSupplier = null;
 
@@ -196,6 +209,7 @@ public abstract class ClassifierSet implements MemoryObject {
     }
     myInstanceFilterMatchCounter.invalidate();
     myNeedsRefiltering = true;
+    onInstancesChanged();
   }
 
   // Add delta alloc information into the ClassifierSet
@@ -265,6 +279,7 @@ public abstract class ClassifierSet implements MemoryObject {
     if (instanceChanged) {
       myInstanceFilterMatchCounter.invalidate();
     }
+    onInstancesChanged();
 
     return instanceChanged;
   }
@@ -283,6 +298,13 @@ public abstract class ClassifierSet implements MemoryObject {
     myObjectSetCount = 0;
     myFilteredObjectSetCount = 0;
     myFilterMatchCount = 0;
+    onInstancesChanged();
+  }
+
+  /**
+   * Called whenever instances are added to or removed from this set or its descendants.
+   */
+  protected void onInstancesChanged() {
   }
 
   public int getInstancesCount() {
@@ -411,10 +433,78 @@ public abstract class ClassifierSet implements MemoryObject {
   protected void ensurePartition() {
     if (myClassifier == null) {
       myClassifier = createSubClassifier();
-      myClassifier.partition(mySnapshotInstances, myDeltaInstances);
+      if (!myClassifier.isTerminalClassifier() &&
+          mySnapshotInstances.size() + myDeltaInstances.size() >= ourParallelPartitionThreshold) {
+        partitionInParallel(myClassifier);
+      }
+      else {
+        myClassifier.partition(mySnapshotInstances, myDeltaInstances);
+      }
+    }
+  }
+
+  /**
+   * Does the same as {@link Classifier#partition}, but splits the instances into chunks that are partitioned on the
+   * fork/join pool into separate classifiers. The children built for the chunks are then merged in chunk order, so
+   * the resulting children, their instances and their totals are the same as if the instances were partitioned serially.
+   */
+  private void partitionInParallel(@NotNull Classifier classifier) {
+    List<InstanceObject> snapshotInstances = new ArrayList<>(mySnapshotInstances);
+    List<InstanceObject> deltaInstances = new ArrayList<>(myDeltaInstances);
+    // As in Classifier#partition, all snapshot instances go first so that the children are created in the same order.
+    mergePartitions(classifier, partitionChunks(snapshotInstances, Classifier::addSnapshotInstances));
+    mergePartitions(classifier, partitionChunks(deltaInstances, (chunk, instances) ->
+      chunk.addDeltaInstances(instances, mySnapshotInstances)));
+    mySnapshotInstances.clear();
+    myDeltaInstances.clear();
+  }
+
+  @NotNull
+  private List<Classifier> partitionChunks(@NotNull List<InstanceObject> instances,
+                                           @NotNull BiConsumer<Classifier, List<InstanceObject>> partitioner) {
+    int maxChunkCount = PARTITION_CHUNKS_PER_THREAD * ForkJoinPool.getCommonPoolParallelism();
+    int chunkSize = Math.max(1, (instances.size() + maxChunkCount - 1) / maxChunkCount);
+    int chunkCount = (instances.size() + chunkSize - 1) / chunkSize;
+    return IntStream.range(0, chunkCount).parallel().mapToObj(chunk -> {
+      Classifier classifier = createSubClassifier();
+      int start = chunk * chunkSize;
+      partitioner.accept(classifier, instances.subList(start, Math.min(start + chunkSize, instances.size())));
+      return classifier;
+    }).collect(Collectors.toList());
+  }
+
+  private static void mergePartitions(@NotNull Classifier classifier, @NotNull List<Classifier> partitions) {
+    for (Classifier partition : partitions) {
+      for (ClassifierSet partialSet : partition.getAllClassifierSets()) {
+        InstanceObject instance = Stream.concat(partialSet.mySnapshotInstances.stream(), partialSet.myDeltaInstances.stream())
+          .findFirst().orElseThrow(IllegalStateException::new);
+        ClassifierSet classifierSet = classifier.getClassifierSet(instance, true);
+        assert classifierSet != null;
+        classifierSet.merge(partialSet);
+      }
     }
   }
 
+  /**
+   * Adds the instances and totals of a set built from a disjoint set of instances with the same classification.
+   */
+  private void merge(@NotNull ClassifierSet other) {
+    assert myClassifier == null && other.myClassifier == null;
+    mySnapshotInstances.addAll(other.mySnapshotInstances);
+    myDeltaInstances.addAll(other.myDeltaInstances);
+    mySnapshotObjectCount += other.mySnapshotObjectCount;
+    myDeltaAllocations += other.myDeltaAllocations;
+    myDeltaDeallocations += other.myDeltaDeallocations;
+    myDeltaAllocationsSize += other.myDeltaAllocationsSize;
+    myDeltaDeallocationsSize += other.myDeltaDeallocationsSize;
+    myTotalNativeSize += other.myTotalNativeSize;
+    myTotalShallowSize += other.myTotalShallowSize;
+    myTotalRetainedSize += other.myTotalRetainedSize;
+    myInstancesWithStackInfoCount += other.myInstancesWithStackInfoCount;
+    myInstanceFilterMatchCounter.invalidate();
+    myNeedsRefiltering = true;
+  }
+
   /**
    * Gets the classifier this class will use to classify its instances.
    */
@@ -19,9 +19,11 @@ import com.android.tools.adtui.model.filter.Filter;
 import com.android.tools.profilers.memory.ClassGrouping;
 import com.android.tools.profilers.memory.adapters.CaptureObject;
 import com.android.tools.profilers.memory.adapters.InstanceObject;
+import java.lang.ref.SoftReference;
 import java.util.List;
 import java.util.stream.Collectors;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * Classifies {@link InstanceObject}s based on their allocation's heap ID.
@@ -31,6 +33,11 @@ public class HeapSet extends ClassifierSet {
   @NotNull protected ClassGrouping myClassGrouping = ClassGrouping.ARRANGE_BY_CLASS;
   private final int myId;
   @NotNull private Filter myFilter;
+  /**
+   * The classifier tree of the grouping used before the current one, so that switching back and forth between two groupings does not
+   * partition all instances again. The tree is softly referenced, and is dropped as soon as the instances of this heap change.
+   */
+  @Nullable private CachedClassifier myCachedClassifier;
 
   public HeapSet(@NotNull CaptureObject captureObject, @NotNull String heapName, int id) {
     super(heapName);
@@ -48,8 +55,19 @@ public class HeapSet extends ClassifierSet {
     if (myClassGrouping == classGrouping) {
       return;
     }
+    Classifier cachedClassifier = myCachedClassifier == null ? null : myCachedClassifier.get(classGrouping, myFilter);
+    myCachedClassifier = myClassifier == null ? null : new CachedClassifier(myClassGrouping, myFilter, myClassifier);
     myClassGrouping = classGrouping;
 
+    if (cachedClassifier != null) {
+      // The cached tree already holds all instances, and was filtered with the current filter.
+      myDeltaInstances.clear();
+      mySnapshotInstances.clear();
+      myClassifier = cachedClassifier;
+      myNeedsRefiltering = true;
+      return;
+    }
+
     // Gather all the instances from the descendants and add them to the heap node.
     // Subsequent calls to getChildrenClassifierSets will re-partition them to the correct child ClassifierSet.
     List<InstanceObject> snapshotStream = getSnapshotInstanceStream().collect(Collectors.toList());
@@ -66,6 +84,11 @@ public class HeapSet extends ClassifierSet {
     return myId;
   }
 
+  @Override
+  protected void onInstancesChanged() {
+    myCachedClassifier = null;
+  }
+
   // Select and apply a filter.
   // When there are content changes in HeapSet, we need to re-select the same filter.
   public void selectFilter(@NotNull Filter filter) {
@@ -105,4 +128,24 @@ public class HeapSet extends ClassifierSet {
         throw new RuntimeException("Classifier type not implemented: " + myClassGrouping);
     }
   }
+
+  private static final class CachedClassifier {
+    @NotNull private final ClassGrouping myClassGrouping;
+    @NotNull private final Filter myFilter;
+    @NotNull private final SoftReference<Classifier> myClassifier;
+
+    private CachedClassifier(@NotNull ClassGrouping classGrouping, @NotNull Filter filter, @NotNull Classifier classifier) {
+      myClassGrouping = classGrouping;
+      myFilter = filter;
+      myClassifier = new SoftReference<>(classifier);
+    }
+
+    /**
+     * Returns the cached tree if it was built for the given grouping and filter, and has not been collected yet.
+     */
+    @Nullable
+    private Classifier get(@NotNull ClassGrouping classGrouping, @NotNull Filter filter) {
+      return myClassGrouping == classGrouping && myFilter.equals(filter) ? myClassifier.get() : null;
+    }
+  }
 }
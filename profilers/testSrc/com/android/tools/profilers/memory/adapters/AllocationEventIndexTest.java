@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.profilers.memory.adapters;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.android.tools.profiler.proto.Memory.AllocationEvent;
+import com.android.tools.profiler.proto.Memory.BatchAllocationEvents;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+public class AllocationEventIndexTest {
+  private static final long SECOND_NS = TimeUnit.SECONDS.toNanos(1);
+  private static final AllocationEventIndex.BatchLoader NO_EVENTS = (startTimeNs, endTimeNs) -> Collections.emptyList();
+
+  @Test
+  public void testEventsAreVisitedInTimestampOrder() {
+    AllocationEventIndex index = new AllocationEventIndex(NO_EVENTS);
+    // Batches arrive after the events they contain, and may contain events of earlier buckets.
+    index.addBatch(BatchAllocationEvents.newBuilder().setTimestamp(2 * SECOND_NS)
+                     .addEvents(allocation(SECOND_NS + 10, 2))
+                     .addEvents(allocation(10, 1))
+                     .addEvents(deallocation(2 * SECOND_NS - 1, 1))
+                     .build());
+    index.addBatch(BatchAllocationEvents.newBuilder().setTimestamp(3 * SECOND_NS)
+                     .addEvents(allocation(SECOND_NS + 5, 3))
+                     .build());
+    assertThat(index.getEventCount()).isEqualTo(4);
+
+    assertThat(collect(index, Long.MIN_VALUE, Long.MAX_VALUE)).containsExactly("+1@10", "+3@1000000005", "+2@1000000010", "-1@1999999999")
+      .inOrder();
+    // The range excludes its end.
+    assertThat(collect(index, 10, SECOND_NS + 10)).containsExactly("+1@10", "+3@1000000005").inOrder();
+    assertThat(collect(index, 5 * SECOND_NS, 6 * SECOND_NS)).isEmpty();
+  }
+
+  @Test
+  public void testBatchesAreAddedOnce() {
+    AllocationEventIndex index = new AllocationEventIndex(NO_EVENTS);
+    BatchAllocationEvents batch = BatchAllocationEvents.newBuilder().setTimestamp(SECOND_NS).addEvents(allocation(10, 1)).build();
+    index.addBatch(batch);
+    // Overlapping queries return the same batch again.
+    index.addBatch(batch);
+    assertThat(index.getEventCount()).isEqualTo(1);
+    assertThat(collect(index, 0, SECOND_NS)).containsExactly("+1@10");
+  }
+
+  @Test
+  public void testSnapshotsReplayFromCheckpoints() {
+    AllocationEventIndex index = new AllocationEventIndex(NO_EVENTS);
+    // Every second allocates an object and frees the previous one, so only one object is alive at a time.
+    BatchAllocationEvents.Builder batch = BatchAllocationEvents.newBuilder().setTimestamp(60 * SECOND_NS);
+    for (int i = 0; i < 60; i++) {
+      batch.addEvents(allocation(i * SECOND_NS, i + 1));
+      if (i > 0) {
+        batch.addEvents(deallocation(i * SECOND_NS + 1, i));
+      }
+    }
+    index.addBatches(Collections.singletonList(batch.build()), 60 * SECOND_NS);
+
+    // The first snapshot replays all the events and records checkpoints along the way.
+    List<String> events = collectLiveAllocations(index, 35 * SECOND_NS + 5);
+    assertThat(events).hasSize(36);
+    assertThat(events.get(35)).isEqualTo("+36@35000000000");
+    assertThat(index.getCheckpointCount()).isEqualTo(3);
+
+    // Later snapshots only replay the events since the nearest checkpoint.
+    events = collectLiveAllocations(index, 45 * SECOND_NS + 5);
+    assertThat(events).hasSize(17);
+    assertThat(events.get(0)).isEqualTo("-30@30000000001");
+    assertThat(events.get(16)).isEqualTo("+46@45000000000");
+    assertThat(collectLiveAllocations(index, 20 * SECOND_NS)).containsExactly("+20@19000000000");
+  }
+
+  @Test
+  public void testDroppedEventsAreFetchedAgain() {
+    List<BatchAllocationEvents> batches = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      batches.add(BatchAllocationEvents.newBuilder().setTimestamp((i + 1) * SECOND_NS).addEvents(allocation(i * SECOND_NS, i + 1)).build());
+    }
+    AtomicInteger loadCount = new AtomicInteger();
+    AllocationEventIndex index = new AllocationEventIndex((startTimeNs, endTimeNs) -> {
+      loadCount.incrementAndGet();
+      return batches.stream().filter(batch -> batch.getTimestamp() > startTimeNs && batch.getTimestamp() - SECOND_NS < endTimeNs)
+        .collect(Collectors.toList());
+    }, 4, 100);
+    index.addBatches(batches, 10 * SECOND_NS);
+    // Only the newest events are kept.
+    assertThat(index.getEventCount()).isEqualTo(4);
+    assertThat(collect(index, 6 * SECOND_NS, 10 * SECOND_NS)).hasSize(4);
+    assertThat(loadCount.get()).isEqualTo(0);
+
+    assertThat(collect(index, Long.MIN_VALUE, 8 * SECOND_NS))
+      .containsExactly("+1@0", "+2@1000000000", "+3@2000000000", "+4@3000000000", "+5@4000000000", "+6@5000000000", "+7@6000000000",
+                       "+8@7000000000")
+      .inOrder();
+    assertThat(loadCount.get()).isEqualTo(1);
+  }
+
+  @NotNull
+  private static AllocationEvent allocation(long timestampNs, int tag) {
+    return AllocationEvent.newBuilder().setTimestamp(timestampNs)
+      .setAllocData(AllocationEvent.Allocation.newBuilder().setTag(tag).setClassTag(1).setSize(8)).build();
+  }
+
+  @NotNull
+  private static AllocationEvent deallocation(long timestampNs, int tag) {
+    return AllocationEvent.newBuilder().setTimestamp(timestampNs).setFreeData(AllocationEvent.Deallocation.newBuilder().setTag(tag)).build();
+  }
+
+  @NotNull
+  private static List<String> collect(@NotNull AllocationEventIndex index, long startTimeNs, long endTimeNs) {
+    List<String> events = new ArrayList<>();
+    index.forEachEvent(startTimeNs, endTimeNs, new AllocationEventIndex.EventConsumer() {
+      @Override
+      public void onAllocation(long timestampNs, int tag, int classTag, int stackId, int threadId, long size, int heapId) {
+        events.add("+" + tag + "@" + timestampNs);
+      }
+
+      @Override
+      public void onDeallocation(long timestampNs, int tag) {
+        events.add("-" + tag + "@" + timestampNs);
+      }
+    });
+    return events;
+  }
+
+  @NotNull
+  private static List<String> collectLiveAllocations(@NotNull AllocationEventIndex index, long snapshotTimeNs) {
+    List<String> events = new ArrayList<>();
+    index.forEachLiveAllocation(snapshotTimeNs, new AllocationEventIndex.EventConsumer() {
+      @Override
+      public void onAllocation(long timestampNs, int tag, int classTag, int stackId, int threadId, long size, int heapId) {
+        events.add("+" + tag + "@" + timestampNs);
+      }
+
+      @Override
+      public void onDeallocation(long timestampNs, int tag) {
+        events.add("-" + tag + "@" + timestampNs);
+      }
+    });
+    return events;
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.profilers.memory.adapters;
+
+import static org.junit.Assert.assertEquals;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+public class DominatorTreeTest {
+  @Test
+  public void testDiamond() {
+    // 0 -> 1 -> 3 -> 4
+    // 0 -> 2 -> 3
+    DominatorTree tree = compute(new int[][]{{1, 2}, {3}, {3}, {4}, {}}, new int[]{0}, new long[]{1, 2, 4, 8, 16});
+    assertEquals(DominatorTree.ROOT, tree.getImmediateDominator(0));
+    assertEquals(0, tree.getImmediateDominator(1));
+    assertEquals(0, tree.getImmediateDominator(2));
+    assertEquals(0, tree.getImmediateDominator(3));
+    assertEquals(3, tree.getImmediateDominator(4));
+
+    assertEquals(31, tree.getRetainedSize(0));
+    assertEquals(2, tree.getRetainedSize(1));
+    assertEquals(4, tree.getRetainedSize(2));
+    assertEquals(24, tree.getRetainedSize(3));
+    assertEquals(16, tree.getRetainedSize(4));
+
+    assertEquals(0, tree.getDepth(0));
+    assertEquals(1, tree.getDepth(1));
+    assertEquals(2, tree.getDepth(3));
+    assertEquals(3, tree.getDepth(4));
+  }
+
+  @Test
+  public void testCycleReachableFromTwoRoots() {
+    // 0 -> 2 <-> 3 <- 1, and 3 -> 4
+    DominatorTree tree = compute(new int[][]{{2}, {3}, {3}, {2, 4}, {}}, new int[]{0, 1}, new long[]{1, 1, 1, 1, 1});
+    assertEquals(DominatorTree.ROOT, tree.getImmediateDominator(0));
+    assertEquals(DominatorTree.ROOT, tree.getImmediateDominator(1));
+    // Neither root alone dominates the cycle.
+    assertEquals(DominatorTree.ROOT, tree.getImmediateDominator(2));
+    assertEquals(DominatorTree.ROOT, tree.getImmediateDominator(3));
+    assertEquals(3, tree.getImmediateDominator(4));
+
+    assertEquals(1, tree.getRetainedSize(0));
+    assertEquals(1, tree.getRetainedSize(1));
+    assertEquals(2, tree.getRetainedSize(3));
+    assertEquals(2, tree.getDepth(4));
+  }
+
+  @Test
+  public void testRootReachableFromOtherRoot() {
+    // 0 -> 1 -> 2, and both 0 and 1 are roots.
+    DominatorTree tree = compute(new int[][]{{1}, {2}, {}}, new int[]{0, 1}, new long[]{1, 2, 4});
+    assertEquals(DominatorTree.ROOT, tree.getImmediateDominator(1));
+    assertEquals(1, tree.getImmediateDominator(2));
+    assertEquals(1, tree.getRetainedSize(0));
+    assertEquals(6, tree.getRetainedSize(1));
+    assertEquals(0, tree.getDepth(1));
+  }
+
+  @Test
+  public void testUnreachableNodes() {
+    // 1 -> 0 -> 2, and only 0 is a root.
+    DominatorTree tree = compute(new int[][]{{2}, {0}, {}}, new int[]{0}, new long[]{1, 2, 4});
+    assertEquals(DominatorTree.UNREACHABLE, tree.getImmediateDominator(1));
+    assertEquals(DominatorTree.UNREACHABLE, tree.getDepth(1));
+    assertEquals(2, tree.getRetainedSize(1));
+    assertEquals(5, tree.getRetainedSize(0));
+  }
+
+  @Test
+  public void testLongChain() {
+    // Deep enough to overflow the call stack of a recursive implementation.
+    int nodeCount = 1_000_000;
+    int[] offsets = new int[nodeCount + 1];
+    int[] successors = new int[nodeCount - 1];
+    long[] sizes = new long[nodeCount];
+    for (int i = 0; i < nodeCount; i++) {
+      if (i < nodeCount - 1) {
+        successors[i] = i + 1;
+      }
+      offsets[i + 1] = Math.min(i + 1, nodeCount - 1);
+      sizes[i] = 1;
+    }
+    DominatorTree tree = DominatorTree.compute(offsets, successors, new int[]{0}, sizes);
+    assertEquals(nodeCount, tree.getRetainedSize(0));
+    assertEquals(nodeCount - 2, tree.getImmediateDominator(nodeCount - 1));
+    assertEquals(nodeCount - 1, tree.getDepth(nodeCount - 1));
+  }
+
+  @NotNull
+  private static DominatorTree compute(@NotNull int[][] graph, @NotNull int[] roots, @NotNull long[] sizes) {
+    int[] offsets = new int[graph.length + 1];
+    for (int i = 0; i < graph.length; i++) {
+      offsets[i + 1] = offsets[i] + graph[i].length;
+    }
+    int[] successors = new int[offsets[graph.length]];
+    for (int i = 0; i < graph.length; i++) {
+      System.arraycopy(graph[i], 0, successors, offsets[i], graph[i].length);
+    }
+    return DominatorTree.compute(offsets, successors, roots, sizes);
+  }
+}
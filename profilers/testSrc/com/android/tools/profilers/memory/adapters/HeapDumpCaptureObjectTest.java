@@ -20,13 +20,17 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 import com.android.testutils.TestUtils;
 import com.android.tools.adtui.model.FakeTimer;
 import com.android.tools.idea.protobuf.ByteString;
 import com.android.tools.idea.transport.faketransport.FakeGrpcChannel;
 import com.android.tools.idea.transport.faketransport.FakeTransportService;
+import com.android.tools.perflib.heap.Instance;
 import com.android.tools.perflib.heap.SnapshotBuilder;
 import com.android.tools.profiler.proto.Memory.HeapDumpInfo;
 import com.android.tools.profilers.FakeIdeProfilerServices;
@@ -184,6 +188,76 @@ public class HeapDumpCaptureObjectTest {
     assertNotNull(defaultHeap);
   }
 
+  @Test
+  public void testHeapDumpIsMappedFromTemporaryFile() throws Exception {
+    long startTimeNs = 3;
+    HeapDumpInfo dumpInfo = HeapDumpInfo.newBuilder().setStartTime(startTimeNs).setEndTime(8).build();
+    HeapDumpCaptureObject capture =
+      new HeapDumpCaptureObject(new ProfilerClient(myGrpcChannel.getChannel()), ProfilersTestData.SESSION_DATA,
+                                dumpInfo, null, myIdeProfilerServices.getFeatureTracker(),
+                                myStage.getStudioProfilers().getIdeServices());
+
+    SnapshotBuilder snapshotBuilder = new SnapshotBuilder(2, 0, 0)
+      .addReferences(1, 2)
+      .addRoot(1);
+    byte[] buffer = snapshotBuilder.getByteBuffer();
+    myTransportService.addFile(Long.toString(startTimeNs), ByteString.copyFrom(buffer));
+    capture.load(null, null);
+    assertFalse(capture.isError());
+
+    File heapDumpFile = capture.getHeapDumpFile();
+    assertNotNull(heapDumpFile);
+    assertEquals(buffer.length, heapDumpFile.length());
+
+    // Instances looked up by their perflib instance are the ones in the heap sets.
+    capture.getInstances().forEach(instance -> {
+      Instance perflibInstance = ((HeapDumpInstanceObject)instance).getInstance();
+      assertSame(instance, capture.findInstanceObject(perflibInstance));
+    });
+    Instance unknownInstance = mock(Instance.class);
+    when(unknownInstance.getId()).thenReturn(1000L);
+    assertNull(capture.findInstanceObject(unknownInstance));
+
+    capture.unload();
+    assertFalse(heapDumpFile.exists());
+  }
+
+  @Test
+  public void testRetainedSizesAreComputedInBackground() throws Exception {
+    long startTimeNs = 3;
+    HeapDumpInfo dumpInfo = HeapDumpInfo.newBuilder().setStartTime(startTimeNs).setEndTime(8).build();
+    HeapDumpCaptureObject capture =
+      new HeapDumpCaptureObject(new ProfilerClient(myGrpcChannel.getChannel()), ProfilersTestData.SESSION_DATA,
+                                dumpInfo, null, myIdeProfilerServices.getFeatureTracker(),
+                                myStage.getStudioProfilers().getIdeServices());
+
+    // - 1 holds reference to 2
+    // - single root object in default heap
+    SnapshotBuilder snapshotBuilder = new SnapshotBuilder(2, 0, 0)
+      .addReferences(1, 2)
+      .addRoot(1);
+    myTransportService.addFile(Long.toString(startTimeNs), ByteString.copyFrom(snapshotBuilder.getByteBuffer()));
+    capture.load(null, Runnable::run);
+    assertTrue(capture.isDoneLoading());
+    assertNotNull(capture.getPendingUpdate());
+    capture.getPendingUpdate().get();
+
+    HeapSet testHeap = capture.getHeapSets().stream().filter(heap -> "testHeap".equals(heap.getName())).findFirst().orElse(null);
+    assertNotNull(testHeap);
+    Classifier classClassifier = ClassSet.createDefaultClassifier();
+    classClassifier.partition(
+      Collections.emptyList(), testHeap.getInstancesStream().collect(HashSet::new, HashSet::add, HashSet::addAll));
+    InstanceObject instance0 = findChildClassSetWithName(classClassifier, "Class0").getInstancesStream().findFirst().orElse(null);
+    InstanceObject instance1 = findChildClassSetWithName(classClassifier, "Class1").getInstancesStream().findFirst().orElse(null);
+    assertEquals(0, instance0.getDepth());
+    assertEquals(1, instance1.getDepth());
+    // The root is the only path to the other instance, so it retains it.
+    assertEquals(instance1.getShallowSize(), instance1.getRetainedSize());
+    assertEquals(instance0.getShallowSize() + instance1.getShallowSize(), instance0.getRetainedSize());
+    // The heap sets are refreshed once the retained sizes are known.
+    assertTrue(testHeap.getTotalRetainedSize() >= instance0.getRetainedSize());
+  }
+
   @Test
   public void testLoadingFailure() throws Exception {
     HeapDumpInfo dumpInfo = HeapDumpInfo.newBuilder().setStartTime(3).setEndTime(8).build();
@@ -249,6 +323,45 @@ public class HeapDumpCaptureObjectTest {
     Truth.assertThat(capture.getInstances().count()).isEqualTo(allInstanceCount);
   }
 
+  @Test
+  public void testActivityLeakFilterAppliedBeforeDominatorTreeIsReady() throws Exception {
+    HeapDumpInfo dumpInfo = HeapDumpInfo.newBuilder().setStartTime(0).setEndTime(1).build();
+    HeapDumpCaptureObject capture =
+      new HeapDumpCaptureObject(new ProfilerClient(myGrpcChannel.getChannel()), ProfilersTestData.SESSION_DATA,
+                                dumpInfo, null, myIdeProfilerServices.getFeatureTracker(),
+                                myStage.getStudioProfilers().getIdeServices());
+
+    File hprof = TestUtils.getWorkspaceFile("tools/adt/idea/profilers/testData/hprofs/displayingbitmaps_leakedActivity.hprof");
+    FileInputStream inputStream = new FileInputStream(hprof);
+    MappedByteBuffer buffer = inputStream.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, inputStream.getChannel().size());
+    buffer.load();
+    myTransportService.addFile(Long.toString(0), ByteString.copyFrom(buffer));
+
+    // Keep the dominator tree from being computed until the filter has run.
+    CountDownLatch treeLatch = new CountDownLatch(1);
+    capture.getDominatorExecutor().execute(() -> {
+      try {
+        treeLatch.await();
+      }
+      catch (InterruptedException ignored) {
+      }
+    });
+    capture.load(null, Runnable::run);
+    assertTrue(capture.isDoneLoading());
+    assertNotNull(capture.getPendingUpdate());
+
+    CaptureObjectInstanceFilter leakFilter = capture.getActivityFragmentLeakFilter();
+    capture.addInstanceFilter(leakFilter, Runnable::run).get();
+    assertFalse(capture.getPendingUpdate().isDone());
+
+    // The filter is applied again once the depths are known.
+    treeLatch.countDown();
+    capture.getPendingUpdate().get();
+    List<InstanceObject> filteredInstances = capture.getInstances().collect(Collectors.toList());
+    Truth.assertThat(filteredInstances).hasSize(7);
+    Truth.assertThat(capture.getSelectedInstanceFilters()).containsExactly(leakFilter);
+  }
+
   private static void verifyInstance(@NotNull InstanceObject instance,
                                      @NotNull String valueText,
                                      int depth,
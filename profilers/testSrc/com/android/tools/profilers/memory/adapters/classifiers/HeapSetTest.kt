@@ -15,8 +15,11 @@
  */
 package com.android.tools.profilers.memory.adapters.classifiers
 
+import com.android.tools.adtui.model.filter.Filter
+import com.android.tools.profilers.memory.ClassGrouping
 import com.android.tools.profilers.memory.adapters.FakeCaptureObject
 import com.android.tools.profilers.memory.adapters.FakeInstanceObject
+import com.android.tools.profilers.memory.adapters.InstanceObject
 import com.google.common.truth.Truth.assertThat
 import org.junit.Test
 
@@ -32,4 +35,88 @@ class HeapSetTest {
     h.removeAddedDeltaInstanceObject(inst1)
     assertThat(h.totalRemainingSize).isEqualTo(inst2.shallowSize)
   }
-}
\ No newline at end of file
+
+  @Test
+  fun `parallel partition builds the same children as serial partition`() {
+    val capture = FakeCaptureObject.Builder().build()
+    val instances = createInstances(capture)
+    val serial = HeapSet(capture, "Serial", 1).apply { instances.forEach { addDeltaInstanceObject(it) } }
+    val parallel = HeapSet(capture, "Parallel", 2).apply { instances.forEach { addDeltaInstanceObject(it) } }
+    serial.setClassGrouping(ClassGrouping.ARRANGE_BY_PACKAGE)
+    parallel.setClassGrouping(ClassGrouping.ARRANGE_BY_PACKAGE)
+
+    val serialChildren = serial.childrenClassifierSets
+    val threshold = ClassifierSet.ourParallelPartitionThreshold
+    ClassifierSet.ourParallelPartitionThreshold = 0
+    val parallelChildren = try {
+      parallel.childrenClassifierSets
+    }
+    finally {
+      ClassifierSet.ourParallelPartitionThreshold = threshold
+    }
+
+    assertThat(parallelChildren.map { it.name }).containsExactlyElementsIn(serialChildren.map { it.name }).inOrder()
+    serialChildren.zip(parallelChildren).forEach { (expected, actual) ->
+      assertThat(actual.deltaAllocationCount).isEqualTo(expected.deltaAllocationCount)
+      assertThat(actual.totalShallowSize).isEqualTo(expected.totalShallowSize)
+      assertThat(actual.instancesStream.toArray()).isEqualTo(expected.instancesStream.toArray())
+    }
+  }
+
+  @Test
+  fun `switching back to a grouping reuses its classifier sets until instances change`() {
+    val capture = FakeCaptureObject.Builder().build()
+    val h = HeapSet(capture, "Fake", 42)
+    createInstances(capture).forEach { h.addDeltaInstanceObject(it) }
+    val classSets = h.childrenClassifierSets
+
+    h.setClassGrouping(ClassGrouping.ARRANGE_BY_PACKAGE)
+    assertThat(h.childrenClassifierSets.all { it is PackageSet }).isTrue()
+    h.setClassGrouping(ClassGrouping.ARRANGE_BY_CLASS)
+    assertThat(h.childrenClassifierSets).containsExactlyElementsIn(classSets).inOrder()
+    assertThat(h.instancesCount).isEqualTo(100)
+
+    h.setClassGrouping(ClassGrouping.ARRANGE_BY_PACKAGE)
+    h.addDeltaInstanceObject(FakeInstanceObject.Builder(capture, 100, "com.new.Cls").build())
+    h.setClassGrouping(ClassGrouping.ARRANGE_BY_CLASS)
+    assertThat(h.childrenClassifierSets).hasSize(classSets.size + 1)
+    assertThat(h.instancesCount).isEqualTo(101)
+  }
+
+  @Test
+  fun `only the previous grouping is cached`() {
+    val capture = FakeCaptureObject.Builder().build()
+    val h = HeapSet(capture, "Fake", 42)
+    createInstances(capture).forEach { h.addDeltaInstanceObject(it) }
+    val classSets = h.childrenClassifierSets
+
+    h.setClassGrouping(ClassGrouping.ARRANGE_BY_PACKAGE)
+    h.childrenClassifierSets
+    h.setClassGrouping(ClassGrouping.ARRANGE_BY_CALLSTACK)
+    h.childrenClassifierSets
+    h.setClassGrouping(ClassGrouping.ARRANGE_BY_CLASS)
+    val rebuiltClassSets = h.childrenClassifierSets
+    assertThat(rebuiltClassSets.map { it.name }).containsExactlyElementsIn(classSets.map { it.name })
+    assertThat(rebuiltClassSets.none { it in classSets }).isTrue()
+    assertThat(h.instancesCount).isEqualTo(100)
+  }
+
+  @Test
+  fun `switching back to a grouping reuses its classifier sets with a non-empty filter`() {
+    val capture = FakeCaptureObject.Builder().build()
+    val h = HeapSet(capture, "Fake", 42)
+    createInstances(capture).forEach { h.addDeltaInstanceObject(it) }
+    h.selectFilter(Filter("pkg1"))
+    val classSets = h.childrenClassifierSets
+
+    h.setClassGrouping(ClassGrouping.ARRANGE_BY_PACKAGE)
+    h.selectFilter(Filter("pkg1"))
+    h.setClassGrouping(ClassGrouping.ARRANGE_BY_CLASS)
+    assertThat(h.childrenClassifierSets).containsExactlyElementsIn(classSets).inOrder()
+  }
+
+  private fun createInstances(capture: FakeCaptureObject): List<InstanceObject> =
+    (0 until 100).map { i ->
+      FakeInstanceObject.Builder(capture, (i % 10).toLong(), "com.pkg${i % 10 % 3}.Cls${i % 10}").setShallowSize(i).build()
+    }
+}
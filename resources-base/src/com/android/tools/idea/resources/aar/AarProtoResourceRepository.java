@@ -50,6 +50,7 @@ import com.android.tools.idea.resources.base.BasicTextValueResourceItem;
 import com.android.tools.idea.resources.base.BasicValueResourceItem;
 import com.android.tools.idea.resources.base.RepositoryConfiguration;
 import com.android.tools.idea.resources.base.RepositoryLoader;
+import com.android.tools.idea.resources.base.ResourcePool;
 import com.android.tools.idea.resources.base.ResourceSourceFile;
 import com.android.tools.idea.resources.base.ResourceSourceFileImpl;
 import com.android.tools.idea.resources.base.ResourceUrlParser;
@@ -608,7 +609,7 @@ public class AarProtoResourceRepository extends AbstractAarResourceRepository {
       FolderConfiguration configuration = ProtoConfigurationDecoder.getConfiguration(configMsg);
       configuration.normalizeByRemovingRedundantVersionQualifier();
 
-      sourceFile = new ResourceSourceFileImpl(sourcePath, new RepositoryConfiguration(repository, configuration));
+      sourceFile = new ResourceSourceFileImpl(sourcePath, new RepositoryConfiguration(repository, ResourcePool.intern(configuration)));
       mySourceFileCache.put(sourcePathKey, configMsg, sourceFile);
       return sourceFile;
     }
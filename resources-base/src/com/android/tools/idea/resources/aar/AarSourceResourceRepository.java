@@ -34,7 +34,6 @@ import com.android.tools.idea.resources.base.Base128InputStream;
 import com.android.tools.idea.resources.base.Base128OutputStream;
 import com.android.tools.idea.resources.base.BasicFileResourceItem;
 import com.android.tools.idea.resources.base.BasicResourceItem;
-import com.android.tools.idea.resources.base.NamespaceResolver;
 import com.android.tools.idea.resources.base.RepositoryConfiguration;
 import com.android.tools.idea.resources.base.RepositoryLoader;
 import com.android.tools.idea.resources.base.ResourceSerializationUtil;
@@ -264,7 +263,7 @@ public class AarSourceResourceRepository extends AbstractAarResourceRepository {
       if (!stream.validateContents(fileHeader)) {
         return false; // Cache file header doesn't match.
       }
-      loadFromStream(stream, Maps.newHashMapWithExpectedSize(1000), null);
+      loadFromStream(stream, Maps.newHashMapWithExpectedSize(1000));
 
       populatePublicResourcesMap();
       freezeResources();
@@ -302,10 +301,8 @@ public class AarSourceResourceRepository extends AbstractAarResourceRepository {
    * Loads contents the repository from the given input stream.
    * @see #writeToStream(Base128OutputStream, Predicate)
    */
-  protected void loadFromStream(@NotNull Base128InputStream stream,
-                                @NotNull Map<String, String> stringCache,
-                                @Nullable Map<NamespaceResolver, NamespaceResolver> namespaceResolverCache) throws IOException {
-    ResourceSerializationUtil.readResourcesFromStream(stream, stringCache, namespaceResolverCache, this, item -> addResourceItem(item));
+  protected void loadFromStream(@NotNull Base128InputStream stream, @NotNull Map<String, String> stringCache) throws IOException {
+    ResourceSerializationUtil.readResourcesFromStream(stream, stringCache, this, item -> addResourceItem(item));
   }
 
   @TestOnly
@@ -28,8 +28,6 @@ import com.android.tools.idea.resources.base.Base128InputStream;
 import com.android.tools.idea.resources.base.Base128OutputStream;
 import com.android.tools.idea.resources.base.BasicResourceItem;
 import com.android.tools.idea.resources.base.BasicResourceItemBase;
-import com.android.tools.idea.resources.base.BasicValueResourceItemBase;
-import com.android.tools.idea.resources.base.NamespaceResolver;
 import com.android.tools.idea.resources.base.RepositoryConfiguration;
 import com.android.tools.idea.resources.base.RepositoryLoader;
 import com.android.tools.idea.resources.base.ResourceSerializationUtil;
@@ -49,7 +47,6 @@ import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
@@ -164,17 +161,16 @@ public final class FrameworkResourceRepository extends AarSourceResourceReposito
                     @NotNull Loader loader,
                     @Nullable Set<String> languageGroups,
                     @NotNull Set<String> languageGroupsLoadedFromSourceRepositoryOrCache) {
-    Map<String, String> stringCache = Maps.newHashMapWithExpectedSize(10000);
-    Map<NamespaceResolver, NamespaceResolver> namespaceResolverCache = new HashMap<>();
     Set<RepositoryConfiguration> configurationsToTakeOver =
-        sourceRepository == null ? ImmutableSet.of() : copyFromRepository(sourceRepository, stringCache, namespaceResolverCache);
+        sourceRepository == null ? ImmutableSet.of() : copyFromRepository(sourceRepository);
+    // The string cache is shared by all language groups since many values are repeated across them.
+    Map<String, String> stringCache = Maps.newHashMapWithExpectedSize(10000);
 
     // If not loading from a jar file, try to load from a cache file first. A separate cache file is not used
     // when loading from framework_res.jar since it already contains data in the cache format. Loading from
     // framework_res.jar or a cache file is significantly faster than reading individual resource files.
     if (!loader.isLoadingFromZipArchive() && cachingData != null) {
-      loadFromPersistentCache(cachingData, languageGroups, languageGroupsLoadedFromSourceRepositoryOrCache, stringCache,
-                              namespaceResolverCache);
+      loadFromPersistentCache(cachingData, languageGroups, languageGroupsLoadedFromSourceRepositoryOrCache, stringCache);
     }
 
     myLanguageGroups.addAll(languageGroupsLoadedFromSourceRepositoryOrCache);
@@ -212,32 +208,20 @@ public final class FrameworkResourceRepository extends AarSourceResourceReposito
    * Copies resources from another FrameworkResourceRepository.
    *
    * @param sourceRepository the repository to copy resources from
-   * @param stringCache the string cache to populate with the names of copied resources
-   * @param namespaceResolverCache the namespace resolver cache to populate with namespace resolvers referenced by the copied resources
    * @return the {@link RepositoryConfiguration} objects referenced by the copied resources
    */
   @NotNull
-  private Set<RepositoryConfiguration> copyFromRepository(@NotNull FrameworkResourceRepository sourceRepository,
-                                                          @NotNull Map<String, String> stringCache,
-                                                          @NotNull Map<NamespaceResolver, NamespaceResolver> namespaceResolverCache) {
+  private Set<RepositoryConfiguration> copyFromRepository(@NotNull FrameworkResourceRepository sourceRepository) {
     Collection<ListMultimap<String, ResourceItem>> resourceMaps = sourceRepository.myResources.values();
 
-    // Copy resources from the source repository, get AarConfigurations that need to be taken over by this repository,
-    // and pre-populate string and namespace resolver caches.
+    // Copy resources from the source repository and get AarConfigurations that need to be taken over by this repository.
+    // Names and namespace resolvers referenced by the copied resources are already shared through ResourcePool.
     Set<RepositoryConfiguration> sourceConfigurations = Sets.newIdentityHashSet();
     for (ListMultimap<String, ResourceItem> resourceMap : resourceMaps) {
       for (ResourceItem item : resourceMap.values()) {
         addResourceItem(item);
 
         sourceConfigurations.add(((BasicResourceItemBase)item).getRepositoryConfiguration());
-        if (item instanceof BasicValueResourceItemBase) {
-          ResourceNamespace.Resolver resolver = ((BasicValueResourceItemBase)item).getNamespaceResolver();
-          NamespaceResolver namespaceResolver =
-              resolver == ResourceNamespace.Resolver.EMPTY_RESOLVER ? NamespaceResolver.EMPTY : (NamespaceResolver)resolver;
-          namespaceResolverCache.put(namespaceResolver, namespaceResolver);
-        }
-        String name = item.getName();
-        stringCache.put(name, name);
       }
     }
 
@@ -246,9 +230,7 @@ public final class FrameworkResourceRepository extends AarSourceResourceReposito
   }
 
   private void loadFromPersistentCache(@NotNull CachingData cachingData, @Nullable Set<String> languagesToLoad,
-                                          @NotNull Set<String> loadedLanguages,
-                                          @NotNull Map<String, String> stringCache,
-                                          @Nullable Map<NamespaceResolver, NamespaceResolver> namespaceResolverCache) {
+                                          @NotNull Set<String> loadedLanguages, @NotNull Map<String, String> stringCache) {
     CacheFileNameGenerator fileNameGenerator = new CacheFileNameGenerator((cachingData));
     Set<String> languages = languagesToLoad == null ? fileNameGenerator.getAllCacheFileLanguages() : languagesToLoad;
 
@@ -264,7 +246,7 @@ public final class FrameworkResourceRepository extends AarSourceResourceReposito
             }
             continue;
           }
-          loadFromStream(stream, stringCache, namespaceResolverCache);
+          loadFromStream(stream, stringCache);
           loadedLanguages.add(language);
           myNumberOfLanguageGroupsLoadedFromCache++;
         }
@@ -410,7 +392,6 @@ public final class FrameworkResourceRepository extends AarSourceResourceReposito
         }
 
         Map<String, String> stringCache = Maps.newHashMapWithExpectedSize(10000);
-        Map<NamespaceResolver, NamespaceResolver> namespaceResolverCache = new HashMap<>();
 
         for (String language : myLanguageGroups) {
           if (!myLoadedLanguageGroups.contains(language)) {
@@ -426,7 +407,7 @@ public final class FrameworkResourceRepository extends AarSourceResourceReposito
             }
 
             try (Base128InputStream stream = new Base128InputStream(zipFile.getInputStream(zipEntry))) {
-              repository.loadFromStream(stream, stringCache, namespaceResolverCache);
+              repository.loadFromStream(stream, stringCache);
             }
           }
         }
@@ -15,12 +15,18 @@
  */
 package com.android.tools.idea.resources.base;
 
+import com.intellij.openapi.util.SystemInfoRt;
 import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
 import org.jetbrains.annotations.NotNull;
@@ -31,14 +37,28 @@ import org.jetbrains.annotations.Nullable;
  * variable-length encoding for integer values.
  * @see Base128OutputStream
  */
-public final class Base128InputStream extends BufferedInputStream {
+public final class Base128InputStream extends InputStream {
+  /** The stream to read from, or null if reading from {@link #myBuffer}. */
+  @Nullable private final InputStream myStream;
+  /** The buffer to read from, or null if reading from {@link #myStream}. */
+  @Nullable private final ByteBuffer myBuffer;
   @Nullable private Map<String, String> myStringCache;
+  @Nullable private List<String> myStringTable;
 
   /**
    * Wraps a given input stream.
    */
   public Base128InputStream(@NotNull InputStream stream) {
-    super(stream);
+    myStream = new BufferedInputStream(stream);
+    myBuffer = null;
+  }
+
+  /**
+   * Reads directly from the given buffer without any intermediate copying. Reading starts at the current position of the buffer.
+   */
+  public Base128InputStream(@NotNull ByteBuffer buffer) {
+    myStream = null;
+    myBuffer = buffer;
   }
 
   /**
@@ -49,7 +69,26 @@ public final class Base128InputStream extends BufferedInputStream {
    * @throws IOException if any other error occurs
    */
   public Base128InputStream(@NotNull Path file) throws IOException {
-    super(Files.newInputStream(file));
+    this(Files.newInputStream(file));
+  }
+
+  /**
+   * Opens a stream that reads from a memory-mapped file. Compared to {@link #Base128InputStream(Path)} this avoids copying
+   * the file contents through intermediate buffers. On Windows a mapped file cannot be deleted or replaced until the mapping
+   * is garbage collected, so the file is read into memory in one operation instead.
+   *
+   * @param file the file to read from
+   * @throws NoSuchFileException if the file does not exist
+   * @throws IOException if any other error occurs
+   */
+  @NotNull
+  public static Base128InputStream mapFile(@NotNull Path file) throws IOException {
+    if (SystemInfoRt.isWindows) {
+      return new Base128InputStream(ByteBuffer.wrap(Files.readAllBytes(file)));
+    }
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      return new Base128InputStream(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
   }
 
   /**
@@ -62,6 +101,15 @@ public final class Base128InputStream extends BufferedInputStream {
     myStringCache = stringCache;
   }
 
+  /**
+   * Enables reading of strings written by a {@link Base128OutputStream} with the string table enabled. Has to be called
+   * at the same position in the stream where {@link Base128OutputStream#enableStringTable()} was called when the stream
+   * was written.
+   */
+  public void enableStringTable() {
+    myStringTable = new ArrayList<>();
+  }
+
   /**
    * Reads a 32-bit integer from the stream. The integer had to be written by {@link Base128OutputStream#writeInt(int)}.
    *
@@ -70,13 +118,13 @@ public final class Base128InputStream extends BufferedInputStream {
    * @throws StreamFormatException if an invalid data format is detected
    */
   public int readInt() throws IOException {
-    int b = super.read();
+    int b = readUnsignedByte();
     if (b < 0) {
       throw StreamFormatException.prematureEndOfFile();
     }
     int value = b & 0x7F;
     for (int shift = 7; (b & 0x80) != 0; shift += 7) {
-      b = super.read();
+      b = readUnsignedByte();
       if (b < 0) {
         throw StreamFormatException.prematureEndOfFile();
       }
@@ -96,13 +144,13 @@ public final class Base128InputStream extends BufferedInputStream {
    * @throws StreamFormatException if an invalid data format is detected
    */
   public long readLong() throws IOException, StreamFormatException {
-    int b = super.read();
+    int b = readUnsignedByte();
     if (b < 0) {
       throw StreamFormatException.prematureEndOfFile();
     }
     long value = b & 0x7F;
     for (int shift = 7; (b & 0x80) != 0; shift += 7) {
-      b = super.read();
+      b = readUnsignedByte();
       if (b < 0) {
         throw StreamFormatException.prematureEndOfFile();
       }
@@ -131,16 +179,36 @@ public final class Base128InputStream extends BufferedInputStream {
     if (len == 0) {
       return null;
     }
+    if (myStringTable != null) {
+      if ((len & 1) != 0) {
+        // A reference to a previously read string.
+        int index = len >>> 1;
+        if (index >= myStringTable.size()) {
+          throw StreamFormatException.invalidFormat();
+        }
+        return myStringTable.get(index);
+      }
+      len >>>= 1;
+    }
     --len;
+    String str;
     if (len == 0) {
-      return "";
+      str = "";
+    }
+    else {
+      StringBuilder buf = new StringBuilder(len);
+      for (int i = 0; i < len; i++) {
+        buf.append(readChar());
+      }
+      str = buf.toString();
+      if (myStringCache != null) {
+        str = myStringCache.computeIfAbsent(str, Function.identity());
+      }
     }
-    StringBuilder buf = new StringBuilder(len);
-    for (int i = 0; i < len; i++) {
-      buf.append(readChar());
+    if (myStringTable != null) {
+      myStringTable.add(str);
     }
-    String str = buf.toString();
-    return myStringCache == null ? str : myStringCache.computeIfAbsent(str, Function.identity());
+    return str;
   }
 
   /**
@@ -166,7 +234,7 @@ public final class Base128InputStream extends BufferedInputStream {
    * @throws StreamFormatException if the stream does not contain any more data
    */
   public byte readByte() throws IOException {
-    int b = super.read();
+    int b = readUnsignedByte();
     if (b < 0) {
       throw StreamFormatException.prematureEndOfFile();
     }
@@ -193,13 +261,63 @@ public final class Base128InputStream extends BufferedInputStream {
    * @throws UnsupportedOperationException when called
    */
   @Deprecated
-  @SuppressWarnings("NonSynchronizedMethodOverridesSynchronizedMethod")
   @Override
   public int read() {
     throw new UnsupportedOperationException(
         "This method is disabled to prevent unintended accidental use. Please use readByte or readInt instead.");
   }
 
+  @Override
+  public int read(@NotNull byte[] b, int off, int len) throws IOException {
+    if (myBuffer == null) {
+      return myStream.read(b, off, len);
+    }
+    if (off < 0 || len < 0 || len > b.length - off) {
+      throw new IndexOutOfBoundsException();
+    }
+    if (len == 0) {
+      return 0;
+    }
+    if (!myBuffer.hasRemaining()) {
+      return -1;
+    }
+    len = Math.min(len, myBuffer.remaining());
+    myBuffer.get(b, off, len);
+    return len;
+  }
+
+  @Override
+  public long skip(long n) throws IOException {
+    if (myBuffer == null) {
+      return myStream.skip(n);
+    }
+    if (n <= 0) {
+      return 0;
+    }
+    int skipped = (int)Math.min(n, myBuffer.remaining());
+    myBuffer.position(myBuffer.position() + skipped);
+    return skipped;
+  }
+
+  @Override
+  public int available() throws IOException {
+    return myBuffer == null ? myStream.available() : myBuffer.remaining();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (myStream != null) {
+      myStream.close();
+    }
+  }
+
+  private int readUnsignedByte() throws IOException {
+    if (myBuffer == null) {
+      return myStream.read();
+    }
+    return myBuffer.hasRemaining() ? myBuffer.get() & 0xFF : -1;
+  }
+
   /**
    * Checks if the stream contains the given bytes starting from the current position.
    * Unless the remaining part of the stream is shorter than the {@code expected} array,
@@ -15,6 +15,8 @@
  */
 package com.android.tools.idea.resources.base;
 
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
@@ -29,6 +31,8 @@ import org.jetbrains.annotations.Nullable;
  * @see Base128InputStream
  */
 public class Base128OutputStream extends BufferedOutputStream {
+  @Nullable private Object2IntMap<String> myStringTable;
+
   public Base128OutputStream(@NotNull OutputStream stream) {
     super(stream);
   }
@@ -93,12 +97,27 @@ public class Base128OutputStream extends BufferedOutputStream {
     } while (value != 0);
   }
 
+  /**
+   * Enables the string table. Once the string table is enabled, each distinct string is written to the stream only once.
+   * Subsequent occurrences of the same string are written as references to the first one. The stream has to be read by
+   * a {@link Base128InputStream} with the string table enabled at the same position.
+   */
+  public final void enableStringTable() {
+    myStringTable = new Object2IntOpenHashMap<>();
+    myStringTable.defaultReturnValue(-1);
+  }
+
   /**
    * Write a String to the stream. The string is prefixed by its length + 1.
    * Each character is then written using the {@link #writeChar} method.
+   * <p>
+   * If the string table is enabled, the prefix is (length + 1) * 2 for the first occurrence of the string
+   * and index * 2 + 1 for subsequent occurrences, where index is the ordinal number of the string in the table.
+   * Subsequent occurrences have no characters following the prefix.
    *
    * @param str the string to write or null
    * @throws IOException if an I/O error occurs.
+   * @see #enableStringTable()
    */
   public final void writeString(@Nullable String str) throws IOException {
     if (str == null) {
@@ -106,7 +125,18 @@ public class Base128OutputStream extends BufferedOutputStream {
     }
     else {
       int len = str.length();
-      writeInt(len + 1);
+      if (myStringTable == null) {
+        writeInt(len + 1);
+      }
+      else {
+        int index = myStringTable.getInt(str);
+        if (index >= 0) {
+          writeInt((index << 1) | 1);
+          return;
+        }
+        myStringTable.put(str, myStringTable.size());
+        writeInt((len + 1) << 1);
+      }
       for (int i = 0; i < len; i++) {
         writeChar(str.charAt(i));
       }
@@ -38,7 +38,7 @@ public abstract class BasicResourceItemBase implements BasicResourceItem, Resour
   private final byte myVisibilityOrdinal;
 
   BasicResourceItemBase(@NotNull ResourceType type, @NotNull String name, @NotNull ResourceVisibility visibility) {
-    myName = name;
+    myName = ResourcePool.intern(name);
     myTypeOrdinal = (byte)type.ordinal();
     myVisibilityOrdinal = (byte)visibility.ordinal();
   }
@@ -426,7 +426,7 @@ public abstract class RepositoryLoader<T extends LoadableResourceRepository> imp
       return repositoryConfiguration;
     }
 
-    repositoryConfiguration = new RepositoryConfiguration(repository, folderConfiguration);
+    repositoryConfiguration = new RepositoryConfiguration(repository, ResourcePool.intern(folderConfiguration));
     myConfigCache.put(folderConfiguration, repositoryConfiguration);
     return repositoryConfiguration;
   }
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.resources.base;
+
+import com.android.ide.common.resources.configuration.FolderConfiguration;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Process-wide pool of objects referenced by resource items. The framework resource repository and dozens of AAR
+ * repositories contain many equal resource names, folder configurations and namespace resolvers. Sharing a single
+ * instance of each of them across all repositories noticeably reduces memory consumption. The pool holds its objects
+ * weakly, so objects are released when no repository references them.
+ *
+ * <p>Resource values are not pooled. Most of them, translations in particular, occur in a single repository, and
+ * the entries of the pool would take more memory than the sharing saves.
+ *
+ * <p>{@link FolderConfiguration} is mutable, but the pooled instances are shared by all repositories and must never
+ * be modified. Code that needs a modified configuration has to work on a {@link FolderConfiguration#copyOf copy}.
+ */
+public final class ResourcePool {
+  private static final Interner<String> ourStrings = Interners.newWeakInterner();
+  /**
+   * Pooled folder configurations keyed by themselves. Unlike an {@link Interner}, the map can be queried without
+   * adding the given object, so the defensive copy is only made for configurations that are not pooled yet.
+   */
+  private static final Map<FolderConfiguration, WeakReference<FolderConfiguration>> ourConfigurations = new WeakHashMap<>();
+  private static final Interner<NamespaceResolver> ourNamespaceResolvers = Interners.newWeakInterner();
+
+  /**
+   * Returns the pooled resource name equal to the given one.
+   */
+  @NotNull
+  public static String intern(@NotNull String name) {
+    return name.isEmpty() ? "" : ourStrings.intern(name);
+  }
+
+  /**
+   * Returns the pooled folder configuration equal to the given one. The pool holds its own copy, so the caller may
+   * keep using the given configuration. The returned object is shared between resource repositories and must not be
+   * modified.
+   */
+  @NotNull
+  public static FolderConfiguration intern(@NotNull FolderConfiguration configuration) {
+    synchronized (ourConfigurations) {
+      WeakReference<FolderConfiguration> ref = ourConfigurations.get(configuration);
+      FolderConfiguration pooled = ref == null ? null : ref.get();
+      if (pooled == null) {
+        pooled = FolderConfiguration.copyOf(configuration);
+        ourConfigurations.put(pooled, new WeakReference<>(pooled));
+      }
+      return pooled;
+    }
+  }
+
+  /**
+   * Returns the pooled namespace resolver equal to the given one.
+   */
+  @NotNull
+  public static NamespaceResolver intern(@NotNull NamespaceResolver resolver) {
+    return resolver.getNamespaceCount() == 0 ? NamespaceResolver.EMPTY : ourNamespaceResolvers.intern(resolver);
+  }
+
+  /** Do not instantiate. All methods are static. */
+  private ResourcePool() {}
+}
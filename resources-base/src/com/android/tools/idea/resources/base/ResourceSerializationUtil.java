@@ -29,7 +29,6 @@ import it.unimi.dsi.fastutil.objects.Object2IntMap;
 import it.unimi.dsi.fastutil.objects.Object2IntMaps;
 import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import org.jetbrains.annotations.NotNull;
-import org.jetbrains.annotations.Nullable;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -42,7 +41,6 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Consumer;
-import java.util.function.Function;
 import java.util.function.Predicate;
 
 /**
@@ -183,14 +181,18 @@ public class ResourceSerializationUtil {
 
   /**
    * Loads resources from the given input stream and passes then to the given consumer.
+   *
+   * @param stringCache the cache used to share equal strings; callers reading several streams may pass the same cache
+   *     to all of them
    * @see #writeResourcesToStream
    */
   public static void readResourcesFromStream(@NotNull Base128InputStream stream,
                                              @NotNull Map<String, String> stringCache,
-                                             @Nullable Map<NamespaceResolver, NamespaceResolver> namespaceResolverCache,
                                              @NotNull LoadableResourceRepository repository,
                                              @NotNull Consumer<BasicResourceItem> resourceConsumer) throws IOException {
-    stream.setStringCache(stringCache); // Enable string instance sharing to minimize memory consumption.
+    // Enable string instance sharing to minimize memory consumption. Resource names are also shared with other
+    // repositories through ResourcePool when the resource items are created.
+    stream.setStringCache(stringCache);
 
     int n = stream.readInt();
     if (n == 0) {
@@ -206,7 +208,7 @@ public class ResourceSerializationUtil {
       if (folderConfig == null) {
         throw Base128InputStream.StreamFormatException.invalidFormat();
       }
-      configurations.add(new RepositoryConfiguration(repository, folderConfig));
+      configurations.add(new RepositoryConfiguration(repository, ResourcePool.intern(folderConfig)));
     }
 
     n = stream.readInt();
@@ -219,11 +221,7 @@ public class ResourceSerializationUtil {
     n = stream.readInt();
     List<ResourceNamespace.Resolver> newNamespaceResolvers = new ArrayList<>(n);
     for (int i = 0; i < n; i++) {
-      NamespaceResolver namespaceResolver = NamespaceResolver.deserialize(stream);
-      if (namespaceResolverCache != null) {
-        namespaceResolver = namespaceResolverCache.computeIfAbsent(namespaceResolver, Function.identity());
-      }
-      newNamespaceResolvers.add(namespaceResolver);
+      newNamespaceResolvers.add(ResourcePool.intern(NamespaceResolver.deserialize(stream)));
     }
 
     n = stream.readInt();
@@ -22,9 +22,6 @@ import java.io.InputStream;
 import java.io.Reader;
 import java.util.ArrayDeque;
 import java.util.Deque;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.function.Function;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.xmlpull.v1.XmlPullParserException;
@@ -34,7 +31,6 @@ import org.xmlpull.v1.XmlPullParserException;
  * for the current tag.
  */
 class ValueResourceXmlParser extends CommentTrackingXmlPullParser {
-  @NotNull final Map<NamespaceResolver, NamespaceResolver> namespaceResolverCache = new HashMap<>();
   @NotNull final Deque<NamespaceResolver> resolverStack = new ArrayDeque<>(4);
 
   /**
@@ -96,6 +92,6 @@ class ValueResourceXmlParser extends CommentTrackingXmlPullParser {
   }
 
   private NamespaceResolver getOrCreateResolver() throws XmlPullParserException {
-    return namespaceResolverCache.computeIfAbsent(new NamespaceResolver(this), Function.identity());
+    return ResourcePool.intern(new NamespaceResolver(this));
   }
 }
@@ -318,6 +318,61 @@ public class FrameworkResourceRepositoryTest extends PlatformTestCase {
     checkContents(withFrenchAndGerman);
   }
 
+  public void testRepositoriesShareStringsAndConfigurations() throws Exception {
+    FrameworkResourceRepository fromSourceFiles = FrameworkResourceRepository.create(myResourceFolder, ImmutableSet.of(), null, false);
+    FrameworkResourceRepository fromJar = FrameworkResourceRepository.create(getFrameworkResJar(), ImmutableSet.of(), null, false);
+    List<ResourceItem> itemsFromSourceFiles = fromSourceFiles.getResources(ResourceNamespace.ANDROID, ResourceType.STRING, "ok");
+    List<ResourceItem> itemsFromJar = fromJar.getResources(ResourceNamespace.ANDROID, ResourceType.STRING, "ok");
+    assertThat(itemsFromSourceFiles).hasSize(1);
+    assertThat(itemsFromJar).hasSize(1);
+    ResourceItem itemFromSourceFiles = itemsFromSourceFiles.get(0);
+    ResourceItem itemFromJar = itemsFromJar.get(0);
+    assertThat(itemFromJar).isNotSameAs(itemFromSourceFiles);
+    assertThat(itemFromJar.getName()).isSameAs(itemFromSourceFiles.getName());
+    assertThat(itemFromJar.getConfiguration()).isSameAs(itemFromSourceFiles.getConfiguration());
+    assertThat(itemFromJar.getResourceValue().getValue()).isEqualTo(itemFromSourceFiles.getResourceValue().getValue());
+  }
+
+  /**
+   * Checks that two framework repositories loaded from the same source files share the resource names and configurations
+   * of all their items through ResourcePool. With PRINT_STATS, also prints the heap taken by each of the repositories.
+   */
+  public void testRepositoriesLoadedFromSameSourcesShareResourcePool() throws Exception {
+    long initialHeap = PRINT_STATS ? getUsedHeapAfterGc() : 0;
+    FrameworkResourceRepository first = FrameworkResourceRepository.create(myResourceFolder, ImmutableSet.of("fr"), null, false);
+    long heapWithOneRepository = PRINT_STATS ? getUsedHeapAfterGc() : 0;
+    FrameworkResourceRepository second = FrameworkResourceRepository.create(myResourceFolder, ImmutableSet.of("fr"), null, false);
+    if (PRINT_STATS) {
+      long heapWithTwoRepositories = getUsedHeapAfterGc();
+      System.out.println("Heap taken by the first repository: " + (heapWithOneRepository - initialHeap) / 1024
+                         + " KB, by the second repository: " + (heapWithTwoRepositories - heapWithOneRepository) / 1024 + " KB");
+    }
+
+    assertThat(second.getAllResources().size()).isEqualTo(first.getAllResources().size());
+    for (ResourceType type : first.getResourceTypes(ResourceNamespace.ANDROID)) {
+      for (String name : first.getResourceNames(ResourceNamespace.ANDROID, type)) {
+        List<ResourceItem> firstItems = first.getResources(ResourceNamespace.ANDROID, type, name);
+        List<ResourceItem> secondItems = second.getResources(ResourceNamespace.ANDROID, type, name);
+        assertThat(secondItems).hasSize(firstItems.size());
+        for (int i = 0; i < firstItems.size(); i++) {
+          ResourceItem firstItem = firstItems.get(i);
+          ResourceItem secondItem = secondItems.get(i);
+          assertThat(secondItem).isNotSameAs(firstItem);
+          assertThat(secondItem.getName()).isSameAs(firstItem.getName());
+          assertThat(secondItem.getConfiguration()).isSameAs(firstItem.getConfiguration());
+        }
+      }
+    }
+  }
+
+  private static long getUsedHeapAfterGc() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 10; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
   public void testIncrementalLoadingFromCacheAndSources() {
     // Create persistent cache for language-neutral, French and German.
     CachingData cachingData = createCachingData(directExecutor());
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.resources.base;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link Base128InputStream} and {@link Base128OutputStream}.
+ */
+public class Base128StreamTest {
+  @Rule
+  public TemporaryFolder myTemporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testStringTable() throws Exception {
+    byte[] withoutTable = writeStrings(false);
+    byte[] withTable = writeStrings(true);
+    assertThat(withTable.length).isLessThan(withoutTable.length);
+
+    try (Base128InputStream stream = new Base128InputStream(ByteBuffer.wrap(withTable))) {
+      assertEquals(12345, stream.readInt());
+      stream.enableStringTable();
+      String first = stream.readString();
+      assertEquals("android:textColor", first);
+      assertEquals("", stream.readString());
+      assertNull(stream.readString());
+      assertSame(first, stream.readString());
+      assertEquals("", stream.readString());
+      assertEquals("@color/primary", stream.readString());
+      assertEquals(Long.MAX_VALUE, stream.readLong());
+    }
+  }
+
+  @Test
+  public void testMappedFile() throws Exception {
+    Path file = myTemporaryFolder.newFile("data.bin").toPath();
+    Files.write(file, writeStrings(true));
+
+    try (Base128InputStream stream = Base128InputStream.mapFile(file)) {
+      assertEquals(12345, stream.readInt());
+      stream.enableStringTable();
+      assertEquals("android:textColor", stream.readString());
+      assertEquals("", stream.readString());
+      assertNull(stream.readString());
+      assertEquals("android:textColor", stream.readString());
+      assertEquals("", stream.readString());
+      assertEquals("@color/primary", stream.readString());
+      assertEquals(Long.MAX_VALUE, stream.readLong());
+    }
+  }
+
+  @Test
+  public void testInheritedReadsFromBuffer() throws Exception {
+    byte[] bytes = {1, 2, 3, 4, 5, 6, 7};
+    try (Base128InputStream stream = new Base128InputStream(ByteBuffer.wrap(bytes))) {
+      assertEquals(7, stream.available());
+      assertEquals(1, stream.readByte());
+      byte[] buf = new byte[3];
+      assertEquals(3, stream.read(buf));
+      assertThat(buf).isEqualTo(new byte[] {2, 3, 4});
+      assertEquals(1, stream.skip(1));
+      assertEquals(2, stream.available());
+      assertEquals(2, stream.read(buf, 1, 2));
+      assertThat(buf).isEqualTo(new byte[] {2, 6, 7});
+      assertEquals(0, stream.read(buf, 0, 0));
+      assertEquals(0, stream.skip(5));
+      assertEquals(-1, stream.read(buf));
+      assertEquals(0, stream.available());
+    }
+  }
+
+  @Test(expected = Base128InputStream.StreamFormatException.class)
+  public void testPrematureEndOfBuffer() throws Exception {
+    try (Base128InputStream stream = new Base128InputStream(ByteBuffer.wrap(new byte[] { (byte)0x80 }))) {
+      stream.readInt();
+    }
+  }
+
+  @NotNull
+  private static byte[] writeStrings(boolean useStringTable) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (Base128OutputStream stream = new Base128OutputStream(bytes)) {
+      stream.writeInt(12345);
+      if (useStringTable) {
+        stream.enableStringTable();
+      }
+      stream.writeString("android:textColor");
+      stream.writeString("");
+      stream.writeString(null);
+      stream.writeString("android:textColor");
+      stream.writeString("");
+      stream.writeString("@color/primary");
+      stream.writeLong(Long.MAX_VALUE);
+    }
+    return bytes.toByteArray();
+  }
+}
@@ -15,6 +15,7 @@
  */
 package com.android.tools.datastore;
 
+import com.android.tools.datastore.database.DataStoreTable;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
@@ -100,8 +101,16 @@ public class DataStoreDatabase {
     myConnection = connection;
   }
 
+  /**
+   * Executes the writes that the tables using this database have buffered for batching.
+   */
+  public void flushPendingWrites() {
+    DataStoreTable.flushPendingWrites(myConnection);
+  }
+
   public void disconnect() {
     try {
+      flushPendingWrites();
       myConnection.commit();
     }
     catch (SQLException e) {
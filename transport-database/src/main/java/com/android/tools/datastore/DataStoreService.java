@@ -20,6 +20,7 @@ import static com.android.tools.idea.flags.StudioFlags.PROFILER_UNIFIED_PIPELINE
 
 import com.android.tools.analytics.UsageTracker;
 import com.android.tools.datastore.database.DataStoreTable;
+import com.android.tools.datastore.database.TimeSeriesStore;
 import com.android.tools.datastore.database.UnifiedEventsTable;
 import com.android.tools.datastore.service.CpuService;
 import com.android.tools.datastore.service.EnergyService;
@@ -49,6 +50,8 @@ import io.grpc.ServerInterceptors;
 import io.grpc.inprocess.InProcessServerBuilder;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
@@ -77,6 +80,7 @@ public class DataStoreService implements DataStoreTable.DataStoreTableErrorCallb
    */
   private static final long REPORT_INITIAL_DELAY = TimeUnit.MINUTES.toMillis(15);
   private static final long REPORT_PERIOD = TimeUnit.HOURS.toMillis(1);
+  private static final String TIME_SERIES_DIRECTORY_NAME = "timeseries";
   /**
    * Stream 0 is reserved for datastore metadata. Events stored in this stream are generated by the datastore
    * and can be queried via the events pipeline. Example data pushed into this stream are stream connected / disconnected events.
@@ -117,6 +121,10 @@ public class DataStoreService implements DataStoreTable.DataStoreTableErrorCallb
   @NotNull private final LogService myLogService;
   private final String myDatastoreDirectory;
   private final Map<BackingNamespace, DataStoreDatabase> myDatabases = new HashMap<>();
+  /**
+   * Store shared by the services for numeric time series polled at a high rate.
+   */
+  private final TimeSeriesStore myTimeSeriesStore;
   private final ServerBuilder myServerBuilder;
   private final Server myServer;
   private final List<ServicePassThrough> myServices = new ArrayList<>();
@@ -131,6 +139,7 @@ public class DataStoreService implements DataStoreTable.DataStoreTableErrorCallb
   private final Map<Long, DataStoreClient> myConnectedClients = new HashMap<>();
 
   private final Timer myReportTimer;
+  private final Timer myFlushTimer;
 
   /**
    * @param fetchExecutor A callback which is given a {@link Runnable} for each datastore service.
@@ -154,6 +163,7 @@ public class DataStoreService implements DataStoreTable.DataStoreTableErrorCallb
     myFetchExecutor = fetchExecutor;
     myInterceptor = interceptor;
     myDatastoreDirectory = datastoreDirectory;
+    myTimeSeriesStore = createTimeSeriesStore();
     myServerBuilder = InProcessServerBuilder.forName(serviceName).directExecutor();
     // Calling set with null resets the exception handler to the default exception handler.
     // getLogger().error(exception);
@@ -169,6 +179,9 @@ public class DataStoreService implements DataStoreTable.DataStoreTableErrorCallb
 
     myReportTimer = new Timer("DataStoreReportTimer");
     myReportTimer.schedule(new ReportTimerTask(), REPORT_INITIAL_DELAY, REPORT_PERIOD);
+    // Writes buffered by the tables are otherwise only flushed by the next statement of the same table.
+    myFlushTimer = new Timer("DataStoreFlushTimer", true);
+    myFlushTimer.schedule(new FlushTimerTask(), DataStoreTable.MAX_PENDING_WRITE_AGE_MS, DataStoreTable.MAX_PENDING_WRITE_AGE_MS);
     DataStoreTable.addDataStoreErrorCallback(this);
   }
 
@@ -199,14 +212,26 @@ public class DataStoreService implements DataStoreTable.DataStoreTableErrorCallb
     UnifiedEventsTable unifiedTable = new UnifiedEventsTable();
     myTransportService = new TransportService(this, unifiedTable, myFetchExecutor, !PROFILER_UNIFIED_PIPELINE.get());
     registerService(myTransportService);
-    registerService(new ProfilerService(this, myLogService));
+    registerService(new ProfilerService(this, myLogService, myTimeSeriesStore));
     registerService(new EventService(this, myFetchExecutor));
     registerService(new CpuService(this, myFetchExecutor, myLogService));
     registerService(new MemoryService(this, unifiedTable, myFetchExecutor, myLogService));
-    registerService(new NetworkService(this, myFetchExecutor));
+    registerService(new NetworkService(this, myFetchExecutor, myTimeSeriesStore));
     registerService(new EnergyService(this, myFetchExecutor, myLogService));
   }
 
+  @NotNull
+  private TimeSeriesStore createTimeSeriesStore() {
+    try {
+      return new TimeSeriesStore(Paths.get(myDatastoreDirectory + TIME_SERIES_DIRECTORY_NAME));
+    }
+    catch (IOException | InvalidPathException e) {
+      // Keep the samples in memory if the backing directory cannot be created.
+      getLogger().warn(e);
+      return new TimeSeriesStore();
+    }
+  }
+
   @VisibleForTesting
   @NotNull
   public DataStoreDatabase createDatabase(@NotNull String dbPath,
@@ -268,12 +293,19 @@ public class DataStoreService implements DataStoreTable.DataStoreTableErrorCallb
 
   public void shutdown() {
     myReportTimer.cancel();
+    myFlushTimer.cancel();
     myServer.shutdownNow();
     for (DataStoreClient client : myConnectedClients.values()) {
       client.getChannel().shutdownNow();
     }
     myConnectedClients.clear();
     myDatabases.forEach((name, db) -> db.disconnect());
+    try {
+      myTimeSeriesStore.close();
+    }
+    catch (IOException e) {
+      getLogger().warn(e);
+    }
     DataStoreTable.removeDataStoreErrorCallback(this);
   }
 
@@ -387,6 +419,13 @@ public class DataStoreService implements DataStoreTable.DataStoreTableErrorCallb
     }
   }
 
+  private final class FlushTimerTask extends TimerTask {
+    @Override
+    public void run() {
+      myDatabases.values().forEach(DataStoreDatabase::flushPendingWrites);
+    }
+  }
+
   private final class ReportTimerTask extends TimerTask {
     private long myStartTime = System.nanoTime();
 
@@ -20,6 +20,8 @@ import org.jetbrains.annotations.NotNull;
 import java.sql.*;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Function;
 
 /**
@@ -29,12 +31,38 @@ import java.util.function.Function;
 public abstract class DataStoreTable<T extends Enum> {
   private static final Set<DataStoreTableErrorCallback> ERROR_CALLBACKS = ConcurrentHashMap.newKeySet();
 
+  // Tables with writes buffered by executeDeferred, so that they can be flushed by flushPendingWrites(Connection).
+  private static final Set<DataStoreTable<?>> TABLES_WITH_PENDING_WRITES = ConcurrentHashMap.newKeySet();
+
+  /**
+   * Maximum number of deferred writes that are buffered before they are flushed to the database.
+   */
+  private static final int MAX_PENDING_WRITES = 256;
+
+  /**
+   * Maximum time a deferred write is buffered before it is flushed to the database by the next write. Writes that are not
+   * followed by another one are flushed by {@link #flushPendingWrites(Connection)}, which is expected to be called at
+   * this interval.
+   */
+  public static final long MAX_PENDING_WRITE_AGE_MS = 100;
+  private static final long MAX_PENDING_WRITE_AGE_NS = TimeUnit.MILLISECONDS.toNanos(MAX_PENDING_WRITE_AGE_MS);
+
   private Connection myConnection;
   private final ThreadLocal<Map<T, PreparedStatement>> myStatementMap = new ThreadLocal<>();
 
   // Cache custom queries we have a limited number and we call the same query multiple times.
   private final ThreadLocal<Map<String, PreparedStatement>> myCustomQueryCache = new ThreadLocal<>();
 
+  // Writes that have been deferred by executeDeferred but not flushed to the database yet, in the order they were issued.
+  // Guarded by itself. The lock is also held while the writes are flushed so that a query issued after a flush started
+  // does not miss any of the writes being flushed.
+  private final List<PendingWrite<T>> myPendingWrites = new ArrayList<>();
+  private long myOldestPendingWriteNs;
+
+  private final LongAdder myRowsWritten = new LongAdder();
+  private final LongAdder myBatchesWritten = new LongAdder();
+  private final LongAdder myWriteTimeNs = new LongAdder();
+
   public interface DataStoreTableErrorCallback {
     void onDataStoreError(Throwable t);
   }
@@ -62,6 +90,19 @@ public abstract class DataStoreTable<T extends Enum> {
     ERROR_CALLBACKS.remove(callback);
   }
 
+  /**
+   * Executes the writes buffered by {@link #executeDeferred} in all tables using the given connection. Has to be called
+   * before the connection is committed or closed, since buffered writes are otherwise only flushed by later statements of
+   * the same table.
+   */
+  public static void flushPendingWrites(@NotNull Connection connection) {
+    for (DataStoreTable<?> table : TABLES_WITH_PENDING_WRITES) {
+      if (table.myConnection == connection) {
+        table.flushPendingWrites();
+      }
+    }
+  }
+
   /**
    * A connection represents a link between code and the database layer. This link is accessed via multiple threads
    * as such means the only guarantee this function offers is the state of the connection at the time of the call.
@@ -142,6 +183,7 @@ public abstract class DataStoreTable<T extends Enum> {
     if (isClosed()) {
       return;
     }
+    flushPendingWrites();
     try {
       PreparedStatement stmt = getStatementMap().get(statement);
       batchParams.forEach((object) -> {
@@ -168,6 +210,7 @@ public abstract class DataStoreTable<T extends Enum> {
     if (isClosed()) {
       return;
     }
+    flushPendingWrites();
     try {
       PreparedStatement stmt = getStatementMap().get(statement);
       applyParams(stmt, params);
@@ -181,10 +224,110 @@ public abstract class DataStoreTable<T extends Enum> {
     }
   }
 
+  /**
+   * Buffers a write to be executed later together with other deferred writes of this table as a single batch. This is an
+   * optimization for statements that are executed at a high rate, e.g. inserting samples streamed from a device.
+   * The buffered writes are flushed when there are too many of them, when the oldest one has been buffered for too long,
+   * before any other statement or query of this table is executed, and by {@link #flushPendingWrites(Connection)}.
+   * Queries therefore always see the deferred writes.
+   *
+   * @param statement which statement to execute
+   * @param params the input params of the statement
+   */
+  protected void executeDeferred(@NotNull T statement, Object... params) {
+    if (isClosed()) {
+      return;
+    }
+    boolean flush;
+    synchronized (myPendingWrites) {
+      long now = System.nanoTime();
+      if (myPendingWrites.isEmpty()) {
+        myOldestPendingWriteNs = now;
+        TABLES_WITH_PENDING_WRITES.add(this);
+      }
+      myPendingWrites.add(new PendingWrite<>(statement, params));
+      flush = myPendingWrites.size() >= MAX_PENDING_WRITES || now - myOldestPendingWriteNs >= MAX_PENDING_WRITE_AGE_NS;
+    }
+    if (flush) {
+      flushPendingWrites();
+    }
+  }
+
+  /**
+   * Executes all writes buffered by {@link #executeDeferred}. Consecutive writes using the same statement are executed as
+   * a single batch.
+   */
+  protected void flushPendingWrites() {
+    synchronized (myPendingWrites) {
+      if (myPendingWrites.isEmpty()) {
+        return;
+      }
+      long startNs = System.nanoTime();
+      try {
+        if (isClosed()) {
+          return;
+        }
+        int start = 0;
+        while (start < myPendingWrites.size()) {
+          T statement = myPendingWrites.get(start).myStatement;
+          int end = start + 1;
+          while (end < myPendingWrites.size() && myPendingWrites.get(end).myStatement == statement) {
+            end++;
+          }
+          executePendingBatch(statement, myPendingWrites.subList(start, end));
+          start = end;
+        }
+      }
+      finally {
+        myPendingWrites.clear();
+        TABLES_WITH_PENDING_WRITES.remove(this);
+        myWriteTimeNs.add(System.nanoTime() - startNs);
+      }
+    }
+  }
+
+  private void executePendingBatch(@NotNull T statement, @NotNull List<PendingWrite<T>> writes) {
+    try {
+      PreparedStatement stmt = getStatementMap().get(statement);
+      for (PendingWrite<T> write : writes) {
+        // Null params are skipped by applyParams, so make sure they do not keep the values of the previous write.
+        stmt.clearParameters();
+        applyParams(stmt, write.myParams);
+        stmt.addBatch();
+      }
+      int[] results = stmt.executeBatch();
+      // Clear parameters on exit so cached statements don't keep potentially large objects in memory.
+      stmt.clearParameters();
+      for (int i = 0; i < results.length; i++) {
+        if (results[i] == Statement.EXECUTE_FAILED) {
+          throw new SQLException(String.format("Failed to execute deferred write %d with result %d", i, results[i]));
+        }
+      }
+      myRowsWritten.add(writes.size());
+      myBatchesWritten.increment();
+    }
+    catch (SQLException ex) {
+      onError(ex);
+    }
+  }
+
+  /**
+   * Returns the counters of the writes deferred by {@link #executeDeferred} and flushed to the database so far.
+   */
+  @NotNull
+  public WriteStats getWriteStats() {
+    int pendingWrites;
+    synchronized (myPendingWrites) {
+      pendingWrites = myPendingWrites.size();
+    }
+    return new WriteStats(myRowsWritten.sum(), myBatchesWritten.sum(), myWriteTimeNs.sum(), pendingWrites);
+  }
+
   protected ResultSet executeQuery(@NotNull T statement, Object... params) throws SQLException {
     if (isClosed()) {
       return new EmptyResultSet();
     }
+    flushPendingWrites();
     PreparedStatement stmt = getStatementMap().get(statement);
     applyParams(stmt, params);
     return stmt.executeQuery();
@@ -194,6 +337,7 @@ public abstract class DataStoreTable<T extends Enum> {
     if (isClosed()) {
       return new EmptyResultSet();
     }
+    flushPendingWrites();
     if (myCustomQueryCache.get() == null) {
       myCustomQueryCache.set(new HashMap<>());
     }
@@ -234,4 +378,59 @@ public abstract class DataStoreTable<T extends Enum> {
       }
     }
   }
+
+  private static final class PendingWrite<T> {
+    @NotNull private final T myStatement;
+    private final Object[] myParams;
+
+    private PendingWrite(@NotNull T statement, Object[] params) {
+      myStatement = statement;
+      myParams = params;
+    }
+  }
+
+  /**
+   * Throughput counters of the deferred writes of a table.
+   */
+  public static final class WriteStats {
+    private final long myRowsWritten;
+    private final long myBatchesWritten;
+    private final long myWriteTimeNs;
+    private final int myPendingWrites;
+
+    public WriteStats(long rowsWritten, long batchesWritten, long writeTimeNs, int pendingWrites) {
+      myRowsWritten = rowsWritten;
+      myBatchesWritten = batchesWritten;
+      myWriteTimeNs = writeTimeNs;
+      myPendingWrites = pendingWrites;
+    }
+
+    /**
+     * Returns the number of deferred writes flushed to the database.
+     */
+    public long getRowsWritten() {
+      return myRowsWritten;
+    }
+
+    /**
+     * Returns the number of batches the deferred writes were flushed in.
+     */
+    public long getBatchesWritten() {
+      return myBatchesWritten;
+    }
+
+    /**
+     * Returns the total time spent flushing the deferred writes, in nanoseconds.
+     */
+    public long getWriteTimeNs() {
+      return myWriteTimeNs;
+    }
+
+    /**
+     * Returns the number of deferred writes waiting to be flushed.
+     */
+    public int getPendingWrites() {
+      return myPendingWrites;
+    }
+  }
 }
@@ -41,6 +41,12 @@ public class NetworkTable extends DataStoreTable<NetworkTable.NetworkStatements>
   private static final int REQUEST_BODY_COLUMN = 4;
   private static final int RESPONSE_BODY_COLUMN = 5;
   private static final int THREADS_COLUMN = 6;
+  private static final int SPEED_SERIES = NetworkProfiler.NetworkDataRequest.Type.SPEED.getNumber();
+
+  /**
+   * Speed samples are polled several times per second, so they are kept in a columnar store instead of the database.
+   */
+  @NotNull private final TimeSeriesStore myTimeSeriesStore;
 
   static {
     DATACASE_REQUEST_TYPE_MAP
@@ -51,6 +57,14 @@ public class NetworkTable extends DataStoreTable<NetworkTable.NetworkStatements>
                                   NetworkProfiler.NetworkDataRequest.Type.CONNECTIVITY.getNumber());
   }
 
+  public NetworkTable() {
+    this(new TimeSeriesStore());
+  }
+
+  public NetworkTable(@NotNull TimeSeriesStore timeSeriesStore) {
+    myTimeSeriesStore = timeSeriesStore;
+  }
+
   @Override
   public void initialize(@NotNull Connection connection) {
     super.initialize(connection);
@@ -113,6 +127,10 @@ public class NetworkTable extends DataStoreTable<NetworkTable.NetworkStatements>
 
   public List<NetworkProfiler.NetworkProfilerData> getNetworkDataByRequest(NetworkProfiler.NetworkDataRequest request) {
     List<NetworkProfiler.NetworkProfilerData> datas = new ArrayList<>();
+    if (request.getType() == NetworkProfiler.NetworkDataRequest.Type.SPEED) {
+      addSpeedData(request, datas);
+      return datas;
+    }
     ResultSet results;
     try {
       if (request.getType() == NetworkProfiler.NetworkDataRequest.Type.ALL) {
@@ -134,10 +152,30 @@ public class NetworkTable extends DataStoreTable<NetworkTable.NetworkStatements>
     catch (InvalidProtocolBufferException | SQLException ex) {
       onError(ex);
     }
+    if (request.getType() == NetworkProfiler.NetworkDataRequest.Type.ALL) {
+      addSpeedData(request, datas);
+      // The sort is stable, so data of different types with the same timestamp keeps the database order followed by speed data.
+      datas.sort(Comparator.comparingLong(NetworkProfiler.NetworkProfilerData::getEndTimestamp));
+    }
     return datas;
   }
 
+  private void addSpeedData(@NotNull NetworkProfiler.NetworkDataRequest request, @NotNull List<NetworkProfiler.NetworkProfilerData> datas) {
+    myTimeSeriesStore.query(
+      request.getSession().getSessionId(), SPEED_SERIES, request.getStartTimestamp(), request.getEndTimestamp(),
+      (timestamp, values) -> datas.add(
+        NetworkProfiler.NetworkProfilerData.newBuilder()
+          .setEndTimestamp(timestamp)
+          .setSpeedData(NetworkProfiler.SpeedData.newBuilder().setSent(values[0]).setReceived(values[1]))
+          .build()));
+  }
+
   public void insert(@NotNull Common.Session session, NetworkProfiler.NetworkProfilerData data) {
+    if (data.getDataCase() == NetworkProfiler.NetworkProfilerData.DataCase.SPEED_DATA) {
+      NetworkProfiler.SpeedData speedData = data.getSpeedData();
+      myTimeSeriesStore.append(session.getSessionId(), SPEED_SERIES, data.getEndTimestamp(), speedData.getSent(), speedData.getReceived());
+      return;
+    }
     execute(NetworkStatements.INSERT_NETWORK_DATA, session.getSessionId(), DATACASE_REQUEST_TYPE_MAP.get(data.getDataCase()),
             data.getEndTimestamp(), data.toByteArray());
   }
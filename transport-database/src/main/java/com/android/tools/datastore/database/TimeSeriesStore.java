@@ -0,0 +1,508 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.datastore.database;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Append-only store for numeric time series such as the samples polled from a device every few hundred milliseconds.
+ * Storing such samples as protobuf blobs in SQLite means that every range query has to deserialize every row in the
+ * range. This store keeps the samples in columns instead: samples are grouped into blocks of {@link #BLOCK_SIZE}, and
+ * the timestamps and each column of values in a block are delta-encoded as variable length integers. Every block
+ * records its minimum and maximum timestamp, so range queries only decode the blocks overlapping the range.
+ * <p>
+ * Completed blocks are appended to a backing file per session and read through a memory mapping of the file, so long
+ * sessions do not keep their samples on the Java heap, and the file is removed with {@link #deleteSession}. If the store
+ * is created without a directory, the encoded blocks are kept in memory.
+ * <p>
+ * A series is identified by a session id and a series id. All samples of a series have the same number of values, and
+ * a series has at most one sample per timestamp: like an insert into a table keyed by timestamp that ignores conflicts,
+ * the first sample appended for a timestamp is kept.
+ */
+public final class TimeSeriesStore implements Closeable {
+  @VisibleForTesting
+  static final int BLOCK_SIZE = 512;
+
+  private static final String SESSION_FILE_SUFFIX = ".bin";
+
+  @Nullable private final Path myDirectory;
+  private final int myMaxSegmentSize;
+  private final Map<SeriesKey, Series> mySeries = new ConcurrentHashMap<>();
+  // Guarded by this.
+  private final Map<Long, SessionFile> mySessionFiles = new HashMap<>();
+
+  /**
+   * Creates a store keeping all samples in memory.
+   */
+  public TimeSeriesStore() {
+    myDirectory = null;
+    myMaxSegmentSize = Integer.MAX_VALUE;
+  }
+
+  /**
+   * Creates a store writing completed blocks to one file per session in the given directory. Existing session files are
+   * overwritten.
+   */
+  public TimeSeriesStore(@NotNull Path directory) throws IOException {
+    this(directory, Integer.MAX_VALUE);
+  }
+
+  @VisibleForTesting
+  TimeSeriesStore(@NotNull Path directory, int maxSegmentSize) throws IOException {
+    Files.createDirectories(directory);
+    myDirectory = directory;
+    myMaxSegmentSize = maxSegmentSize;
+  }
+
+  /**
+   * Receives the samples returned by {@link #query}.
+   */
+  public interface SampleConsumer {
+    /**
+     * @param timestamp the timestamp of the sample
+     * @param values the values of the sample. The array is reused between calls and must not be retained.
+     */
+    void accept(long timestamp, @NotNull long[] values);
+  }
+
+  /**
+   * Appends a sample to a series. Samples may be appended out of timestamp order. A sample with the same timestamp as a
+   * previous sample of the series is dropped when the series is queried.
+   *
+   * @throws IllegalArgumentException if the number of values differs from the previous samples of the series
+   */
+  public void append(long sessionId, int seriesId, long timestamp, @NotNull long... values) {
+    Series series = mySeries.computeIfAbsent(new SeriesKey(sessionId, seriesId), key -> new Series(sessionId, values.length));
+    synchronized (series) {
+      if (values.length != series.myColumnCount) {
+        throw new IllegalArgumentException(
+          String.format("Expected %d values for series %d but got %d", series.myColumnCount, seriesId, values.length));
+      }
+      if (series.myOpenCount > 0 || !series.myBlocks.isEmpty()) {
+        if (timestamp == series.myLastTimestamp) {
+          return;
+        }
+        if (timestamp < series.myLastTimestamp) {
+          series.myIsOrdered = false;
+        }
+      }
+      int index = series.myOpenCount++;
+      series.myOpenTimestamps[index] = timestamp;
+      for (int column = 0; column < values.length; column++) {
+        series.myOpenValues[column][index] = values[column];
+      }
+      series.myLastTimestamp = timestamp;
+      if (series.myOpenCount == BLOCK_SIZE) {
+        series.myBlocks.add(sealBlock(series));
+        series.myOpenCount = 0;
+      }
+    }
+  }
+
+  /**
+   * Passes the samples of a series with timestamps in (startTimestampExclusive, endTimestampInclusive] to the consumer in
+   * timestamp order.
+   */
+  public void query(long sessionId, int seriesId, long startTimestampExclusive, long endTimestampInclusive,
+                    @NotNull SampleConsumer consumer) {
+    Series series = mySeries.get(new SeriesKey(sessionId, seriesId));
+    if (series == null) {
+      return;
+    }
+    synchronized (series) {
+      if (series.myIsOrdered) {
+        // Timestamps strictly increase in append order, so the samples can be passed on as they are decoded.
+        forEachSample(series, startTimestampExclusive, endTimestampInclusive, consumer);
+        return;
+      }
+
+      List<long[]> samples = new ArrayList<>();
+      forEachSample(series, startTimestampExclusive, endTimestampInclusive, (timestamp, values) -> {
+        long[] sample = new long[values.length + 1];
+        sample[0] = timestamp;
+        System.arraycopy(values, 0, sample, 1, values.length);
+        samples.add(sample);
+      });
+      // The sort is stable, so the first sample appended for a timestamp comes first and the later ones are skipped.
+      samples.sort(Comparator.comparingLong(sample -> sample[0]));
+      long[] values = new long[series.myColumnCount];
+      for (int i = 0; i < samples.size(); i++) {
+        long[] sample = samples.get(i);
+        if (i > 0 && sample[0] == samples.get(i - 1)[0]) {
+          continue;
+        }
+        System.arraycopy(sample, 1, values, 0, values.length);
+        consumer.accept(sample[0], values);
+      }
+    }
+  }
+
+  /**
+   * Removes all series of a session and deletes its backing file.
+   */
+  public void deleteSession(long sessionId) {
+    for (Iterator<Map.Entry<SeriesKey, Series>> it = mySeries.entrySet().iterator(); it.hasNext(); ) {
+      Map.Entry<SeriesKey, Series> entry = it.next();
+      if (entry.getKey().mySessionId == sessionId) {
+        it.remove();
+        Series series = entry.getValue();
+        // Wait for appends and queries holding on to the series, and make sure they see no blocks of the deleted file.
+        synchronized (series) {
+          series.myBlocks.clear();
+          series.myOpenCount = 0;
+        }
+      }
+    }
+    SessionFile file;
+    synchronized (this) {
+      file = mySessionFiles.remove(sessionId);
+    }
+    if (file != null) {
+      file.delete();
+    }
+  }
+
+  /**
+   * Returns the number of bytes used by the encoded blocks of all series, either in the backing files or in memory.
+   */
+  public long getEncodedSize() {
+    long size = 0;
+    for (Series series : mySeries.values()) {
+      synchronized (series) {
+        for (Block block : series.myBlocks) {
+          size += block.myLength;
+        }
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Closes and deletes the backing files. The store must not be used afterwards.
+   */
+  @Override
+  public void close() throws IOException {
+    mySeries.clear();
+    List<SessionFile> files;
+    synchronized (this) {
+      files = new ArrayList<>(mySessionFiles.values());
+      mySessionFiles.clear();
+    }
+    for (SessionFile file : files) {
+      file.delete();
+    }
+    if (myDirectory != null) {
+      try {
+        Files.deleteIfExists(myDirectory);
+      }
+      catch (IOException ignored) {
+        // The directory is not empty if a file could not be deleted, in which case it is deleted on exit.
+      }
+    }
+  }
+
+  private void forEachSample(@NotNull Series series, long startTimestampExclusive, long endTimestampInclusive,
+                             @NotNull SampleConsumer consumer) {
+    long[] timestamps = new long[BLOCK_SIZE];
+    long[][] values = new long[series.myColumnCount][BLOCK_SIZE];
+    long[] sample = new long[series.myColumnCount];
+    for (Block block : series.myBlocks) {
+      if (block.myMaxTimestamp <= startTimestampExclusive || block.myMinTimestamp > endTimestampInclusive) {
+        continue;
+      }
+      decodeBlock(series, block, timestamps, values);
+      forEachSample(timestamps, values, block.myCount, startTimestampExclusive, endTimestampInclusive, sample, consumer);
+    }
+    forEachSample(series.myOpenTimestamps, series.myOpenValues, series.myOpenCount, startTimestampExclusive, endTimestampInclusive,
+                  sample, consumer);
+  }
+
+  private static void forEachSample(@NotNull long[] timestamps, @NotNull long[][] values, int count, long startTimestampExclusive,
+                                    long endTimestampInclusive, @NotNull long[] sample, @NotNull SampleConsumer consumer) {
+    for (int i = 0; i < count; i++) {
+      long timestamp = timestamps[i];
+      if (timestamp > startTimestampExclusive && timestamp <= endTimestampInclusive) {
+        for (int column = 0; column < sample.length; column++) {
+          sample[column] = values[column][i];
+        }
+        consumer.accept(timestamp, sample);
+      }
+    }
+  }
+
+  @NotNull
+  private Block sealBlock(@NotNull Series series) {
+    int count = series.myOpenCount;
+    long minTimestamp = Long.MAX_VALUE;
+    long maxTimestamp = Long.MIN_VALUE;
+    for (int i = 0; i < count; i++) {
+      minTimestamp = Math.min(minTimestamp, series.myOpenTimestamps[i]);
+      maxTimestamp = Math.max(maxTimestamp, series.myOpenTimestamps[i]);
+    }
+
+    ByteArrayOutputStream stream = new ByteArrayOutputStream(count * (series.myColumnCount + 1) * 2);
+    encodeColumn(series.myOpenTimestamps, count, stream);
+    for (long[] column : series.myOpenValues) {
+      encodeColumn(column, count, stream);
+    }
+    byte[] data = stream.toByteArray();
+    Block block = new Block(count, minTimestamp, maxTimestamp, data.length);
+    if (series.myFile == null) {
+      series.myFile = getSessionFile(series.mySessionId);
+    }
+    if (series.myFile == null || !series.myFile.write(block, data)) {
+      block.myData = data;
+    }
+    return block;
+  }
+
+  /**
+   * Returns the backing file of a session, or null if the store keeps its blocks in memory or the file cannot be opened.
+   */
+  @Nullable
+  private synchronized SessionFile getSessionFile(long sessionId) {
+    if (myDirectory == null) {
+      return null;
+    }
+    SessionFile file = mySessionFiles.get(sessionId);
+    if (file == null) {
+      try {
+        file = new SessionFile(myDirectory.resolve(sessionId + SESSION_FILE_SUFFIX), myMaxSegmentSize);
+      }
+      catch (IOException e) {
+        return null;
+      }
+      mySessionFiles.put(sessionId, file);
+    }
+    return file;
+  }
+
+  private static void decodeBlock(@NotNull Series series, @NotNull Block block, @NotNull long[] timestamps, @NotNull long[][] values) {
+    ByteBuffer buffer = block.myData != null ? ByteBuffer.wrap(block.myData) : series.myFile.read(block);
+    decodeColumn(buffer, block.myCount, timestamps);
+    for (long[] column : values) {
+      decodeColumn(buffer, block.myCount, column);
+    }
+  }
+
+  @VisibleForTesting
+  synchronized int getMappedSegmentCount(long sessionId) {
+    SessionFile file = mySessionFiles.get(sessionId);
+    return file == null ? 0 : file.getMappedSegmentCount();
+  }
+
+  private static void encodeColumn(@NotNull long[] column, int count, @NotNull ByteArrayOutputStream stream) {
+    long previous = 0;
+    for (int i = 0; i < count; i++) {
+      long delta = column[i] - previous;
+      previous = column[i];
+      // Zigzag encoding keeps small negative deltas small.
+      long value = (delta << 1) ^ (delta >> 63);
+      while ((value & ~0x7FL) != 0) {
+        stream.write((int)((value & 0x7F) | 0x80));
+        value >>>= 7;
+      }
+      stream.write((int)value);
+    }
+  }
+
+  private static void decodeColumn(@NotNull ByteBuffer buffer, int count, @NotNull long[] column) {
+    long previous = 0;
+    for (int i = 0; i < count; i++) {
+      long value = 0;
+      int shift = 0;
+      byte b;
+      do {
+        b = buffer.get();
+        value |= (long)(b & 0x7F) << shift;
+        shift += 7;
+      }
+      while ((b & 0x80) != 0);
+      previous += (value >>> 1) ^ -(value & 1);
+      column[i] = previous;
+    }
+  }
+
+  /**
+   * The backing file of the blocks of one session.
+   */
+  private static final class SessionFile {
+    @NotNull private final Path myPath;
+    @NotNull private final FileChannel myChannel;
+    private final int myMaxSegmentSize;
+
+    // Guarded by this.
+    private long mySize;
+    // Guarded by this. Mapped regions of the file by their offset. A region is added when a block outside of the mapped
+    // ones is read, so regions are never remapped and no region is larger than myMaxSegmentSize.
+    private final NavigableMap<Long, MappedByteBuffer> mySegments = new TreeMap<>();
+
+    private SessionFile(@NotNull Path path, int maxSegmentSize) throws IOException {
+      myPath = path;
+      myChannel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+                                   StandardOpenOption.WRITE);
+      myMaxSegmentSize = maxSegmentSize;
+    }
+
+    /**
+     * Appends the encoded block to the file. Returns false if the block could not be written, in which case it is kept
+     * in memory.
+     */
+    private synchronized boolean write(@NotNull Block block, @NotNull byte[] data) {
+      try {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        long position = mySize;
+        while (buffer.hasRemaining()) {
+          position += myChannel.write(buffer, position);
+        }
+        block.myOffset = mySize;
+        mySize = position;
+        return true;
+      }
+      catch (IOException e) {
+        return false;
+      }
+    }
+
+    @NotNull
+    private synchronized ByteBuffer read(@NotNull Block block) {
+      long end = block.myOffset + block.myLength;
+      Map.Entry<Long, MappedByteBuffer> segment = mySegments.floorEntry(block.myOffset);
+      if (segment == null || segment.getKey() + segment.getValue().capacity() < end) {
+        // Map the region following the closest mapped one, which usually holds the blocks appended since it was mapped.
+        long start = segment == null ? 0 : segment.getKey() + segment.getValue().capacity();
+        if (start > block.myOffset || end - start > myMaxSegmentSize) {
+          start = block.myOffset;
+        }
+        long size = Math.max(end - start, Math.min(mySize - start, myMaxSegmentSize));
+        try {
+          segment = new AbstractMap.SimpleImmutableEntry<>(start, myChannel.map(FileChannel.MapMode.READ_ONLY, start, size));
+        }
+        catch (IOException e) {
+          throw new IllegalStateException("Unable to map " + myPath, e);
+        }
+        mySegments.put(segment.getKey(), segment.getValue());
+      }
+      ByteBuffer buffer = segment.getValue().duplicate();
+      // Both offsets are within the segment, which is never larger than Integer.MAX_VALUE.
+      buffer.position(Math.toIntExact(block.myOffset - segment.getKey()));
+      buffer.limit(Math.toIntExact(end - segment.getKey()));
+      return buffer.slice();
+    }
+
+    private synchronized int getMappedSegmentCount() {
+      return mySegments.size();
+    }
+
+    /**
+     * Closes and deletes the file. Mapped regions keep the file on some platforms until they are collected, in which case
+     * it is deleted on exit.
+     */
+    private synchronized void delete() {
+      mySegments.clear();
+      try {
+        myChannel.close();
+        Files.deleteIfExists(myPath);
+      }
+      catch (IOException e) {
+        myPath.toFile().deleteOnExit();
+      }
+    }
+  }
+
+  private static final class SeriesKey {
+    private final long mySessionId;
+    private final int mySeriesId;
+
+    private SeriesKey(long sessionId, int seriesId) {
+      mySessionId = sessionId;
+      mySeriesId = seriesId;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof SeriesKey)) {
+        return false;
+      }
+      SeriesKey other = (SeriesKey)obj;
+      return mySessionId == other.mySessionId && mySeriesId == other.mySeriesId;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * Long.hashCode(mySessionId) + mySeriesId;
+    }
+  }
+
+  private static final class Series {
+    private final long mySessionId;
+    private final int myColumnCount;
+    private final List<Block> myBlocks = new ArrayList<>();
+    private final long[] myOpenTimestamps = new long[BLOCK_SIZE];
+    private final long[][] myOpenValues;
+    private int myOpenCount;
+    private long myLastTimestamp;
+    /** Whether every sample has a larger timestamp than the previous one, so queries need not sort the samples. */
+    private boolean myIsOrdered = true;
+    /** The file holding the sealed blocks not kept in memory, opened when the first block is sealed. */
+    @Nullable private SessionFile myFile;
+
+    private Series(long sessionId, int columnCount) {
+      mySessionId = sessionId;
+      myColumnCount = columnCount;
+      myOpenValues = new long[columnCount][BLOCK_SIZE];
+    }
+  }
+
+  private static final class Block {
+    private final int myCount;
+    private final long myMinTimestamp;
+    private final long myMaxTimestamp;
+    private final int myLength;
+    /** Offset of the block in the session file. Only meaningful if {@link #myData} is null. */
+    private long myOffset;
+    /** Encoded block if it is kept in memory. */
+    @Nullable private byte[] myData;
+
+    private Block(int count, long minTimestamp, long maxTimestamp, int length) {
+      myCount = count;
+      myMinTimestamp = minTimestamp;
+      myMaxTimestamp = maxTimestamp;
+      myLength = length;
+    }
+  }
+}
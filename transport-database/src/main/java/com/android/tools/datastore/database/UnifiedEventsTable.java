@@ -95,15 +95,15 @@ public class UnifiedEventsTable extends DataStoreTable<UnifiedEventsTable.Statem
   }
 
   public void insertUnifiedEvent(long streamId, @NotNull Event event) {
-    execute(Statements.INSERT_EVENT,
-            streamId,
-            event.getPid(),
-            event.getGroupId(),
-            event.getKind().getNumber(),
-            event.getCommandId(),
-            event.getTimestamp(),
-            event.getIsEnded() ? 1 : 0,
-            event.toByteArray());
+    executeDeferred(Statements.INSERT_EVENT,
+                    streamId,
+                    event.getPid(),
+                    event.getGroupId(),
+                    event.getKind().getNumber(),
+                    event.getCommandId(),
+                    event.getTimestamp(),
+                    event.getIsEnded() ? 1 : 0,
+                    event.toByteArray());
   }
 
   public void deleteEvents(long streamId, int pid, long groupId, Event.Kind kind, long fromTimestamp, long toTimestamp) {
@@ -18,6 +18,7 @@ package com.android.tools.datastore.service;
 import com.android.tools.datastore.DataStoreService;
 import com.android.tools.datastore.ServicePassThrough;
 import com.android.tools.datastore.database.NetworkTable;
+import com.android.tools.datastore.database.TimeSeriesStore;
 import com.android.tools.datastore.poller.NetworkDataPoller;
 import com.android.tools.datastore.poller.PollRunner;
 import com.android.tools.profiler.proto.NetworkProfiler;
@@ -40,9 +41,13 @@ public class NetworkService extends NetworkServiceGrpc.NetworkServiceImplBase im
   private final DataStoreService myService;
 
   public NetworkService(@NotNull DataStoreService service, Consumer<Runnable> fetchExecutor) {
+    this(service, fetchExecutor, new TimeSeriesStore());
+  }
+
+  public NetworkService(@NotNull DataStoreService service, Consumer<Runnable> fetchExecutor, @NotNull TimeSeriesStore timeSeriesStore) {
     myFetchExecutor = fetchExecutor;
     myService = service;
-    myNetworkTable = new NetworkTable();
+    myNetworkTable = new NetworkTable(timeSeriesStore);
   }
 
   @Override
@@ -19,6 +19,7 @@ import com.android.tools.datastore.DataStoreService;
 import com.android.tools.datastore.LogService;
 import com.android.tools.datastore.ServicePassThrough;
 import com.android.tools.datastore.database.ProfilerTable;
+import com.android.tools.datastore.database.TimeSeriesStore;
 import com.android.tools.profiler.proto.Common;
 import com.android.tools.profiler.proto.Profiler.BeginSessionRequest;
 import com.android.tools.profiler.proto.Profiler.BeginSessionResponse;
@@ -46,12 +47,20 @@ public class ProfilerService extends ProfilerServiceGrpc.ProfilerServiceImplBase
   @NotNull private final LogService myLogService;
   private final ProfilerTable myTable;
   @NotNull private final DataStoreService myService;
+  @NotNull private final TimeSeriesStore myTimeSeriesStore;
 
   public ProfilerService(@NotNull DataStoreService service,
                          @NotNull LogService logService) {
+    this(service, logService, new TimeSeriesStore());
+  }
+
+  public ProfilerService(@NotNull DataStoreService service,
+                         @NotNull LogService logService,
+                         @NotNull TimeSeriesStore timeSeriesStore) {
     myService = service;
     myLogService = logService;
     myTable = new ProfilerTable();
+    myTimeSeriesStore = timeSeriesStore;
   }
 
   @NotNull
@@ -119,6 +128,7 @@ public class ProfilerService extends ProfilerServiceGrpc.ProfilerServiceImplBase
   public void deleteSession(DeleteSessionRequest request, StreamObserver<DeleteSessionResponse> responseObserver) {
     // TODO (b\67509712): properly delete all data related to the session.
     myTable.deleteSession(request.getSessionId());
+    myTimeSeriesStore.deleteSession(request.getSessionId());
     responseObserver.onNext(DeleteSessionResponse.getDefaultInstance());
     responseObserver.onCompleted();
   }
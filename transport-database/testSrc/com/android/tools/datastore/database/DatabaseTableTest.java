@@ -24,6 +24,7 @@ import org.junit.Test;
 
 import java.io.File;
 import java.sql.Connection;
+import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.concurrent.CountDownLatch;
@@ -106,6 +107,71 @@ public class DatabaseTableTest {
     }
   }
 
+  @Test
+  public void testDeferredWritesAreVisibleToQueries() throws Exception {
+    for (int i = 0; i < TEST_DATA_COUNT; i++) {
+      myTable.insertDataDeferred(i);
+    }
+    assertThat(myTable.getWriteStats().getPendingWrites()).isEqualTo(TEST_DATA_COUNT);
+    assertThat(myTable.getWriteStats().getRowsWritten()).isEqualTo(0);
+
+    // Queries flush the pending writes first.
+    ResultSet rs = myTable.readDataRaw();
+    int count = 0;
+    while (rs.next()) {
+      assertThat(rs.getInt(1)).isEqualTo(count++);
+    }
+    assertThat(count).isEqualTo(TEST_DATA_COUNT);
+
+    DataStoreTable.WriteStats stats = myTable.getWriteStats();
+    assertThat(stats.getPendingWrites()).isEqualTo(0);
+    assertThat(stats.getRowsWritten()).isEqualTo(TEST_DATA_COUNT);
+    assertThat(stats.getBatchesWritten()).isEqualTo(1);
+  }
+
+  @Test
+  public void testDeferredWritesAreFlushedWhenBufferIsFull() throws Exception {
+    for (int i = 0; i < 1000; i++) {
+      myTable.insertDataDeferred(i);
+    }
+    DataStoreTable.WriteStats stats = myTable.getWriteStats();
+    assertThat(stats.getPendingWrites()).isLessThan(1000);
+    assertThat(stats.getRowsWritten() + stats.getPendingWrites()).isEqualTo(1000);
+    assertThat(stats.getBatchesWritten()).isGreaterThan(0L);
+  }
+
+  @Test
+  public void testDeferredWritesAreFlushedOnDisconnect() throws Exception {
+    for (int i = 0; i < TEST_DATA_COUNT; i++) {
+      myTable.insertDataDeferred(i);
+    }
+    myDatabase.disconnect();
+    assertThat(myTable.getWriteStats().getPendingWrites()).isEqualTo(0);
+    assertThat(myTable.getWriteStats().getRowsWritten()).isEqualTo(TEST_DATA_COUNT);
+
+    // The writes have been committed to the database file.
+    try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + myDbFile.getPath());
+         ResultSet rs = connection.createStatement().executeQuery("SELECT COUNT(*) FROM Thread_Table")) {
+      assertThat(rs.getInt(1)).isEqualTo(TEST_DATA_COUNT);
+    }
+  }
+
+  @Test
+  public void testDeferredWritesAreFlushedByDatabase() throws Exception {
+    myTable.insertDataDeferred(1);
+    assertThat(myTable.getWriteStats().getPendingWrites()).isEqualTo(1);
+
+    // Tables of other databases are not flushed.
+    DataStoreDatabase otherDatabase = new DataStoreDatabase("", DataStoreDatabase.Characteristic.PERFORMANT, new FakeLogService());
+    otherDatabase.flushPendingWrites();
+    otherDatabase.disconnect();
+    assertThat(myTable.getWriteStats().getPendingWrites()).isEqualTo(1);
+
+    myDatabase.flushPendingWrites();
+    assertThat(myTable.getWriteStats().getPendingWrites()).isEqualTo(0);
+    assertThat(myTable.getWriteStats().getRowsWritten()).isEqualTo(1);
+  }
+
   /**
    * Runnable class that handles querying the database as fast as possible.
    */
@@ -184,6 +250,10 @@ public class DatabaseTableTest {
       }
     }
 
+    public void insertDataDeferred(int data) {
+      executeDeferred(ThreadTableStatement.INSERT_DATA, data);
+    }
+
     public ResultSet readDataRaw() throws SQLException {
       return executeQuery(ThreadTableStatement.READ_DATA);
     }
@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.datastore.database;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TimeSeriesStoreTest {
+  private static final long SESSION_ID = 1;
+  private static final int SERIES_ID = 2;
+  private static final int SAMPLE_COUNT = TimeSeriesStore.BLOCK_SIZE * 3 + 10;
+
+  @Rule
+  public TemporaryFolder myTemporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testInMemoryStore() throws Exception {
+    try (TimeSeriesStore store = new TimeSeriesStore()) {
+      checkStore(store);
+    }
+  }
+
+  @Test
+  public void testFileBackedStore() throws Exception {
+    File directory = new File(myTemporaryFolder.getRoot(), "timeseries");
+    File file = new File(directory, SESSION_ID + ".bin");
+    try (TimeSeriesStore store = new TimeSeriesStore(directory.toPath())) {
+      checkStore(store);
+      // Three blocks have been written to the file of the session. Delta encoding needs a few bytes per value.
+      assertThat(file.length()).isEqualTo(store.getEncodedSize());
+      assertThat(file.length()).isLessThan(TimeSeriesStore.BLOCK_SIZE * 3 * 3 * 4L);
+      // The other session has no complete block yet.
+      assertThat(new File(directory, (SESSION_ID + 1) + ".bin").exists()).isFalse();
+    }
+    assertThat(file.exists()).isFalse();
+    assertThat(directory.exists()).isFalse();
+  }
+
+  @Test
+  public void testFileMappedInSegments() throws Exception {
+    // Segments smaller than a block still hold at least the block being read.
+    try (TimeSeriesStore store = new TimeSeriesStore(myTemporaryFolder.newFolder().toPath(), 100)) {
+      checkStore(store);
+      int segmentCount = store.getMappedSegmentCount(SESSION_ID);
+      assertThat(segmentCount).isEqualTo(3);
+
+      // Reading the blocks again reuses the mapped segments.
+      assertThat(query(store, SESSION_ID, Long.MIN_VALUE, Long.MAX_VALUE)).hasSize(SAMPLE_COUNT);
+      assertThat(store.getMappedSegmentCount(SESSION_ID)).isEqualTo(segmentCount);
+    }
+  }
+
+  @Test
+  public void testOnlyAppendedBlocksAreMapped() throws Exception {
+    try (TimeSeriesStore store = new TimeSeriesStore(myTemporaryFolder.newFolder().toPath())) {
+      for (int i = 0; i < TimeSeriesStore.BLOCK_SIZE; i++) {
+        store.append(SESSION_ID, SERIES_ID, timestamp(i), i);
+      }
+      assertThat(query(store, SESSION_ID, Long.MIN_VALUE, Long.MAX_VALUE)).hasSize(TimeSeriesStore.BLOCK_SIZE);
+      assertThat(store.getMappedSegmentCount(SESSION_ID)).isEqualTo(1);
+
+      for (int i = TimeSeriesStore.BLOCK_SIZE; i < SAMPLE_COUNT; i++) {
+        store.append(SESSION_ID, SERIES_ID, timestamp(i), i);
+      }
+      List<String> all = query(store, SESSION_ID, Long.MIN_VALUE, Long.MAX_VALUE);
+      assertThat(all).hasSize(SAMPLE_COUNT);
+      for (int i = 0; i < SAMPLE_COUNT; i++) {
+        assertThat(all.get(i)).isEqualTo(timestamp(i) + ":" + i);
+      }
+      // The blocks appended after the first query are mapped together, without remapping the first one.
+      assertThat(store.getMappedSegmentCount(SESSION_ID)).isEqualTo(2);
+    }
+  }
+
+  @Test
+  public void testDuplicateTimestampsAreIgnored() throws Exception {
+    try (TimeSeriesStore store = new TimeSeriesStore()) {
+      store.append(SESSION_ID, SERIES_ID, 10, 1);
+      store.append(SESSION_ID, SERIES_ID, 10, 2);
+      store.append(SESSION_ID, SERIES_ID, 20, -3);
+      // A duplicate that does not directly follow the first sample with its timestamp.
+      store.append(SESSION_ID, SERIES_ID, 10, 4);
+      store.append(SESSION_ID, SERIES_ID, 30, 5);
+      store.append(SESSION_ID, SERIES_ID, 20, 6);
+      assertThat(query(store, SESSION_ID, Long.MIN_VALUE, Long.MAX_VALUE)).containsExactly("10:1", "20:-3", "30:5").inOrder();
+    }
+  }
+
+  @Test
+  public void testOutOfOrderSamplesAreSorted() throws Exception {
+    try (TimeSeriesStore store = new TimeSeriesStore(myTemporaryFolder.newFolder().toPath())) {
+      // Append the samples in reverse, so they are spread over sealed blocks and the open block.
+      for (int i = SAMPLE_COUNT - 1; i >= 0; i--) {
+        store.append(SESSION_ID, SERIES_ID, timestamp(i), i);
+      }
+      // Duplicates of samples in a sealed block and in the open block.
+      store.append(SESSION_ID, SERIES_ID, timestamp(SAMPLE_COUNT - 1), -1);
+      store.append(SESSION_ID, SERIES_ID, timestamp(0), -1);
+
+      List<String> all = query(store, SESSION_ID, Long.MIN_VALUE, Long.MAX_VALUE);
+      assertThat(all).hasSize(SAMPLE_COUNT);
+      for (int i = 0; i < SAMPLE_COUNT; i++) {
+        assertThat(all.get(i)).isEqualTo(timestamp(i) + ":" + i);
+      }
+
+      int first = TimeSeriesStore.BLOCK_SIZE - 2;
+      int last = TimeSeriesStore.BLOCK_SIZE * 2 + 5;
+      List<String> range = query(store, SESSION_ID, timestamp(first), timestamp(last));
+      assertThat(range).hasSize(last - first);
+      assertThat(range.get(0)).isEqualTo(timestamp(first + 1) + ":" + (first + 1));
+      assertThat(range.get(range.size() - 1)).isEqualTo(timestamp(last) + ":" + last);
+    }
+  }
+
+  @Test
+  public void testDeleteSession() throws Exception {
+    File directory = myTemporaryFolder.newFolder();
+    try (TimeSeriesStore store = new TimeSeriesStore(directory.toPath())) {
+      for (int i = 0; i < SAMPLE_COUNT; i++) {
+        store.append(SESSION_ID, SERIES_ID, timestamp(i), i);
+        store.append(SESSION_ID + 1, SERIES_ID, timestamp(i), i);
+      }
+      File file = new File(directory, SESSION_ID + ".bin");
+      File otherFile = new File(directory, (SESSION_ID + 1) + ".bin");
+      assertThat(file.exists()).isTrue();
+      assertThat(otherFile.exists()).isTrue();
+
+      store.deleteSession(SESSION_ID);
+      assertThat(file.exists()).isFalse();
+      assertThat(query(store, SESSION_ID, Long.MIN_VALUE, Long.MAX_VALUE)).isEmpty();
+      assertThat(otherFile.exists()).isTrue();
+      assertThat(query(store, SESSION_ID + 1, Long.MIN_VALUE, Long.MAX_VALUE)).hasSize(SAMPLE_COUNT);
+      assertThat(store.getEncodedSize()).isEqualTo(otherFile.length());
+
+      // The session can be recorded again.
+      store.append(SESSION_ID, SERIES_ID, 10, 1);
+      assertThat(query(store, SESSION_ID, Long.MIN_VALUE, Long.MAX_VALUE)).containsExactly("10:1");
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testValueCountMismatch() throws Exception {
+    try (TimeSeriesStore store = new TimeSeriesStore()) {
+      store.append(SESSION_ID, SERIES_ID, 10, 1, 2);
+      store.append(SESSION_ID, SERIES_ID, 20, 1);
+    }
+  }
+
+  private static void checkStore(@NotNull TimeSeriesStore store) {
+    for (int i = 0; i < SAMPLE_COUNT; i++) {
+      store.append(SESSION_ID, SERIES_ID, timestamp(i), i, -i * 1000L);
+    }
+    // Another session with the same series.
+    store.append(SESSION_ID + 1, SERIES_ID, timestamp(0), 42, 42);
+
+    List<String> all = query(store, SESSION_ID, Long.MIN_VALUE, Long.MAX_VALUE);
+    assertThat(all).hasSize(SAMPLE_COUNT);
+    for (int i = 0; i < SAMPLE_COUNT; i++) {
+      assertThat(all.get(i)).isEqualTo(timestamp(i) + ":" + i + "," + (-i * 1000L));
+    }
+
+    // The start of the range is exclusive and the end is inclusive, like the database queries.
+    int first = TimeSeriesStore.BLOCK_SIZE - 2;
+    int last = TimeSeriesStore.BLOCK_SIZE * 2 + 5;
+    List<String> range = query(store, SESSION_ID, timestamp(first), timestamp(last));
+    assertThat(range).hasSize(last - first);
+    assertThat(range.get(0)).isEqualTo(timestamp(first + 1) + ":" + (first + 1) + "," + (-(first + 1) * 1000L));
+    assertThat(range.get(range.size() - 1)).isEqualTo(timestamp(last) + ":" + last + "," + (-last * 1000L));
+
+    assertThat(query(store, SESSION_ID + 1, Long.MIN_VALUE, Long.MAX_VALUE)).containsExactly(timestamp(0) + ":42,42");
+    assertThat(query(store, SESSION_ID + 2, Long.MIN_VALUE, Long.MAX_VALUE)).isEmpty();
+  }
+
+  private static long timestamp(int index) {
+    // Sampling every 250ms with some jitter.
+    return 1_000_000_000L + index * 250_000_000L + (index % 7) * 1000;
+  }
+
+  @NotNull
+  private static List<String> query(@NotNull TimeSeriesStore store, long sessionId, long start, long end) {
+    List<String> samples = new ArrayList<>();
+    store.query(sessionId, SERIES_ID, start, end, (timestamp, values) -> {
+      StringBuilder sample = new StringBuilder().append(timestamp).append(':');
+      for (int i = 0; i < values.length; i++) {
+        sample.append(i == 0 ? "" : ",").append(values[i]);
+      }
+      samples.add(sample.toString());
+    });
+    return samples;
+  }
+}